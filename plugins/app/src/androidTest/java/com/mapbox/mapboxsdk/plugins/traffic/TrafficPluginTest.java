@@ -27,12 +27,12 @@ import static android.support.test.espresso.Espresso.onView;
 import static android.support.test.espresso.assertion.ViewAssertions.matches;
 import static android.support.test.espresso.matcher.ViewMatchers.isDisplayed;
 import static android.support.test.espresso.matcher.ViewMatchers.withId;
-import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.Local;
-import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.MotorWay;
-import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.Primary;
-import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.Secondary;
+import static com.mapbox.mapboxsdk.plugins.traffic.TrafficLayerTables.Local;
+import static com.mapbox.mapboxsdk.plugins.traffic.TrafficLayerTables.MotorWay;
+import static com.mapbox.mapboxsdk.plugins.traffic.TrafficLayerTables.Primary;
+import static com.mapbox.mapboxsdk.plugins.traffic.TrafficLayerTables.Secondary;
+import static com.mapbox.mapboxsdk.plugins.traffic.TrafficLayerTables.Trunk;
 import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.TrafficData;
-import static com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin.Trunk;
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -94,6 +94,26 @@ public class TrafficPluginTest {
     });
   }
 
+  @Test
+  public void hiddenStateReported() throws Exception {
+    executeTrafficTest(new TrafficPluginAction.OnPerformTrafficAction() {
+      @Override
+      public void onTrafficAction(TrafficPlugin trafficPlugin, MapboxMap mapboxMap, UiController uiController) {
+        final int[] lastState = new int[] {-1};
+        TrafficPlugin.OnTrafficStateChangeListener listener = new TrafficPlugin.OnTrafficStateChangeListener() {
+          @Override
+          public void onTrafficStateChanged(int state, Throwable cause) {
+            lastState[0] = state;
+          }
+        };
+        trafficPlugin.addOnTrafficStateChangeListener(listener);
+        trafficPlugin.toggle();
+        trafficPlugin.removeOnTrafficStateChangeListener(listener);
+        assertEquals(TrafficPlugin.STATE_HIDDEN, lastState[0]);
+      }
+    });
+  }
+
   @Test
   public void sourceAdded() throws Exception {
     executeTrafficTest(new TrafficPluginAction.OnPerformTrafficAction() {
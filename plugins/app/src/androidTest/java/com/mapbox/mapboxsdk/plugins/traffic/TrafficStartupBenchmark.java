@@ -0,0 +1,112 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import dalvik.system.PathClassLoader;
+import timber.log.Timber;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the main thread cost of resolving the traffic style definitions at startup.
+ * <p>
+ * Every sample loads the traffic plugin in a new class loader, its classes and the shared specs start cold as in a
+ * new process. The first lookup of the layer specs on the main thread, as made during onMapReady without prewarming,
+ * is compared with the same first lookup after {@link TrafficPlugin#prewarm()} ran on a background thread.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrafficStartupBenchmark {
+
+  private static final int ITERATIONS = 10;
+
+  @Test
+  public void mainThreadCost() throws Exception {
+    long[] coldNanos = new long[ITERATIONS];
+    long[] prewarmedNanos = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      coldNanos[i] = timeFirstLookup(newClassLoader(), false);
+      prewarmedNanos[i] = timeFirstLookup(newClassLoader(), true);
+    }
+
+    long coldMedian = median(coldNanos);
+    long prewarmedMedian = median(prewarmedNanos);
+    Timber.i("First traffic definitions lookup on main thread: cold %d ns, prewarmed %d ns", coldMedian,
+      prewarmedMedian);
+    assertTrue(prewarmedMedian < coldMedian);
+  }
+
+  /**
+   * Returns a class loader of the application sharing none of its classes with the running test.
+   */
+  private static ClassLoader newClassLoader() {
+    Context context = InstrumentationRegistry.getTargetContext();
+    return new PathClassLoader(context.getPackageCodePath(), context.getApplicationInfo().nativeLibraryDir,
+      ClassLoader.getSystemClassLoader().getParent());
+  }
+
+  /**
+   * Times the first lookup of the layer specs on the main thread, optionally after prewarming on another thread.
+   */
+  private static long timeFirstLookup(ClassLoader classLoader, boolean prewarm) throws Exception {
+    Class<?> registry = classLoader.loadClass(TrafficLayerRegistry.class.getName());
+    assertNotSame(TrafficLayerRegistry.class, registry);
+    final Method getLayerSpecs = registry.getDeclaredMethod("getLayerSpecs");
+    getLayerSpecs.setAccessible(true);
+
+    if (prewarm) {
+      final Method prewarmMethod = classLoader.loadClass(TrafficPlugin.class.getName()).getMethod("prewarm");
+      final Exception[] prewarmFailure = new Exception[1];
+      Thread prewarmThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            prewarmMethod.invoke(null);
+          } catch (IllegalAccessException | InvocationTargetException exception) {
+            prewarmFailure[0] = exception;
+          }
+        }
+      });
+      prewarmThread.start();
+      prewarmThread.join();
+      if (prewarmFailure[0] != null) {
+        throw prewarmFailure[0];
+      }
+    }
+
+    final long[] nanos = new long[1];
+    final Exception[] failure = new Exception[1];
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.nanoTime();
+        try {
+          getLayerSpecs.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException exception) {
+          failure[0] = exception;
+        }
+        nanos[0] = System.nanoTime() - start;
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return nanos[0];
+  }
+
+  private static long median(long[] samples) {
+    long[] sorted = samples.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
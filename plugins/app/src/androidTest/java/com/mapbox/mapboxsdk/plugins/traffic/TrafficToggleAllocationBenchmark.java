@@ -0,0 +1,85 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.os.Debug;
+import android.support.test.espresso.Espresso;
+import android.support.test.espresso.UiController;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.testapp.activity.TrafficActivity;
+import com.mapbox.mapboxsdk.utils.OnMapReadyIdlingResource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import timber.log.Timber;
+
+import static android.support.test.espresso.Espresso.onView;
+import static android.support.test.espresso.assertion.ViewAssertions.matches;
+import static android.support.test.espresso.matcher.ViewMatchers.isDisplayed;
+import static android.support.test.espresso.matcher.ViewMatchers.withId;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies toggling installed traffic layers doesn't allocate on the main thread.
+ * <p>
+ * After a warm-up, counts the objects allocated by the main thread while toggling traffic repeatedly. The toggle path
+ * reuses the installed layer handles and shared property values, any allocation fails the benchmark.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrafficToggleAllocationBenchmark {
+
+  private static final int WARM_UP_ITERATIONS = 10;
+  private static final int ITERATIONS = 100;
+
+  @Rule
+  public ActivityTestRule<TrafficActivity> rule = new ActivityTestRule<>(TrafficActivity.class);
+
+  private OnMapReadyIdlingResource idlingResource;
+  private MapboxMap mapboxMap;
+  private TrafficPlugin trafficPlugin;
+
+  @Before
+  public void beforeTest() {
+    idlingResource = new OnMapReadyIdlingResource(rule.getActivity());
+    Espresso.registerIdlingResources(idlingResource);
+    onView(withId(android.R.id.content)).check(matches(isDisplayed()));
+    mapboxMap = idlingResource.getMapboxMap();
+    trafficPlugin = rule.getActivity().getTrafficPlugin();
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void toggleDoesNotAllocate() throws Exception {
+    onView(withId(android.R.id.content)).perform(new TrafficPluginAction(mapboxMap, trafficPlugin,
+      new TrafficPluginAction.OnPerformTrafficAction() {
+        @Override
+        public void onTrafficAction(TrafficPlugin trafficPlugin, MapboxMap mapboxMap, UiController uiController) {
+          for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            trafficPlugin.toggle();
+          }
+
+          Debug.resetThreadAllocCount();
+          Debug.startAllocCounting();
+          for (int i = 0; i < ITERATIONS; i++) {
+            trafficPlugin.toggle();
+          }
+          Debug.stopAllocCounting();
+
+          int allocations = Debug.getThreadAllocCount();
+          Timber.i("Traffic toggle allocations over %d iterations: %d", ITERATIONS, allocations);
+          assertEquals(0, allocations);
+        }
+      }));
+  }
+
+  @After
+  public void afterTest() {
+    Espresso.unregisterIdlingResources(idlingResource);
+  }
+}
@@ -3,6 +3,7 @@ package com.mapbox.mapboxsdk.plugins.testapp;
 import android.app.Application;
 
 import com.mapbox.mapboxsdk.Mapbox;
+import com.mapbox.mapboxsdk.plugins.traffic.TrafficPlugin;
 import com.squareup.leakcanary.LeakCanary;
 
 import timber.log.Timber;
@@ -20,6 +21,16 @@ public class PluginApplication extends Application {
     LeakCanary.install(this);
     initializeLogger();
     Mapbox.getInstance(this, getString(R.string.mapbox_access_token));
+    prewarmTraffic();
+  }
+
+  private void prewarmTraffic() {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        TrafficPlugin.prewarm();
+      }
+    }, "traffic-prewarm").start();
   }
 
   private void initializeLogger() {
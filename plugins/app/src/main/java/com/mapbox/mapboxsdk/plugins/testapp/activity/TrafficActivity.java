@@ -33,10 +33,12 @@ public class TrafficActivity extends AppCompatActivity implements OnMapReadyCall
   private MapboxMap mapboxMap;
   private TrafficPlugin trafficPlugin;
   private StyleCycle styleCycle = new StyleCycle();
+  private Bundle savedInstanceState;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
+    this.savedInstanceState = savedInstanceState;
     setContentView(R.layout.activity_traffic);
     ButterKnife.bind(this);
 
@@ -49,7 +51,12 @@ public class TrafficActivity extends AppCompatActivity implements OnMapReadyCall
   public void onMapReady(final MapboxMap mapboxMap) {
     this.mapboxMap = mapboxMap;
     this.trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
-    this.trafficPlugin.toggle(); // Enable the traffic view by default
+    if (savedInstanceState != null) {
+      this.trafficPlugin.onRestoreInstanceState(savedInstanceState);
+      savedInstanceState = null;
+    } else {
+      this.trafficPlugin.toggle(); // Enable the traffic view by default
+    }
   }
 
   @OnClick(R.id.fabTraffic)
@@ -95,6 +102,9 @@ public class TrafficActivity extends AppCompatActivity implements OnMapReadyCall
   protected void onSaveInstanceState(Bundle outState) {
     super.onSaveInstanceState(outState);
     mapView.onSaveInstanceState(outState);
+    if (trafficPlugin != null) {
+      trafficPlugin.onSaveInstanceState(outState);
+    }
   }
 
   @Override
@@ -0,0 +1,111 @@
+package com.mapbox.mapboxsdk.plugins.traffic.benchmark;
+
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionGeofenceMonitor;
+import com.mapbox.mapboxsdk.plugins.traffic.data.Geofence;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TileIds;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTileDecoder;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTileEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time {@link CongestionGeofenceMonitor} takes to process a refresh of a whole region.
+ * <p>
+ * The region is a block of {@link #REGION_SIZE} by {@link #REGION_SIZE} z14 tiles of 500 random traffic lines each,
+ * monitored by {@link #GEOFENCE_COUNT} circular and polygonal geofences of 100 to 500 meters spread over the region.
+ * A quarter of the lines is severely congested. Each invocation updates all tiles of the region, alternating between
+ * two sets of tiles so geofences become congested and clear.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CongestionGeofenceMonitorBenchmark {
+
+  static final int GEOFENCE_COUNT = 10000;
+  static final int REGION_SIZE = 16;
+  private static final int REGION_X = 8400;
+  private static final int REGION_Y = 5600;
+
+  private CongestionGeofenceMonitor monitor;
+  private long[] tileIds;
+  private TrafficSegments[][] refreshes;
+  private int refresh;
+
+  @Setup
+  public void setup() throws IOException {
+    monitor = new CongestionGeofenceMonitor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    }, new CongestionGeofenceMonitor.Listener() {
+      @Override
+      public void onCongestionEntered(Geofence geofence) {
+      }
+
+      @Override
+      public void onCongestionCleared(Geofence geofence) {
+      }
+    });
+
+    Random random = new Random(42);
+    double west = TileIds.toLongitude(14, REGION_X);
+    double east = TileIds.toLongitude(14, REGION_X + REGION_SIZE);
+    double north = TileIds.toLatitude(14, REGION_Y);
+    double south = TileIds.toLatitude(14, REGION_Y + REGION_SIZE);
+    for (int i = 0; i < GEOFENCE_COUNT; i++) {
+      double longitude = west + random.nextDouble() * (east - west);
+      double latitude = south + random.nextDouble() * (north - south);
+      double radius = 100 + random.nextInt(400);
+      if (i % 2 == 0) {
+        monitor.add(Geofence.circle("circle-" + i, longitude, latitude, radius));
+      } else {
+        double delta = radius / 111000;
+        monitor.add(Geofence.polygon("polygon-" + i, new double[] {
+          longitude - delta, latitude - delta, longitude + delta, latitude - delta,
+          longitude + delta, latitude + delta, longitude - delta, latitude + delta
+        }));
+      }
+    }
+
+    TrafficTileDecoder decoder = new TrafficTileDecoder();
+    tileIds = new long[REGION_SIZE * REGION_SIZE];
+    refreshes = new TrafficSegments[2][tileIds.length];
+    for (int i = 0; i < tileIds.length; i++) {
+      tileIds[i] = TileIds.pack(14, REGION_X + i % REGION_SIZE, REGION_Y + i / REGION_SIZE);
+      for (int j = 0; j < refreshes.length; j++) {
+        byte[] tile = TrafficTileEncoder.createFixture(i * 2 + j, 500, 8);
+        refreshes[j][i] = new TrafficSegments();
+        decoder.decode(tile, 0, tile.length, tileIds[i], refreshes[j][i]);
+      }
+    }
+  }
+
+  @Benchmark
+  public CongestionGeofenceMonitor refreshRegion() {
+    TrafficSegments[] segments = refreshes[refresh++ % refreshes.length];
+    for (int i = 0; i < tileIds.length; i++) {
+      monitor.update(tileIds[i], segments[i]);
+    }
+    return monitor;
+  }
+}
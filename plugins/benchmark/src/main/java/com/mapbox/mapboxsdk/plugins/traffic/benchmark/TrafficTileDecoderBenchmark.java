@@ -0,0 +1,70 @@
+package com.mapbox.mapboxsdk.plugins.traffic.benchmark;
+
+import com.mapbox.mapboxsdk.plugins.traffic.data.TileIds;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTileDecoder;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTileEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number of traffic features decoded per second by {@link TrafficTileDecoder}.
+ * <p>
+ * Decodes a fixture tile of {@link #FEATURE_COUNT} random lines, either completely or filtered to congested
+ * motorways, in which case most features are skipped before their geometry is decoded.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TrafficTileDecoderBenchmark {
+
+  static final int FEATURE_COUNT = 1000;
+  private static final long TILE_ID = TileIds.pack(14, 4686, 6268);
+
+  private byte[] tile;
+  private TrafficTileDecoder decoder;
+  private TrafficTileDecoder filteredDecoder;
+  private TrafficSegments segments;
+
+  @Setup
+  public void setup() {
+    tile = TrafficTileEncoder.createFixture(42, FEATURE_COUNT, 8);
+    decoder = new TrafficTileDecoder();
+    filteredDecoder = new TrafficTileDecoder();
+    filteredDecoder.setFilter(TrafficTileDecoder.mask(TrafficCodes.CLASS_MOTORWAY),
+      TrafficTileDecoder.mask(TrafficCodes.CONGESTION_HEAVY, TrafficCodes.CONGESTION_SEVERE));
+    segments = new TrafficSegments(FEATURE_COUNT, FEATURE_COUNT * 8);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FEATURE_COUNT)
+  public int decodeAll() throws IOException {
+    segments.clear();
+    return decoder.decode(tile, 0, tile.length, TILE_ID, segments);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FEATURE_COUNT)
+  public int decodeFiltered() throws IOException {
+    segments.clear();
+    return filteredDecoder.decode(tile, 0, tile.length, TILE_ID, segments);
+  }
+}
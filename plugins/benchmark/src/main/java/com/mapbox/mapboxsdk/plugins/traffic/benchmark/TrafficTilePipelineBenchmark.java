@@ -0,0 +1,85 @@
+package com.mapbox.mapboxsdk.plugins.traffic.benchmark;
+
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionAggregator;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TileIds;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTileEncoder;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTilePipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number of tiles decoded and aggregated per second by {@link TrafficTilePipeline}, for an increasing
+ * number of threads.
+ * <p>
+ * Tiles are loaded from memory, so the score of each thread count divided by the score of a single thread is the
+ * speedup of decoding. With {@code threads} not exceeding the number of cores, the speedup should be close to
+ * {@code threads}; compare the results of a run on the target machine.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TrafficTilePipelineBenchmark {
+
+  static final int TILE_COUNT = 256;
+  private static final int FIXTURE_COUNT = 16;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  private ExecutorService executor;
+  private TrafficTilePipeline pipeline;
+  private long[] tileIds;
+  private byte[][] tiles;
+  private TrafficTilePipeline.TileLoader loader;
+
+  @Setup
+  public void setup() {
+    executor = TrafficTilePipeline.newExecutor(threads);
+    pipeline = new TrafficTilePipeline(executor, threads * 2);
+    tileIds = new long[TILE_COUNT];
+    for (int i = 0; i < TILE_COUNT; i++) {
+      tileIds[i] = TileIds.pack(14, i, 0);
+    }
+    tiles = new byte[FIXTURE_COUNT][];
+    for (int i = 0; i < FIXTURE_COUNT; i++) {
+      tiles[i] = TrafficTileEncoder.createFixture(i, 500, 8);
+    }
+    loader = new TrafficTilePipeline.TileLoader() {
+      @Override
+      public byte[] load(long tileId) {
+        return tiles[TileIds.getX(tileId) % FIXTURE_COUNT];
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TILE_COUNT)
+  public CongestionAggregator decodeTiles() throws IOException, InterruptedException {
+    return pipeline.run(tileIds, loader, TrafficTilePipeline.congestionProcessor());
+  }
+}
@@ -0,0 +1,63 @@
+package com.mapbox.mapboxsdk.plugins.pluginmanager;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+
+/**
+ * A plugin hosted by a {@link PluginManager}.
+ * <p>
+ * The plugin manager delivers the map change events a plugin subscribed to with {@link #getMapChangeEvents()}, other
+ * events are never delivered to the plugin. The lifecycle methods are called by the plugin manager, from the
+ * lifecycle methods of the activity or fragment hosting the map. All methods are called on the main thread.
+ * </p>
+ */
+public interface MapPlugin extends MapView.OnMapChangedListener {
+
+  /**
+   * Returns the map change events the plugin receives, read once when the plugin is added to a plugin manager.
+   *
+   * @return the map change events, constants of {@link MapView} like {@link MapView#DID_FINISH_LOADING_STYLE}
+   */
+  @NonNull
+  int[] getMapChangeEvents();
+
+  /**
+   * Called when the activity or fragment hosting the map starts, or when the plugin is added to a started plugin
+   * manager.
+   */
+  @UiThread
+  void onStart();
+
+  /**
+   * Called when the activity or fragment hosting the map stops, or when the plugin is removed from a started plugin
+   * manager.
+   */
+  @UiThread
+  void onStop();
+
+  /**
+   * Called when the activity or fragment hosting the map is destroyed, the plugin isn't used afterwards.
+   */
+  @UiThread
+  void onDestroy();
+
+  /**
+   * Saves the plugin state to a Bundle shared by all plugins of the plugin manager, keys must be unique.
+   *
+   * @param outState the Bundle to save the state to
+   */
+  @UiThread
+  void onSaveInstanceState(@NonNull Bundle outState);
+
+  /**
+   * Restores the plugin state from a Bundle previously saved with {@link #onSaveInstanceState(Bundle)}.
+   *
+   * @param savedInstanceState the Bundle to restore the state from, may be null
+   */
+  @UiThread
+  void onRestoreInstanceState(@Nullable Bundle savedInstanceState);
+}
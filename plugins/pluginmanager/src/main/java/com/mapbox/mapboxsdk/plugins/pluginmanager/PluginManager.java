@@ -0,0 +1,257 @@
+package com.mapbox.mapboxsdk.plugins.pluginmanager;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hosts the plugins of a {@link MapView}, sharing a single map change listener and lifecycle.
+ * <p>
+ * Create one plugin manager per map view, it registers the only {@link MapView.OnMapChangedListener} of its plugins.
+ * Map change events are routed through a dispatch table indexed by event, each event is only delivered to the
+ * plugins that subscribed to it with {@link MapPlugin#getMapChangeEvents()}. Frequent events like
+ * {@link MapView#REGION_IS_CHANGING} don't reach plugins that didn't ask for them, and an event nobody subscribed to
+ * costs a single array lookup. The table is rebuilt when plugins are added or removed, never while dispatching.
+ * </p>
+ * <p>
+ * Call {@link #onStart()}, {@link #onStop()}, {@link #onDestroy()}, {@link #onSaveInstanceState(Bundle)} and
+ * {@link #onRestoreInstanceState(Bundle)} from the matching methods of the activity or fragment hosting the map, they
+ * are forwarded to all plugins in the order they were added.
+ * </p>
+ */
+public final class PluginManager implements MapView.OnMapChangedListener {
+
+  private static final MapPlugin[][] EMPTY_TABLE = new MapPlugin[0][];
+
+  private final MapView mapView;
+  private final List<MapPlugin> plugins = new ArrayList<>();
+  private final List<int[]> pluginEvents = new ArrayList<>();
+  private MapPlugin[][] dispatchTable = EMPTY_TABLE;
+  private boolean started;
+  private boolean destroyed;
+
+  /**
+   * Create a plugin manager and register it to the map change events of a map view.
+   *
+   * @param mapView the map view hosting the plugins
+   */
+  @UiThread
+  public PluginManager(@NonNull MapView mapView) {
+    this.mapView = mapView;
+    mapView.addOnMapChangedListener(this);
+  }
+
+  /**
+   * Returns the map view hosting the plugins.
+   *
+   * @return the map view
+   */
+  @NonNull
+  public MapView getMapView() {
+    return mapView;
+  }
+
+  /**
+   * Adds a plugin, it receives the map change events it subscribed to from now on. If the plugin manager is started,
+   * the plugin is started too. Adding a plugin that was already added has no effect.
+   *
+   * @param plugin the plugin to add
+   * @throws IllegalStateException    if the plugin manager was destroyed
+   * @throws IllegalArgumentException if the plugin subscribes to a negative event
+   */
+  @UiThread
+  public void addPlugin(@NonNull MapPlugin plugin) {
+    if (destroyed) {
+      throw new IllegalStateException("Plugin manager was destroyed");
+    }
+    if (plugins.contains(plugin)) {
+      return;
+    }
+
+    int[] events = plugin.getMapChangeEvents().clone();
+    for (int event : events) {
+      if (event < 0) {
+        throw new IllegalArgumentException("Invalid map change event " + event);
+      }
+    }
+    plugins.add(plugin);
+    pluginEvents.add(events);
+    rebuildDispatchTable();
+    if (started) {
+      plugin.onStart();
+    }
+  }
+
+  /**
+   * Removes a plugin, it doesn't receive map change events anymore. If the plugin manager is started, the plugin is
+   * stopped. The plugin isn't destroyed and can be added again.
+   *
+   * @param plugin the plugin to remove
+   */
+  @UiThread
+  public void removePlugin(@NonNull MapPlugin plugin) {
+    int index = plugins.indexOf(plugin);
+    if (index < 0) {
+      return;
+    }
+
+    plugins.remove(index);
+    pluginEvents.remove(index);
+    rebuildDispatchTable();
+    if (started) {
+      plugin.onStop();
+    }
+  }
+
+  /**
+   * Returns the added plugins.
+   *
+   * @return the plugins, in the order they were added
+   */
+  @NonNull
+  public List<MapPlugin> getPlugins() {
+    return new ArrayList<>(plugins);
+  }
+
+  /**
+   * Delivers a map change event to the plugins subscribed to it.
+   * <p>
+   * The dispatch table is replaced, not modified, when plugins are added or removed, plugins may add or remove
+   * plugins while handling an event.
+   * </p>
+   *
+   * @param change the map change event that occurred
+   */
+  @Override
+  public void onMapChanged(int change) {
+    MapPlugin[][] table = dispatchTable;
+    if (change < 0 || change >= table.length) {
+      return;
+    }
+
+    MapPlugin[] subscribers = table[change];
+    if (subscribers == null) {
+      return;
+    }
+    for (int i = 0; i < subscribers.length; i++) {
+      subscribers[i].onMapChanged(change);
+    }
+  }
+
+  /**
+   * Starts the plugins, call this method from {@code onStart()} of the activity or fragment hosting the map.
+   */
+  @UiThread
+  public void onStart() {
+    if (started || destroyed) {
+      return;
+    }
+
+    started = true;
+    for (int i = 0; i < plugins.size(); i++) {
+      plugins.get(i).onStart();
+    }
+  }
+
+  /**
+   * Stops the plugins, call this method from {@code onStop()} of the activity or fragment hosting the map.
+   */
+  @UiThread
+  public void onStop() {
+    if (!started) {
+      return;
+    }
+
+    started = false;
+    for (int i = 0; i < plugins.size(); i++) {
+      plugins.get(i).onStop();
+    }
+  }
+
+  /**
+   * Destroys the plugins and unregisters from the map view, call this method from {@code onDestroy()} of the activity
+   * or fragment hosting the map. Started plugins are stopped first.
+   */
+  @UiThread
+  public void onDestroy() {
+    if (destroyed) {
+      return;
+    }
+
+    onStop();
+    destroyed = true;
+    mapView.removeOnMapChangedListener(this);
+    dispatchTable = EMPTY_TABLE;
+    for (int i = 0; i < plugins.size(); i++) {
+      plugins.get(i).onDestroy();
+    }
+    plugins.clear();
+    pluginEvents.clear();
+  }
+
+  /**
+   * Saves the state of the plugins to a Bundle.
+   *
+   * @param outState the Bundle to save the state to
+   */
+  @UiThread
+  public void onSaveInstanceState(@NonNull Bundle outState) {
+    for (int i = 0; i < plugins.size(); i++) {
+      plugins.get(i).onSaveInstanceState(outState);
+    }
+  }
+
+  /**
+   * Restores the state of the plugins from a Bundle, call this method once the plugins were added.
+   *
+   * @param savedInstanceState the Bundle to restore the state from, previously saved with
+   *                           {@link #onSaveInstanceState(Bundle)}
+   */
+  @UiThread
+  public void onRestoreInstanceState(@Nullable Bundle savedInstanceState) {
+    for (int i = 0; i < plugins.size(); i++) {
+      plugins.get(i).onRestoreInstanceState(savedInstanceState);
+    }
+  }
+
+  /**
+   * Rebuilds the dispatch table from the events of the plugins, each event maps to its subscribers in the order the
+   * plugins were added. Events without subscribers map to null.
+   */
+  private void rebuildDispatchTable() {
+    int size = 0;
+    for (int i = 0; i < pluginEvents.size(); i++) {
+      for (int event : pluginEvents.get(i)) {
+        size = Math.max(size, event + 1);
+      }
+    }
+
+    List<List<MapPlugin>> subscribers = new ArrayList<>(size);
+    for (int event = 0; event < size; event++) {
+      subscribers.add(new ArrayList<MapPlugin>());
+    }
+    for (int i = 0; i < plugins.size(); i++) {
+      for (int event : pluginEvents.get(i)) {
+        List<MapPlugin> eventSubscribers = subscribers.get(event);
+        if (!eventSubscribers.contains(plugins.get(i))) {
+          eventSubscribers.add(plugins.get(i));
+        }
+      }
+    }
+
+    MapPlugin[][] table = new MapPlugin[size][];
+    for (int event = 0; event < size; event++) {
+      List<MapPlugin> eventSubscribers = subscribers.get(event);
+      if (!eventSubscribers.isEmpty()) {
+        table[event] = eventSubscribers.toArray(new MapPlugin[eventSubscribers.size()]);
+      }
+    }
+    dispatchTable = table;
+  }
+}
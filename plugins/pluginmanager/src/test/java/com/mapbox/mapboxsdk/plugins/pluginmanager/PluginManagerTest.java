@@ -0,0 +1,124 @@
+package com.mapbox.mapboxsdk.plugins.pluginmanager;
+
+import android.os.Bundle;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PluginManagerTest {
+
+  @Mock
+  MapView mapView;
+
+  @Mock
+  MapPlugin stylePlugin;
+
+  @Mock
+  MapPlugin cameraPlugin;
+
+  @Mock
+  Bundle bundle;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private PluginManager pluginManager;
+
+  @Before
+  public void beforeTest() {
+    when(stylePlugin.getMapChangeEvents()).thenReturn(new int[] {MapView.DID_FINISH_LOADING_STYLE});
+    when(cameraPlugin.getMapChangeEvents()).thenReturn(
+      new int[] {MapView.REGION_DID_CHANGE, MapView.DID_FINISH_LOADING_STYLE});
+    pluginManager = new PluginManager(mapView);
+    verify(mapView).addOnMapChangedListener(pluginManager);
+  }
+
+  @Test
+  public void testDispatchSubscribedEvents() {
+    pluginManager.addPlugin(stylePlugin);
+    pluginManager.addPlugin(cameraPlugin);
+    pluginManager.addPlugin(cameraPlugin);
+    assertEquals(2, pluginManager.getPlugins().size());
+
+    pluginManager.onMapChanged(MapView.REGION_DID_CHANGE);
+    pluginManager.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    pluginManager.onMapChanged(MapView.REGION_IS_CHANGING);
+    pluginManager.onMapChanged(MapView.SOURCE_DID_CHANGE);
+    pluginManager.onMapChanged(-1);
+
+    verify(stylePlugin, times(1)).onMapChanged(anyInt());
+    verify(stylePlugin).onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    verify(cameraPlugin, times(2)).onMapChanged(anyInt());
+    InOrder order = inOrder(stylePlugin, cameraPlugin);
+    order.verify(stylePlugin).onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    order.verify(cameraPlugin).onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+  }
+
+  @Test
+  public void testRemovePlugin() {
+    pluginManager.addPlugin(stylePlugin);
+    pluginManager.addPlugin(cameraPlugin);
+    pluginManager.onStart();
+    pluginManager.removePlugin(cameraPlugin);
+    verify(cameraPlugin).onStop();
+
+    pluginManager.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    pluginManager.onMapChanged(MapView.REGION_DID_CHANGE);
+    verify(stylePlugin).onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    verify(cameraPlugin, never()).onMapChanged(anyInt());
+  }
+
+  @Test
+  public void testLifecycle() {
+    pluginManager.addPlugin(stylePlugin);
+    pluginManager.onStart();
+    pluginManager.onStart();
+    verify(stylePlugin, times(1)).onStart();
+
+    pluginManager.addPlugin(cameraPlugin);
+    verify(cameraPlugin).onStart();
+
+    pluginManager.onSaveInstanceState(bundle);
+    pluginManager.onRestoreInstanceState(bundle);
+    verify(stylePlugin).onSaveInstanceState(bundle);
+    verify(cameraPlugin).onRestoreInstanceState(bundle);
+
+    pluginManager.onDestroy();
+    InOrder order = inOrder(cameraPlugin);
+    order.verify(cameraPlugin).onStop();
+    order.verify(cameraPlugin).onDestroy();
+    verify(stylePlugin).onDestroy();
+    verify(mapView).removeOnMapChangedListener(pluginManager);
+    assertEquals(0, pluginManager.getPlugins().size());
+
+    pluginManager.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    verify(stylePlugin, never()).onMapChanged(anyInt());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterDestroy() {
+    pluginManager.onDestroy();
+    pluginManager.addPlugin(stylePlugin);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEvent() {
+    when(stylePlugin.getMapChangeEvents()).thenReturn(new int[] {-1});
+    pluginManager.addPlugin(stylePlugin);
+  }
+}
@@ -0,0 +1,210 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionChange;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionDiff;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TileIds;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+import com.mapbox.services.commons.geojson.Feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Detects congestion changes of the traffic rendered in the viewport.
+ * <p>
+ * Each time traffic was rendered, the rendered features are queried on the main thread and grouped into tiles by
+ * their first position. The tiles are compared to their previous snapshot by a {@link CongestionDiff} confined to the
+ * serial background executor, tiles that didn't change are skipped by their fingerprint. Only the snapshots of the
+ * tiles rendered last are kept, a tile coming back into the viewport starts a new baseline. Changed segments are
+ * delivered on the main thread. Only one detection runs at a time, traffic rendered in the meantime is detected once
+ * the running detection completes.
+ * </p>
+ */
+final class CongestionChangeController {
+
+  /**
+   * Zoom level of the tiles rendered features are grouped into.
+   */
+  static final int TILE_ZOOM = 14;
+
+  private final MapView mapView;
+  private final MapboxMap mapboxMap;
+  private final Executor mainThreadExecutor;
+  private final Executor backgroundExecutor;
+  private final TrafficSummaryController.Callback callback;
+  private final CongestionDiff diff = new CongestionDiff();
+  private final List<TrafficPlugin.OnCongestionChangeListener> listeners = new ArrayList<>();
+  private final Runnable clearRunnable = new Runnable() {
+    @Override
+    public void run() {
+      diff.clear();
+    }
+  };
+
+  private boolean detecting;
+  private boolean detectPending;
+  private boolean hasSnapshots;
+
+  /**
+   * Create a change controller.
+   *
+   * @param mapView            the map view to query the viewport size from
+   * @param mapboxMap          the map to query rendered features from
+   * @param mainThreadExecutor the executor to deliver changes on
+   * @param backgroundExecutor the serial executor to compare snapshots on
+   * @param callback           the callback providing the traffic layers to query
+   */
+  CongestionChangeController(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap,
+                             @NonNull Executor mainThreadExecutor, @NonNull Executor backgroundExecutor,
+                             @NonNull TrafficSummaryController.Callback callback) {
+    this.mapView = mapView;
+    this.mapboxMap = mapboxMap;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.backgroundExecutor = backgroundExecutor;
+    this.callback = callback;
+  }
+
+  /**
+   * Adds a listener receiving congestion changes.
+   *
+   * @param listener the listener to add
+   */
+  @UiThread
+  void addListener(@NonNull TrafficPlugin.OnCongestionChangeListener listener) {
+    if (!listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  /**
+   * Removes a previously added listener.
+   *
+   * @param listener the listener to remove
+   */
+  @UiThread
+  void removeListener(@NonNull TrafficPlugin.OnCongestionChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Called when traffic was rendered, detects changes if listeners are registered.
+   */
+  @UiThread
+  void onTrafficRendered() {
+    if (listeners.isEmpty()) {
+      return;
+    }
+
+    if (detecting) {
+      detectPending = true;
+      return;
+    }
+
+    String[] layerIds = callback.getQueryLayerIds();
+    if (layerIds == null || layerIds.length == 0) {
+      return;
+    }
+
+    detecting = true;
+    hasSnapshots = true;
+    RectF viewport = new RectF(0, 0, mapView.getWidth(), mapView.getHeight());
+    final List<Feature> features = mapboxMap.queryRenderedFeatures(viewport, layerIds);
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final List<CongestionChange> changes = detect(diff, features);
+        mainThreadExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            onDetected(changes);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Discards the snapshots, for example because traffic was hidden or the style changed. The next rendered traffic
+   * is a new baseline.
+   * <p>
+   * Without snapshots, for example when no listener was ever added, nothing is scheduled and nothing is allocated.
+   * </p>
+   */
+  @UiThread
+  void reset() {
+    if (!hasSnapshots) {
+      return;
+    }
+
+    hasSnapshots = false;
+    backgroundExecutor.execute(clearRunnable);
+  }
+
+  private void onDetected(List<CongestionChange> changes) {
+    detecting = false;
+    if (!changes.isEmpty()) {
+      for (int i = 0; i < listeners.size(); i++) {
+        listeners.get(i).onCongestionChange(changes);
+      }
+    }
+
+    if (detectPending) {
+      detectPending = false;
+      onTrafficRendered();
+    }
+  }
+
+  /**
+   * Groups traffic features into tiles and compares them to their previous snapshot.
+   *
+   * @param diff     the diff holding the previous snapshots
+   * @param features the rendered traffic features
+   * @return the changed segments, unmodifiable
+   */
+  @NonNull
+  @WorkerThread
+  static List<CongestionChange> detect(@NonNull CongestionDiff diff, @NonNull List<Feature> features) {
+    TrafficSegments segments = new TrafficSegments(features.size(), features.size() * 8);
+    TrafficFeatures.addSegments(features, segments);
+
+    Map<Long, TrafficSegments> tiles = new LinkedHashMap<>();
+    double[] coordinates = segments.getCoordinates();
+    for (int i = 0; i < segments.size(); i++) {
+      int offset = segments.getPointOffset(i);
+      long tileId = TileIds.fromPosition(segments.getLongitude(offset), segments.getLatitude(offset), TILE_ZOOM);
+      TrafficSegments tileSegments = tiles.get(tileId);
+      if (tileSegments == null) {
+        tileSegments = new TrafficSegments();
+        tiles.put(tileId, tileSegments);
+      }
+      tileSegments.add(segments.getRoadClass(i), segments.getCongestion(i), coordinates, offset * 2,
+        segments.getPointCount(i));
+    }
+
+    final List<CongestionChange> changes = new ArrayList<>();
+    CongestionDiff.Listener listener = new CongestionDiff.Listener() {
+      @Override
+      public void onCongestionChanged(long tileId, @NonNull TrafficSegments snapshot, int segment,
+                                      int previousCongestion) {
+        changes.add(new CongestionChange(tileId, snapshot, segment, previousCongestion));
+      }
+    };
+    for (Map.Entry<Long, TrafficSegments> tile : tiles.entrySet()) {
+      diff.update(tile.getKey(), tile.getValue(), listener);
+    }
+    // snapshots of tiles that left the viewport would otherwise be kept for the whole session
+    diff.retain(tiles.keySet());
+    return Collections.unmodifiableList(changes);
+  }
+}
@@ -0,0 +1,29 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that posts commands to the main thread.
+ * <p>
+ * The backing {@link Handler} is created on first use.
+ * </p>
+ */
+final class MainThreadExecutor implements Executor {
+
+  private volatile Handler handler;
+
+  @Override
+  public void execute(Runnable command) {
+    getHandler().post(command);
+  }
+
+  private Handler getHandler() {
+    if (handler == null) {
+      handler = new Handler(Looper.getMainLooper());
+    }
+    return handler;
+  }
+}
@@ -0,0 +1,300 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+import timber.log.Timber;
+
+/**
+ * Disk cache of the resolved traffic anchor layer of styles, kept across launches.
+ * <p>
+ * Each style url maps to the layer the traffic layers are added above and the version of the style it was resolved
+ * for, the ETag or last modification time of the style. Storing a new version replaces the entry of the url, a changed
+ * style invalidates its entry. The most recently used entries are kept in a single small file, followed by a CRC32 of
+ * its content. A file of another format version, with a wrong checksum or otherwise unreadable is discarded.
+ * </p>
+ * <p>
+ * The file is read and written on the serial disk executor. Lookups never wait for the file: until it is read, every
+ * lookup is a miss.
+ * </p>
+ */
+final class TrafficAnchorCache {
+
+  private static final int MAGIC = 0x54524143;
+  private static final int VERSION = 1;
+  private static final String CACHE_DIRECTORY = "mapbox-traffic-style";
+  private static final String FILE_NAME = "traffic-anchors.bin";
+  static final int MAX_ENTRIES = 32;
+  private static final int MAX_LENGTH = 64 * 1024;
+
+  private static TrafficAnchorCache instance;
+
+  private final File file;
+  private final Executor diskExecutor;
+  private final Map<String, Entry> entries = new LinkedHashMap<>(MAX_ENTRIES * 2, 0.75f, true);
+
+  /**
+   * Create an anchor cache and read its file on the disk executor.
+   *
+   * @param file         the file storing the cache
+   * @param diskExecutor the serial executor to read and write the file on
+   */
+  TrafficAnchorCache(@NonNull File file, @NonNull Executor diskExecutor) {
+    this.file = file;
+    this.diskExecutor = diskExecutor;
+    diskExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        load();
+      }
+    });
+  }
+
+  /**
+   * Returns the anchor cache of the application, shared by all maps.
+   *
+   * @param context the context to access the cache directory with
+   * @return the anchor cache
+   */
+  @NonNull
+  static synchronized TrafficAnchorCache getInstance(@NonNull Context context) {
+    if (instance == null) {
+      File directory = new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+      instance = new TrafficAnchorCache(new File(directory, FILE_NAME),
+        TrafficExecutors.newSerialExecutor("traffic-anchors"));
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the cached anchor of a style.
+   *
+   * @param styleUrl the url of the style
+   * @return the entry of the style, null if not cached
+   */
+  @Nullable
+  synchronized Entry get(@NonNull String styleUrl) {
+    return entries.get(styleUrl);
+  }
+
+  /**
+   * Stores the anchor of a style, replacing the entry of its url. The file is written on the disk executor, if the
+   * entry changed.
+   *
+   * @param styleUrl      the url of the style
+   * @param version       the version of the style, null if unknown
+   * @param anchorLayerId the id of the layer to add traffic above, null to add traffic on top of the style
+   */
+  void put(@NonNull String styleUrl, @Nullable String version, @Nullable String anchorLayerId) {
+    Entry entry = new Entry(version, anchorLayerId);
+    synchronized (this) {
+      if (entry.equals(entries.get(styleUrl))) {
+        return;
+      }
+      entries.put(styleUrl, entry);
+      trim();
+      final Map<String, Entry> snapshot = new LinkedHashMap<>(entries);
+      // queued under the lock, snapshots of concurrent puts are written in the order they were taken
+      diskExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          save(snapshot);
+        }
+      });
+    }
+  }
+
+  private void trim() {
+    while (entries.size() > MAX_ENTRIES) {
+      entries.remove(entries.keySet().iterator().next());
+    }
+  }
+
+  @WorkerThread
+  private void load() {
+    if (!file.exists()) {
+      return;
+    }
+
+    try {
+      Map<String, Entry> loaded = read(readFile(file));
+      synchronized (this) {
+        // entries stored before the file was read are newer
+        Map<String, Entry> stored = new LinkedHashMap<>(entries);
+        entries.clear();
+        entries.putAll(loaded);
+        entries.putAll(stored);
+        trim();
+      }
+    } catch (IOException | RuntimeException exception) {
+      Timber.w(exception, "Discarding unreadable traffic anchor cache %s", file);
+      if (!file.delete()) {
+        Timber.w("Unable to delete traffic anchor cache %s", file);
+      }
+    }
+  }
+
+  /**
+   * Writes the entries to a temporary file and renames it, a partially written file is never read.
+   */
+  @WorkerThread
+  private void save(Map<String, Entry> snapshot) {
+    File directory = file.getParentFile();
+    if (!directory.exists() && !directory.mkdirs()) {
+      Timber.w("Unable to create traffic anchor cache directory %s", directory);
+      return;
+    }
+
+    File temporaryFile = new File(directory, file.getName() + ".tmp");
+    try {
+      byte[] content = write(snapshot);
+      OutputStream output = new FileOutputStream(temporaryFile);
+      try {
+        output.write(content);
+      } finally {
+        output.close();
+      }
+      if (!temporaryFile.renameTo(file)) {
+        Timber.w("Unable to store traffic anchor cache %s", file);
+      }
+    } catch (IOException exception) {
+      Timber.w(exception, "Unable to write traffic anchor cache %s", file);
+    } finally {
+      if (temporaryFile.exists() && !temporaryFile.delete()) {
+        Timber.w("Unable to delete temporary traffic anchor cache %s", temporaryFile);
+      }
+    }
+  }
+
+  static byte[] write(Map<String, Entry> entries) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(entries.size());
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      output.writeUTF(entry.getKey());
+      writeNullableUtf(output, entry.getValue().version);
+      writeNullableUtf(output, entry.getValue().anchorLayerId);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    output.writeInt((int) crc.getValue());
+    output.close();
+    return bytes.toByteArray();
+  }
+
+  static Map<String, Entry> read(byte[] content) throws IOException {
+    if (content.length < 4) {
+      throw new IOException("Truncated traffic anchor cache");
+    }
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, content.length - 4);
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(content));
+    input.skipBytes(content.length - 4);
+    if (input.readInt() != (int) crc.getValue()) {
+      throw new IOException("Invalid traffic anchor cache checksum");
+    }
+
+    input = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 4));
+    if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+      throw new IOException("Unsupported traffic anchor cache");
+    }
+    int size = input.readInt();
+    if (size < 0 || size > MAX_ENTRIES) {
+      throw new IOException("Invalid number of traffic anchor cache entries: " + size);
+    }
+    Map<String, Entry> entries = new LinkedHashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      String styleUrl = input.readUTF();
+      entries.put(styleUrl, new Entry(readNullableUtf(input), readNullableUtf(input)));
+    }
+    return entries;
+  }
+
+  private static byte[] readFile(File file) throws IOException {
+    long length = file.length();
+    if (length > MAX_LENGTH) {
+      throw new IOException("Traffic anchor cache too large: " + length);
+    }
+
+    byte[] content = new byte[(int) length];
+    InputStream input = new FileInputStream(file);
+    try {
+      new DataInputStream(input).readFully(content);
+    } finally {
+      input.close();
+    }
+    return content;
+  }
+
+  private static void writeNullableUtf(DataOutputStream output, String value) throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeUTF(value);
+    }
+  }
+
+  private static String readNullableUtf(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+
+  /**
+   * The anchor of a style and the version of the style it was resolved for.
+   */
+  static final class Entry {
+
+    @Nullable
+    final String version;
+    @Nullable
+    final String anchorLayerId;
+
+    Entry(@Nullable String version, @Nullable String anchorLayerId) {
+      this.version = version;
+      this.anchorLayerId = anchorLayerId;
+    }
+
+    /**
+     * Returns true if the entry has the given anchor.
+     *
+     * @param anchorLayerId the id of the anchor layer, null for the top of the style
+     * @return true if the anchors are equal
+     */
+    boolean hasAnchorLayerId(@Nullable String anchorLayerId) {
+      return this.anchorLayerId != null ? this.anchorLayerId.equals(anchorLayerId) : anchorLayerId == null;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Entry)) {
+        return false;
+      }
+      Entry entry = (Entry) object;
+      return (version != null ? version.equals(entry.version) : entry.version == null)
+        && hasAnchorLayerId(entry.anchorLayerId);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = version != null ? version.hashCode() : 0;
+      return 31 * result + (anchorLayerId != null ? anchorLayerId.hashCode() : 0);
+    }
+  }
+}
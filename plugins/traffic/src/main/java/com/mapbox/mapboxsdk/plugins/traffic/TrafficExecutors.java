@@ -0,0 +1,45 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory of the executors running traffic work off the main thread.
+ */
+final class TrafficExecutors {
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private TrafficExecutors() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Creates a serial executor backed by a single daemon thread.
+   * <p>
+   * The thread is started on first use and stops after being idle for a while, an unused executor holds no thread.
+   * </p>
+   *
+   * @param name the name of the backing thread
+   * @return the executor
+   */
+  @NonNull
+  static Executor newSerialExecutor(@NonNull final String name) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          Thread thread = new Thread(runnable, name);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
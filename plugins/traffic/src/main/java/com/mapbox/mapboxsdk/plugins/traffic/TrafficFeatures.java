@@ -0,0 +1,63 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.Geometry;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.MultiLineString;
+import com.mapbox.services.commons.models.Position;
+
+import java.util.List;
+
+/**
+ * Converts traffic features, for example from {@link com.mapbox.mapboxsdk.maps.MapboxMap#queryRenderedFeatures}, into
+ * traffic segments.
+ */
+public final class TrafficFeatures {
+
+  private TrafficFeatures() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Adds the line geometries of traffic features to a segment buffer.
+   * <p>
+   * Each line of a feature becomes a segment with the road class and congestion of the feature. Features without a
+   * line geometry are skipped.
+   * </p>
+   *
+   * @param features the traffic features
+   * @param segments the buffer to add the segments to
+   */
+  public static void addSegments(@NonNull List<Feature> features, @NonNull TrafficSegments segments) {
+    for (int i = 0; i < features.size(); i++) {
+      Feature feature = features.get(i);
+      Geometry geometry = feature.getGeometry();
+      if (!(geometry instanceof LineString) && !(geometry instanceof MultiLineString)) {
+        continue;
+      }
+
+      int roadClass = TrafficCodes.getRoadClass(feature.getStringProperty("class"));
+      int congestion = TrafficCodes.getCongestion(feature.getStringProperty("congestion"));
+      if (geometry instanceof LineString) {
+        addSegment(((LineString) geometry).getCoordinates(), roadClass, congestion, segments);
+      } else {
+        List<List<Position>> lines = ((MultiLineString) geometry).getCoordinates();
+        for (int j = 0; j < lines.size(); j++) {
+          addSegment(lines.get(j), roadClass, congestion, segments);
+        }
+      }
+    }
+  }
+
+  private static void addSegment(List<Position> positions, int roadClass, int congestion, TrafficSegments segments) {
+    for (int i = 0; i < positions.size(); i++) {
+      Position position = positions.get(i);
+      segments.addPoint(position.getLongitude(), position.getLatitude());
+    }
+    segments.endSegment(roadClass, congestion);
+  }
+}
@@ -0,0 +1,200 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionDiff;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficGeoJson;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a custom GeoJSON traffic feed to render with the traffic layers.
+ * <p>
+ * The feed is read from a url, typically a file or an http endpoint, and streamed through {@link TrafficGeoJson} on
+ * the serial feed executor. Each load is fingerprinted with {@link CongestionDiff#fingerprint(TrafficSegments)}, a
+ * refresh that didn't change any segment isn't delivered, so the unchanged feed isn't sent to the map again. Changed
+ * feeds are delivered on the main thread as normalised GeoJSON, only keeping the traffic properties.
+ * </p>
+ */
+final class TrafficFeedController {
+
+  static final String EMPTY_GEOJSON = "{\"type\":\"FeatureCollection\",\"features\":[]}";
+  private static final int TIMEOUT_MILLIS = 15000;
+
+  private final Executor mainThreadExecutor;
+  private final Executor feedExecutor;
+  private final Callback callback;
+
+  // main thread
+  private String url;
+  private String geoJson = EMPTY_GEOJSON;
+
+  // feed executor
+  private String loadedUrl;
+  private long loadedFingerprint;
+
+  /**
+   * Create a feed controller.
+   *
+   * @param mainThreadExecutor the executor to deliver feeds on
+   * @param feedExecutor       the serial executor to load feeds on
+   * @param callback           the callback receiving changed feeds
+   */
+  TrafficFeedController(@NonNull Executor mainThreadExecutor, @NonNull Executor feedExecutor,
+                        @NonNull Callback callback) {
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.feedExecutor = feedExecutor;
+    this.callback = callback;
+  }
+
+  /**
+   * Returns the url of the feed.
+   *
+   * @return the url, null if traffic is loaded from Mapbox Traffic v1
+   */
+  @Nullable
+  String getUrl() {
+    return url;
+  }
+
+  /**
+   * Sets the url of the feed, discarding the features of the previous feed.
+   *
+   * @param url the url, null to stop using a feed
+   */
+  @UiThread
+  void setUrl(@Nullable String url) {
+    this.url = url;
+    this.geoJson = EMPTY_GEOJSON;
+    feedExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        // the next load is delivered, even if it equals the last load of a previous feed
+        loadedUrl = null;
+      }
+    });
+  }
+
+  /**
+   * Returns the last delivered feed, to initialise a source with.
+   *
+   * @return the normalised GeoJSON of the feed, an empty feature collection if not loaded yet
+   */
+  @NonNull
+  String getGeoJson() {
+    return geoJson;
+  }
+
+  /**
+   * Loads the feed, the callback is notified if it changed since the last load.
+   */
+  @UiThread
+  void refresh() {
+    final String feedUrl = url;
+    if (feedUrl == null) {
+      return;
+    }
+
+    feedExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final String json = load(feedUrl);
+          if (json == null) {
+            return;
+          }
+          mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              onLoaded(feedUrl, json);
+            }
+          });
+        } catch (IOException | RuntimeException exception) {
+          // an uncaught exception would terminate the application, a failed feed keeps the last loaded feed
+          final IOException failure = exception instanceof IOException
+            ? (IOException) exception : new IOException("Unable to load traffic feed " + feedUrl, exception);
+          mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              if (feedUrl.equals(url)) {
+                callback.onFeedFailed(failure);
+              }
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads a feed and returns its normalised GeoJSON, unless it didn't change since it was last loaded.
+   *
+   * @param feedUrl the url of the feed
+   * @return the normalised GeoJSON, null if unchanged
+   * @throws IOException if the feed can't be read or is malformed
+   */
+  @Nullable
+  @WorkerThread
+  String load(@NonNull String feedUrl) throws IOException {
+    URLConnection connection = new URL(feedUrl).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    TrafficSegments segments = new TrafficSegments(1024, 8192);
+    Reader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+    try {
+      TrafficGeoJson.read(reader, segments);
+    } finally {
+      reader.close();
+    }
+
+    long fingerprint = CongestionDiff.fingerprint(segments);
+    if (feedUrl.equals(loadedUrl) && fingerprint == loadedFingerprint) {
+      return null;
+    }
+    loadedUrl = feedUrl;
+    loadedFingerprint = fingerprint;
+
+    StringBuilder builder = new StringBuilder(64 + segments.getPointCount() * 40);
+    TrafficGeoJson.write(segments, builder);
+    return builder.toString();
+  }
+
+  private void onLoaded(String feedUrl, String json) {
+    if (!feedUrl.equals(url)) {
+      // the feed was replaced while loading
+      return;
+    }
+    geoJson = json;
+    callback.onFeedChanged(json);
+  }
+
+  /**
+   * Receives the loaded feeds.
+   */
+  interface Callback {
+
+    /**
+     * Called on the main thread when the feed changed.
+     *
+     * @param geoJson the normalised GeoJSON of the feed
+     */
+    void onFeedChanged(@NonNull String geoJson);
+
+    /**
+     * Called on the main thread when the feed couldn't be loaded.
+     *
+     * @param exception the cause
+     */
+    void onFeedFailed(@NonNull IOException exception);
+  }
+}
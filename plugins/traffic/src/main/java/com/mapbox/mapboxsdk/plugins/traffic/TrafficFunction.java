@@ -0,0 +1,92 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.style.functions.CameraFunction;
+import com.mapbox.mapboxsdk.style.functions.Function;
+import com.mapbox.mapboxsdk.style.functions.stops.Stop;
+
+import static com.mapbox.mapboxsdk.style.functions.Function.zoom;
+import static com.mapbox.mapboxsdk.style.functions.stops.Stop.stop;
+import static com.mapbox.mapboxsdk.style.functions.stops.Stops.categorical;
+import static com.mapbox.mapboxsdk.style.functions.stops.Stops.exponential;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOffset;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOpacity;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
+
+/**
+ * Builds the style functions of the traffic layers from flattened zoom stops.
+ */
+final class TrafficFunction {
+
+  /**
+   * Exponential base of the line width and offset functions.
+   */
+  static final float LINE_BASE = 1.5f;
+
+  private TrafficFunction() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Returns a line color function based on the congestion property.
+   *
+   * @param colors the colors for low, moderate, heavy and severe congestion
+   * @return the line color function
+   */
+  static Function getLineColorFunction(@NonNull int[] colors) {
+    return Function.property(
+      "congestion",
+      categorical(
+        stop("low", fillColor(colors[0])),
+        stop("moderate", fillColor(colors[1])),
+        stop("heavy", fillColor(colors[2])),
+        stop("severe", fillColor(colors[3]))
+      )
+    ).withDefaultValue(fillColor(Color.TRANSPARENT));
+  }
+
+  /**
+   * Returns a line offset function based on the zoom level.
+   *
+   * @param stops the flattened zoom and offset pairs
+   * @return the line offset function
+   */
+  static CameraFunction getOffsetFunction(@NonNull float[] stops) {
+    Stop[] offsetStops = new Stop[stops.length / 2];
+    for (int i = 0; i < offsetStops.length; i++) {
+      offsetStops[i] = stop(stops[i * 2], lineOffset(stops[i * 2 + 1]));
+    }
+    return zoom(exponential(offsetStops).withBase(LINE_BASE));
+  }
+
+  /**
+   * Returns a line width function based on the zoom level.
+   *
+   * @param stops the flattened zoom and width pairs
+   * @return the line width function
+   */
+  static CameraFunction getWidthFunction(@NonNull float[] stops) {
+    Stop[] widthStops = new Stop[stops.length / 2];
+    for (int i = 0; i < widthStops.length; i++) {
+      widthStops[i] = stop(stops[i * 2], lineWidth(stops[i * 2 + 1]));
+    }
+    return zoom(exponential(widthStops).withBase(LINE_BASE));
+  }
+
+  /**
+   * Returns a line opacity function based on the zoom level.
+   *
+   * @param stops the flattened zoom and opacity pairs
+   * @return the line opacity function
+   */
+  static Function getOpacityFunction(@NonNull float[] stops) {
+    Stop[] opacityStops = new Stop[stops.length / 2];
+    for (int i = 0; i < opacityStops.length; i++) {
+      opacityStops[i] = stop(stops[i * 2], lineOpacity(stops[i * 2 + 1]));
+    }
+    return zoom(exponential(opacityStops));
+  }
+}
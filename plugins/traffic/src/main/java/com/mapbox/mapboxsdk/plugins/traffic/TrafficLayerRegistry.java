@@ -0,0 +1,128 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Registry of the traffic layer specs, shared by all traffic plugin instances.
+ * <p>
+ * The specs are listed bottom to top, in the order they are added to the map. They are built on first access, loading
+ * this class doesn't initialise any of the traffic style definitions. Specs are cached per {@link TrafficProfile}.
+ * </p>
+ */
+final class TrafficLayerRegistry {
+
+  private TrafficLayerRegistry() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Returns the shared traffic layer specs, ordered bottom to top.
+   * <p>
+   * The specs are built by the first caller, concurrent callers block until they are available.
+   * </p>
+   *
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  static List<TrafficLayerSpec> getLayerSpecs() {
+    return LayerSpecsHolder.LAYER_SPECS;
+  }
+
+  /**
+   * Returns the shared traffic layer specs adapted to a profile, ordered bottom to top.
+   *
+   * @param profile the traffic profile
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  static List<TrafficLayerSpec> getLayerSpecs(@NonNull TrafficProfile profile) {
+    if (TrafficProfile.DEFAULT.equals(profile)) {
+      return LayerSpecsHolder.LAYER_SPECS;
+    }
+    return LayerSpecsHolder.CACHE.get(profile);
+  }
+
+  /**
+   * Returns the base layer colors of the shared traffic layers adapted to a profile.
+   *
+   * @param profile the traffic profile
+   * @return the colors for low, moderate, heavy and severe congestion
+   */
+  @NonNull
+  static int[] getBaseColors(@NonNull TrafficProfile profile) {
+    return LayerSpecsHolder.CACHE.getBaseColors(profile);
+  }
+
+  /**
+   * Returns the style fragment of the shared traffic layers adapted to a profile.
+   *
+   * @param profile the traffic profile
+   * @return the style fragment
+   */
+  @NonNull
+  static TrafficStyleFragment getStyleFragment(@NonNull TrafficProfile profile) {
+    return LayerSpecsHolder.CACHE.getStyleFragment(profile);
+  }
+
+  /**
+   * Builds a new list of traffic layer specs from the generated default table, ordered bottom to top.
+   *
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  static List<TrafficLayerSpec> createLayerSpecs() {
+    return createLayerSpecs(TrafficLayerTables.create());
+  }
+
+  /**
+   * Builds a new list of traffic layer specs from a table, ordered bottom to top.
+   * <p>
+   * Each road class results in a case layer followed by a base layer.
+   * </p>
+   *
+   * @param table the traffic layer table
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  static List<TrafficLayerSpec> createLayerSpecs(@NonNull TrafficLayerTable table) {
+    return createLayerSpecs(table, TrafficProfile.DEFAULT);
+  }
+
+  /**
+   * Builds a new list of traffic layer specs from a table adapted to a profile, ordered bottom to top.
+   * <p>
+   * Each road class results in a case layer followed by a base layer. The profile replaces the colors of the table if
+   * set, scales the line widths and offsets, and applies its opacity to all layers.
+   * </p>
+   *
+   * @param table   the traffic layer table
+   * @param profile the traffic profile
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  static List<TrafficLayerSpec> createLayerSpecs(@NonNull TrafficLayerTable table, @NonNull TrafficProfile profile) {
+    int[] baseColors = profile.getBaseColors(table.baseColors);
+    int[] caseColors = profile.getCaseColors(table.caseColors);
+    float widthScale = profile.getWidthScale();
+    float opacity = profile.getOpacity();
+    List<TrafficLayerSpec> layerSpecs = new ArrayList<>(table.size() * 2);
+    for (int i = 0; i < table.size(); i++) {
+      float[] lineOffsetStops = TrafficProfile.scaleStops(table.lineOffsetStops[i], widthScale);
+      layerSpecs.add(new TrafficLayerSpec(table.caseLayerIds[i], true, table.minZooms[i], table.classes[i], caseColors,
+        TrafficProfile.scaleStops(table.caseLineWidthStops[i], widthScale), lineOffsetStops,
+        TrafficProfile.scaleStops(table.getCaseLineOpacityStops(i), opacity), opacity));
+      layerSpecs.add(new TrafficLayerSpec(table.baseLayerIds[i], false, table.minZooms[i], table.classes[i],
+        baseColors, TrafficProfile.scaleStops(table.lineWidthStops[i], widthScale), lineOffsetStops, null, opacity));
+    }
+    return Collections.unmodifiableList(layerSpecs);
+  }
+
+  private static class LayerSpecsHolder {
+    private static final TrafficLayerSpecCache CACHE = new TrafficLayerSpecCache(TrafficLayerTables.create());
+    private static final List<TrafficLayerSpec> LAYER_SPECS = CACHE.get(TrafficProfile.DEFAULT);
+  }
+}
@@ -0,0 +1,227 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.style.layers.Filter;
+import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import static com.mapbox.mapboxsdk.style.layers.Filter.in;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineCap;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineJoin;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOffset;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOpacity;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
+
+/**
+ * Immutable specification of a traffic line layer.
+ * <p>
+ * The spec holds the resolved colors and zoom stops of the layer, the property values are built from them once when
+ * the spec is created. Native layers created with {@link #createLayer()} share the property values, layers created
+ * from another spec with the same id can be updated in place with {@link #getPaintProperties()}. The
+ * {@link TrafficStyleFragment} serialises the same values to style JSON.
+ * </p>
+ */
+final class TrafficLayerSpec {
+
+  private final String id;
+  private final boolean caseLayer;
+  private final float minZoom;
+  private final String[] classes;
+  private final int[] colors;
+  private final float[] widthStops;
+  private final float[] offsetStops;
+  private final float[] opacityStops;
+  private final float opacity;
+  private final Filter.Statement filter;
+  private final PropertyValue<?>[] properties;
+  private final PropertyValue<?>[] paintProperties;
+
+  /**
+   * Create a traffic layer spec. The arrays must not be modified afterwards.
+   *
+   * @param id           the id of the layer
+   * @param caseLayer    true if the layer is the case of a base layer
+   * @param minZoom      the minimum zoom level the layer is shown at
+   * @param classes      the source class values the layer shows
+   * @param colors       the line colors for low, moderate, heavy and severe congestion
+   * @param widthStops   the flattened zoom and line width pairs
+   * @param offsetStops  the flattened zoom and line offset pairs
+   * @param opacityStops the flattened zoom and line opacity pairs, null for a constant opacity
+   * @param opacity      the constant line opacity, used without opacity stops
+   */
+  TrafficLayerSpec(@NonNull String id, boolean caseLayer, float minZoom, @NonNull String[] classes,
+                   @NonNull int[] colors, @NonNull float[] widthStops, @NonNull float[] offsetStops,
+                   @Nullable float[] opacityStops, float opacity) {
+    this.id = id;
+    this.caseLayer = caseLayer;
+    this.minZoom = minZoom;
+    this.classes = classes;
+    this.colors = colors;
+    this.widthStops = widthStops;
+    this.offsetStops = offsetStops;
+    this.opacityStops = opacityStops;
+    this.opacity = opacity;
+    this.filter = in("class", (Object[]) classes);
+
+    PropertyValue<?> colorProperty = lineColor(TrafficFunction.getLineColorFunction(colors));
+    PropertyValue<?> widthProperty = lineWidth(TrafficFunction.getWidthFunction(widthStops));
+    PropertyValue<?> offsetProperty = lineOffset(TrafficFunction.getOffsetFunction(offsetStops));
+    PropertyValue<?> opacityProperty = null;
+    if (opacityStops != null) {
+      opacityProperty = lineOpacity(TrafficFunction.getOpacityFunction(opacityStops));
+    } else if (opacity < 1.0f) {
+      opacityProperty = lineOpacity(opacity);
+    }
+    if (opacityProperty != null) {
+      this.properties = new PropertyValue<?>[] {
+        lineCap("round"),
+        lineJoin("round"),
+        colorProperty,
+        widthProperty,
+        offsetProperty,
+        opacityProperty
+      };
+    } else {
+      this.properties = new PropertyValue<?>[] {
+        lineCap("round"),
+        lineJoin("round"),
+        colorProperty,
+        widthProperty,
+        offsetProperty
+      };
+    }
+    // an opaque layer resets the opacity of a layer updated in place
+    this.paintProperties = new PropertyValue<?>[] {
+      colorProperty,
+      widthProperty,
+      offsetProperty,
+      opacityProperty != null ? opacityProperty : lineOpacity(1f)
+    };
+  }
+
+  /**
+   * Returns the id of the layer.
+   *
+   * @return the layer id
+   */
+  @NonNull
+  String getId() {
+    return id;
+  }
+
+  /**
+   * Returns true if the layer is the case of a base layer, drawing the outline of the same features.
+   *
+   * @return true for a case layer, false for a base layer
+   */
+  boolean isCaseLayer() {
+    return caseLayer;
+  }
+
+  /**
+   * Returns the minimum zoom level the layer is shown at.
+   *
+   * @return the minimum zoom level
+   */
+  float getMinZoom() {
+    return minZoom;
+  }
+
+  /**
+   * Returns the source class values the layer shows.
+   *
+   * @return the class values, not to be modified
+   */
+  @NonNull
+  String[] getClasses() {
+    return classes;
+  }
+
+  /**
+   * Returns the line colors of the layer.
+   *
+   * @return the colors for low, moderate, heavy and severe congestion, not to be modified
+   */
+  @NonNull
+  int[] getColors() {
+    return colors;
+  }
+
+  /**
+   * Returns the line width zoom stops of the layer.
+   *
+   * @return the flattened zoom and width pairs, not to be modified
+   */
+  @NonNull
+  float[] getWidthStops() {
+    return widthStops;
+  }
+
+  /**
+   * Returns the line offset zoom stops of the layer.
+   *
+   * @return the flattened zoom and offset pairs, not to be modified
+   */
+  @NonNull
+  float[] getOffsetStops() {
+    return offsetStops;
+  }
+
+  /**
+   * Returns the line opacity zoom stops of the layer.
+   *
+   * @return the flattened zoom and opacity pairs, null if the opacity is constant
+   */
+  @Nullable
+  float[] getOpacityStops() {
+    return opacityStops;
+  }
+
+  /**
+   * Returns the constant line opacity of the layer, used if it has no opacity stops.
+   *
+   * @return the opacity
+   */
+  float getOpacity() {
+    return opacity;
+  }
+
+  /**
+   * Returns the paint properties of the layer, to update a layer created from a spec with the same id.
+   *
+   * @return the line color, width, offset and opacity properties
+   */
+  @NonNull
+  PropertyValue<?>[] getPaintProperties() {
+    return paintProperties;
+  }
+
+  /**
+   * Creates a new line layer from this spec, backed by the traffic source.
+   *
+   * @return the line layer
+   */
+  @NonNull
+  LineLayer createLayer() {
+    return createLayer(0);
+  }
+
+  /**
+   * Creates a new line layer from this spec, backed by the traffic source, hidden below a zoom level.
+   *
+   * @param minZoomFloor the zoom level below which the layer is hidden, even if the spec shows it
+   * @return the line layer
+   */
+  @NonNull
+  LineLayer createLayer(float minZoomFloor) {
+    LineLayer lineLayer = new LineLayer(id, TrafficPlugin.TrafficData.SOURCE_ID);
+    lineLayer.setSourceLayer(TrafficPlugin.TrafficData.SOURCE_LAYER);
+    lineLayer.setProperties(properties);
+    lineLayer.setFilter(filter);
+    lineLayer.setMinZoom(Math.max(minZoom, minZoomFloor));
+    return lineLayer;
+  }
+}
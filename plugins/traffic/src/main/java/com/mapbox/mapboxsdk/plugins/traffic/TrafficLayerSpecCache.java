@@ -0,0 +1,107 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the layer specs resolved from a traffic layer table, per traffic profile.
+ * <p>
+ * The specs of a profile are built the first time they are requested and reused afterwards, switching between styles
+ * with different profiles doesn't rebuild the style functions. Style fragments are cached the same way. Only the
+ * specs and fragments of the {@value #MAX_PROFILES} most recently used profiles are kept.
+ * </p>
+ */
+final class TrafficLayerSpecCache {
+
+  static final int MAX_PROFILES = 8;
+
+  private final TrafficLayerTable table;
+  private final Map<TrafficProfile, List<TrafficLayerSpec>> layerSpecs = newLruMap();
+  private final Map<TrafficProfile, TrafficStyleFragment> styleFragments = newLruMap();
+
+  /**
+   * Create a traffic layer spec cache.
+   *
+   * @param table the table to resolve the layer specs from
+   */
+  TrafficLayerSpecCache(@NonNull TrafficLayerTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Returns the layer specs for a profile, ordered bottom to top.
+   * <p>
+   * Concurrent callers may both build the specs of a profile, only the first result is retained.
+   * </p>
+   *
+   * @param profile the traffic profile
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  List<TrafficLayerSpec> get(@NonNull TrafficProfile profile) {
+    List<TrafficLayerSpec> specs;
+    synchronized (layerSpecs) {
+      specs = layerSpecs.get(profile);
+    }
+    if (specs == null) {
+      // built outside the lock, lookups of other profiles don't wait for the style functions
+      specs = TrafficLayerRegistry.createLayerSpecs(table, profile);
+      synchronized (layerSpecs) {
+        List<TrafficLayerSpec> existing = layerSpecs.get(profile);
+        if (existing != null) {
+          return existing;
+        }
+        layerSpecs.put(profile, specs);
+      }
+    }
+    return specs;
+  }
+
+  /**
+   * Returns the style fragment for a profile, serialised the first time it is requested.
+   *
+   * @param profile the traffic profile
+   * @return the style fragment
+   */
+  @NonNull
+  TrafficStyleFragment getStyleFragment(@NonNull TrafficProfile profile) {
+    TrafficStyleFragment fragment;
+    synchronized (styleFragments) {
+      fragment = styleFragments.get(profile);
+    }
+    if (fragment == null) {
+      fragment = TrafficStyleFragment.create(get(profile));
+      synchronized (styleFragments) {
+        TrafficStyleFragment existing = styleFragments.get(profile);
+        if (existing != null) {
+          return existing;
+        }
+        styleFragments.put(profile, fragment);
+      }
+    }
+    return fragment;
+  }
+
+  /**
+   * Returns the base layer colors for a profile.
+   *
+   * @param profile the traffic profile
+   * @return the colors for low, moderate, heavy and severe congestion
+   */
+  @NonNull
+  int[] getBaseColors(@NonNull TrafficProfile profile) {
+    return profile.getBaseColors(table.baseColors);
+  }
+
+  private static <V> Map<TrafficProfile, V> newLruMap() {
+    return new LinkedHashMap<TrafficProfile, V>(MAX_PROFILES * 2, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TrafficProfile, V> eldest) {
+        return size() > MAX_PROFILES;
+      }
+    };
+  }
+}
@@ -0,0 +1,109 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Compact table of traffic layer definitions.
+ * <p>
+ * Each row describes a road class, with a base and a case layer, ordered bottom to top. Zoom stops are stored as
+ * flattened zoom and value pairs. Congestion colors are ordered low, moderate, heavy and severe.
+ * </p>
+ */
+final class TrafficLayerTable {
+
+  /**
+   * Highest zoom level of a layer supported by the style specification.
+   */
+  static final float MAX_ZOOM = 24;
+
+  final int[] baseColors;
+  final int[] caseColors;
+  final String[] baseLayerIds;
+  final String[] caseLayerIds;
+  final float[] minZooms;
+  final String[][] classes;
+  final float[][] lineWidthStops;
+  final float[][] caseLineWidthStops;
+  final float[][] lineOffsetStops;
+  final float[][] caseLineOpacityStops;
+
+  /**
+   * Create a traffic layer table, all row arrays must have the same length.
+   *
+   * @param baseColors           the base layer colors per congestion level
+   * @param caseColors           the case layer colors per congestion level
+   * @param baseLayerIds         the base layer id per road class
+   * @param caseLayerIds         the case layer id per road class
+   * @param minZooms             the minimum zoom level per road class
+   * @param classes              the source class values per road class
+   * @param lineWidthStops       the base line width stops per road class
+   * @param caseLineWidthStops   the case line width stops per road class
+   * @param lineOffsetStops      the line offset stops per road class
+   * @param caseLineOpacityStops the case line opacity stops per road class, rows are null for opaque case layers
+   * @throws IllegalArgumentException if the rows have different lengths or a minimum zoom level is out of range
+   */
+  TrafficLayerTable(@NonNull int[] baseColors, @NonNull int[] caseColors, @NonNull String[] baseLayerIds,
+                    @NonNull String[] caseLayerIds, @NonNull float[] minZooms, @NonNull String[][] classes,
+                    @NonNull float[][] lineWidthStops, @NonNull float[][] caseLineWidthStops,
+                    @NonNull float[][] lineOffsetStops, @NonNull float[][] caseLineOpacityStops) {
+    if (baseColors.length != 4 || caseColors.length != 4) {
+      throw new IllegalArgumentException("Traffic colors require a value for each of the 4 congestion levels");
+    }
+
+    int size = baseLayerIds.length;
+    if (caseLayerIds.length != size || minZooms.length != size || classes.length != size
+      || lineWidthStops.length != size || caseLineWidthStops.length != size || lineOffsetStops.length != size
+      || caseLineOpacityStops.length != size) {
+      throw new IllegalArgumentException("Traffic layer table rows have different lengths");
+    }
+    for (float minZoom : minZooms) {
+      checkZoom(minZoom);
+    }
+
+    this.baseColors = baseColors;
+    this.caseColors = caseColors;
+    this.baseLayerIds = baseLayerIds;
+    this.caseLayerIds = caseLayerIds;
+    this.minZooms = minZooms;
+    this.classes = classes;
+    this.lineWidthStops = lineWidthStops;
+    this.caseLineWidthStops = caseLineWidthStops;
+    this.lineOffsetStops = lineOffsetStops;
+    this.caseLineOpacityStops = caseLineOpacityStops;
+  }
+
+  /**
+   * Verifies a zoom level is in the range of the style specification.
+   *
+   * @param zoom the zoom level
+   * @return the zoom level
+   * @throws IllegalArgumentException if the zoom level isn't in the range [0, 24]
+   */
+  static float checkZoom(float zoom) {
+    if (!(zoom >= 0 && zoom <= MAX_ZOOM)) {
+      throw new IllegalArgumentException("Zoom level must be in the range [0, 24], was " + zoom);
+    }
+    return zoom;
+  }
+
+  /**
+   * Returns the amount of road classes in this table.
+   *
+   * @return the amount of rows
+   */
+  int size() {
+    return baseLayerIds.length;
+  }
+
+  /**
+   * Returns the case line opacity stops of a road class.
+   *
+   * @param row the road class row
+   * @return the flattened stops, null if the case layer is opaque
+   */
+  @Nullable
+  float[] getCaseLineOpacityStops(int row) {
+    return caseLineOpacityStops[row];
+  }
+}
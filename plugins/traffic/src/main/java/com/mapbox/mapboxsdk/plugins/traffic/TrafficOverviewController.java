@@ -0,0 +1,190 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionGrid;
+import com.mapbox.mapboxsdk.style.layers.FillLayer;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
+import com.mapbox.mapboxsdk.style.sources.Source;
+
+import java.util.concurrent.Executor;
+
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillOpacity;
+
+/**
+ * Shows a coarse congestion overview in place of the traffic line layers at low zoom levels.
+ * <p>
+ * The overview is a single fill layer of the cells of a {@link CongestionGrid}, backed by a GeoJSON source. The layer
+ * is shown below the overview zoom level, the line layers above it. Grids are converted to GeoJSON on the serial
+ * background executor, only the resulting string is handed to the source on the main thread. The last overview is
+ * retained and restored when the layer is added to a new style.
+ * <p>
+ * Until the first grid was delivered, the line layers are shown at all zoom levels, an enabled overview without cells
+ * would leave the map without traffic below the overview zoom level.
+ * </p>
+ */
+final class TrafficOverviewController {
+
+  /**
+   * Default zoom level the line layers replace the overview at.
+   */
+  static final float DEFAULT_ZOOM = 9;
+
+  private static final float OPACITY = 0.6f;
+  private static final String EMPTY_GEOJSON = "{\"type\":\"FeatureCollection\",\"features\":[]}";
+
+  private final MapboxMap mapboxMap;
+  private final Executor mainThreadExecutor;
+  private final Executor backgroundExecutor;
+  private final Callback callback;
+
+  private boolean enabled;
+  private float zoom = DEFAULT_ZOOM;
+  private String geoJson = EMPTY_GEOJSON;
+  private boolean hasGrid;
+
+  /**
+   * Create an overview controller.
+   *
+   * @param mapboxMap          the map to add the overview to
+   * @param mainThreadExecutor the executor to update the source on
+   * @param backgroundExecutor the serial executor to convert grids on
+   * @param callback           the callback to notify when the first grid was delivered
+   */
+  TrafficOverviewController(@NonNull MapboxMap mapboxMap, @NonNull Executor mainThreadExecutor,
+                            @NonNull Executor backgroundExecutor, @NonNull Callback callback) {
+    this.mapboxMap = mapboxMap;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.backgroundExecutor = backgroundExecutor;
+    this.callback = callback;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  float getZoom() {
+    return zoom;
+  }
+
+  void setZoom(float zoom) {
+    this.zoom = zoom;
+  }
+
+  /**
+   * Returns the lowest zoom level traffic line layers are shown at.
+   *
+   * @return the overview zoom level if enabled and a grid was delivered, 0 otherwise
+   */
+  float getLineMinZoom() {
+    return enabled && hasGrid ? zoom : 0;
+  }
+
+  /**
+   * Adds the overview source, if missing, and layer to the current style. When the overview is disabled, the overview
+   * source is removed from the style instead.
+   *
+   * @param colors       the fill colors for low, moderate, heavy and severe congestion
+   * @param opacity      the opacity of the traffic profile
+   * @param idAboveLayer the id of the layer to add the overview above, null to add it on top
+   * @return the overview layer, null if the overview is disabled
+   */
+  @Nullable
+  @UiThread
+  Layer addLayer(@NonNull int[] colors, float opacity, @Nullable String idAboveLayer) {
+    if (!enabled) {
+      if (mapboxMap.getSource(TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID) != null) {
+        mapboxMap.removeSource(TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID);
+      }
+      return null;
+    }
+
+    if (mapboxMap.getSource(TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID) == null) {
+      mapboxMap.addSource(new GeoJsonSource(TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID, geoJson));
+    }
+    FillLayer fillLayer = new FillLayer(TrafficPlugin.TrafficData.OVERVIEW_LAYER_ID,
+      TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID);
+    fillLayer.setProperties(getPaintProperties(colors, opacity));
+    fillLayer.setMaxZoom(zoom);
+    if (idAboveLayer != null) {
+      mapboxMap.addLayerAbove(fillLayer, idAboveLayer);
+    } else {
+      mapboxMap.addLayer(fillLayer);
+    }
+    return fillLayer;
+  }
+
+  /**
+   * Returns the paint properties of the overview layer, to update an added layer in place.
+   *
+   * @param colors  the fill colors for low, moderate, heavy and severe congestion
+   * @param opacity the opacity of the traffic profile
+   * @return the fill color and opacity properties
+   */
+  @NonNull
+  PropertyValue<?>[] getPaintProperties(@NonNull int[] colors, float opacity) {
+    return new PropertyValue<?>[] {
+      fillColor(TrafficFunction.getLineColorFunction(colors)),
+      fillOpacity(OPACITY * opacity)
+    };
+  }
+
+  /**
+   * Replaces the overview by the cells of a grid. The grid must not be modified afterwards.
+   *
+   * @param grid the aggregated congestion
+   */
+  @UiThread
+  void setGrid(@NonNull final CongestionGrid grid) {
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        StringBuilder builder = new StringBuilder(64 + grid.size() * 256);
+        grid.writeGeoJson(builder);
+        final String json = builder.toString();
+        mainThreadExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            onGeoJson(json);
+          }
+        });
+      }
+    });
+  }
+
+  private void onGeoJson(String json) {
+    geoJson = json;
+    Source source = mapboxMap.getSource(TrafficPlugin.TrafficData.OVERVIEW_SOURCE_ID);
+    if (source instanceof GeoJsonSource) {
+      ((GeoJsonSource) source).setGeoJson(json);
+    }
+    if (!hasGrid) {
+      hasGrid = true;
+      if (enabled) {
+        callback.onFirstGrid();
+      }
+    }
+  }
+
+  /**
+   * Receives the delivery of the first grid.
+   */
+  interface Callback {
+
+    /**
+     * Called on the main thread when the first grid of an enabled overview was delivered, the line layers must be
+     * added again to be hidden below the overview zoom level.
+     */
+    void onFirstGrid();
+  }
+}
@@ -0,0 +1,321 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficGeoJson;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficRecording;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Replays a {@link TrafficRecording} as frames of GeoJSON for the traffic layers.
+ * <p>
+ * Starting a playback seeks the recording to the start time on the serial playback executor, which holds the current
+ * segments of each tile. Every {@link #FRAME_INTERVAL_MILLIS} the playback time advances by the elapsed time
+ * multiplied by the speed, and the snapshots recorded in between are applied to the tiles. A frame is only built when
+ * a tile changed, and only one frame is built at a time: a slow frame delays the next one instead of queuing frames.
+ * Frames are delivered on the main thread.
+ * </p>
+ */
+final class TrafficPlaybackController {
+
+  /**
+   * Interval between playback frames.
+   */
+  static final long FRAME_INTERVAL_MILLIS = 250;
+
+  private final MapView mapView;
+  private final Executor mainThreadExecutor;
+  private final Executor playbackExecutor;
+  private final Callback callback;
+  private final Runnable tick = new Runnable() {
+    @Override
+    public void run() {
+      onTick();
+    }
+  };
+
+  // main thread
+  private TrafficRecording recording;
+  private long startTime;
+  private float speed;
+  private long startUptime;
+  private long playbackTime;
+  private boolean framePending;
+  private int generation;
+  private String geoJson = TrafficFeedController.EMPTY_GEOJSON;
+
+  // playback executor
+  private final Map<Long, TrafficSegments> tiles = new HashMap<>();
+  private long appliedTime;
+
+  /**
+   * Create a playback controller.
+   *
+   * @param mapView            the map view to schedule frames on
+   * @param mainThreadExecutor the executor to deliver frames on
+   * @param playbackExecutor   the serial executor to read the recording on
+   * @param callback           the callback receiving frames
+   */
+  TrafficPlaybackController(@NonNull MapView mapView, @NonNull Executor mainThreadExecutor,
+                            @NonNull Executor playbackExecutor, @NonNull Callback callback) {
+    this.mapView = mapView;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.playbackExecutor = playbackExecutor;
+    this.callback = callback;
+  }
+
+  /**
+   * Returns true if a recording is played back, including after reaching its end until stopped.
+   *
+   * @return true if active
+   */
+  boolean isActive() {
+    return recording != null;
+  }
+
+  /**
+   * Returns the time of the recording currently shown.
+   *
+   * @return the playback time in milliseconds
+   */
+  long getPlaybackTime() {
+    return playbackTime;
+  }
+
+  /**
+   * Returns the last delivered frame, to initialise a source with.
+   *
+   * @return the GeoJSON of the frame
+   */
+  @NonNull
+  String getGeoJson() {
+    return geoJson;
+  }
+
+  /**
+   * Starts playing back a recording, replacing the current playback.
+   *
+   * @param recording     the recording, not appended to during the playback
+   * @param fromTimestamp the time of the recording to start at
+   * @param speed         the playback speed, 1 for real time
+   */
+  @UiThread
+  void start(@NonNull final TrafficRecording recording, final long fromTimestamp, float speed) {
+    if (speed <= 0) {
+      throw new IllegalArgumentException("Playback speed must be positive, was " + speed);
+    }
+
+    mapView.removeCallbacks(tick);
+    this.recording = recording;
+    this.startTime = fromTimestamp;
+    this.speed = speed;
+    this.playbackTime = fromTimestamp;
+    this.framePending = true;
+    final int current = ++generation;
+    playbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        buildFrame(current, new FrameTask() {
+          @Override
+          public boolean apply() throws IOException {
+            tiles.clear();
+            appliedTime = fromTimestamp;
+            recording.seek(fromTimestamp, new TileUpdater());
+            return true;
+          }
+        });
+      }
+    });
+    startUptime = 0;
+    mapView.postDelayed(tick, FRAME_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Stops the playback.
+   */
+  @UiThread
+  void stop() {
+    mapView.removeCallbacks(tick);
+    recording = null;
+    framePending = false;
+    generation++;
+    geoJson = TrafficFeedController.EMPTY_GEOJSON;
+    playbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        tiles.clear();
+      }
+    });
+  }
+
+  /**
+   * Stops scheduling frames, the playback time keeps advancing until resumed.
+   */
+  @UiThread
+  void pause() {
+    mapView.removeCallbacks(tick);
+  }
+
+  /**
+   * Schedules frames again after a pause, the next frame shows the current playback time.
+   */
+  @UiThread
+  void resume() {
+    if (recording != null) {
+      mapView.removeCallbacks(tick);
+      mapView.postDelayed(tick, FRAME_INTERVAL_MILLIS);
+    }
+  }
+
+  /**
+   * Advances the playback to a time of the recording, unless the previous frame is still being built.
+   *
+   * @param timestamp the playback time
+   * @return true if the playback advances, false if it is stopped or busy
+   */
+  @UiThread
+  boolean advanceTo(final long timestamp) {
+    final TrafficRecording playing = recording;
+    if (playing == null || framePending) {
+      return false;
+    }
+
+    playbackTime = timestamp;
+    framePending = true;
+    final int current = generation;
+    playbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        buildFrame(current, new FrameTask() {
+          @Override
+          public boolean apply() throws IOException {
+            int count = playing.replay(appliedTime, timestamp, new TileUpdater());
+            appliedTime = timestamp;
+            return count > 0;
+          }
+        });
+      }
+    });
+    return true;
+  }
+
+  private void onTick() {
+    if (recording == null) {
+      return;
+    }
+
+    long uptime = SystemClock.uptimeMillis();
+    if (startUptime == 0) {
+      // the first tick is posted when the playback starts
+      startUptime = uptime - FRAME_INTERVAL_MILLIS;
+    }
+    long endTime = recording.getEndTime();
+    long elapsed = uptime - startUptime;
+    long timestamp = Math.min(startTime + (long) (elapsed * (double) speed), endTime);
+    if (!advanceTo(timestamp) || timestamp < endTime) {
+      mapView.postDelayed(tick, FRAME_INTERVAL_MILLIS);
+    }
+  }
+
+  @WorkerThread
+  private void buildFrame(final int current, FrameTask task) {
+    try {
+      final String json = task.apply() ? writeTiles() : null;
+      mainThreadExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (current != generation) {
+            return;
+          }
+          framePending = false;
+          if (json != null) {
+            geoJson = json;
+            callback.onFrame(json);
+          }
+        }
+      });
+    } catch (IOException | RuntimeException exception) {
+      // a corrupt recording may fail decoding with a runtime exception, which would terminate the application
+      final IOException failure = exception instanceof IOException
+        ? (IOException) exception : new IOException("Unable to read traffic recording", exception);
+      mainThreadExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (current == generation) {
+            // stopping clears the pending frame
+            stop();
+            callback.onPlaybackFailed(failure);
+          }
+        }
+      });
+    }
+  }
+
+  private String writeTiles() {
+    TrafficSegments frame = new TrafficSegments(1024, 8192);
+    for (TrafficSegments segments : tiles.values()) {
+      copy(segments, frame);
+    }
+    StringBuilder builder = new StringBuilder(64 + frame.getPointCount() * 40);
+    TrafficGeoJson.write(frame, builder);
+    return builder.toString();
+  }
+
+  private static void copy(TrafficSegments source, TrafficSegments target) {
+    double[] coordinates = source.getCoordinates();
+    for (int i = 0; i < source.size(); i++) {
+      target.add(source.getRoadClass(i), source.getCongestion(i), coordinates, source.getPointOffset(i) * 2,
+        source.getPointCount(i));
+    }
+  }
+
+  private interface FrameTask {
+    boolean apply() throws IOException;
+  }
+
+  /**
+   * Replaces the segments of each tile by its snapshots, confined to the playback executor.
+   */
+  private final class TileUpdater implements TrafficRecording.Listener {
+
+    @Override
+    public void onSnapshot(long tileId, long timestamp, @NonNull TrafficSegments segments) {
+      TrafficSegments tile = tiles.get(tileId);
+      if (tile == null) {
+        tile = new TrafficSegments(Math.max(segments.size(), 1), Math.max(segments.getPointCount(), 1));
+        tiles.put(tileId, tile);
+      }
+      tile.clear();
+      copy(segments, tile);
+    }
+  }
+
+  /**
+   * Receives the playback frames.
+   */
+  interface Callback {
+
+    /**
+     * Called on the main thread with a frame of the playback.
+     *
+     * @param geoJson the GeoJSON of all tiles at the playback time
+     */
+    void onFrame(@NonNull String geoJson);
+
+    /**
+     * Called on the main thread when the recording couldn't be read, the playback is stopped.
+     *
+     * @param exception the cause
+     */
+    void onPlaybackFailed(@NonNull IOException exception);
+  }
+}
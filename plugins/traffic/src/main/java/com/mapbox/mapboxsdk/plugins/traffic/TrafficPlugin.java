@@ -1,37 +1,42 @@
 package com.mapbox.mapboxsdk.plugins.traffic;
 
-import android.graphics.Color;
-import android.support.annotation.ColorInt;
+import android.os.Bundle;
+import android.support.annotation.AnyThread;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
 
+import com.mapbox.mapboxsdk.constants.Style;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
-import com.mapbox.mapboxsdk.style.functions.CameraFunction;
-import com.mapbox.mapboxsdk.style.functions.Function;
-import com.mapbox.mapboxsdk.style.functions.stops.Stop;
-import com.mapbox.mapboxsdk.style.layers.Filter;
+import com.mapbox.mapboxsdk.plugins.pluginmanager.MapPlugin;
+import com.mapbox.mapboxsdk.plugins.pluginmanager.PluginManager;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionChange;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionGrid;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionSummary;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficRecording;
 import com.mapbox.mapboxsdk.style.layers.Layer;
-import com.mapbox.mapboxsdk.style.layers.LineLayer;
+import com.mapbox.mapboxsdk.style.layers.Property;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import com.mapbox.mapboxsdk.style.sources.Source;
 import com.mapbox.mapboxsdk.style.sources.VectorSource;
 
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import timber.log.Timber;
 
-import static com.mapbox.mapboxsdk.style.functions.Function.zoom;
-import static com.mapbox.mapboxsdk.style.functions.stops.Stop.stop;
-import static com.mapbox.mapboxsdk.style.functions.stops.Stops.categorical;
-import static com.mapbox.mapboxsdk.style.functions.stops.Stops.exponential;
-import static com.mapbox.mapboxsdk.style.layers.Filter.in;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.fillColor;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineCap;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineColor;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineJoin;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOffset;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOpacity;
-import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineWidth;
 import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
 
 /**
@@ -42,14 +47,128 @@ import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.visibility;
  * </p>
  * <p>
  * Use {@link #toggle()} to switch state of this plugin to enable or disabled.
+ * Use {@link #setEnabled(boolean)} to change the state of this plugin from any thread.
  * Use {@link #isEnabled()} to validate if the plugin is active or not.
+ * Use {@link #addOnTrafficStateChangeListener(OnTrafficStateChangeListener)} to be notified of state transitions.
+ * Use {@link #setTrafficProfile(String, TrafficProfile)} to adapt the traffic layers to a style.
+ * Use {@link #setTransitionDuration(long)} to animate the traffic layers when their profile changes.
+ * Use {@link #getCongestionSummary(OnCongestionSummaryListener)} to summarise the traffic in the viewport.
+ * Use {@link #setOverviewEnabled(boolean)} to replace the traffic lines by a coarse congestion overview at low zoom.
+ * Use {@link #setTrafficFeed(String)} to render a custom GeoJSON traffic feed instead of Mapbox Traffic v1.
+ * Use {@link #startPlayback(TrafficRecording, long, float)} to replay recorded traffic.
+ * Use {@link #getStyleFragment(String)} to make traffic part of a style JSON before it is loaded.
+ * Use {@link #loadStyle(String)} to load a style with traffic already part of it.
+ * </p>
+ * <p>
+ * Use {@link #onSaveInstanceState(Bundle)} and {@link #onRestoreInstanceState(Bundle)} to retain the plugin state
+ * across configuration changes.
+ * </p>
+ * <p>
+ * Use {@link #TrafficPlugin(PluginManager, MapboxMap)} to host the plugin by a {@link PluginManager}, which then
+ * forwards the lifecycle and only the map change events the plugin subscribed to.
  * </p>
  */
-public final class TrafficPlugin implements MapView.OnMapChangedListener {
+public final class TrafficPlugin implements MapPlugin {
+
+  /**
+   * A change of the enabled state was requested.
+   */
+  public static final int STATE_REQUESTED = 0;
+
+  /**
+   * The traffic source and layers are being added to the current style.
+   */
+  public static final int STATE_INSTALLING = 1;
+
+  /**
+   * The traffic source and layers were added to the current style.
+   */
+  public static final int STATE_INSTALLED = 2;
+
+  /**
+   * The traffic layers are visible.
+   */
+  public static final int STATE_VISIBLE = 3;
+
+  /**
+   * The traffic layers are hidden.
+   */
+  public static final int STATE_HIDDEN = 4;
+
+  /**
+   * The traffic source and layers couldn't be added to the current style.
+   */
+  public static final int STATE_FAILED = 5;
+
+  /**
+   * The traffic source finished loading the data for the current viewport.
+   */
+  public static final int STATE_SOURCE_LOADED = 6;
+
+  /**
+   * Default duration of the transition of the traffic layers when their profile changes: the transition duration of
+   * the style is kept.
+   */
+  public static final long DEFAULT_TRANSITION_DURATION = -1;
+
+  /**
+   * Traffic plugin states reported to {@link OnTrafficStateChangeListener}.
+   */
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef( {STATE_REQUESTED, STATE_INSTALLING, STATE_INSTALLED, STATE_VISIBLE, STATE_HIDDEN, STATE_FAILED,
+    STATE_SOURCE_LOADED})
+  public @interface TrafficState {
+  }
+
+  private static final String STATE_ENABLED = "mapbox_traffic_plugin_enabled";
+  private static final String STATE_LAYER_IDS = "mapbox_traffic_plugin_layer_ids";
+  private static final String STATE_OVERVIEW_ENABLED = "mapbox_traffic_plugin_overview_enabled";
+  private static final String STATE_OVERVIEW_ZOOM = "mapbox_traffic_plugin_overview_zoom";
+  private static final String STATE_TRAFFIC_FEED = "mapbox_traffic_plugin_traffic_feed";
+  private static final String STATE_PLAYBACK_ACTIVE = "mapbox_traffic_plugin_playback_active";
 
+  private static final int[] MAP_CHANGE_EVENTS = new int[] {
+    MapView.WILL_START_LOADING_MAP,
+    MapView.DID_FINISH_LOADING_STYLE,
+    MapView.DID_FINISH_RENDERING_MAP_FULLY_RENDERED,
+    MapView.REGION_DID_CHANGE,
+    MapView.REGION_DID_CHANGE_ANIMATED
+  };
+
+  private static final PropertyValue<?>[] VISIBLE = new PropertyValue<?>[] {visibility(Property.VISIBLE)};
+  private static final PropertyValue<?>[] NONE = new PropertyValue<?>[] {visibility(Property.NONE)};
+
+  private MapView mapView;
   private MapboxMap mapboxMap;
   private List<String> layerIds;
-  private boolean enabled;
+  private Layer[] layers;
+  private TrafficSpec trafficSpec;
+  private final Map<String, TrafficProfile> profiles = new HashMap<>();
+  private final TrafficStyleBatch styleBatch = new TrafficStyleBatch();
+  private long transitionDuration = DEFAULT_TRANSITION_DURATION;
+  private volatile boolean enabled;
+  private final TrafficRequestQueue requestQueue;
+  private final List<OnTrafficStateChangeListener> stateChangeListeners = new ArrayList<>();
+  private final TrafficSummaryController summaryController;
+  private final CongestionChangeController changeController;
+  private final TrafficOverviewController overviewController;
+  private final TrafficFeedController feedController;
+  private final TrafficPlaybackController playbackController;
+  private final Executor mainThreadExecutor;
+  private final TrafficAnchorCache anchorCache;
+  private TrafficStyleLoader styleLoader;
+  private String loadedStyleUrl;
+  private boolean sourceLoadedPending;
+  private boolean summaryRefreshPending;
+
+  private boolean styleLoadedPending;
+  private String styleLoadedUrl;
+  private final Runnable styleLoadedRunnable = new Runnable() {
+    @Override
+    public void run() {
+      onStyleLoaded();
+    }
+  };
 
   /**
    * Create a traffic plugin.
@@ -58,413 +177,1225 @@ public final class TrafficPlugin implements MapView.OnMapChangedListener {
    * @param mapboxMap the MapboxMap to apply traffic plugin with
    */
   public TrafficPlugin(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap) {
-    this.mapboxMap = mapboxMap;
+    this(mapView, mapboxMap, new MainThreadExecutor());
     mapView.addOnMapChangedListener(this);
   }
 
+  /**
+   * Create a traffic plugin hosted by a plugin manager.
+   * <p>
+   * The plugin is added to the plugin manager, which delivers its map change events and lifecycle.
+   * </p>
+   *
+   * @param pluginManager the plugin manager of the MapView to apply the traffic plugin to
+   * @param mapboxMap     the MapboxMap to apply traffic plugin with
+   */
+  public TrafficPlugin(@NonNull PluginManager pluginManager, @NonNull MapboxMap mapboxMap) {
+    this(pluginManager.getMapView(), mapboxMap, new MainThreadExecutor());
+    pluginManager.addPlugin(this);
+  }
+
+  /**
+   * Create a traffic plugin.
+   *
+   * @param mapView            the MapView to apply the traffic plugin to
+   * @param mapboxMap          the MapboxMap to apply traffic plugin with
+   * @param mainThreadExecutor the executor to apply state requests on
+   */
+  TrafficPlugin(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap, @NonNull Executor mainThreadExecutor) {
+    this(mapView, mapboxMap, mainThreadExecutor, TrafficExecutors.newSerialExecutor("traffic-summary"));
+  }
+
+  /**
+   * Create a traffic plugin.
+   *
+   * @param mapView            the MapView to apply the traffic plugin to
+   * @param mapboxMap          the MapboxMap to apply traffic plugin with
+   * @param mainThreadExecutor the executor to apply state requests on
+   * @param backgroundExecutor the serial executor to compute congestion summaries and changes on
+   */
+  TrafficPlugin(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap, @NonNull Executor mainThreadExecutor,
+                @NonNull Executor backgroundExecutor) {
+    this(mapView, mapboxMap, mainThreadExecutor, backgroundExecutor,
+      mapView.getContext() != null ? TrafficAnchorCache.getInstance(mapView.getContext()) : null);
+  }
+
+  /**
+   * Create a traffic plugin.
+   *
+   * @param mapView            the MapView to apply the traffic plugin to
+   * @param mapboxMap          the MapboxMap to apply traffic plugin with
+   * @param mainThreadExecutor the executor to apply state requests on
+   * @param backgroundExecutor the serial executor to compute congestion summaries and changes on
+   * @param anchorCache        the cache of resolved anchor layers kept across launches, null to resolve every style
+   */
+  TrafficPlugin(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap, @NonNull Executor mainThreadExecutor,
+                @NonNull Executor backgroundExecutor, @Nullable TrafficAnchorCache anchorCache) {
+    this.mapView = mapView;
+    this.mapboxMap = mapboxMap;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.anchorCache = anchorCache;
+    this.requestQueue = new TrafficRequestQueue(mainThreadExecutor, new TrafficRequestQueue.Callback() {
+      @Override
+      public void onDesiredState(boolean enabled) {
+        setEnabledState(enabled);
+      }
+    });
+    TrafficSummaryController.Callback queryCallback = new TrafficSummaryController.Callback() {
+      @Override
+      public String[] getQueryLayerIds() {
+        return getSummaryLayerIds();
+      }
+    };
+    this.summaryController = new TrafficSummaryController(mapView, mapboxMap, mainThreadExecutor,
+      backgroundExecutor, queryCallback);
+    this.changeController = new CongestionChangeController(mapView, mapboxMap, mainThreadExecutor,
+      backgroundExecutor, queryCallback);
+    this.overviewController = new TrafficOverviewController(mapboxMap, mainThreadExecutor, backgroundExecutor,
+      new TrafficOverviewController.Callback() {
+        @Override
+        public void onFirstGrid() {
+          reinstallTrafficLayers();
+        }
+      });
+    this.feedController = new TrafficFeedController(mainThreadExecutor,
+      TrafficExecutors.newSerialExecutor("traffic-feed"), new TrafficFeedController.Callback() {
+        @Override
+        public void onFeedChanged(@NonNull String geoJson) {
+          if (!playbackController.isActive()) {
+            setSourceGeoJson(geoJson);
+          }
+        }
+
+        @Override
+        public void onFeedFailed(@NonNull IOException exception) {
+          Timber.e("Unable to load traffic feed: ", exception);
+          dispatchStateChange(STATE_FAILED, exception);
+        }
+      });
+    this.playbackController = new TrafficPlaybackController(mapView, mainThreadExecutor,
+      TrafficExecutors.newSerialExecutor("traffic-playback"), new TrafficPlaybackController.Callback() {
+        @Override
+        public void onFrame(@NonNull String geoJson) {
+          setSourceGeoJson(geoJson);
+        }
+
+        @Override
+        public void onPlaybackFailed(@NonNull IOException exception) {
+          Timber.e("Unable to read traffic recording: ", exception);
+          reinstallTrafficSource();
+          dispatchStateChange(STATE_FAILED, exception);
+        }
+      });
+    profiles.put(Style.DARK, TrafficProfile.DARK);
+    profiles.put(Style.SATELLITE, TrafficProfile.SATELLITE);
+    profiles.put(Style.SATELLITE_STREETS, TrafficProfile.SATELLITE);
+  }
+
+  /**
+   * Builds the shared traffic style definitions on the calling thread.
+   * <p>
+   * The traffic style definitions are built on demand, the first time traffic is added to a map. Calling this method
+   * from a background thread, for example from {@link android.app.Application#onCreate()}, moves that cost off the
+   * main thread. Calling it more than once has no effect.
+   * </p>
+   */
+  @WorkerThread
+  public static void prewarm() {
+    TrafficLayerRegistry.getLayerSpecs();
+  }
+
   /**
    * Returns true if the traffic plugin is currently enabled.
+   * <p>
+   * This method can be called from any thread, it returns the state that was last applied on the main thread.
+   * </p>
    *
    * @return true if enabled, false otherwise
    */
+  @AnyThread
   public boolean isEnabled() {
     return enabled;
   }
 
+  /**
+   * Requests the traffic plugin to be enabled or disabled.
+   * <p>
+   * This method can be called from any thread. The request is applied on the main thread, when multiple requests are
+   * made before that happens only the latest one is applied.
+   * </p>
+   *
+   * @param enabled true to enable traffic, false to disable
+   */
+  @AnyThread
+  public void setEnabled(boolean enabled) {
+    requestQueue.offer(enabled);
+  }
+
   /**
    * Toggles the traffic plugin state.
    * <p>
    * If the traffic plugin wasn't initialised yet, traffic source and layers will be added to the current map style.
    * Else visibility will be toggled based on the current state.
    * </p>
+   * <p>
+   * This method must be called from the main thread, use {@link #setEnabled(boolean)} from other threads.
+   * </p>
    */
+  @UiThread
   public void toggle() {
     enabled = !enabled;
+    dispatchStateChange(STATE_REQUESTED, null);
     updateState();
   }
 
+  /**
+   * Sets the traffic spec describing the traffic layers.
+   * <p>
+   * If traffic layers were already added to the current style, they are replaced by the layers of the new spec.
+   * </p>
+   *
+   * @param trafficSpec the traffic spec to use, null to use the default traffic layers
+   */
+  @UiThread
+  public void setTrafficSpec(@Nullable TrafficSpec trafficSpec) {
+    this.trafficSpec = trafficSpec;
+    reinstallTrafficLayers();
+  }
+
+  /**
+   * Sets the traffic profile used when a style is loaded.
+   * <p>
+   * The profile is selected by the url of the loaded style. The dark and satellite Mapbox styles have a profile by
+   * default, other styles use {@link TrafficProfile#DEFAULT}. If traffic layers were already added to a style with the
+   * given url, their colors and opacity are updated to the new profile in a single batch, animated with the
+   * transition duration.
+   * </p>
+   *
+   * @param styleUrl the url of the style
+   * @param profile  the traffic profile to use, null to use the default profile
+   */
+  @UiThread
+  public void setTrafficProfile(@NonNull String styleUrl, @Nullable TrafficProfile profile) {
+    if (profile != null) {
+      profiles.put(styleUrl, profile);
+    } else {
+      profiles.remove(styleUrl);
+    }
+
+    if (styleUrl.equals(getStyleUrl())) {
+      updateTrafficLayers();
+    }
+  }
+
+  /**
+   * Sets the duration of the transition of the traffic layers when their profile changes.
+   * <p>
+   * The Mapbox Android SDK v5.0.2 only supports a transition duration for the whole style, it is set on the map when
+   * the traffic layers are updated and also applies to later changes of other layers. By default the transition
+   * duration of the style is kept and never changed by the plugin.
+   * </p>
+   *
+   * @param durationMillis the duration in milliseconds, 0 to apply changes instantly, negative to keep the transition
+   *                       duration of the style
+   */
+  @UiThread
+  public void setTransitionDuration(long durationMillis) {
+    this.transitionDuration = durationMillis;
+  }
+
+  /**
+   * Returns the duration of the transition of the traffic layers when their profile changes.
+   *
+   * @return the duration in milliseconds, negative if the transition duration of the style is kept
+   */
+  public long getTransitionDuration() {
+    return transitionDuration;
+  }
+
+  /**
+   * Returns the precompiled traffic source and layers for a style, to inject into its JSON before it is loaded.
+   * <p>
+   * The fragment uses the current traffic spec and the profile of the style. Inject it on a background thread with
+   * {@link TrafficStyleFragment#inject(String)} and load the result with
+   * {@link MapboxMap#setStyleJson(String)}: traffic is rendered with the first frame of the style, and once enabled
+   * the plugin attaches to the injected layers instead of adding its own. Fragments are serialised once per spec and
+   * profile.
+   * </p>
+   *
+   * @param styleUrl the url of the style, may be null if the profile of the style isn't selected by url
+   * @return the style fragment
+   */
+  @NonNull
+  @UiThread
+  public TrafficStyleFragment getStyleFragment(@Nullable String styleUrl) {
+    TrafficProfile profile = getTrafficProfile(styleUrl);
+    return trafficSpec != null ? trafficSpec.getStyleFragment(profile) : TrafficLayerRegistry.getStyleFragment(profile);
+  }
+
+  /**
+   * Loads a style with traffic injected into its JSON, instead of adding traffic once the style finished loading.
+   * <p>
+   * The style JSON is read on a background thread, the traffic source and layers are injected above the traffic anchor
+   * layer, or below the first symbol layer of styles without it, and the result is loaded with
+   * {@link MapboxMap#setStyleJson(String)}. The injected style is cached by url and version, reloading an unchanged
+   * style only checks whether it changed. Traffic layers are injected hidden while the plugin is disabled, enabling it
+   * shows them without modifying the style.
+   * </p>
+   * <p>
+   * When the congestion overview, a traffic feed or a playback is active, or the style can't be read, the style is
+   * loaded with {@link MapboxMap#setStyleUrl(String)} and traffic is added once it finished loading. The url is
+   * remembered to select the traffic profile, as a style loaded from JSON has no url. Don't change the style of the map
+   * directly while a style is loading.
+   * </p>
+   *
+   * @param styleUrl the url of the style, a mapbox, http, file or asset url
+   */
+  @UiThread
+  public void loadStyle(@NonNull String styleUrl) {
+    if (overviewController.isEnabled() || feedController.getUrl() != null || playbackController.isActive()) {
+      if (styleLoader != null) {
+        styleLoader.cancel();
+      }
+      loadedStyleUrl = null;
+      mapboxMap.setStyleUrl(styleUrl);
+      return;
+    }
+
+    if (styleLoader == null) {
+      styleLoader = new TrafficStyleLoader(mainThreadExecutor, TrafficExecutors.newSerialExecutor("traffic-style"),
+        mapView.getContext().getAssets(), anchorCache, new TrafficStyleLoader.Callback() {
+          @Override
+          public void onStyleLoaded(@NonNull String styleUrl, @NonNull String styleJson) {
+            loadedStyleUrl = styleUrl;
+            mapboxMap.setStyleJson(styleJson);
+          }
+
+          @Override
+          public void onStyleFailed(@NonNull String styleUrl, @NonNull IOException exception) {
+            Timber.e("Unable to inject traffic into style: ", exception);
+            loadedStyleUrl = null;
+            mapboxMap.setStyleUrl(styleUrl);
+          }
+        });
+    }
+    styleLoader.load(styleUrl, getStyleFragment(styleUrl), enabled);
+  }
+
+  /**
+   * Returns the url of the current style.
+   *
+   * @return the url of the style, the url passed to {@link #loadStyle(String)} if the style was loaded from JSON
+   */
+  @Nullable
+  private String getStyleUrl() {
+    String styleUrl = mapboxMap.getStyleUrl();
+    return styleUrl == null || styleUrl.isEmpty() ? loadedStyleUrl : styleUrl;
+  }
+
+  /**
+   * Returns the traffic profile used for a style.
+   *
+   * @param styleUrl the url of the style, may be null if the style was loaded from JSON
+   * @return the traffic profile
+   */
+  @NonNull
+  TrafficProfile getTrafficProfile(@Nullable String styleUrl) {
+    TrafficProfile profile = styleUrl != null ? profiles.get(styleUrl) : null;
+    return profile != null ? profile : TrafficProfile.DEFAULT;
+  }
+
+  /**
+   * Adds a listener that is notified of traffic state transitions on the main thread.
+   *
+   * @param listener the listener to add
+   */
+  @UiThread
+  public void addOnTrafficStateChangeListener(@NonNull OnTrafficStateChangeListener listener) {
+    if (!stateChangeListeners.contains(listener)) {
+      stateChangeListeners.add(listener);
+    }
+  }
+
+  /**
+   * Removes a previously added traffic state listener.
+   *
+   * @param listener the listener to remove
+   */
+  @UiThread
+  public void removeOnTrafficStateChangeListener(@NonNull OnTrafficStateChangeListener listener) {
+    stateChangeListeners.remove(listener);
+  }
+
+  /**
+   * Requests a congestion summary of the traffic shown in the current viewport.
+   * <p>
+   * The summary counts the rendered traffic segments and their length per road class and congestion level. It is
+   * computed off the main thread and cached until the camera moves or zooms beyond a threshold, requests within that
+   * range are served from the cache. When traffic is disabled, the summary is empty.
+   * </p>
+   *
+   * @param listener the listener invoked on the main thread with the summary
+   */
+  @UiThread
+  public void getCongestionSummary(@NonNull OnCongestionSummaryListener listener) {
+    summaryController.request(listener);
+  }
+
+  /**
+   * Adds a listener receiving a new congestion summary of the viewport when the camera becomes idle after moving
+   * beyond the summary threshold, or when new traffic data was rendered.
+   *
+   * @param listener the listener to add
+   */
+  @UiThread
+  public void addOnCongestionSummaryListener(@NonNull OnCongestionSummaryListener listener) {
+    summaryController.addListener(listener);
+  }
+
+  /**
+   * Removes a previously added congestion summary listener.
+   *
+   * @param listener the listener to remove
+   */
+  @UiThread
+  public void removeOnCongestionSummaryListener(@NonNull OnCongestionSummaryListener listener) {
+    summaryController.removeListener(listener);
+  }
+
+  /**
+   * Adds a listener receiving the traffic segments in the viewport whose congestion level changed.
+   * <p>
+   * Each time traffic was rendered, the rendered segments are compared to the segments rendered before in the same
+   * tiles, tiles that didn't change are skipped. Only segments rendered both times are compared, the first time a
+   * tile is rendered is its baseline. Hiding traffic or changing the style resets the baseline.
+   * </p>
+   *
+   * @param listener the listener to add
+   */
+  @UiThread
+  public void addOnCongestionChangeListener(@NonNull OnCongestionChangeListener listener) {
+    changeController.addListener(listener);
+  }
+
+  /**
+   * Removes a previously added congestion change listener.
+   *
+   * @param listener the listener to remove
+   */
+  @UiThread
+  public void removeOnCongestionChangeListener(@NonNull OnCongestionChangeListener listener) {
+    changeController.removeListener(listener);
+  }
+
+  /**
+   * Enables or disables the congestion overview shown in place of the traffic lines at low zoom levels.
+   * <p>
+   * Below the overview zoom level, the traffic line layers are hidden and a single layer of coarse congestion cells is
+   * shown instead, see {@link #setOverviewGrid(CongestionGrid)}. Until the first grid was delivered, the traffic
+   * lines stay visible at all zoom levels. If traffic layers were already added to the current style, they are
+   * replaced.
+   * </p>
+   *
+   * @param enabled true to show the overview, false to show the traffic lines at all zoom levels
+   */
+  @UiThread
+  public void setOverviewEnabled(boolean enabled) {
+    if (overviewController.isEnabled() != enabled) {
+      overviewController.setEnabled(enabled);
+      reinstallTrafficLayers();
+    }
+  }
+
+  /**
+   * Returns true if the congestion overview is enabled.
+   *
+   * @return true if the overview replaces the traffic lines at low zoom levels
+   */
+  public boolean isOverviewEnabled() {
+    return overviewController.isEnabled();
+  }
+
+  /**
+   * Sets the zoom level the traffic lines replace the congestion overview at, 9 by default.
+   *
+   * @param zoom the zoom level, in the range [0, 24]
+   * @throws IllegalArgumentException if the zoom level is out of range
+   */
+  @UiThread
+  public void setOverviewZoom(float zoom) {
+    TrafficLayerTable.checkZoom(zoom);
+    if (overviewController.getZoom() != zoom) {
+      overviewController.setZoom(zoom);
+      if (overviewController.isEnabled()) {
+        reinstallTrafficLayers();
+      }
+    }
+  }
+
+  /**
+   * Returns the zoom level the traffic lines replace the congestion overview at.
+   *
+   * @return the zoom level
+   */
+  public float getOverviewZoom() {
+    return overviewController.getZoom();
+  }
+
+  /**
+   * Replaces the congestion overview by the cells of a grid.
+   * <p>
+   * Grids are typically aggregated off the main thread from decoded traffic tiles, for example with
+   * {@link com.mapbox.mapboxsdk.plugins.traffic.data.TrafficTilePipeline#gridProcessor(int)}. The grid is converted
+   * on a background thread and must not be modified afterwards. The overview is retained across style changes.
+   * </p>
+   *
+   * @param grid the aggregated congestion
+   */
+  @UiThread
+  public void setOverviewGrid(@NonNull CongestionGrid grid) {
+    overviewController.setGrid(grid);
+  }
+
+  /**
+   * Sets a custom GeoJSON traffic feed to render with the traffic layers instead of Mapbox Traffic v1.
+   * <p>
+   * The feed is a feature collection of line features with {@code class} and {@code congestion} properties, with the
+   * values used by Mapbox Traffic v1. It is loaded from the url, for example a {@code file:} or {@code http:} url,
+   * and parsed on a background thread. Use {@link #refreshTrafficFeed()} to load it again, a refresh that didn't
+   * change any segment isn't sent to the map. If traffic was already added to the current style, its source is
+   * replaced.
+   * </p>
+   *
+   * @param url the url of the feed, null to render Mapbox Traffic v1
+   */
+  @UiThread
+  public void setTrafficFeed(@Nullable String url) {
+    String current = feedController.getUrl();
+    if (url == null ? current == null : url.equals(current)) {
+      return;
+    }
+
+    feedController.setUrl(url);
+    reinstallTrafficSource();
+    feedController.refresh();
+  }
+
+  /**
+   * Returns the url of the custom traffic feed.
+   *
+   * @return the url, null if Mapbox Traffic v1 is rendered
+   */
+  @Nullable
+  public String getTrafficFeed() {
+    return feedController.getUrl();
+  }
+
+  /**
+   * Loads the custom traffic feed again, the traffic layers are updated if the feed changed.
+   */
+  @UiThread
+  public void refreshTrafficFeed() {
+    feedController.refresh();
+  }
+
+  /**
+   * Replays recorded traffic with the traffic layers, in place of the live traffic.
+   * <p>
+   * The traffic source is replaced by the state of the recorded tiles at the playback time, which advances with the
+   * given speed until the end of the recording. The recording is read on a background thread and must not be
+   * appended to or closed until the playback is stopped. Starting a playback while playing back seeks to the new start
+   * time.
+   * </p>
+   *
+   * @param recording     the recording to replay
+   * @param fromTimestamp the time of the recording to start at, in milliseconds
+   * @param speed         the playback speed, 1 for real time, 60 to replay an hour in a minute
+   */
+  @UiThread
+  public void startPlayback(@NonNull TrafficRecording recording, long fromTimestamp, float speed) {
+    boolean wasActive = playbackController.isActive();
+    playbackController.start(recording, fromTimestamp, speed);
+    if (!wasActive) {
+      reinstallTrafficSource();
+    }
+  }
+
+  /**
+   * Stops replaying recorded traffic, the live traffic is shown again.
+   */
+  @UiThread
+  public void stopPlayback() {
+    if (playbackController.isActive()) {
+      playbackController.stop();
+      reinstallTrafficSource();
+    }
+  }
+
+  /**
+   * Returns true if recorded traffic is replayed, also once the end of the recording was reached.
+   *
+   * @return true if a playback is active
+   */
+  public boolean isPlaybackActive() {
+    return playbackController.isActive();
+  }
+
+  /**
+   * Returns the time of the recording currently replayed.
+   *
+   * @return the playback time in milliseconds
+   */
+  public long getPlaybackTime() {
+    return playbackController.getPlaybackTime();
+  }
+
+  /**
+   * Applies a requested enabled state, if it differs from the current state.
+   *
+   * @param enabled the requested enabled state
+   */
+  private void setEnabledState(boolean enabled) {
+    if (this.enabled != enabled) {
+      toggle();
+    }
+  }
+
+  /**
+   * Returns the map change events the traffic plugin handles, to be hosted by a {@link PluginManager}.
+   *
+   * @return the map change events
+   */
+  @NonNull
+  @Override
+  public int[] getMapChangeEvents() {
+    return MAP_CHANGE_EVENTS.clone();
+  }
+
+  /**
+   * Resumes a paused playback.
+   * <p>
+   * Called by a hosting {@link PluginManager}, or from {@link android.app.Activity#onStart()} when the plugin isn't
+   * hosted.
+   * </p>
+   */
+  @Override
+  public void onStart() {
+    playbackController.resume();
+  }
+
+  /**
+   * Pauses building playback frames while the map isn't visible, the playback time keeps advancing.
+   * <p>
+   * Called by a hosting {@link PluginManager}, or from {@link android.app.Activity#onStop()} when the plugin isn't
+   * hosted.
+   * </p>
+   */
+  @Override
+  public void onStop() {
+    playbackController.pause();
+  }
+
+  /**
+   * Releases the plugin when the map is destroyed.
+   * <p>
+   * Called by a hosting {@link PluginManager}, or from {@link android.app.Activity#onDestroy()} when the plugin isn't
+   * hosted. The playback is stopped and the plugin stops listening to map change events.
+   * </p>
+   */
+  @Override
+  public void onDestroy() {
+    playbackController.stop();
+    if (styleLoader != null) {
+      styleLoader.cancel();
+    }
+    mapView.removeCallbacks(styleLoadedRunnable);
+    styleLoadedPending = false;
+    mapView.removeOnMapChangedListener(this);
+    stateChangeListeners.clear();
+  }
+
+  /**
+   * Saves the traffic plugin state to a Bundle.
+   * <p>
+   * Call this method from {@link android.app.Activity#onSaveInstanceState(Bundle)}. The overview settings and the url
+   * of the custom traffic feed are saved with the enabled state. A playback isn't saved, its recording is owned by the
+   * application.
+   * </p>
+   *
+   * @param outState the Bundle to save the state to
+   */
+  @Override
+  public void onSaveInstanceState(@NonNull Bundle outState) {
+    outState.putBoolean(STATE_ENABLED, enabled);
+    if (layerIds != null) {
+      outState.putStringArray(STATE_LAYER_IDS, layerIds.toArray(new String[layerIds.size()]));
+    }
+    outState.putBoolean(STATE_OVERVIEW_ENABLED, overviewController.isEnabled());
+    outState.putFloat(STATE_OVERVIEW_ZOOM, overviewController.getZoom());
+    outState.putString(STATE_TRAFFIC_FEED, feedController.getUrl());
+    outState.putBoolean(STATE_PLAYBACK_ACTIVE, playbackController.isActive());
+  }
+
+  /**
+   * Restores the traffic plugin state from a Bundle.
+   * <p>
+   * If the current map style still contains the traffic source and layers, the plugin reattaches to them without
+   * adding them again. Else, if traffic was enabled, the traffic source and layers will be added to the current style.
+   * The overview settings and the custom traffic feed are restored before, an attached source still showing a
+   * playback is replaced by the live traffic. The overview grid isn't saved, the traffic lines are shown at all zoom
+   * levels until {@link #setOverviewGrid(CongestionGrid)} is called again.
+   * </p>
+   *
+   * @param savedInstanceState the Bundle to restore the state from, previously saved with
+   *                           {@link #onSaveInstanceState(Bundle)}
+   */
+  @Override
+  public void onRestoreInstanceState(@Nullable Bundle savedInstanceState) {
+    if (savedInstanceState == null) {
+      return;
+    }
+
+    enabled = savedInstanceState.getBoolean(STATE_ENABLED);
+    overviewController.setEnabled(savedInstanceState.getBoolean(STATE_OVERVIEW_ENABLED, false));
+    overviewController.setZoom(
+      savedInstanceState.getFloat(STATE_OVERVIEW_ZOOM, TrafficOverviewController.DEFAULT_ZOOM));
+    feedController.setUrl(savedInstanceState.getString(STATE_TRAFFIC_FEED));
+    String[] savedLayerIds = savedInstanceState.getStringArray(STATE_LAYER_IDS);
+    Layer[] attachedLayers = savedLayerIds != null ? getAttachedLayers(savedLayerIds) : null;
+    if (attachedLayers != null) {
+      layerIds = new ArrayList<>(Arrays.asList(savedLayerIds));
+      layers = attachedLayers;
+      if (savedInstanceState.getBoolean(STATE_PLAYBACK_ACTIVE, false)) {
+        reinstallTrafficSource();
+      } else {
+        setVisibility(enabled);
+      }
+    } else if (enabled) {
+      updateState();
+    }
+    feedController.refresh();
+  }
+
   /**
    * Called when a map change events occurs.
    * <p>
-   * Used to detect loading of a new style, if applicable reapply traffic source and layers.
+   * Used to detect loading of a new style, if applicable reapply traffic source and layers. The layer handles of the
+   * previous style are released as soon as a new style starts loading.
+   * Reapplying is deferred to the next frame and coalesced, so multiple style loads in quick succession result in a
+   * single update for the style that is visible.
+   * </p>
+   * <p>
+   * Used to detect when the map is fully rendered after traffic was installed, to report that the traffic source has
+   * loaded.
+   * </p>
+   * <p>
+   * Used to detect when the camera becomes idle or traffic was rendered, to update the congestion summary of the
+   * viewport and detect congestion changes.
    * </p>
    *
    * @param change the map change event that occurred
    */
   @Override
   public void onMapChanged(int change) {
-    if (change == MapView.DID_FINISH_LOADING_STYLE && isEnabled()) {
+    if (change == MapView.WILL_START_LOADING_MAP) {
+      layers = null;
+      changeController.reset();
+    } else if (change == MapView.DID_FINISH_LOADING_STYLE) {
+      layers = null;
+      if (isEnabled()) {
+        scheduleStyleLoaded();
+      }
+    } else if (change == MapView.DID_FINISH_RENDERING_MAP_FULLY_RENDERED) {
+      if (sourceLoadedPending) {
+        sourceLoadedPending = false;
+        summaryRefreshPending = true;
+        dispatchStateChange(STATE_SOURCE_LOADED, null);
+      }
+      if (summaryRefreshPending) {
+        summaryRefreshPending = false;
+        summaryController.invalidate();
+      }
+      if (enabled && layers != null) {
+        changeController.onTrafficRendered();
+      }
+    } else if (change == MapView.REGION_DID_CHANGE || change == MapView.REGION_DID_CHANGE_ANIMATED) {
+      summaryController.onCameraIdle();
+    }
+  }
+
+  /**
+   * Schedules reapplying traffic to the loaded style on the next frame, if not already scheduled.
+   */
+  private void scheduleStyleLoaded() {
+    styleLoadedUrl = getStyleUrl();
+    if (!styleLoadedPending) {
+      styleLoadedPending = true;
+      mapView.post(styleLoadedRunnable);
+    }
+  }
+
+  /**
+   * Reapplies traffic to the loaded style, unless the style has been replaced since it finished loading.
+   * <p>
+   * When the style was replaced, the loading of the new style will schedule a new update.
+   * </p>
+   */
+  private void onStyleLoaded() {
+    styleLoadedPending = false;
+    String styleUrl = getStyleUrl();
+    if (styleUrl != null && !styleUrl.equals(styleLoadedUrl)) {
+      return;
+    }
+
+    if (isEnabled()) {
       updateState();
     }
   }
 
   /**
    * Update the state of the traffic plugin.
+   * <p>
+   * When the traffic layers are installed in the current style only their visibility is updated, using the cached
+   * layer handles without querying the style. When the style was loaded with an injected {@link TrafficStyleFragment},
+   * the plugin attaches to its layers.
+   * </p>
    */
   private void updateState() {
+    if (layers != null) {
+      setVisibility(enabled);
+      return;
+    }
+
     Source source = mapboxMap.getSource(TrafficData.SOURCE_ID);
     if (source == null) {
       initialise();
       return;
     }
+    attachStyleFragment();
+    if (layers == null && layerIds != null) {
+      // the handles were released when a style started loading, the layers may still be part of the style
+      layers = getLayers(layerIds.toArray(new String[layerIds.size()]));
+      if (layers == null) {
+        reinstallTrafficLayers();
+        return;
+      }
+    }
     setVisibility(enabled);
   }
 
+  /**
+   * Attaches to the traffic layers of a style fragment injected in the current style, if they match the layers the
+   * plugin would add.
+   */
+  private void attachStyleFragment() {
+    if (overviewController.isEnabled() || feedController.getUrl() != null || playbackController.isActive()) {
+      return;
+    }
+
+    // a fragment has the layers of the layer specs, its ids are known without serialising it
+    List<TrafficLayerSpec> layerSpecs = getLayerSpecs();
+    String[] fragmentLayerIds = new String[layerSpecs.size()];
+    for (int i = 0; i < fragmentLayerIds.length; i++) {
+      fragmentLayerIds[i] = layerSpecs.get(i).getId();
+    }
+    Layer[] attachedLayers = getLayers(fragmentLayerIds);
+    if (attachedLayers != null) {
+      layerIds = new ArrayList<>(Arrays.asList(fragmentLayerIds));
+      layers = attachedLayers;
+      sourceLoadedPending = true;
+      dispatchStateChange(STATE_INSTALLED, null);
+    }
+  }
+
+  /**
+   * Returns the given traffic layers if the current style contains the traffic source and all of these layers.
+   *
+   * @param savedLayerIds the ids of the traffic layers
+   * @return the traffic layers, or null if the traffic source or one of the layers isn't part of the style
+   */
+  @Nullable
+  private Layer[] getAttachedLayers(String[] savedLayerIds) {
+    if (mapboxMap.getSource(TrafficData.SOURCE_ID) == null) {
+      return null;
+    }
+    return getLayers(savedLayerIds);
+  }
+
+  /**
+   * Returns the given layers if the current style contains all of them.
+   *
+   * @param savedLayerIds the ids of the layers
+   * @return the layers, or null if one of the layers isn't part of the style
+   */
+  @Nullable
+  private Layer[] getLayers(String[] savedLayerIds) {
+    Layer[] attachedLayers = new Layer[savedLayerIds.length];
+    for (int i = 0; i < savedLayerIds.length; i++) {
+      attachedLayers[i] = mapboxMap.getLayer(savedLayerIds[i]);
+      if (attachedLayers[i] == null) {
+        return null;
+      }
+    }
+    return attachedLayers;
+  }
+
   /**
    * Initialise the traffic source and layers.
    */
   private void initialise() {
     layerIds = new ArrayList<>();
+    dispatchStateChange(STATE_INSTALLING, null);
 
     try {
       addTrafficSource();
       addTrafficLayers();
+      sourceLoadedPending = true;
+      dispatchStateChange(STATE_INSTALLED, null);
+      dispatchStateChange(STATE_VISIBLE, null);
     } catch (Exception exception) {
       Timber.e("Unable to attach Traffic to current style: ", exception);
+      dispatchStateChange(STATE_FAILED, exception);
     } catch (UnsatisfiedLinkError error) {
       Timber.e("Unable to load native libraries: ", error);
+      dispatchStateChange(STATE_FAILED, error);
     }
   }
 
   /**
    * Adds traffic source to the map.
+   * <p>
+   * When a custom traffic feed is set, the source is a GeoJSON source initialised with the last loaded feed. During a
+   * playback, it is initialised with the last frame of the playback instead.
+   * </p>
    */
   private void addTrafficSource() {
-    VectorSource trafficSource = new VectorSource(TrafficData.SOURCE_ID, TrafficData.SOURCE_URL);
-    mapboxMap.addSource(trafficSource);
+    if (playbackController.isActive()) {
+      mapboxMap.addSource(new GeoJsonSource(TrafficData.SOURCE_ID, playbackController.getGeoJson()));
+    } else if (feedController.getUrl() != null) {
+      mapboxMap.addSource(new GeoJsonSource(TrafficData.SOURCE_ID, feedController.getGeoJson()));
+    } else {
+      mapboxMap.addSource(new VectorSource(TrafficData.SOURCE_ID, TrafficData.SOURCE_URL));
+    }
   }
 
   /**
    * Adds traffic layers to the map.
+   * <p>
+   * Native layers are created from the layer specs of the traffic spec, or the shared {@link TrafficLayerRegistry}
+   * specs if no traffic spec was set, adapted to the profile of the current style. Each layer is added above the
+   * previous one. The added layers are retained to update their visibility.
+   * </p>
+   * <p>
+   * When the overview is enabled, the overview layer is added first and the line layers are hidden below the overview
+   * zoom level.
+   * </p>
    */
   private void addTrafficLayers() {
-    addLocalLayer();
-    addSecondaryLayer();
-    addPrimaryLayer();
-    addTrunkLayer();
-    addMotorwayLayer();
-  }
-
-  /**
-   * Add local layer to the map.
-   */
-  private void addLocalLayer() {
-    LineLayer local = TrafficLayer.getLineLayer(
-      Local.BASE_LAYER_ID,
-      Local.ZOOM_LEVEL,
-      Local.FILTER,
-      Local.FUNCTION_LINE_COLOR,
-      Local.FUNCTION_LINE_WIDTH,
-      Local.FUNCTION_LINE_OFFSET
-    );
-
-    LineLayer localCase = TrafficLayer.getLineLayer(
-      Local.CASE_LAYER_ID,
-      Local.ZOOM_LEVEL,
-      Local.FILTER,
-      Local.FUNCTION_LINE_COLOR_CASE,
-      Local.FUNCTION_LINE_WIDTH_CASE,
-      Local.FUNCTION_LINE_OFFSET,
-      Local.FUNCTION_LINE_OPACITY_CASE
-    );
+    List<TrafficLayerSpec> layerSpecs = getLayerSpecs();
+    String idAboveLayer = resolveAnchorLayerId();
+    TrafficProfile profile = getTrafficProfile(getStyleUrl());
+    Layer overviewLayer = overviewController.addLayer(getOverviewColors(profile), profile.getOpacity(), idAboveLayer);
+    int offset = overviewLayer != null ? 1 : 0;
+    Layer[] addedLayers = new Layer[layerSpecs.size() + offset];
+    if (overviewLayer != null) {
+      idAboveLayer = overviewLayer.getId();
+      layerIds.add(idAboveLayer);
+      addedLayers[0] = overviewLayer;
+    }
 
-    // #TODO https://github.com/mapbox/mapbox-plugins-android/issues/14
-    addTrafficLayersToMap(localCase, local, "bridge-motorway");
-  }
-
-  /**
-   * Add secondary layer to the map.
+    float minZoom = overviewController.getLineMinZoom();
+    for (int i = 0; i < layerSpecs.size(); i++) {
+      Layer layer = layerSpecs.get(i).createLayer(minZoom);
+      if (idAboveLayer != null) {
+        mapboxMap.addLayerAbove(layer, idAboveLayer);
+      } else {
+        mapboxMap.addLayer(layer);
+      }
+      idAboveLayer = layer.getId();
+      layerIds.add(idAboveLayer);
+      addedLayers[i + offset] = layer;
+    }
+    layers = addedLayers;
+  }
+
+  /**
+   * Resolves the layer of the current style to add the traffic layers above.
+   * <p>
+   * The default traffic anchor layer is used if the style contains it. An anchor stored in the
+   * {@link TrafficAnchorCache} for the url of the style is only used before it if it was resolved for a known version
+   * of the style, a new version of the style adding the default anchor replaces an anchor of an unknown version. Only
+   * if none of them is part of the style, the layers of the style are listed and traffic is added below the first
+   * symbol layer, or on top of the style without symbol layers. The result is stored for the next launch.
+   * </p>
+   *
+   * @return the id of the anchor layer, null to add the traffic layers on top
    */
-  private void addSecondaryLayer() {
-    LineLayer secondary = TrafficLayer.getLineLayer(
-      Secondary.BASE_LAYER_ID,
-      Secondary.ZOOM_LEVEL,
-      Secondary.FILTER,
-      Secondary.FUNCTION_LINE_COLOR,
-      Secondary.FUNCTION_LINE_WIDTH,
-      Secondary.FUNCTION_LINE_OFFSET
-    );
+  @Nullable
+  String resolveAnchorLayerId() {
+    String styleUrl = getStyleUrl();
+    TrafficAnchorCache.Entry cached = anchorCache != null && styleUrl != null ? anchorCache.get(styleUrl) : null;
+    if (cached != null && cached.version != null && cached.anchorLayerId != null
+      && mapboxMap.getLayer(cached.anchorLayerId) != null) {
+      return cached.anchorLayerId;
+    }
 
-    LineLayer secondaryCase = TrafficLayer.getLineLayer(
-      Secondary.CASE_LAYER_ID,
-      Secondary.ZOOM_LEVEL,
-      Secondary.FILTER,
-      Secondary.FUNCTION_LINE_COLOR_CASE,
-      Secondary.FUNCTION_LINE_WIDTH_CASE,
-      Secondary.FUNCTION_LINE_OFFSET,
-      Secondary.FUNCTION_LINE_OPACITY_CASE
-    );
+    String anchorLayerId = null;
+    if (mapboxMap.getLayer(TrafficData.ANCHOR_LAYER_ID) != null) {
+      anchorLayerId = TrafficData.ANCHOR_LAYER_ID;
+    } else if (cached != null && cached.anchorLayerId != null && mapboxMap.getLayer(cached.anchorLayerId) != null) {
+      return cached.anchorLayerId;
+    } else {
+      List<Layer> styleLayers = mapboxMap.getLayers();
+      for (int i = 0; i < styleLayers.size(); i++) {
+        if (styleLayers.get(i) instanceof SymbolLayer) {
+          anchorLayerId = i > 0 ? styleLayers.get(i - 1).getId() : null;
+          break;
+        }
+      }
+    }
 
-    addTrafficLayersToMap(secondaryCase, secondary, getLastAddedLayerId());
+    if (anchorCache != null && styleUrl != null
+      && (cached == null || !cached.hasAnchorLayerId(anchorLayerId))) {
+      // the version of the loaded style is unknown, a style loaded with loadStyle resolves its anchor again
+      anchorCache.put(styleUrl, null, anchorLayerId);
+    }
+    return anchorLayerId;
   }
 
   /**
-   * Add primary layer to the map.
+   * Replaces the traffic layers of the current style, if added, by layers built from the current spec and profile.
    */
-  private void addPrimaryLayer() {
-    LineLayer primary = TrafficLayer.getLineLayer(
-      Primary.BASE_LAYER_ID,
-      Primary.ZOOM_LEVEL,
-      Primary.FILTER,
-      Primary.FUNCTION_LINE_COLOR,
-      Primary.FUNCTION_LINE_WIDTH,
-      Primary.FUNCTION_LINE_OFFSET
-    );
-
-    LineLayer primaryCase = TrafficLayer.getLineLayer(
-      Primary.CASE_LAYER_ID,
-      Primary.ZOOM_LEVEL,
-      Primary.FILTER,
-      Primary.FUNCTION_LINE_COLOR_CASE,
-      Primary.FUNCTION_LINE_WIDTH_CASE,
-      Primary.FUNCTION_LINE_OFFSET,
-      Primary.FUNCTION_LINE_OPACITY_CASE
-    );
+  private void reinstallTrafficLayers() {
+    if (layerIds == null || mapboxMap.getSource(TrafficData.SOURCE_ID) == null) {
+      return;
+    }
 
-    addTrafficLayersToMap(primaryCase, primary, getLastAddedLayerId());
+    removeTrafficLayers();
+    try {
+      addTrafficLayers();
+      setVisibility(enabled);
+    } catch (Exception exception) {
+      Timber.e("Unable to apply traffic layers to current style: ", exception);
+      dispatchStateChange(STATE_FAILED, exception);
+    }
   }
 
   /**
-   * Add trunk layer to the map.
+   * Updates the paint properties of the traffic layers of the current style, if added, to the current profile.
+   * <p>
+   * The changes of all layers are collected in a {@link TrafficStyleBatch}, each layer is updated with a single call
+   * instead of one per property. If the installed layers don't match the layer specs, they are replaced instead.
+   * </p>
    */
-  private void addTrunkLayer() {
-    LineLayer trunk = TrafficLayer.getLineLayer(
-      Trunk.BASE_LAYER_ID,
-      Trunk.ZOOM_LEVEL,
-      Trunk.FILTER,
-      Trunk.FUNCTION_LINE_COLOR,
-      Trunk.FUNCTION_LINE_WIDTH,
-      Trunk.FUNCTION_LINE_OFFSET
-    );
+  private void updateTrafficLayers() {
+    if (layerIds == null || layers == null || mapboxMap.getSource(TrafficData.SOURCE_ID) == null) {
+      reinstallTrafficLayers();
+      return;
+    }
 
-    LineLayer trunkCase = TrafficLayer.getLineLayer(
-      Trunk.CASE_LAYER_ID,
-      Trunk.ZOOM_LEVEL,
-      Trunk.FILTER,
-      Trunk.FUNCTION_LINE_COLOR_CASE,
-      Trunk.FUNCTION_LINE_WIDTH_CASE,
-      Trunk.FUNCTION_LINE_OFFSET
-    );
+    List<TrafficLayerSpec> layerSpecs = getLayerSpecs();
+    int offset = overviewController.isEnabled() ? 1 : 0;
+    if (layers.length != layerSpecs.size() + offset) {
+      reinstallTrafficLayers();
+      return;
+    }
+    for (int i = 0; i < layerSpecs.size(); i++) {
+      if (!layerSpecs.get(i).getId().equals(layerIds.get(i + offset))) {
+        reinstallTrafficLayers();
+        return;
+      }
+    }
 
-    addTrafficLayersToMap(trunkCase, trunk, getLastAddedLayerId());
+    TrafficProfile profile = getTrafficProfile(getStyleUrl());
+    if (offset > 0) {
+      styleBatch.setProperties(layers[0],
+        overviewController.getPaintProperties(getOverviewColors(profile), profile.getOpacity()));
+    }
+    for (int i = 0; i < layerSpecs.size(); i++) {
+      styleBatch.setProperties(layers[i + offset], layerSpecs.get(i).getPaintProperties());
+    }
+    styleBatch.apply(mapboxMap, transitionDuration);
   }
 
   /**
-   * Add motorway layer to the map.
+   * Updates the traffic source, if it is a GeoJSON source of the current style.
+   *
+   * @param geoJson the traffic features
    */
-  private void addMotorwayLayer() {
-    LineLayer motorWay = TrafficLayer.getLineLayer(
-      MotorWay.BASE_LAYER_ID,
-      MotorWay.ZOOM_LEVEL,
-      MotorWay.FILTER,
-      MotorWay.FUNCTION_LINE_COLOR,
-      MotorWay.FUNCTION_LINE_WIDTH,
-      MotorWay.FUNCTION_LINE_OFFSET
-    );
+  private void setSourceGeoJson(String geoJson) {
+    Source source = mapboxMap.getSource(TrafficData.SOURCE_ID);
+    if (source instanceof GeoJsonSource) {
+      ((GeoJsonSource) source).setGeoJson(geoJson);
+    }
+  }
 
-    LineLayer motorwayCase = TrafficLayer.getLineLayer(
-      MotorWay.CASE_LAYER_ID,
-      MotorWay.ZOOM_LEVEL,
-      MotorWay.FILTER,
-      MotorWay.FUNCTION_LINE_COLOR_CASE,
-      MotorWay.FUNCTION_LINE_WIDTH_CASE,
-      MotorWay.FUNCTION_LINE_OFFSET
-    );
+  /**
+   * Replaces the traffic source and layers of the current style, if added, after the traffic feed changed or a
+   * playback started or stopped.
+   */
+  private void reinstallTrafficSource() {
+    if (layerIds == null || mapboxMap.getSource(TrafficData.SOURCE_ID) == null) {
+      return;
+    }
 
-    addTrafficLayersToMap(motorwayCase, motorWay, getLastAddedLayerId());
+    removeTrafficLayers();
+    mapboxMap.removeSource(TrafficData.SOURCE_ID);
+    changeController.reset();
+    try {
+      addTrafficSource();
+      addTrafficLayers();
+      setVisibility(enabled);
+    } catch (Exception exception) {
+      Timber.e("Unable to apply traffic source to current style: ", exception);
+      dispatchStateChange(STATE_FAILED, exception);
+    }
+  }
+
+  /**
+   * Removes the traffic layers from the map.
+   */
+  private void removeTrafficLayers() {
+    for (int i = 0; i < layerIds.size(); i++) {
+      mapboxMap.removeLayer(layerIds.get(i));
+    }
+    layerIds.clear();
+    layers = null;
   }
 
   /**
-   * Returns the last added layer id.
+   * Returns the layer specs to create traffic layers from.
+   * <p>
+   * Layer specs are cached per profile, returning to a previously loaded style reuses its specs.
+   * </p>
    *
-   * @return the id of the last added layer
+   * @return the layer specs of the traffic spec, or the default layer specs, for the profile of the current style
    */
-  private String getLastAddedLayerId() {
-    return layerIds.get(layerIds.size() - 1);
+  private List<TrafficLayerSpec> getLayerSpecs() {
+    TrafficProfile profile = getTrafficProfile(getStyleUrl());
+    return trafficSpec != null ? trafficSpec.getLayerSpecs(profile) : TrafficLayerRegistry.getLayerSpecs(profile);
   }
 
   /**
-   * Add Layer to the map and track the id.
+   * Returns the colors of the congestion overview.
    *
-   * @param layer        the layer to be added to the map
-   * @param idAboveLayer the id of the layer above
+   * @param profile the traffic profile of the current style
+   * @return the base colors of the traffic spec, or the default base colors, for the profile
    */
-  private void addTrafficLayersToMap(Layer layerCase, Layer layer, String idAboveLayer) {
-    mapboxMap.addLayerAbove(layerCase, idAboveLayer);
-    mapboxMap.addLayerAbove(layer, layerCase.getId());
-    layerIds.add(layerCase.getId());
-    layerIds.add(layer.getId());
+  private int[] getOverviewColors(TrafficProfile profile) {
+    return trafficSpec != null ? trafficSpec.getBaseColors(profile) : TrafficLayerRegistry.getBaseColors(profile);
   }
 
   /**
    * Toggles the visibility of the traffic layers.
+   * <p>
+   * Uses the cached layer handles and shared property values, nothing is allocated once the layers are installed.
+   * </p>
    *
    * @param visible true for visible, false for none
    */
   private void setVisibility(boolean visible) {
-    List<Layer> layers = mapboxMap.getLayers();
-    for (Layer layer : layers) {
-      if (layerIds.contains(layer.getId())) {
-        layer.setProperties(visibility(visible ? "visible" : "none"));
+    if (layers != null) {
+      PropertyValue<?>[] visibility = visible ? VISIBLE : NONE;
+      for (int i = 0; i < layers.length; i++) {
+        layers[i].setProperties(visibility);
       }
     }
+    dispatchStateChange(visible ? STATE_VISIBLE : STATE_HIDDEN, null);
+    if (visible) {
+      summaryRefreshPending = true;
+    } else {
+      summaryController.invalidate();
+      changeController.reset();
+    }
   }
 
-  private static class TrafficLayer {
-
-    private static LineLayer getLineLayer(String lineLayerId, float minZoom, Filter.Statement statement,
-                                          Function lineColor, CameraFunction lineWidth, Function lineOffset) {
-      return getLineLayer(lineLayerId, minZoom, statement, lineColor, lineWidth, lineOffset, null);
+  /**
+   * Returns the ids of the traffic layers to summarise congestion from.
+   * <p>
+   * Case layers draw the same features as their base layers, only base layers are queried.
+   * </p>
+   *
+   * @return the ids of the base layers, null if traffic isn't shown
+   */
+  @Nullable
+  private String[] getSummaryLayerIds() {
+    if (!enabled || layers == null) {
+      return null;
     }
 
-    private static LineLayer getLineLayer(String lineLayerId, float minZoom, Filter.Statement statement,
-                                          Function lineColor, CameraFunction lineWidth, Function lineOffset,
-                                          Function lineOpacity) {
-      LineLayer lineLayer = new LineLayer(lineLayerId, TrafficData.SOURCE_ID);
-      lineLayer.setSourceLayer(TrafficData.SOURCE_LAYER);
-      lineLayer.setProperties(
-        lineCap("round"),
-        lineJoin("round"),
-        lineColor(lineColor),
-        lineWidth(lineWidth),
-        lineOffset(lineOffset)
-      );
-      if (lineOpacity != null) {
-        lineLayer.setProperties(lineOpacity(lineOpacity));
+    List<TrafficLayerSpec> layerSpecs = getLayerSpecs();
+    List<String> summaryLayerIds = new ArrayList<>(layerSpecs.size());
+    for (int i = 0; i < layerSpecs.size(); i++) {
+      if (!layerSpecs.get(i).isCaseLayer()) {
+        summaryLayerIds.add(layerSpecs.get(i).getId());
       }
-
-      lineLayer.setFilter(statement);
-      lineLayer.setMinZoom(minZoom);
-      return lineLayer;
     }
+    return summaryLayerIds.toArray(new String[summaryLayerIds.size()]);
   }
 
-  private static class TrafficFunction {
-    private static Function getLineColorFunction(@ColorInt int low, @ColorInt int moderate, @ColorInt int heavy,
-                                                 @ColorInt int severe) {
-      return Function.property(
-        "congestion",
-        categorical(
-          stop("low", fillColor(low)),
-          stop("moderate", fillColor(moderate)),
-          stop("heavy", fillColor(heavy)),
-          stop("severe", fillColor(severe))
-        )
-      ).withDefaultValue(fillColor(Color.TRANSPARENT));
+  /**
+   * Notifies the state change listeners of a state transition.
+   * <p>
+   * Iterates by index to avoid allocating an iterator, nothing is allocated when no listener is registered.
+   * </p>
+   *
+   * @param state the new state
+   * @param cause the cause of a failure, null for other states
+   */
+  private void dispatchStateChange(@TrafficState int state, @Nullable Throwable cause) {
+    for (int i = 0; i < stateChangeListeners.size(); i++) {
+      stateChangeListeners.get(i).onTrafficStateChanged(state, cause);
     }
+  }
 
-    private static CameraFunction getOffsetFunction(Stop... stops) {
-      return zoom(exponential(stops).withBase(1.5f));
-    }
+  /**
+   * Interface definition for a callback to be invoked when the traffic plugin state changes.
+   */
+  public interface OnTrafficStateChangeListener {
 
-    private static CameraFunction getWidthFunction(Stop... stops) {
-      return zoom(exponential(stops).withBase(1.5f));
-    }
+    /**
+     * Called on the main thread when the traffic plugin transitions to a new state.
+     *
+     * @param state the new state, one of {@link TrafficState}
+     * @param cause the cause of the failure when state is {@link TrafficPlugin#STATE_FAILED}, null otherwise
+     */
+    void onTrafficStateChanged(@TrafficState int state, @Nullable Throwable cause);
+  }
 
-    private static Function getOpacityFunction(Stop... stops) {
-      return zoom(exponential(stops));
-    }
+  /**
+   * Interface definition for a callback to be invoked with a congestion summary of the viewport.
+   */
+  public interface OnCongestionSummaryListener {
+
+    /**
+     * Called on the main thread with the congestion summary of the viewport.
+     *
+     * @param summary the congestion summary
+     */
+    void onCongestionSummary(@NonNull CongestionSummary summary);
+  }
+
+  /**
+   * Interface definition for a callback to be invoked with congestion changes in the viewport.
+   */
+  public interface OnCongestionChangeListener {
+
+    /**
+     * Called on the main thread with the segments whose congestion level changed since traffic was last rendered.
+     *
+     * @param changes the changed segments, never empty
+     */
+    void onCongestionChange(@NonNull List<CongestionChange> changes);
   }
 
   static class TrafficData {
     static final String SOURCE_ID = "traffic";
     static final String SOURCE_LAYER = "traffic";
     static final String SOURCE_URL = "mapbox://mapbox.mapbox-traffic-v1";
-  }
-
-  static class TrafficType {
-    static final Function FUNCTION_LINE_COLOR = TrafficFunction.getLineColorFunction(TrafficColor.BASE_GREEN,
-      TrafficColor.BASE_YELLOW, TrafficColor.BASE_ORANGE, TrafficColor.BASE_RED);
-    static final Function FUNCTION_LINE_COLOR_CASE = TrafficFunction.getLineColorFunction(
-      TrafficColor.CASE_GREEN, TrafficColor.CASE_YELLOW, TrafficColor.CASE_ORANGE, TrafficColor.CASE_RED);
-  }
-
-  static class MotorWay extends TrafficType {
-    static final String BASE_LAYER_ID = "traffic-motorway";
-    static final String CASE_LAYER_ID = "traffic-motorway-bg";
-    static final float ZOOM_LEVEL = 6.0f;
-    static final Filter.Statement FILTER = in("class", "motorway");
-    static final CameraFunction FUNCTION_LINE_WIDTH = TrafficFunction.getWidthFunction(
-      stop(6, lineWidth(0.5f)), stop(9, lineWidth(1.5f)), stop(18.0f, lineWidth(14.0f)),
-      stop(20.0f, lineWidth(18.0f)));
-    static final CameraFunction FUNCTION_LINE_WIDTH_CASE = TrafficFunction.getWidthFunction(
-      stop(6, lineWidth(0.5f)), stop(9, lineWidth(3.0f)), stop(18.0f, lineWidth(16.0f)),
-      stop(20.0f, lineWidth(20.0f)));
-    static final CameraFunction FUNCTION_LINE_OFFSET = TrafficFunction.getOffsetFunction(
-      stop(7, lineOffset(0.0f)), stop(9, lineOffset(1.2f)), stop(11, lineOffset(1.2f)),
-      stop(18, lineOffset(10.0f)), stop(20, lineOffset(15.5f)));
-  }
-
-  static class Trunk extends TrafficType {
-    static final String BASE_LAYER_ID = "traffic-trunk";
-    static final String CASE_LAYER_ID = "traffic-trunk-bg";
-    static final float ZOOM_LEVEL = 6.0f;
-    static final Filter.Statement FILTER = in("class", "trunk");
-    static final CameraFunction FUNCTION_LINE_WIDTH = TrafficFunction.getWidthFunction(
-      stop(8, lineWidth(0.75f)), stop(18, lineWidth(11f)), stop(20f, lineWidth(15.0f)));
-    static final CameraFunction FUNCTION_LINE_WIDTH_CASE = TrafficFunction.getWidthFunction(
-      stop(8, lineWidth(0.5f)), stop(9, lineWidth(2.25f)), stop(18.0f, lineWidth(13.0f)),
-      stop(20.0f, lineWidth(17.5f)));
-    static final CameraFunction FUNCTION_LINE_OFFSET = TrafficFunction.getOffsetFunction(
-      stop(7, lineOffset(0.0f)), stop(9, lineOffset(1f)), stop(18, lineOffset(13f)),
-      stop(20, lineOffset(18.0f)));
-  }
-
-  static class Primary extends TrafficType {
-    static final String BASE_LAYER_ID = "traffic-primary";
-    static final String CASE_LAYER_ID = "traffic-primary-bg";
-    static final float ZOOM_LEVEL = 6.0f;
-    static final Filter.Statement FILTER = in("class", "primary");
-    static final CameraFunction FUNCTION_LINE_WIDTH = TrafficFunction.getWidthFunction(
-      stop(10, lineWidth(1.0f)), stop(15, lineWidth(4.0f)), stop(20, lineWidth(16f)));
-    static final CameraFunction FUNCTION_LINE_WIDTH_CASE = TrafficFunction.getWidthFunction(
-      stop(10, lineWidth(0.75f)), stop(15, lineWidth(6f)), stop(20.0f, lineWidth(18.0f)));
-    static final CameraFunction FUNCTION_LINE_OFFSET = TrafficFunction.getOffsetFunction(
-      stop(10, lineOffset(0.0f)), stop(12, lineOffset(1.5f)), stop(18, lineOffset(13f)),
-      stop(20, lineOffset(16.0f)));
-    static final Function FUNCTION_LINE_OPACITY_CASE = TrafficFunction.getOpacityFunction(
-      stop(11, lineOpacity(0.0f)), stop(12, lineOpacity(1.0f)));
-  }
-
-  static class Secondary extends TrafficType {
-    static final String BASE_LAYER_ID = "traffic-secondary-tertiary";
-    static final String CASE_LAYER_ID = "traffic-secondary-tertiary-bg";
-    static final float ZOOM_LEVEL = 6.0f;
-    static final Filter.Statement FILTER = in("class", "secondary", "tertiary");
-    static final CameraFunction FUNCTION_LINE_WIDTH = TrafficFunction.getWidthFunction(
-      stop(9, lineWidth(0.5f)), stop(18, lineWidth(9.0f)), stop(20, lineWidth(14f)));
-    static final CameraFunction FUNCTION_LINE_WIDTH_CASE = TrafficFunction.getWidthFunction(
-      stop(9, lineWidth(1.5f)), stop(18, lineWidth(11f)), stop(20.0f, lineWidth(16.5f)));
-    static final CameraFunction FUNCTION_LINE_OFFSET = TrafficFunction.getOffsetFunction(
-      stop(10, lineOffset(0.5f)), stop(15, lineOffset(5f)), stop(18, lineOffset(11f)),
-      stop(20, lineOffset(14.5f)));
-    static final Function FUNCTION_LINE_OPACITY_CASE = TrafficFunction.getOpacityFunction(
-      stop(13, lineOpacity(0.0f)), stop(14, lineOpacity(1.0f)));
-  }
-
-  static class Local extends TrafficType {
-    static final String BASE_LAYER_ID = "traffic-local";
-    static final String CASE_LAYER_ID = "traffic-local-case";
-    static final float ZOOM_LEVEL = 15.0f;
-    static final Filter.Statement FILTER = in("class", "motorway_link", "service", "street");
-    static final CameraFunction FUNCTION_LINE_WIDTH = TrafficFunction.getWidthFunction(
-      stop(14, lineWidth(1.5f)), stop(20, lineWidth(13.5f)));
-    static final CameraFunction FUNCTION_LINE_WIDTH_CASE = TrafficFunction.getWidthFunction(
-      stop(14, lineWidth(2.5f)), stop(20, lineWidth(15.5f)));
-    static final CameraFunction FUNCTION_LINE_OFFSET = TrafficFunction.getOffsetFunction(
-      stop(14, lineOffset(2f)), stop(20, lineOffset(18f)));
-    static final Function FUNCTION_LINE_OPACITY_CASE = TrafficFunction.getOpacityFunction(
-      stop(15, lineOpacity(0.0f)), stop(16, lineOpacity(1.0f)));
-  }
-
-  static class TrafficColor {
-    static final int BASE_GREEN = Color.parseColor("#39c66d");
-    static final int CASE_GREEN = Color.parseColor("#059441");
-    static final int BASE_YELLOW = Color.parseColor("#ff8c1a");
-    static final int CASE_YELLOW = Color.parseColor("#d66b00");
-    static final int BASE_ORANGE = Color.parseColor("#ff0015");
-    static final int CASE_ORANGE = Color.parseColor("#bd0010");
-    static final int BASE_RED = Color.parseColor("#981b25");
-    static final int CASE_RED = Color.parseColor("#5f1117");
+    static final String OVERVIEW_SOURCE_ID = "traffic-overview";
+    static final String OVERVIEW_LAYER_ID = "traffic-overview";
+    // #TODO https://github.com/mapbox/mapbox-plugins-android/issues/14
+    static final String ANCHOR_LAYER_ID = "bridge-motorway";
   }
 }
@@ -0,0 +1,156 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.ColorInt;
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Traffic profile adapting the traffic layers to a map style.
+ * <p>
+ * A profile can override the congestion colors of the base and case layers, scale the line widths and set the opacity
+ * of the traffic layers. Register a profile for a style with
+ * {@link TrafficPlugin#setTrafficProfile(String, TrafficProfile)}. The style functions resolved for a profile are
+ * cached, switching between styles reuses them.
+ * </p>
+ */
+public final class TrafficProfile {
+
+  /**
+   * Profile using the colors and widths of the traffic spec, tuned for light styles.
+   */
+  public static final TrafficProfile DEFAULT = new TrafficProfile(null, null, 1.0f, 1.0f);
+
+  /**
+   * Profile for dark styles, with brighter base colors and darker cases.
+   */
+  public static final TrafficProfile DARK = new TrafficProfile(
+    new int[] {0xff4cd787, 0xffffa040, 0xffff3344, 0xffc0303c},
+    new int[] {0xff0b6b34, 0xff8a4500, 0xff8c000c, 0xff3d0b0f},
+    1.0f, 0.9f);
+
+  /**
+   * Profile for satellite styles, with wider lines to stand out from the imagery.
+   */
+  public static final TrafficProfile SATELLITE = new TrafficProfile(null, null, 1.25f, 1.0f);
+
+  private final int[] baseColors;
+  private final int[] caseColors;
+  private final float widthScale;
+  private final float opacity;
+
+  /**
+   * Create a traffic profile.
+   *
+   * @param baseColors the base layer colors for low, moderate, heavy and severe congestion, null to use the colors of
+   *                   the traffic spec
+   * @param caseColors the case layer colors for low, moderate, heavy and severe congestion, null to use the colors of
+   *                   the traffic spec
+   * @param widthScale the factor to scale line widths with
+   * @param opacity    the opacity of the traffic layers
+   */
+  public TrafficProfile(@Nullable @ColorInt int[] baseColors, @Nullable @ColorInt int[] caseColors,
+                        float widthScale, @FloatRange(from = 0.0, to = 1.0) float opacity) {
+    if ((baseColors != null && baseColors.length != 4) || (caseColors != null && caseColors.length != 4)) {
+      throw new IllegalArgumentException("Traffic colors require a value for each of the 4 congestion levels");
+    }
+    if (widthScale <= 0) {
+      throw new IllegalArgumentException("Traffic width scale must be positive");
+    }
+    if (opacity < 0 || opacity > 1) {
+      throw new IllegalArgumentException("Traffic opacity must be in the range [0, 1]");
+    }
+
+    this.baseColors = baseColors != null ? baseColors.clone() : null;
+    this.caseColors = caseColors != null ? caseColors.clone() : null;
+    this.widthScale = widthScale;
+    this.opacity = opacity;
+  }
+
+  /**
+   * Returns the base layer colors of this profile, or the fallback colors if not overridden.
+   *
+   * @param fallback the colors of the traffic spec
+   * @return the base layer colors
+   */
+  @NonNull
+  int[] getBaseColors(@NonNull int[] fallback) {
+    return baseColors != null ? baseColors : fallback;
+  }
+
+  /**
+   * Returns the case layer colors of this profile, or the fallback colors if not overridden.
+   *
+   * @param fallback the colors of the traffic spec
+   * @return the case layer colors
+   */
+  @NonNull
+  int[] getCaseColors(@NonNull int[] fallback) {
+    return caseColors != null ? caseColors : fallback;
+  }
+
+  /**
+   * Returns the factor line widths are scaled with.
+   *
+   * @return the width scale
+   */
+  float getWidthScale() {
+    return widthScale;
+  }
+
+  /**
+   * Returns the opacity of the traffic layers.
+   *
+   * @return the opacity
+   */
+  float getOpacity() {
+    return opacity;
+  }
+
+  /**
+   * Scales the values of flattened zoom stops, leaving the zoom levels untouched.
+   *
+   * @param stops the flattened zoom and value pairs
+   * @param scale the factor to scale the values with
+   * @return the scaled stops, the same array if the scale is 1
+   */
+  @Nullable
+  static float[] scaleStops(@Nullable float[] stops, float scale) {
+    if (stops == null || scale == 1.0f) {
+      return stops;
+    }
+
+    float[] scaled = stops.clone();
+    for (int i = 1; i < scaled.length; i += 2) {
+      scaled[i] *= scale;
+    }
+    return scaled;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+
+    TrafficProfile profile = (TrafficProfile) other;
+    return Float.compare(profile.widthScale, widthScale) == 0
+      && Float.compare(profile.opacity, opacity) == 0
+      && Arrays.equals(baseColors, profile.baseColors)
+      && Arrays.equals(caseColors, profile.caseColors);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Arrays.hashCode(baseColors);
+    result = 31 * result + Arrays.hashCode(caseColors);
+    result = 31 * result + Float.floatToIntBits(widthScale);
+    result = 31 * result + Float.floatToIntBits(opacity);
+    return result;
+  }
+}
@@ -0,0 +1,85 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lock-free queue of traffic state requests.
+ * <p>
+ * Requests can be offered from any thread and are drained on the thread backing the provided {@link Executor}.
+ * Draining is last-writer-wins: all pending requests collapse into the latest desired state, which is delivered to
+ * the {@link Callback} once.
+ * </p>
+ */
+final class TrafficRequestQueue {
+
+  private final ConcurrentLinkedQueue<Boolean> requests = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final Executor executor;
+  private final Callback callback;
+  private final Runnable drainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  /**
+   * Create a request queue.
+   *
+   * @param executor the executor to drain the requests on
+   * @param callback the callback to deliver the desired state to
+   */
+  TrafficRequestQueue(@NonNull Executor executor, @NonNull Callback callback) {
+    this.executor = executor;
+    this.callback = callback;
+  }
+
+  /**
+   * Offers a desired enabled state, can be called from any thread.
+   *
+   * @param enabled the desired enabled state
+   */
+  void offer(boolean enabled) {
+    requests.offer(enabled ? Boolean.TRUE : Boolean.FALSE);
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(drainRunnable);
+    }
+  }
+
+  /**
+   * Drains all pending requests and delivers the latest desired state.
+   * <p>
+   * The scheduled flag is cleared before polling, a request offered while draining is either polled by this drain or
+   * schedules a new one.
+   * </p>
+   */
+  private void drain() {
+    drainScheduled.set(false);
+    Boolean desired = null;
+    Boolean request;
+    while ((request = requests.poll()) != null) {
+      desired = request;
+    }
+
+    if (desired != null) {
+      callback.onDesiredState(desired);
+    }
+  }
+
+  /**
+   * Callback invoked with the latest desired state after draining the queue.
+   */
+  interface Callback {
+
+    /**
+     * Called on the executor thread with the latest desired state.
+     *
+     * @param enabled the desired enabled state
+     */
+    void onDesiredState(boolean enabled);
+  }
+}
@@ -0,0 +1,126 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+/**
+ * Traffic style spec describing the layers added by the {@link TrafficPlugin}.
+ * <p>
+ * A spec is a JSON document with the congestion colors and, per road class, the layer ids, minimum zoom level, class
+ * filter and zoom stops of the line width, offset and opacity. The format matches the spec of the default traffic
+ * layers bundled with the plugin.
+ * </p>
+ * <p>
+ * Load a spec on a background thread with {@link #fromAsset(Context, String)} or
+ * {@link #fromStream(InputStream, File)} and apply it with {@link TrafficPlugin#setTrafficSpec(TrafficSpec)}. A spec
+ * is parsed once, the result is cached on disk keyed by the content of the spec so later loads skip parsing.
+ * </p>
+ */
+public final class TrafficSpec {
+
+  private static final String CACHE_DIRECTORY = "mapbox-traffic-spec";
+
+  private final TrafficLayerSpecCache layerSpecs;
+
+  private TrafficSpec(@NonNull TrafficLayerSpecCache layerSpecs) {
+    this.layerSpecs = layerSpecs;
+  }
+
+  /**
+   * Loads a traffic spec from an asset, cached in the cache directory of the application.
+   *
+   * @param context   the context to access assets and the cache directory with
+   * @param assetName the name of the JSON asset
+   * @return the traffic spec
+   * @throws IOException if the asset can't be read or isn't a valid traffic spec
+   */
+  @NonNull
+  @WorkerThread
+  public static TrafficSpec fromAsset(@NonNull Context context, @NonNull String assetName) throws IOException {
+    return fromStream(context.getAssets().open(assetName), new File(context.getCacheDir(), CACHE_DIRECTORY));
+  }
+
+  /**
+   * Loads a traffic spec from a stream.
+   * <p>
+   * The stream is read completely and closed.
+   * </p>
+   *
+   * @param inputStream    the stream providing the JSON spec
+   * @param cacheDirectory the directory to cache the parsed spec in
+   * @return the traffic spec
+   * @throws IOException if the stream can't be read or doesn't contain a valid traffic spec
+   */
+  @NonNull
+  @WorkerThread
+  public static TrafficSpec fromStream(@NonNull InputStream inputStream, @NonNull File cacheDirectory)
+    throws IOException {
+    byte[] spec = readFully(inputStream);
+    TrafficSpecCache cache = new TrafficSpecCache(cacheDirectory);
+    String key = TrafficSpecCache.getKey(spec);
+    TrafficLayerTable table = cache.get(key);
+    if (table == null) {
+      table = TrafficSpecParser.parse(new InputStreamReader(new ByteArrayInputStream(spec), "UTF-8"));
+      cache.put(key, table);
+    }
+    TrafficLayerSpecCache layerSpecs = new TrafficLayerSpecCache(table);
+    layerSpecs.get(TrafficProfile.DEFAULT);
+    return new TrafficSpec(layerSpecs);
+  }
+
+  /**
+   * Returns the layer specs of this traffic spec adapted to a profile, ordered bottom to top.
+   *
+   * @param profile the traffic profile
+   * @return the immutable list of layer specs
+   */
+  @NonNull
+  List<TrafficLayerSpec> getLayerSpecs(@NonNull TrafficProfile profile) {
+    return layerSpecs.get(profile);
+  }
+
+  /**
+   * Returns the base layer colors of this traffic spec adapted to a profile.
+   *
+   * @param profile the traffic profile
+   * @return the colors for low, moderate, heavy and severe congestion
+   */
+  @NonNull
+  int[] getBaseColors(@NonNull TrafficProfile profile) {
+    return layerSpecs.getBaseColors(profile);
+  }
+
+  /**
+   * Returns the style fragment of this traffic spec adapted to a profile.
+   *
+   * @param profile the traffic profile
+   * @return the style fragment
+   */
+  @NonNull
+  TrafficStyleFragment getStyleFragment(@NonNull TrafficProfile profile) {
+    return layerSpecs.getStyleFragment(profile);
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(inputStream.available(), 1024));
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+      return output.toByteArray();
+    } finally {
+      inputStream.close();
+    }
+  }
+}
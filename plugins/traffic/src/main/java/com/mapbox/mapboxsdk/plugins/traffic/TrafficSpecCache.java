@@ -0,0 +1,288 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Disk cache of parsed traffic specs in a compact binary form.
+ * <p>
+ * Entries are keyed by the hash of the JSON spec, a changed spec results in a new entry. Unreadable or corrupt
+ * entries are treated as a cache miss. Only the {@value #MAX_ENTRIES} most recently stored entries are kept.
+ * </p>
+ */
+final class TrafficSpecCache {
+
+  private static final int MAGIC = 0x54524653;
+  private static final int VERSION = 1;
+  private static final String FILE_PREFIX = "traffic-spec-";
+  private static final String FILE_SUFFIX = ".bin";
+  private static final int MAX_LENGTH = 4096;
+  static final int MAX_ENTRIES = 4;
+
+  private final File directory;
+
+  /**
+   * Create a traffic spec cache.
+   *
+   * @param directory the directory to store the cache entries in
+   */
+  TrafficSpecCache(@NonNull File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the cache key of a JSON spec.
+   *
+   * @param spec the bytes of the JSON spec
+   * @return the hex encoded SHA-1 hash of the spec
+   */
+  @NonNull
+  static String getKey(@NonNull byte[] spec) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(spec);
+      StringBuilder key = new StringBuilder(digest.length * 2);
+      for (byte value : digest) {
+        key.append(Character.forDigit((value >> 4) & 0xf, 16));
+        key.append(Character.forDigit(value & 0xf, 16));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-1 is not available", exception);
+    }
+  }
+
+  /**
+   * Returns a cached traffic layer table.
+   *
+   * @param key the cache key
+   * @return the cached table, null if not cached or unreadable
+   */
+  @Nullable
+  TrafficLayerTable get(@NonNull String key) {
+    File file = getFile(key);
+    if (!file.exists()) {
+      return null;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      return read(input);
+    } catch (IOException | RuntimeException exception) {
+      Timber.w(exception, "Discarding unreadable traffic spec cache entry %s", key);
+      if (!file.delete()) {
+        Timber.w("Unable to delete traffic spec cache entry %s", key);
+      }
+      return null;
+    } finally {
+      closeQuietly(input);
+    }
+  }
+
+  /**
+   * Stores a traffic layer table.
+   * <p>
+   * The entry is written to a temporary file first and renamed, a partially written entry is never read.
+   * </p>
+   *
+   * @param key   the cache key
+   * @param table the table to store
+   */
+  void put(@NonNull String key, @NonNull TrafficLayerTable table) {
+    if (!directory.exists() && !directory.mkdirs()) {
+      Timber.w("Unable to create traffic spec cache directory %s", directory);
+      return;
+    }
+
+    File temporaryFile = new File(directory, FILE_PREFIX + key + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+      write(output, table);
+      output.close();
+      output = null;
+      if (!temporaryFile.renameTo(getFile(key))) {
+        Timber.w("Unable to store traffic spec cache entry %s", key);
+      }
+      trim();
+    } catch (IOException exception) {
+      Timber.w(exception, "Unable to write traffic spec cache entry %s", key);
+    } finally {
+      closeQuietly(output);
+      if (temporaryFile.exists() && !temporaryFile.delete()) {
+        Timber.w("Unable to delete temporary traffic spec cache entry %s", key);
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently stored entries beyond the maximum number of entries.
+   */
+  private void trim() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    List<File> entries = new ArrayList<>(files.length);
+    for (File file : files) {
+      if (file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(FILE_SUFFIX)) {
+        entries.add(file);
+      }
+    }
+    if (entries.size() <= MAX_ENTRIES) {
+      return;
+    }
+
+    Collections.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File first, File second) {
+        long firstModified = first.lastModified();
+        long secondModified = second.lastModified();
+        return firstModified < secondModified ? 1 : firstModified == secondModified ? 0 : -1;
+      }
+    });
+    for (File file : entries.subList(MAX_ENTRIES, entries.size())) {
+      if (!file.delete()) {
+        Timber.w("Unable to delete traffic spec cache entry %s", file);
+      }
+    }
+  }
+
+  private File getFile(String key) {
+    return new File(directory, FILE_PREFIX + key + FILE_SUFFIX);
+  }
+
+  static void write(DataOutputStream output, TrafficLayerTable table) throws IOException {
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    writeInts(output, table.baseColors);
+    writeInts(output, table.caseColors);
+    output.writeInt(table.size());
+    for (int i = 0; i < table.size(); i++) {
+      output.writeUTF(table.baseLayerIds[i]);
+      output.writeUTF(table.caseLayerIds[i]);
+      output.writeFloat(table.minZooms[i]);
+      output.writeInt(table.classes[i].length);
+      for (String value : table.classes[i]) {
+        output.writeUTF(value);
+      }
+      writeFloats(output, table.lineWidthStops[i]);
+      writeFloats(output, table.caseLineWidthStops[i]);
+      writeFloats(output, table.lineOffsetStops[i]);
+      writeFloats(output, table.caseLineOpacityStops[i]);
+    }
+  }
+
+  static TrafficLayerTable read(DataInputStream input) throws IOException {
+    if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+      throw new IOException("Unsupported traffic spec cache entry");
+    }
+
+    int[] baseColors = readInts(input);
+    int[] caseColors = readInts(input);
+    int size = readLength(input);
+    String[] baseLayerIds = new String[size];
+    String[] caseLayerIds = new String[size];
+    float[] minZooms = new float[size];
+    String[][] classes = new String[size][];
+    float[][] lineWidthStops = new float[size][];
+    float[][] caseLineWidthStops = new float[size][];
+    float[][] lineOffsetStops = new float[size][];
+    float[][] caseLineOpacityStops = new float[size][];
+    for (int i = 0; i < size; i++) {
+      baseLayerIds[i] = input.readUTF();
+      caseLayerIds[i] = input.readUTF();
+      minZooms[i] = input.readFloat();
+      classes[i] = new String[readLength(input)];
+      for (int j = 0; j < classes[i].length; j++) {
+        classes[i][j] = input.readUTF();
+      }
+      lineWidthStops[i] = readFloats(input);
+      caseLineWidthStops[i] = readFloats(input);
+      lineOffsetStops[i] = readFloats(input);
+      caseLineOpacityStops[i] = readFloats(input);
+    }
+    return new TrafficLayerTable(baseColors, caseColors, baseLayerIds, caseLayerIds, minZooms, classes,
+      lineWidthStops, caseLineWidthStops, lineOffsetStops, caseLineOpacityStops);
+  }
+
+  private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+    output.writeInt(values.length);
+    for (int value : values) {
+      output.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(DataInputStream input) throws IOException {
+    int[] values = new int[readLength(input)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = input.readInt();
+    }
+    return values;
+  }
+
+  private static void writeFloats(DataOutputStream output, float[] values) throws IOException {
+    if (values == null) {
+      output.writeInt(-1);
+      return;
+    }
+
+    output.writeInt(values.length);
+    for (float value : values) {
+      output.writeFloat(value);
+    }
+  }
+
+  private static float[] readFloats(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length == -1) {
+      return null;
+    }
+
+    float[] values = new float[checkLength(length)];
+    for (int i = 0; i < length; i++) {
+      values[i] = input.readFloat();
+    }
+    return values;
+  }
+
+  private static int readLength(DataInputStream input) throws IOException {
+    return checkLength(input.readInt());
+  }
+
+  private static int checkLength(int length) throws IOException {
+    if (length < 0 || length > MAX_LENGTH) {
+      throw new IOException("Invalid length in traffic spec cache entry: " + length);
+    }
+    return length;
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException exception) {
+        Timber.w(exception, "Unable to close traffic spec cache entry");
+      }
+    }
+  }
+}
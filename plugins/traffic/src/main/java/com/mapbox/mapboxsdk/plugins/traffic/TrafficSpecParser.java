@@ -0,0 +1,261 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser of traffic specs into a {@link TrafficLayerTable}.
+ * <p>
+ * The spec format is the one of src/main/spec/traffic-layers.json, which defines the default traffic layers.
+ * </p>
+ */
+final class TrafficSpecParser {
+
+  private static final String[] CONGESTION_LEVELS = new String[] {"low", "moderate", "heavy", "severe"};
+
+  private TrafficSpecParser() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Parses a traffic spec.
+   *
+   * @param reader the reader providing the JSON spec
+   * @return the parsed traffic layer table
+   * @throws IOException if the spec can't be read or is malformed
+   */
+  @NonNull
+  static TrafficLayerTable parse(@NonNull Reader reader) throws IOException {
+    try {
+      return readSpec(reader);
+    } catch (IllegalStateException | IllegalArgumentException exception) {
+      // unexpected JSON structure, malformed numbers and zoom levels out of range
+      throw new IOException("Invalid traffic spec", exception);
+    }
+  }
+
+  private static TrafficLayerTable readSpec(Reader reader) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    int[] baseColors = null;
+    int[] caseColors = null;
+    List<RoadClass> roadClasses = null;
+
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("colors".equals(name)) {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+          String colorsName = jsonReader.nextName();
+          if ("base".equals(colorsName)) {
+            baseColors = readColors(jsonReader);
+          } else if ("case".equals(colorsName)) {
+            caseColors = readColors(jsonReader);
+          } else {
+            jsonReader.skipValue();
+          }
+        }
+        jsonReader.endObject();
+      } else if ("roadClasses".equals(name)) {
+        roadClasses = new ArrayList<>();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          roadClasses.add(readRoadClass(jsonReader));
+        }
+        jsonReader.endArray();
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+
+    if (baseColors == null || caseColors == null || roadClasses == null) {
+      throw new IOException("Traffic spec requires colors.base, colors.case and roadClasses");
+    }
+    return toTable(baseColors, caseColors, roadClasses);
+  }
+
+  private static int[] readColors(JsonReader jsonReader) throws IOException {
+    int[] colors = new int[CONGESTION_LEVELS.length];
+    boolean[] defined = new boolean[CONGESTION_LEVELS.length];
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      int level = indexOf(CONGESTION_LEVELS, jsonReader.nextName());
+      if (level == -1) {
+        jsonReader.skipValue();
+        continue;
+      }
+      colors[level] = parseColor(jsonReader.nextString());
+      defined[level] = true;
+    }
+    jsonReader.endObject();
+
+    for (int i = 0; i < defined.length; i++) {
+      if (!defined[i]) {
+        throw new IOException("Traffic spec is missing the color for congestion " + CONGESTION_LEVELS[i]);
+      }
+    }
+    return colors;
+  }
+
+  private static RoadClass readRoadClass(JsonReader jsonReader) throws IOException {
+    RoadClass roadClass = new RoadClass();
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      switch (name) {
+        case "baseLayerId":
+          roadClass.baseLayerId = jsonReader.nextString();
+          break;
+        case "caseLayerId":
+          roadClass.caseLayerId = jsonReader.nextString();
+          break;
+        case "minZoom":
+          roadClass.minZoom = TrafficLayerTable.checkZoom((float) jsonReader.nextDouble());
+          break;
+        case "classes":
+          roadClass.classes = readStrings(jsonReader);
+          break;
+        case "lineWidth":
+          roadClass.lineWidthStops = readStops(jsonReader);
+          break;
+        case "caseLineWidth":
+          roadClass.caseLineWidthStops = readStops(jsonReader);
+          break;
+        case "lineOffset":
+          roadClass.lineOffsetStops = readStops(jsonReader);
+          break;
+        case "caseLineOpacity":
+          roadClass.caseLineOpacityStops = readStops(jsonReader);
+          break;
+        default:
+          jsonReader.skipValue();
+          break;
+      }
+    }
+    jsonReader.endObject();
+
+    if (roadClass.baseLayerId == null || roadClass.caseLayerId == null || roadClass.classes == null
+      || roadClass.lineWidthStops == null || roadClass.caseLineWidthStops == null
+      || roadClass.lineOffsetStops == null) {
+      throw new IOException("Traffic spec road class " + roadClass.baseLayerId + " is incomplete");
+    }
+    return roadClass;
+  }
+
+  private static String[] readStrings(JsonReader jsonReader) throws IOException {
+    List<String> values = new ArrayList<>();
+    jsonReader.beginArray();
+    while (jsonReader.hasNext()) {
+      values.add(jsonReader.nextString());
+    }
+    jsonReader.endArray();
+    return values.toArray(new String[values.size()]);
+  }
+
+  private static float[] readStops(JsonReader jsonReader) throws IOException {
+    float[] stops = new float[8];
+    int size = 0;
+    jsonReader.beginArray();
+    while (jsonReader.hasNext()) {
+      if (size + 2 > stops.length) {
+        float[] grown = new float[stops.length * 2];
+        System.arraycopy(stops, 0, grown, 0, size);
+        stops = grown;
+      }
+      jsonReader.beginArray();
+      float zoom = TrafficLayerTable.checkZoom((float) jsonReader.nextDouble());
+      if (size > 0 && zoom <= stops[size - 2]) {
+        throw new IOException("Traffic spec stop zooms must be strictly increasing, " + zoom + " follows "
+          + stops[size - 2]);
+      }
+      stops[size++] = zoom;
+      stops[size++] = (float) jsonReader.nextDouble();
+      jsonReader.endArray();
+    }
+    jsonReader.endArray();
+
+    if (size < 4) {
+      throw new IOException("Traffic spec zoom stops require at least two stops");
+    }
+    float[] result = new float[size];
+    System.arraycopy(stops, 0, result, 0, size);
+    return result;
+  }
+
+  /**
+   * Parses a #rrggbb or #aarrggbb color, without depending on the Android framework.
+   *
+   * @param color the color string
+   * @return the color int
+   * @throws IOException if the color is malformed
+   */
+  static int parseColor(String color) throws IOException {
+    if (color == null || color.length() < 1 || color.charAt(0) != '#') {
+      throw new IOException("Invalid traffic color " + color);
+    }
+
+    try {
+      long value = Long.parseLong(color.substring(1), 16);
+      if (color.length() == 7) {
+        return (int) (value | 0xff000000L);
+      } else if (color.length() == 9) {
+        return (int) value;
+      }
+    } catch (NumberFormatException exception) {
+      throw new IOException("Invalid traffic color " + color, exception);
+    }
+    throw new IOException("Invalid traffic color " + color);
+  }
+
+  private static TrafficLayerTable toTable(int[] baseColors, int[] caseColors, List<RoadClass> roadClasses) {
+    int size = roadClasses.size();
+    String[] baseLayerIds = new String[size];
+    String[] caseLayerIds = new String[size];
+    float[] minZooms = new float[size];
+    String[][] classes = new String[size][];
+    float[][] lineWidthStops = new float[size][];
+    float[][] caseLineWidthStops = new float[size][];
+    float[][] lineOffsetStops = new float[size][];
+    float[][] caseLineOpacityStops = new float[size][];
+    for (int i = 0; i < size; i++) {
+      RoadClass roadClass = roadClasses.get(i);
+      baseLayerIds[i] = roadClass.baseLayerId;
+      caseLayerIds[i] = roadClass.caseLayerId;
+      minZooms[i] = roadClass.minZoom;
+      classes[i] = roadClass.classes;
+      lineWidthStops[i] = roadClass.lineWidthStops;
+      caseLineWidthStops[i] = roadClass.caseLineWidthStops;
+      lineOffsetStops[i] = roadClass.lineOffsetStops;
+      caseLineOpacityStops[i] = roadClass.caseLineOpacityStops;
+    }
+    return new TrafficLayerTable(baseColors, caseColors, baseLayerIds, caseLayerIds, minZooms, classes,
+      lineWidthStops, caseLineWidthStops, lineOffsetStops, caseLineOpacityStops);
+  }
+
+  private static int indexOf(String[] values, String value) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i].equals(value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static class RoadClass {
+    private String baseLayerId;
+    private String caseLayerId;
+    private float minZoom;
+    private String[] classes;
+    private float[] lineWidthStops;
+    private float[] caseLineWidthStops;
+    private float[] lineOffsetStops;
+    private float[] caseLineOpacityStops;
+  }
+}
@@ -0,0 +1,77 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects property changes of layers and applies them with a single style update per layer.
+ * <p>
+ * Every call to {@link Layer#setProperties(PropertyValue[])} crosses into the native style and invalidates it. Changes
+ * made to a layer through a batch are merged by property name, the last value of a property wins, and are applied with
+ * one call per layer. Layers are updated in the order they were first changed in.
+ * </p>
+ * <p>
+ * The Mapbox Android SDK v5.0.2 has no per-property transitions, paint property changes are animated with the
+ * transition duration of the style. When a transition duration is given, it is set on the map before the changes are
+ * applied.
+ * </p>
+ */
+final class TrafficStyleBatch {
+
+  private final Map<Layer, Map<String, PropertyValue<?>>> changes = new LinkedHashMap<>();
+
+  /**
+   * Adds property changes of a layer to the batch.
+   *
+   * @param layer      the layer to change
+   * @param properties the property values to set
+   */
+  void setProperties(@NonNull Layer layer, @NonNull PropertyValue<?>... properties) {
+    Map<String, PropertyValue<?>> layerChanges = changes.get(layer);
+    if (layerChanges == null) {
+      layerChanges = new LinkedHashMap<>();
+      changes.put(layer, layerChanges);
+    }
+    for (PropertyValue<?> property : properties) {
+      layerChanges.put(property.name, property);
+    }
+  }
+
+  /**
+   * Returns the number of layers changed by the batch.
+   *
+   * @return the number of layers
+   */
+  int size() {
+    return changes.size();
+  }
+
+  /**
+   * Applies the changes to their layers and clears the batch.
+   *
+   * @param mapboxMap          the map the layers belong to
+   * @param transitionDuration the transition duration in milliseconds, negative to keep the duration of the style
+   */
+  @UiThread
+  void apply(@NonNull MapboxMap mapboxMap, long transitionDuration) {
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    if (transitionDuration >= 0) {
+      mapboxMap.setTransitionDuration(transitionDuration);
+    }
+    for (Map.Entry<Layer, Map<String, PropertyValue<?>>> entry : changes.entrySet()) {
+      Map<String, PropertyValue<?>> properties = entry.getValue();
+      entry.getKey().setProperties(properties.values().toArray(new PropertyValue<?>[properties.size()]));
+    }
+    changes.clear();
+  }
+}
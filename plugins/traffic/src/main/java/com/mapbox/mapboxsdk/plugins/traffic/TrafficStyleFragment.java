@@ -0,0 +1,439 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precompiled style JSON of the traffic source and layers, to inject into a style before it is loaded.
+ * <p>
+ * A fragment is serialised once per traffic spec and profile, from the layer specs of the profile, and is
+ * immutable. Injecting it into a style JSON passed to {@link com.mapbox.mapboxsdk.maps.MapboxMap#setStyleJson(String)}
+ * makes the traffic layers part of the style: they are rendered with the first frame of the style, and the traffic
+ * plugin attaches to them instead of adding each layer to the loaded style.
+ * </p>
+ * <p>
+ * The fragment describes Mapbox Traffic v1, the congestion overview and custom traffic feeds are added to the loaded
+ * style by the plugin.
+ * </p>
+ */
+public final class TrafficStyleFragment {
+
+  private final String sourceJson;
+  private final List<String> layerIds;
+  private final String[] layerJsons;
+  private final String[] hiddenLayerJsons;
+  private final Set<String> ids;
+
+  private TrafficStyleFragment(@NonNull String sourceJson, @NonNull String[] layerIds, @NonNull String[] layerJsons,
+                               @NonNull String[] hiddenLayerJsons) {
+    this.sourceJson = sourceJson;
+    this.layerIds = Collections.unmodifiableList(Arrays.asList(layerIds));
+    this.layerJsons = layerJsons;
+    this.hiddenLayerJsons = hiddenLayerJsons;
+    this.ids = new HashSet<>(this.layerIds);
+  }
+
+  /**
+   * Serialises the traffic source and layer specs.
+   * <p>
+   * The layers are written from the colors, zoom stops, filter and minimum zoom level of the specs, the same values the
+   * native layers are created from.
+   * </p>
+   *
+   * @param layerSpecs the layer specs, ordered bottom to top
+   * @return the style fragment
+   */
+  @NonNull
+  static TrafficStyleFragment create(@NonNull List<TrafficLayerSpec> layerSpecs) {
+    try {
+      StringWriter source = new StringWriter(128);
+      JsonWriter sourceWriter = new JsonWriter(source);
+      sourceWriter.beginObject()
+        .name("type").value("vector")
+        .name("url").value(TrafficPlugin.TrafficData.SOURCE_URL)
+        .endObject();
+      sourceWriter.close();
+
+      String[] layerIds = new String[layerSpecs.size()];
+      String[][] layerJsons = new String[2][layerSpecs.size()];
+      for (int i = 0; i < layerSpecs.size(); i++) {
+        TrafficLayerSpec layerSpec = layerSpecs.get(i);
+        layerIds[i] = layerSpec.getId();
+        layerJsons[0][i] = writeLayer(layerSpec, true);
+        layerJsons[1][i] = writeLayer(layerSpec, false);
+      }
+      return new TrafficStyleFragment(source.toString(), layerIds, layerJsons[0], layerJsons[1]);
+    } catch (IOException exception) {
+      // writing to a string doesn't fail
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  /**
+   * Returns the ids of the traffic layers, ordered bottom to top.
+   *
+   * @return the immutable list of layer ids
+   */
+  @NonNull
+  public List<String> getLayerIds() {
+    return layerIds;
+  }
+
+  /**
+   * Returns a style JSON with the traffic source and layers injected above the default traffic anchor layer.
+   *
+   * @param styleJson the style JSON
+   * @return the style JSON with traffic
+   * @throws IOException if the style JSON is malformed
+   * @see #inject(String, String)
+   */
+  @NonNull
+  @WorkerThread
+  public String inject(@NonNull String styleJson) throws IOException {
+    return inject(styleJson, TrafficPlugin.TrafficData.ANCHOR_LAYER_ID);
+  }
+
+  /**
+   * Returns a style JSON with the traffic source and layers injected above a layer.
+   *
+   * @param styleJson    the style JSON
+   * @param idAboveLayer the id of the layer to add the traffic layers above, null to add them on top
+   * @return the style JSON with traffic
+   * @throws IOException if the style JSON is malformed or has no sources or layers
+   * @see #inject(String, String, boolean)
+   */
+  @NonNull
+  @WorkerThread
+  public String inject(@NonNull String styleJson, @Nullable String idAboveLayer) throws IOException {
+    return inject(styleJson, idAboveLayer, true);
+  }
+
+  /**
+   * Returns a style JSON with the traffic source and layers injected above a layer.
+   * <p>
+   * The style is streamed, it isn't parsed into a tree. The traffic source and layers replace any traffic source and
+   * layers the style already contains, injecting into a style that already contains traffic doesn't duplicate it. If
+   * the style has no layer with the given id, the traffic layers are added on top of the style.
+   * </p>
+   *
+   * @param styleJson    the style JSON
+   * @param idAboveLayer the id of the layer to add the traffic layers above, null to add them on top
+   * @param visible      false to inject hidden traffic layers, to be shown once traffic is enabled
+   * @return the style JSON with traffic
+   * @throws IOException if the style JSON is malformed or has no sources or layers
+   */
+  @NonNull
+  @WorkerThread
+  public String inject(@NonNull String styleJson, @Nullable String idAboveLayer, boolean visible)
+    throws IOException {
+    try {
+      return writeStyle(styleJson, idAboveLayer, visible ? layerJsons : hiddenLayerJsons);
+    } catch (IllegalStateException | NumberFormatException exception) {
+      // thrown by the reader for well-formed JSON of an unexpected structure
+      throw new IOException("Unexpected style JSON structure", exception);
+    }
+  }
+
+  private String writeStyle(String styleJson, String idAboveLayer, String[] trafficLayers) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(styleJson));
+    StringWriter output = new StringWriter(styleJson.length() + layerJsons.length * 1024);
+    JsonWriter writer = new JsonWriter(output);
+    boolean sources = false;
+    boolean layers = false;
+
+    reader.beginObject();
+    writer.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      writer.name(name);
+      if ("sources".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+        writeSources(reader, writer);
+        sources = true;
+      } else if ("layers".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+        writeLayers(reader, writer, idAboveLayer, trafficLayers);
+        layers = true;
+      } else {
+        copy(reader, writer);
+      }
+    }
+    reader.endObject();
+    writer.endObject();
+    writer.close();
+
+    if (!sources || !layers) {
+      throw new IOException("Style JSON has no sources or layers");
+    }
+    return output.toString();
+  }
+
+  /**
+   * Resolves the layer of a style to inject the traffic layers above.
+   * <p>
+   * The default traffic anchor layer is used if the style has it. Otherwise traffic is injected below the first symbol
+   * layer, so labels are drawn above traffic, or on top of a style without symbol layers.
+   * </p>
+   *
+   * @param styleJson the style JSON
+   * @return the id of the anchor layer, null to inject the traffic layers on top
+   * @throws IOException if the style JSON is malformed
+   */
+  @Nullable
+  @WorkerThread
+  static String resolveAnchorLayerId(@NonNull String styleJson) throws IOException {
+    try {
+      return readAnchorLayerId(styleJson);
+    } catch (IllegalStateException | NumberFormatException exception) {
+      throw new IOException("Unexpected style JSON structure", exception);
+    }
+  }
+
+  private static String readAnchorLayerId(String styleJson) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(styleJson));
+    String belowSymbol = null;
+    boolean symbolFound = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!"layers".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+        reader.skipValue();
+        continue;
+      }
+
+      String previousId = null;
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String[] layer = readLayerIdAndType(reader);
+        if (TrafficPlugin.TrafficData.ANCHOR_LAYER_ID.equals(layer[0])) {
+          return layer[0];
+        }
+        if (!symbolFound && "symbol".equals(layer[1])) {
+          symbolFound = true;
+          belowSymbol = previousId;
+        }
+        previousId = layer[0];
+      }
+      reader.endArray();
+    }
+    return symbolFound ? belowSymbol : null;
+  }
+
+  private static String[] readLayerIdAndType(JsonReader reader) throws IOException {
+    String[] layer = new String[2];
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return layer;
+    }
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("id".equals(name) && reader.peek() == JsonToken.STRING) {
+        layer[0] = reader.nextString();
+      } else if ("type".equals(name) && reader.peek() == JsonToken.STRING) {
+        layer[1] = reader.nextString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return layer;
+  }
+
+  private void writeSources(JsonReader reader, JsonWriter writer) throws IOException {
+    reader.beginObject();
+    writer.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (TrafficPlugin.TrafficData.SOURCE_ID.equals(name)) {
+        reader.skipValue();
+      } else {
+        writer.name(name);
+        copy(reader, writer);
+      }
+    }
+    writer.name(TrafficPlugin.TrafficData.SOURCE_ID).jsonValue(sourceJson);
+    reader.endObject();
+    writer.endObject();
+  }
+
+  /**
+   * Copies the layers of the style, each layer is buffered until its id is known.
+   */
+  private void writeLayers(JsonReader reader, JsonWriter writer, String idAboveLayer, String[] trafficLayers)
+    throws IOException {
+    boolean injected = false;
+    reader.beginArray();
+    writer.beginArray();
+    while (reader.hasNext()) {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        copy(reader, writer);
+        continue;
+      }
+
+      StringWriter layer = new StringWriter(256);
+      JsonWriter layerWriter = new JsonWriter(layer);
+      String id = copyLayer(reader, layerWriter);
+      layerWriter.close();
+      if (id != null && ids.contains(id)) {
+        continue;
+      }
+      writer.jsonValue(layer.toString());
+      if (!injected && idAboveLayer != null && idAboveLayer.equals(id)) {
+        writeTrafficLayers(writer, trafficLayers);
+        injected = true;
+      }
+    }
+    if (!injected) {
+      writeTrafficLayers(writer, trafficLayers);
+    }
+    reader.endArray();
+    writer.endArray();
+  }
+
+  private static void writeTrafficLayers(JsonWriter writer, String[] trafficLayers) throws IOException {
+    for (String layerJson : trafficLayers) {
+      writer.jsonValue(layerJson);
+    }
+  }
+
+  @Nullable
+  private static String copyLayer(JsonReader reader, JsonWriter writer) throws IOException {
+    String id = null;
+    reader.beginObject();
+    writer.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      writer.name(name);
+      if ("id".equals(name) && reader.peek() == JsonToken.STRING) {
+        id = reader.nextString();
+        writer.value(id);
+      } else {
+        copy(reader, writer);
+      }
+    }
+    reader.endObject();
+    writer.endObject();
+    return id;
+  }
+
+  /**
+   * Copies the next value, numbers are copied verbatim.
+   */
+  private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_ARRAY:
+        reader.beginArray();
+        writer.beginArray();
+        while (reader.hasNext()) {
+          copy(reader, writer);
+        }
+        reader.endArray();
+        writer.endArray();
+        break;
+      case BEGIN_OBJECT:
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+          writer.name(reader.nextName());
+          copy(reader, writer);
+        }
+        reader.endObject();
+        writer.endObject();
+        break;
+      case STRING:
+        writer.value(reader.nextString());
+        break;
+      case NUMBER:
+        writer.jsonValue(reader.nextString());
+        break;
+      case BOOLEAN:
+        writer.value(reader.nextBoolean());
+        break;
+      case NULL:
+        reader.nextNull();
+        writer.nullValue();
+        break;
+      default:
+        throw new IOException("Unexpected " + reader.peek() + " at " + reader.getPath());
+    }
+  }
+
+  private static String writeLayer(TrafficLayerSpec layerSpec, boolean visible) throws IOException {
+    StringWriter layer = new StringWriter(512);
+    JsonWriter writer = new JsonWriter(layer);
+    writer.beginObject()
+      .name("id").value(layerSpec.getId())
+      .name("type").value("line")
+      .name("source").value(TrafficPlugin.TrafficData.SOURCE_ID)
+      .name("source-layer").value(TrafficPlugin.TrafficData.SOURCE_LAYER)
+      .name("minzoom").value(Float.valueOf(layerSpec.getMinZoom()));
+
+    writer.name("filter").beginArray().value("in").value("class");
+    for (String roadClass : layerSpec.getClasses()) {
+      writer.value(roadClass);
+    }
+    writer.endArray();
+
+    writer.name("layout").beginObject()
+      .name("line-cap").value("round")
+      .name("line-join").value("round");
+    if (!visible) {
+      writer.name("visibility").value("none");
+    }
+    writer.endObject();
+
+    int[] colors = layerSpec.getColors();
+    writer.name("paint").beginObject();
+    writer.name("line-color").beginObject()
+      .name("property").value("congestion")
+      .name("type").value("categorical")
+      .name("default").value(toColor(0))
+      .name("stops").beginArray()
+      .beginArray().value("low").value(toColor(colors[0])).endArray()
+      .beginArray().value("moderate").value(toColor(colors[1])).endArray()
+      .beginArray().value("heavy").value(toColor(colors[2])).endArray()
+      .beginArray().value("severe").value(toColor(colors[3])).endArray()
+      .endArray()
+      .endObject();
+    writeZoomFunction(writer.name("line-width"), layerSpec.getWidthStops(), TrafficFunction.LINE_BASE);
+    writeZoomFunction(writer.name("line-offset"), layerSpec.getOffsetStops(), TrafficFunction.LINE_BASE);
+    if (layerSpec.getOpacityStops() != null) {
+      writeZoomFunction(writer.name("line-opacity"), layerSpec.getOpacityStops(), 1);
+    } else if (layerSpec.getOpacity() < 1.0f) {
+      writer.name("line-opacity").value(Float.valueOf(layerSpec.getOpacity()));
+    }
+    writer.endObject();
+
+    writer.endObject();
+    writer.close();
+    return layer.toString();
+  }
+
+  private static void writeZoomFunction(JsonWriter writer, float[] stops, float base) throws IOException {
+    writer.beginObject().name("base").value(Float.valueOf(base)).name("stops").beginArray();
+    for (int i = 0; i < stops.length; i += 2) {
+      writer.beginArray().value(Float.valueOf(stops[i])).value(Float.valueOf(stops[i + 1])).endArray();
+    }
+    writer.endArray().endObject();
+  }
+
+  /**
+   * Formats a color int as a CSS rgba color, the color format of style JSON.
+   */
+  private static String toColor(int color) {
+    return "rgba(" + ((color >> 16) & 0xFF) + ", " + ((color >> 8) & 0xFF) + ", " + (color & 0xFF) + ", "
+      + Float.toString(((color >>> 24) & 0xFF) / 255f) + ")";
+  }
+}
@@ -0,0 +1,293 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.content.res.AssetManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.Mapbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads style JSON with the traffic source and layers injected, before the style reaches the map.
+ * <p>
+ * A style is read on the serial loader executor, from a Mapbox, http, file or asset url. The traffic anchor layer is
+ * resolved once per style version with {@link TrafficStyleFragment#resolveAnchorLayerId(String)} and the
+ * {@link TrafficStyleFragment} is injected above it. The last loaded styles are cached by url with their version, the
+ * ETag or last modification time of the response: reloading an unchanged style sends a conditional request and reuses
+ * the injected JSON, a changed fragment or visibility only injects the cached style again. Assets don't change while
+ * the application runs and are read once.
+ * </p>
+ * <p>
+ * Resolved anchors are also stored in a {@link TrafficAnchorCache} with the version of the style, a style read again
+ * after a launch isn't searched for its anchor while its version is unchanged.
+ * </p>
+ * <p>
+ * Only the result of the latest load is delivered, on the main thread.
+ * </p>
+ */
+final class TrafficStyleLoader {
+
+  private static final String MAPBOX_STYLES = "mapbox://styles/";
+  private static final String MAPBOX_STYLES_API = "https://api.mapbox.com/styles/v1/";
+  private static final String ASSET = "asset://";
+  private static final int TIMEOUT_MILLIS = 15000;
+  private static final int MAX_CACHED_STYLES = 4;
+
+  private final Executor mainThreadExecutor;
+  private final Executor loaderExecutor;
+  private final AssetManager assets;
+  private final TrafficAnchorCache anchorCache;
+  private final Callback callback;
+
+  // main thread
+  private int generation;
+
+  // loader executor
+  private final Map<String, CachedStyle> cache = new LinkedHashMap<String, CachedStyle>(8, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedStyle> eldest) {
+      return size() > MAX_CACHED_STYLES;
+    }
+  };
+
+  /**
+   * Create a style loader.
+   *
+   * @param mainThreadExecutor the executor to deliver styles on
+   * @param loaderExecutor     the serial executor to load styles on
+   * @param assets             the assets to read asset urls from, null if asset urls aren't supported
+   * @param anchorCache        the cache of resolved anchors kept across launches, null to resolve every style read
+   * @param callback           the callback receiving the loaded styles
+   */
+  TrafficStyleLoader(@NonNull Executor mainThreadExecutor, @NonNull Executor loaderExecutor,
+                     @Nullable AssetManager assets, @Nullable TrafficAnchorCache anchorCache,
+                     @NonNull Callback callback) {
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.loaderExecutor = loaderExecutor;
+    this.assets = assets;
+    this.anchorCache = anchorCache;
+    this.callback = callback;
+  }
+
+  /**
+   * Loads a style and injects traffic into it, replacing any pending load.
+   *
+   * @param styleUrl the url of the style
+   * @param fragment the traffic source and layers to inject
+   * @param visible  false to inject hidden traffic layers
+   */
+  @UiThread
+  void load(@NonNull final String styleUrl, @NonNull final TrafficStyleFragment fragment, final boolean visible) {
+    final int current = ++generation;
+    loaderExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final String json = inject(styleUrl, fragment, visible);
+          mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              if (current == generation) {
+                callback.onStyleLoaded(styleUrl, json);
+              }
+            }
+          });
+        } catch (IOException | RuntimeException exception) {
+          // an uncaught exception would terminate the application, a failed style falls back to its url
+          final IOException failure = exception instanceof IOException
+            ? (IOException) exception : new IOException("Unable to inject traffic into " + styleUrl, exception);
+          mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              if (current == generation) {
+                callback.onStyleFailed(styleUrl, failure);
+              }
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Discards the result of the pending load.
+   */
+  @UiThread
+  void cancel() {
+    generation++;
+  }
+
+  /**
+   * Returns the JSON of a style with traffic injected, reading the style only if it changed since it was cached.
+   *
+   * @param styleUrl the url of the style
+   * @param fragment the traffic source and layers to inject
+   * @param visible  false to inject hidden traffic layers
+   * @return the style JSON with traffic
+   * @throws IOException if the style can't be read or is malformed
+   */
+  @NonNull
+  @WorkerThread
+  String inject(@NonNull String styleUrl, @NonNull TrafficStyleFragment fragment, boolean visible)
+    throws IOException {
+    CachedStyle style = read(styleUrl, cache.get(styleUrl));
+    cache.put(styleUrl, style);
+    if (style.injectedJson == null || style.fragment != fragment || style.visible != visible) {
+      style.injectedJson = fragment.inject(style.json, style.anchorLayerId, visible);
+      style.fragment = fragment;
+      style.visible = visible;
+    }
+    return style.injectedJson;
+  }
+
+  private CachedStyle read(String styleUrl, @Nullable CachedStyle cached) throws IOException {
+    if (styleUrl.startsWith(ASSET)) {
+      if (cached != null) {
+        return cached;
+      }
+      if (assets == null) {
+        throw new IOException("Unable to read asset " + styleUrl);
+      }
+      // assets may change with an update of the application, their anchor isn't stored across launches
+      String json = read(assets.open(styleUrl.substring(ASSET.length())));
+      return new CachedStyle(null, json, TrafficStyleFragment.resolveAnchorLayerId(json));
+    }
+
+    URLConnection connection = new URL(resolve(styleUrl)).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    if (cached != null && connection instanceof HttpURLConnection) {
+      if (cached.eTag != null) {
+        connection.setRequestProperty("If-None-Match", cached.eTag);
+      }
+      if (cached.lastModified != 0) {
+        connection.setIfModifiedSince(cached.lastModified);
+      }
+      if (((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        return cached;
+      }
+    }
+
+    String eTag = connection.getHeaderField("ETag");
+    long lastModified = connection.getLastModified();
+    String version = eTag;
+    if (version == null && lastModified != 0) {
+      version = lastModified + "/" + connection.getContentLength();
+    }
+    if (cached != null && version != null && version.equals(cached.version)) {
+      connection.getInputStream().close();
+      return cached;
+    }
+    String json = read(connection.getInputStream());
+    CachedStyle style = new CachedStyle(version, json, getAnchorLayerId(styleUrl, version, json));
+    style.eTag = eTag;
+    style.lastModified = lastModified;
+    return style;
+  }
+
+  /**
+   * Returns the anchor layer of a style, from the anchor cache if it was resolved for the same version of the style.
+   *
+   * @param styleUrl the url of the style
+   * @param version  the version of the style, null if unknown
+   * @param json     the style JSON
+   * @return the id of the anchor layer, null to inject the traffic layers on top
+   * @throws IOException if the style JSON is malformed
+   */
+  @Nullable
+  private String getAnchorLayerId(String styleUrl, @Nullable String version, String json) throws IOException {
+    if (anchorCache == null || version == null) {
+      return TrafficStyleFragment.resolveAnchorLayerId(json);
+    }
+
+    TrafficAnchorCache.Entry cached = anchorCache.get(styleUrl);
+    if (cached != null && version.equals(cached.version)) {
+      return cached.anchorLayerId;
+    }
+    String anchorLayerId = TrafficStyleFragment.resolveAnchorLayerId(json);
+    anchorCache.put(styleUrl, version, anchorLayerId);
+    return anchorLayerId;
+  }
+
+  /**
+   * Resolves a Mapbox style url to the url of the Mapbox Styles API.
+   *
+   * @param styleUrl the url of the style
+   * @return the url to read the style JSON from
+   */
+  @NonNull
+  static String resolve(@NonNull String styleUrl) {
+    if (!styleUrl.startsWith(MAPBOX_STYLES)) {
+      return styleUrl;
+    }
+    return MAPBOX_STYLES_API + styleUrl.substring(MAPBOX_STYLES.length()) + "?access_token=" + Mapbox.getAccessToken();
+  }
+
+  private static String read(InputStream inputStream) throws IOException {
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream(64 * 1024);
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = inputStream.read(buffer)) != -1) {
+        output.write(buffer, 0, count);
+      }
+      return output.toString("UTF-8");
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * A style read from a url, with its anchor and the last injected JSON.
+   */
+  private static final class CachedStyle {
+
+    final String version;
+    final String json;
+    final String anchorLayerId;
+    String eTag;
+    long lastModified;
+    TrafficStyleFragment fragment;
+    boolean visible;
+    String injectedJson;
+
+    CachedStyle(@Nullable String version, @NonNull String json, @Nullable String anchorLayerId) {
+      this.version = version;
+      this.json = json;
+      this.anchorLayerId = anchorLayerId;
+    }
+  }
+
+  /**
+   * Receives the loaded styles.
+   */
+  interface Callback {
+
+    /**
+     * Called on the main thread with the style JSON with traffic injected.
+     *
+     * @param styleUrl  the url of the style
+     * @param styleJson the style JSON to load
+     */
+    void onStyleLoaded(@NonNull String styleUrl, @NonNull String styleJson);
+
+    /**
+     * Called on the main thread when the style couldn't be loaded or is malformed.
+     *
+     * @param styleUrl  the url of the style
+     * @param exception the cause
+     */
+    void onStyleFailed(@NonNull String styleUrl, @NonNull IOException exception);
+  }
+}
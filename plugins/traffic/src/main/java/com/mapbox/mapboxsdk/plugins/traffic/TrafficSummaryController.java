@@ -0,0 +1,292 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionAggregator;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionSummary;
+import com.mapbox.mapboxsdk.plugins.traffic.data.GeoMath;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+import com.mapbox.services.commons.geojson.Feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Computes congestion summaries of the traffic rendered in the viewport.
+ * <p>
+ * Rendered features are queried on the main thread, aggregating them happens on a background executor. The last
+ * summary is cached together with the camera it was computed for, and is reused until the camera moves or zooms
+ * beyond a threshold. Listeners receive a new summary on camera idle, once the cached summary is outdated.
+ * </p>
+ */
+final class TrafficSummaryController {
+
+  /**
+   * Zoom level difference after which a cached summary is outdated.
+   */
+  static final double ZOOM_THRESHOLD = 0.5;
+
+  /**
+   * Movement of the camera target after which a cached summary is outdated, as a fraction of the viewport size.
+   */
+  static final double MOVE_THRESHOLD = 0.1;
+
+  private final MapView mapView;
+  private final MapboxMap mapboxMap;
+  private final Executor mainThreadExecutor;
+  private final Executor backgroundExecutor;
+  private final Callback callback;
+  private final List<TrafficPlugin.OnCongestionSummaryListener> listeners = new ArrayList<>();
+  private final List<TrafficPlugin.OnCongestionSummaryListener> pendingRequests = new ArrayList<>();
+
+  private CongestionSummary summary;
+  private CameraSnapshot summaryCamera;
+  private boolean computing;
+  private boolean recomputePending;
+  private int generation;
+
+  /**
+   * Create a summary controller.
+   *
+   * @param mapView            the map view to query the viewport size from
+   * @param mapboxMap          the map to query rendered features from
+   * @param mainThreadExecutor the executor to deliver summaries on
+   * @param backgroundExecutor the executor to aggregate features on
+   * @param callback           the callback providing the traffic layers to query
+   */
+  TrafficSummaryController(@NonNull MapView mapView, @NonNull MapboxMap mapboxMap,
+                           @NonNull Executor mainThreadExecutor, @NonNull Executor backgroundExecutor,
+                           @NonNull Callback callback) {
+    this.mapView = mapView;
+    this.mapboxMap = mapboxMap;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.backgroundExecutor = backgroundExecutor;
+    this.callback = callback;
+  }
+
+  /**
+   * Adds a listener receiving a summary whenever the camera becomes idle and the cached summary is outdated.
+   *
+   * @param listener the listener to add
+   */
+  @UiThread
+  void addListener(@NonNull TrafficPlugin.OnCongestionSummaryListener listener) {
+    if (!listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  /**
+   * Removes a previously added listener.
+   *
+   * @param listener the listener to remove
+   */
+  @UiThread
+  void removeListener(@NonNull TrafficPlugin.OnCongestionSummaryListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Requests the summary of the current viewport.
+   * <p>
+   * The cached summary is delivered if the camera didn't move beyond the threshold, else a new summary is computed.
+   * A request made while a summary is being computed receives that summary. The listener is always invoked
+   * asynchronously on the main thread.
+   * </p>
+   *
+   * @param listener the listener to deliver the summary to
+   */
+  @UiThread
+  void request(@NonNull final TrafficPlugin.OnCongestionSummaryListener listener) {
+    if (summary != null && !computing && !summaryCamera.exceeds(getCameraSnapshot())) {
+      final CongestionSummary cachedSummary = summary;
+      mainThreadExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          listener.onCongestionSummary(cachedSummary);
+        }
+      });
+      return;
+    }
+
+    pendingRequests.add(listener);
+    if (!computing) {
+      compute();
+    }
+  }
+
+  /**
+   * Called when the camera became idle, recomputes the summary for listeners if the cached one is outdated.
+   */
+  @UiThread
+  void onCameraIdle() {
+    if (listeners.isEmpty() && pendingRequests.isEmpty()) {
+      return;
+    }
+
+    if (summary == null || summaryCamera.exceeds(getCameraSnapshot())) {
+      compute();
+    }
+  }
+
+  /**
+   * Discards the cached summary, for example because traffic was hidden or new traffic data was rendered.
+   * <p>
+   * Listeners receive a new summary immediately.
+   * </p>
+   */
+  @UiThread
+  void invalidate() {
+    summary = null;
+    summaryCamera = null;
+    generation++;
+    if (!listeners.isEmpty()) {
+      compute();
+    }
+  }
+
+  private void compute() {
+    if (computing) {
+      recomputePending = true;
+      return;
+    }
+
+    computing = true;
+    final int computeGeneration = generation;
+    final CameraSnapshot camera = getCameraSnapshot();
+    final List<Feature> features = queryFeatures();
+    backgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final CongestionSummary result = aggregate(features);
+        mainThreadExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            onComputed(result, camera, computeGeneration);
+          }
+        });
+      }
+    });
+  }
+
+  private void onComputed(CongestionSummary result, CameraSnapshot camera, int computeGeneration) {
+    computing = false;
+    if (recomputePending || computeGeneration != generation) {
+      recomputePending = false;
+      compute();
+      return;
+    }
+
+    summary = result;
+    summaryCamera = camera;
+    for (int i = 0; i < listeners.size(); i++) {
+      listeners.get(i).onCongestionSummary(result);
+    }
+
+    List<TrafficPlugin.OnCongestionSummaryListener> requests = new ArrayList<>(pendingRequests);
+    pendingRequests.clear();
+    for (int i = 0; i < requests.size(); i++) {
+      requests.get(i).onCongestionSummary(result);
+    }
+  }
+
+  private List<Feature> queryFeatures() {
+    String[] layerIds = callback.getQueryLayerIds();
+    if (layerIds == null || layerIds.length == 0) {
+      return Collections.emptyList();
+    }
+
+    RectF viewport = new RectF(0, 0, mapView.getWidth(), mapView.getHeight());
+    return mapboxMap.queryRenderedFeatures(viewport, layerIds);
+  }
+
+  private CameraSnapshot getCameraSnapshot() {
+    CameraPosition cameraPosition = mapboxMap.getCameraPosition();
+    double latitude = cameraPosition.target.getLatitude();
+    double metersPerPixel = mapboxMap.getProjection().getMetersPerPixelAtLatitude(latitude);
+    return new CameraSnapshot(cameraPosition.target.getLongitude(), latitude, cameraPosition.zoom,
+      metersPerPixel * Math.max(mapView.getWidth(), mapView.getHeight()));
+  }
+
+  /**
+   * Aggregates traffic features into a congestion summary.
+   * <p>
+   * Each line of a feature counts as a segment.
+   * </p>
+   *
+   * @param features the rendered traffic features
+   * @return the congestion summary
+   */
+  @NonNull
+  @WorkerThread
+  static CongestionSummary aggregate(@NonNull List<Feature> features) {
+    TrafficSegments segments = new TrafficSegments(features.size(), features.size() * 8);
+    TrafficFeatures.addSegments(features, segments);
+    CongestionAggregator aggregator = new CongestionAggregator();
+    for (int i = 0; i < segments.size(); i++) {
+      aggregator.add(segments.getRoadClass(i), segments.getCongestion(i), segments.getCoordinates(),
+        segments.getPointOffset(i) * 2, segments.getPointCount(i));
+    }
+    return aggregator.getSummary();
+  }
+
+  /**
+   * Camera state a summary was computed for.
+   */
+  static final class CameraSnapshot {
+
+    private final double longitude;
+    private final double latitude;
+    private final double zoom;
+    private final double viewportSize;
+
+    /**
+     * Create a camera snapshot.
+     *
+     * @param longitude    the longitude of the camera target
+     * @param latitude     the latitude of the camera target
+     * @param zoom         the zoom level
+     * @param viewportSize the largest dimension of the viewport in meters
+     */
+    CameraSnapshot(double longitude, double latitude, double zoom, double viewportSize) {
+      this.longitude = longitude;
+      this.latitude = latitude;
+      this.zoom = zoom;
+      this.viewportSize = viewportSize;
+    }
+
+    /**
+     * Returns true if another camera moved or zoomed beyond the thresholds relative to this camera.
+     *
+     * @param other the other camera
+     * @return true if the difference exceeds the thresholds
+     */
+    boolean exceeds(@NonNull CameraSnapshot other) {
+      return Math.abs(zoom - other.zoom) > ZOOM_THRESHOLD
+        || GeoMath.distance(longitude, latitude, other.longitude, other.latitude) > MOVE_THRESHOLD * viewportSize;
+    }
+  }
+
+  /**
+   * Provides the traffic layers to summarise.
+   */
+  interface Callback {
+
+    /**
+     * Returns the ids of the traffic layers to query.
+     *
+     * @return the layer ids, null or empty if traffic isn't shown
+     */
+    @Nullable
+    String[] getQueryLayerIds();
+  }
+}
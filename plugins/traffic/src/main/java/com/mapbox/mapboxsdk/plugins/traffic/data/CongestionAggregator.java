@@ -0,0 +1,74 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Accumulates traffic segments into a {@link CongestionSummary}.
+ * <p>
+ * An aggregator isn't thread safe, use one aggregator per thread and {@link #merge(CongestionAggregator)} the results.
+ * Adding segments doesn't allocate.
+ * </p>
+ */
+public final class CongestionAggregator {
+
+  private final int[] counts = new int[TrafficCodes.CLASS_COUNT * TrafficCodes.CONGESTION_COUNT];
+  private final double[] lengths = new double[TrafficCodes.CLASS_COUNT * TrafficCodes.CONGESTION_COUNT];
+
+  /**
+   * Adds a segment of a known length.
+   *
+   * @param roadClass  the road class code
+   * @param congestion the congestion code
+   * @param length     the length of the segment in meters
+   */
+  public void add(int roadClass, int congestion, double length) {
+    int index = CongestionSummary.index(roadClass, congestion);
+    counts[index]++;
+    lengths[index] += length;
+  }
+
+  /**
+   * Adds a segment with a line geometry.
+   *
+   * @param roadClass   the road class code
+   * @param congestion  the congestion code
+   * @param coordinates the interleaved longitude and latitude values
+   * @param offset      the index of the longitude of the first position of the segment
+   * @param pointCount  the number of positions of the segment
+   */
+  public void add(int roadClass, int congestion, @NonNull double[] coordinates, int offset, int pointCount) {
+    add(roadClass, congestion, GeoMath.length(coordinates, offset, pointCount));
+  }
+
+  /**
+   * Adds the segments accumulated by another aggregator.
+   *
+   * @param other the aggregator to merge
+   */
+  public void merge(@NonNull CongestionAggregator other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+      lengths[i] += other.lengths[i];
+    }
+  }
+
+  /**
+   * Removes all accumulated segments.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+      lengths[i] = 0;
+    }
+  }
+
+  /**
+   * Returns a summary of the accumulated segments.
+   *
+   * @return the congestion summary
+   */
+  @NonNull
+  public CongestionSummary getSummary() {
+    return new CongestionSummary(counts.clone(), lengths.clone());
+  }
+}
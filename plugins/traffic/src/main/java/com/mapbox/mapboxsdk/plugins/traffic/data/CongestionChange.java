@@ -0,0 +1,108 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Immutable change of the congestion level of a traffic segment, detected by {@link CongestionDiff}.
+ */
+public final class CongestionChange {
+
+  private final long tileId;
+  private final int roadClass;
+  private final int previousCongestion;
+  private final int congestion;
+  private final double[] coordinates;
+
+  /**
+   * Create a congestion change of a segment, copying its positions.
+   *
+   * @param tileId             the id of the tile of the segment
+   * @param segments           the segments holding the changed segment
+   * @param segment            the index of the changed segment
+   * @param previousCongestion the previous congestion code
+   */
+  public CongestionChange(long tileId, @NonNull TrafficSegments segments, int segment, int previousCongestion) {
+    this.tileId = tileId;
+    this.roadClass = segments.getRoadClass(segment);
+    this.previousCongestion = previousCongestion;
+    this.congestion = segments.getCongestion(segment);
+    int offset = segments.getPointOffset(segment) * 2;
+    this.coordinates = new double[segments.getPointCount(segment) * 2];
+    System.arraycopy(segments.getCoordinates(), offset, coordinates, 0, coordinates.length);
+  }
+
+  /**
+   * Returns the id of the tile of the segment.
+   *
+   * @return the tile id
+   */
+  public long getTileId() {
+    return tileId;
+  }
+
+  /**
+   * Returns the road class code of the segment.
+   *
+   * @return the road class code
+   */
+  public int getRoadClass() {
+    return roadClass;
+  }
+
+  /**
+   * Returns the congestion code of the segment before the change.
+   *
+   * @return the previous congestion code
+   */
+  public int getPreviousCongestion() {
+    return previousCongestion;
+  }
+
+  /**
+   * Returns the congestion code of the segment after the change.
+   *
+   * @return the congestion code
+   */
+  public int getCongestion() {
+    return congestion;
+  }
+
+  /**
+   * Returns true if the congestion level increased, from and to a known level.
+   *
+   * @return true if the segment became more congested
+   */
+  public boolean isWorse() {
+    return previousCongestion != TrafficCodes.CONGESTION_UNKNOWN && congestion != TrafficCodes.CONGESTION_UNKNOWN
+      && congestion > previousCongestion;
+  }
+
+  /**
+   * Returns the number of positions of the segment.
+   *
+   * @return the number of positions
+   */
+  public int getPointCount() {
+    return coordinates.length / 2;
+  }
+
+  /**
+   * Returns the longitude of a position of the segment.
+   *
+   * @param point the index of the position
+   * @return the longitude
+   */
+  public double getLongitude(int point) {
+    return coordinates[point * 2];
+  }
+
+  /**
+   * Returns the latitude of a position of the segment.
+   *
+   * @param point the index of the position
+   * @return the latitude
+   */
+  public double getLatitude(int point) {
+    return coordinates[point * 2 + 1];
+  }
+}
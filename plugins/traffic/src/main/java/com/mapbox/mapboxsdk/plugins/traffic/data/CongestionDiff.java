@@ -0,0 +1,237 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Detects congestion changes of traffic segments between snapshots of the same tiles.
+ * <p>
+ * A segment is identified by a hash of its quantized geometry and its road class, so the same road segment is matched
+ * across snapshots regardless of its position in the tile. Each tile snapshot has a fingerprint, independent of the
+ * order of its segments; a snapshot with the fingerprint of the previous snapshot of the tile is skipped without
+ * comparing segments. The fingerprint of an encoded tile, see {@link #fingerprint(byte[], int, int)}, lets unchanged
+ * tiles be skipped before decoding them.
+ * </p>
+ * <p>
+ * Only segments present in both snapshots with a different congestion level are reported. The first snapshot of a
+ * tile is the baseline, segments that appear or disappear aren't reported. A diff isn't thread safe, confine it to a
+ * single background thread.
+ * </p>
+ */
+public final class CongestionDiff {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final double SCALE = 1e6;
+
+  // segment keys occupy the upper bits of an entry, the congestion code the lower 3 bits
+  private static final long CONGESTION_BITS = 7;
+
+  private final Map<Long, TileSnapshot> tiles = new HashMap<>();
+
+  /**
+   * Returns the identity of a segment, a hash of its road class and its positions quantized to 1e-6 degrees.
+   *
+   * @param segments the segments
+   * @param segment  the index of the segment
+   * @return the segment key
+   */
+  public static long segmentKey(@NonNull TrafficSegments segments, int segment) {
+    long hash = mix(FNV_OFFSET, segments.getRoadClass(segment));
+    int offset = segments.getPointOffset(segment);
+    for (int i = offset; i < offset + segments.getPointCount(segment); i++) {
+      hash = mix(hash, Math.round(segments.getLongitude(i) * SCALE));
+      hash = mix(hash, Math.round(segments.getLatitude(i) * SCALE));
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the fingerprint of a tile snapshot, which doesn't depend on the order of the segments.
+   *
+   * @param segments the segments of the tile
+   * @return the fingerprint
+   */
+  public static long fingerprint(@NonNull TrafficSegments segments) {
+    long fingerprint = segments.size();
+    for (int i = 0; i < segments.size(); i++) {
+      fingerprint += finalizeHash(entry(segmentKey(segments, i), segments.getCongestion(i)));
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Returns the fingerprint of an encoded tile.
+   *
+   * @param tile   the buffer holding the encoded tile
+   * @param offset the offset of the tile in the buffer
+   * @param length the length of the encoded tile
+   * @return the fingerprint
+   */
+  public static long fingerprint(@NonNull byte[] tile, int offset, int length) {
+    long hash = FNV_OFFSET;
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ (tile[i] & 0xFF)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns true if the last snapshot of a tile has the given fingerprint.
+   *
+   * @param tileId      the id of the tile
+   * @param fingerprint the fingerprint of the new snapshot
+   * @return true if the tile didn't change
+   */
+  public boolean isUnchanged(long tileId, long fingerprint) {
+    TileSnapshot snapshot = tiles.get(tileId);
+    return snapshot != null && snapshot.fingerprint == fingerprint;
+  }
+
+  /**
+   * Compares a snapshot of a tile to its previous snapshot, computing the fingerprint from the segments.
+   *
+   * @param tileId   the id of the tile
+   * @param segments the segments of the tile
+   * @param listener the listener receiving the changed segments
+   * @return the number of changed segments
+   */
+  public int update(long tileId, @NonNull TrafficSegments segments, @NonNull Listener listener) {
+    return update(tileId, fingerprint(segments), segments, listener);
+  }
+
+  /**
+   * Compares a snapshot of a tile to its previous snapshot and replaces it.
+   *
+   * @param tileId      the id of the tile
+   * @param fingerprint the fingerprint of the snapshot, of the segments or of the encoded tile, consistently for all
+   *                    snapshots of the tile
+   * @param segments    the segments of the tile
+   * @param listener    the listener receiving the changed segments
+   * @return the number of changed segments
+   */
+  public int update(long tileId, long fingerprint, @NonNull TrafficSegments segments, @NonNull Listener listener) {
+    TileSnapshot previous = tiles.get(tileId);
+    if (previous != null && previous.fingerprint == fingerprint) {
+      return 0;
+    }
+
+    long[] entries = new long[segments.size()];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = entry(segmentKey(segments, i), segments.getCongestion(i));
+    }
+
+    int changeCount = 0;
+    if (previous != null) {
+      for (int i = 0; i < entries.length; i++) {
+        int previousCongestion = previous.getCongestion(entries[i] & ~CONGESTION_BITS);
+        if (previousCongestion >= 0 && previousCongestion != segments.getCongestion(i)) {
+          listener.onCongestionChanged(tileId, segments, i, previousCongestion);
+          changeCount++;
+        }
+      }
+    }
+
+    Arrays.sort(entries);
+    tiles.put(tileId, new TileSnapshot(fingerprint, entries));
+    return changeCount;
+  }
+
+  /**
+   * Forgets the snapshot of a tile, its next snapshot is a new baseline.
+   *
+   * @param tileId the id of the tile
+   * @return true if the tile had a snapshot
+   */
+  public boolean remove(long tileId) {
+    return tiles.remove(tileId) != null;
+  }
+
+  /**
+   * Forgets the snapshots of all tiles but the given ones, their next snapshots are new baselines.
+   *
+   * @param tileIds the ids of the tiles to keep
+   * @return the number of forgotten tiles
+   */
+  public int retain(@NonNull Collection<Long> tileIds) {
+    int size = tiles.size();
+    tiles.keySet().retainAll(tileIds);
+    return size - tiles.size();
+  }
+
+  /**
+   * Forgets the snapshots of all tiles.
+   */
+  public void clear() {
+    tiles.clear();
+  }
+
+  /**
+   * Returns the number of tiles with a snapshot.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return tiles.size();
+  }
+
+  private static long entry(long key, int congestion) {
+    return (key & ~CONGESTION_BITS) | congestion;
+  }
+
+  private static long mix(long hash, long value) {
+    for (int i = 0; i < 64; i += 8) {
+      hash = (hash ^ ((value >>> i) & 0xFF)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static long finalizeHash(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    return value;
+  }
+
+  private static final class TileSnapshot {
+
+    private final long fingerprint;
+    private final long[] entries;
+
+    TileSnapshot(long fingerprint, long[] entries) {
+      this.fingerprint = fingerprint;
+      this.entries = entries;
+    }
+
+    int getCongestion(long key) {
+      int index = Arrays.binarySearch(entries, key);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      if (index < entries.length && (entries[index] & ~CONGESTION_BITS) == key) {
+        return (int) (entries[index] & CONGESTION_BITS);
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Receives the segments whose congestion level changed.
+   */
+  public interface Listener {
+
+    /**
+     * Called for each segment whose congestion level changed since the previous snapshot of its tile.
+     *
+     * @param tileId             the id of the tile
+     * @param segments           the segments of the new snapshot
+     * @param segment            the index of the changed segment
+     * @param previousCongestion the previous congestion code
+     */
+    void onCongestionChanged(long tileId, @NonNull TrafficSegments segments, int segment, int previousCongestion);
+  }
+}
@@ -0,0 +1,294 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Monitors geofences for congestion as traffic tiles are updated.
+ * <p>
+ * Geofences are registered in a grid of {@link #INDEX_ZOOM} tiles covering their bounds. When a traffic tile is
+ * updated, only its congested segments are considered, and each is only tested against the geofences registered in
+ * the grid cells covering the segment. Geofences outside the updated tile are never visited.
+ * </p>
+ * <p>
+ * A geofence is congested while at least one tile has a congested segment intersecting it. The listener is notified
+ * on the callback executor when a geofence becomes congested or clear. Geofences and tiles are updated on a single
+ * background thread, the monitor isn't thread safe.
+ * </p>
+ */
+public final class CongestionGeofenceMonitor {
+
+  /**
+   * Zoom level of the grid cells geofences are registered in.
+   */
+  public static final int INDEX_ZOOM = 14;
+
+  private static final Geofence[] NO_GEOFENCES = new Geofence[0];
+
+  private final Executor callbackExecutor;
+  private final Listener listener;
+  private final Map<Long, List<Geofence>> cells = new HashMap<>();
+  private final Map<Long, Geofence[]> congestedTiles = new HashMap<>();
+  private final List<Geofence> hits = new ArrayList<>();
+  private int minCongestion = TrafficCodes.CONGESTION_SEVERE;
+  private int geofenceCount;
+  private int stamp;
+
+  /**
+   * Create a geofence monitor.
+   *
+   * @param callbackExecutor the executor to notify the listener on
+   * @param listener         the listener to notify of congestion changes of geofences
+   */
+  public CongestionGeofenceMonitor(@NonNull Executor callbackExecutor, @NonNull Listener listener) {
+    this.callbackExecutor = callbackExecutor;
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the lowest congestion level considered congested, by default {@link TrafficCodes#CONGESTION_SEVERE}.
+   * Applies to subsequent tile updates.
+   *
+   * @param congestion the congestion code
+   */
+  public void setMinCongestion(int congestion) {
+    if (!TrafficCodes.isCongestion(congestion) || congestion == TrafficCodes.CONGESTION_UNKNOWN) {
+      throw new IllegalArgumentException("Invalid congestion code " + congestion);
+    }
+    this.minCongestion = congestion;
+  }
+
+  /**
+   * Adds a geofence. A geofence can only be added to one monitor.
+   *
+   * @param geofence the geofence to add
+   */
+  @WorkerThread
+  public void add(@NonNull Geofence geofence) {
+    if (geofence.monitored) {
+      throw new IllegalStateException("Geofence " + geofence.getId() + " is already monitored");
+    }
+
+    geofence.monitored = true;
+    geofence.congestedTileCount = 0;
+    int minX = cellX(geofence.west);
+    int maxX = cellX(geofence.east);
+    int minY = cellY(geofence.north);
+    int maxY = cellY(geofence.south);
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        long cell = TileIds.pack(INDEX_ZOOM, x, y);
+        List<Geofence> geofences = cells.get(cell);
+        if (geofences == null) {
+          geofences = new ArrayList<>(4);
+          cells.put(cell, geofences);
+        }
+        geofences.add(geofence);
+      }
+    }
+    geofenceCount++;
+  }
+
+  /**
+   * Removes a geofence, the listener isn't notified of it anymore. Removing a geofence visits all congested tiles.
+   *
+   * @param geofence the geofence to remove
+   * @return true if the geofence was monitored
+   */
+  @WorkerThread
+  public boolean remove(@NonNull Geofence geofence) {
+    if (!geofence.monitored) {
+      return false;
+    }
+
+    geofence.monitored = false;
+    for (int x = cellX(geofence.west); x <= cellX(geofence.east); x++) {
+      for (int y = cellY(geofence.north); y <= cellY(geofence.south); y++) {
+        long cell = TileIds.pack(INDEX_ZOOM, x, y);
+        List<Geofence> geofences = cells.get(cell);
+        if (geofences != null && geofences.remove(geofence) && geofences.isEmpty()) {
+          cells.remove(cell);
+        }
+      }
+    }
+    geofenceCount--;
+
+    // forget the tiles congesting the geofence, in case it's added again
+    for (Map.Entry<Long, Geofence[]> tile : congestedTiles.entrySet()) {
+      tile.setValue(without(tile.getValue(), geofence));
+    }
+    geofence.congestedTileCount = 0;
+    return true;
+  }
+
+  /**
+   * Returns the number of monitored geofences.
+   *
+   * @return the number of geofences
+   */
+  public int getGeofenceCount() {
+    return geofenceCount;
+  }
+
+  /**
+   * Returns true if a monitored geofence is congested.
+   *
+   * @param geofence the geofence
+   * @return true if a congested segment intersects the geofence
+   */
+  public boolean isCongested(@NonNull Geofence geofence) {
+    return geofence.monitored && geofence.congestedTileCount > 0;
+  }
+
+  /**
+   * Updates the segments of a tile, notifying the listener of geofences that became congested or clear.
+   *
+   * @param tileId   the id of the tile
+   * @param segments all segments of the tile
+   */
+  @WorkerThread
+  public void update(long tileId, @NonNull TrafficSegments segments) {
+    int current = ++stamp;
+    hits.clear();
+    double[] coordinates = segments.getCoordinates();
+    for (int i = 0; i < segments.size(); i++) {
+      int congestion = segments.getCongestion(i);
+      if (congestion < minCongestion || congestion == TrafficCodes.CONGESTION_UNKNOWN) {
+        continue;
+      }
+      collectHits(coordinates, segments.getPointOffset(i) * 2, segments.getPointCount(i), current);
+    }
+
+    Geofence[] congested = hits.isEmpty() ? NO_GEOFENCES : hits.toArray(new Geofence[hits.size()]);
+    Geofence[] previous = congested.length > 0 ? congestedTiles.put(tileId, congested)
+      : congestedTiles.remove(tileId);
+    applyChanges(previous, congested, current);
+  }
+
+  /**
+   * Removes a tile, for example because its traffic data expired. Geofences only congested by this tile become clear.
+   *
+   * @param tileId the id of the tile
+   */
+  @WorkerThread
+  public void removeTile(long tileId) {
+    applyChanges(congestedTiles.remove(tileId), NO_GEOFENCES, ++stamp);
+  }
+
+  private void collectHits(double[] coordinates, int offset, int pointCount, int current) {
+    double west = Double.MAX_VALUE;
+    double south = Double.MAX_VALUE;
+    double east = -Double.MAX_VALUE;
+    double north = -Double.MAX_VALUE;
+    for (int i = offset; i < offset + pointCount * 2; i += 2) {
+      west = Math.min(west, coordinates[i]);
+      south = Math.min(south, coordinates[i + 1]);
+      east = Math.max(east, coordinates[i]);
+      north = Math.max(north, coordinates[i + 1]);
+    }
+
+    int maxX = cellX(east);
+    int maxY = cellY(south);
+    for (int x = cellX(west); x <= maxX; x++) {
+      for (int y = cellY(north); y <= maxY; y++) {
+        List<Geofence> geofences = cells.get(TileIds.pack(INDEX_ZOOM, x, y));
+        if (geofences == null) {
+          continue;
+        }
+        for (int i = 0; i < geofences.size(); i++) {
+          Geofence geofence = geofences.get(i);
+          if (geofence.mark != current
+            && geofence.west <= east && geofence.east >= west && geofence.south <= north && geofence.north >= south
+            && geofence.intersects(coordinates, offset, pointCount)) {
+            geofence.mark = current;
+            hits.add(geofence);
+          }
+        }
+      }
+    }
+  }
+
+  private void applyChanges(Geofence[] previous, Geofence[] congested, int current) {
+    if (previous != null) {
+      for (Geofence geofence : previous) {
+        geofence.previousMark = current;
+        if (geofence.mark != current && --geofence.congestedTileCount == 0) {
+          notifyCleared(geofence);
+        }
+      }
+    }
+
+    for (Geofence geofence : congested) {
+      if (geofence.previousMark != current && geofence.congestedTileCount++ == 0) {
+        notifyCongested(geofence);
+      }
+    }
+  }
+
+  private void notifyCongested(final Geofence geofence) {
+    callbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        listener.onCongestionEntered(geofence);
+      }
+    });
+  }
+
+  private void notifyCleared(final Geofence geofence) {
+    callbackExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        listener.onCongestionCleared(geofence);
+      }
+    });
+  }
+
+  private static Geofence[] without(Geofence[] geofences, Geofence geofence) {
+    for (int i = 0; i < geofences.length; i++) {
+      if (geofences[i] == geofence) {
+        Geofence[] remaining = new Geofence[geofences.length - 1];
+        System.arraycopy(geofences, 0, remaining, 0, i);
+        System.arraycopy(geofences, i + 1, remaining, i, remaining.length - i);
+        return remaining;
+      }
+    }
+    return geofences;
+  }
+
+  private static int cellX(double longitude) {
+    int max = (1 << INDEX_ZOOM) - 1;
+    return Math.max(0, Math.min(max, (int) Math.floor(TileIds.toTileX(INDEX_ZOOM, longitude))));
+  }
+
+  private static int cellY(double latitude) {
+    int max = (1 << INDEX_ZOOM) - 1;
+    double clamped = Math.max(-85.0511, Math.min(85.0511, latitude));
+    return Math.max(0, Math.min(max, (int) Math.floor(TileIds.toTileY(INDEX_ZOOM, clamped))));
+  }
+
+  /**
+   * Receives congestion changes of geofences.
+   */
+  public interface Listener {
+
+    /**
+     * Called on the callback executor when congestion appeared inside a geofence.
+     *
+     * @param geofence the geofence
+     */
+    void onCongestionEntered(@NonNull Geofence geofence);
+
+    /**
+     * Called on the callback executor when the congestion inside a geofence cleared.
+     *
+     * @param geofence the geofence
+     */
+    void onCongestionCleared(@NonNull Geofence geofence);
+  }
+}
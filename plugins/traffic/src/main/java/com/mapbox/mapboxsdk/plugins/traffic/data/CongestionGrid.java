@@ -0,0 +1,209 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Coarse grid of congestion scores, aggregating traffic segments for overviews at low zoom levels.
+ * <p>
+ * Cells are the tiles of the cell zoom level. Each segment is attributed to the cell of its first position, weighted by
+ * its length. The score of a cell is the length weighted mean congestion, from 0 for low to 3 for severe congestion.
+ * Segments of unknown congestion are ignored. A grid isn't thread safe, use one grid per thread and
+ * {@link #merge(CongestionGrid)} the results.
+ * </p>
+ */
+public final class CongestionGrid {
+
+  /**
+   * Default zoom level of the cells.
+   */
+  public static final int DEFAULT_CELL_ZOOM = 10;
+
+  private final int cellZoom;
+  private final Map<Long, Cell> cells = new HashMap<>();
+
+  /**
+   * Create a grid with cells of {@link #DEFAULT_CELL_ZOOM}.
+   */
+  public CongestionGrid() {
+    this(DEFAULT_CELL_ZOOM);
+  }
+
+  /**
+   * Create a grid.
+   *
+   * @param cellZoom the zoom level of the tiles used as cells
+   */
+  public CongestionGrid(int cellZoom) {
+    if (cellZoom < 0 || cellZoom > 20) {
+      throw new IllegalArgumentException("Cell zoom must be between 0 and 20, was " + cellZoom);
+    }
+    this.cellZoom = cellZoom;
+  }
+
+  /**
+   * Returns the zoom level of the cells.
+   *
+   * @return the cell zoom level
+   */
+  public int getCellZoom() {
+    return cellZoom;
+  }
+
+  /**
+   * Adds segments to the grid.
+   *
+   * @param segments the segments to add
+   */
+  public void add(@NonNull TrafficSegments segments) {
+    double[] coordinates = segments.getCoordinates();
+    for (int i = 0; i < segments.size(); i++) {
+      int offset = segments.getPointOffset(i) * 2;
+      add(segments.getCongestion(i), coordinates[offset], coordinates[offset + 1],
+        GeoMath.length(coordinates, offset, segments.getPointCount(i)));
+    }
+  }
+
+  /**
+   * Adds a segment to the grid.
+   *
+   * @param congestion the congestion code
+   * @param longitude  the longitude of the first position
+   * @param latitude   the latitude of the first position
+   * @param length     the length of the segment in meters
+   */
+  public void add(int congestion, double longitude, double latitude, double length) {
+    if (congestion == TrafficCodes.CONGESTION_UNKNOWN || length <= 0) {
+      return;
+    }
+    long cellId = TileIds.fromPosition(longitude, clampLatitude(latitude), cellZoom);
+    getOrCreateCell(cellId).add(congestion * length, length);
+  }
+
+  /**
+   * Adds the segments aggregated by another grid with the same cell zoom level.
+   *
+   * @param other the grid to merge
+   */
+  public void merge(@NonNull CongestionGrid other) {
+    if (other.cellZoom != cellZoom) {
+      throw new IllegalArgumentException("Cell zoom " + other.cellZoom + " doesn't match " + cellZoom);
+    }
+    for (Map.Entry<Long, Cell> entry : other.cells.entrySet()) {
+      getOrCreateCell(entry.getKey()).add(entry.getValue().weightedLength, entry.getValue().length);
+    }
+  }
+
+  /**
+   * Removes all cells.
+   */
+  public void clear() {
+    cells.clear();
+  }
+
+  /**
+   * Returns the number of cells with segments.
+   *
+   * @return the number of cells
+   */
+  public int size() {
+    return cells.size();
+  }
+
+  /**
+   * Returns the congestion score of a cell.
+   *
+   * @param cellId the tile id of the cell, see {@link TileIds}
+   * @return the score from 0 to 3, NaN if the cell has no segments
+   */
+  public double getScore(long cellId) {
+    Cell cell = cells.get(cellId);
+    return cell != null ? cell.weightedLength / cell.length : Double.NaN;
+  }
+
+  /**
+   * Returns the congestion code nearest to the score of a cell.
+   *
+   * @param cellId the tile id of the cell, see {@link TileIds}
+   * @return the congestion code, {@link TrafficCodes#CONGESTION_UNKNOWN} if the cell has no segments
+   */
+  public int getCongestion(long cellId) {
+    double score = getScore(cellId);
+    return Double.isNaN(score) ? TrafficCodes.CONGESTION_UNKNOWN : (int) Math.round(score);
+  }
+
+  /**
+   * Writes the cells as a GeoJSON feature collection of polygons.
+   * <p>
+   * Each feature has a {@code score} property and a {@code congestion} property with the name of the congestion
+   * level nearest to the score, like traffic features.
+   * </p>
+   *
+   * @param out the builder to append the GeoJSON to
+   */
+  public void writeGeoJson(@NonNull StringBuilder out) {
+    out.append("{\"type\":\"FeatureCollection\",\"features\":[");
+    boolean first = true;
+    for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+      long cellId = entry.getKey();
+      int x = TileIds.getX(cellId);
+      int y = TileIds.getY(cellId);
+      double west = TileIds.toLongitude(cellZoom, x);
+      double east = TileIds.toLongitude(cellZoom, x + 1);
+      double north = TileIds.toLatitude(cellZoom, y);
+      double south = TileIds.toLatitude(cellZoom, y + 1);
+      double score = entry.getValue().weightedLength / entry.getValue().length;
+
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      out.append("{\"type\":\"Feature\",\"properties\":{\"score\":")
+        .append(String.format(Locale.US, "%.3f", score))
+        .append(",\"congestion\":\"")
+        .append(TrafficCodes.getCongestionName((int) Math.round(score)))
+        .append("\"},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+      appendPosition(out, west, south).append(',');
+      appendPosition(out, east, south).append(',');
+      appendPosition(out, east, north).append(',');
+      appendPosition(out, west, north).append(',');
+      appendPosition(out, west, south).append("]]}}");
+    }
+    out.append("]}");
+  }
+
+  private Cell getOrCreateCell(long cellId) {
+    Cell cell = cells.get(cellId);
+    if (cell == null) {
+      cell = new Cell();
+      cells.put(cellId, cell);
+    }
+    return cell;
+  }
+
+  private static StringBuilder appendPosition(StringBuilder out, double longitude, double latitude) {
+    return out.append('[')
+      .append(String.format(Locale.US, "%.6f", longitude))
+      .append(',')
+      .append(String.format(Locale.US, "%.6f", latitude))
+      .append(']');
+  }
+
+  private static double clampLatitude(double latitude) {
+    return Math.max(-85.0511, Math.min(85.0511, latitude));
+  }
+
+  private static final class Cell {
+
+    private double weightedLength;
+    private double length;
+
+    void add(double weightedLength, double length) {
+      this.weightedLength += weightedLength;
+      this.length += length;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+/**
+ * Stretch of a route with a single congestion level.
+ */
+public final class CongestionInterval {
+
+  private final double startDistance;
+  private final double endDistance;
+  private final int congestion;
+
+  /**
+   * Create a congestion interval.
+   *
+   * @param startDistance the distance along the route where the interval starts, in meters
+   * @param endDistance   the distance along the route where the interval ends, in meters
+   * @param congestion    the congestion code
+   */
+  public CongestionInterval(double startDistance, double endDistance, int congestion) {
+    this.startDistance = startDistance;
+    this.endDistance = endDistance;
+    this.congestion = congestion;
+  }
+
+  /**
+   * Returns the distance along the route where the interval starts.
+   *
+   * @return the distance in meters
+   */
+  public double getStartDistance() {
+    return startDistance;
+  }
+
+  /**
+   * Returns the distance along the route where the interval ends.
+   *
+   * @return the distance in meters
+   */
+  public double getEndDistance() {
+    return endDistance;
+  }
+
+  /**
+   * Returns the congestion along the interval.
+   *
+   * @return the congestion code, {@link TrafficCodes#CONGESTION_UNKNOWN} if the route isn't covered by traffic data
+   */
+  public int getCongestion() {
+    return congestion;
+  }
+
+  @Override
+  public String toString() {
+    return "CongestionInterval{" + startDistance + "-" + endDistance + ", congestion=" + congestion + "}";
+  }
+}
@@ -0,0 +1,117 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Immutable summary of the traffic segments in an area, per road class and congestion level.
+ * <p>
+ * Road classes and congestion levels are identified by the codes of {@link TrafficCodes}. Segment counts are the
+ * number of traffic features, lengths are the total length of their geometry in meters.
+ * </p>
+ */
+public final class CongestionSummary {
+
+  /**
+   * Summary without any segments.
+   */
+  public static final CongestionSummary EMPTY = new CongestionSummary(
+    new int[TrafficCodes.CLASS_COUNT * TrafficCodes.CONGESTION_COUNT],
+    new double[TrafficCodes.CLASS_COUNT * TrafficCodes.CONGESTION_COUNT]);
+
+  private final int[] counts;
+  private final double[] lengths;
+
+  /**
+   * Create a congestion summary, taking ownership of the arrays.
+   *
+   * @param counts  the segment counts, indexed by road class times congestion count plus congestion
+   * @param lengths the segment lengths, indexed like the counts
+   */
+  CongestionSummary(@NonNull int[] counts, @NonNull double[] lengths) {
+    this.counts = counts;
+    this.lengths = lengths;
+  }
+
+  /**
+   * Returns the number of segments with a congestion level.
+   *
+   * @param congestion the congestion code
+   * @return the number of segments
+   */
+  public int getSegmentCount(int congestion) {
+    int count = 0;
+    for (int roadClass = 0; roadClass < TrafficCodes.CLASS_COUNT; roadClass++) {
+      count += counts[index(roadClass, congestion)];
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of segments of a road class with a congestion level.
+   *
+   * @param roadClass  the road class code
+   * @param congestion the congestion code
+   * @return the number of segments
+   */
+  public int getSegmentCount(int roadClass, int congestion) {
+    return counts[index(roadClass, congestion)];
+  }
+
+  /**
+   * Returns the total number of segments.
+   *
+   * @return the number of segments
+   */
+  public int getSegmentCount() {
+    int count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      count += counts[i];
+    }
+    return count;
+  }
+
+  /**
+   * Returns the length of the segments with a congestion level.
+   *
+   * @param congestion the congestion code
+   * @return the length in meters
+   */
+  public double getLength(int congestion) {
+    double length = 0;
+    for (int roadClass = 0; roadClass < TrafficCodes.CLASS_COUNT; roadClass++) {
+      length += lengths[index(roadClass, congestion)];
+    }
+    return length;
+  }
+
+  /**
+   * Returns the length of the segments of a road class with a congestion level.
+   *
+   * @param roadClass  the road class code
+   * @param congestion the congestion code
+   * @return the length in meters
+   */
+  public double getLength(int roadClass, int congestion) {
+    return lengths[index(roadClass, congestion)];
+  }
+
+  /**
+   * Returns the total length of the segments.
+   *
+   * @return the length in meters
+   */
+  public double getLength() {
+    double length = 0;
+    for (int i = 0; i < lengths.length; i++) {
+      length += lengths[i];
+    }
+    return length;
+  }
+
+  static int index(int roadClass, int congestion) {
+    if (!TrafficCodes.isRoadClass(roadClass) || !TrafficCodes.isCongestion(congestion)) {
+      throw new IllegalArgumentException("Invalid road class " + roadClass + " or congestion " + congestion);
+    }
+    return roadClass * TrafficCodes.CONGESTION_COUNT + congestion;
+  }
+}
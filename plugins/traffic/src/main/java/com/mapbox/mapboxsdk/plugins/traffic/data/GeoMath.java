@@ -0,0 +1,51 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+/**
+ * Spherical geometry helpers operating on longitude and latitude in degrees.
+ */
+public final class GeoMath {
+
+  /**
+   * Mean radius of the earth in meters.
+   */
+  public static final double EARTH_RADIUS = 6371008.8;
+
+  private GeoMath() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Returns the great circle distance between two positions, using the haversine formula.
+   *
+   * @param longitude1 the longitude of the first position
+   * @param latitude1  the latitude of the first position
+   * @param longitude2 the longitude of the second position
+   * @param latitude2  the latitude of the second position
+   * @return the distance in meters
+   */
+  public static double distance(double longitude1, double latitude1, double longitude2, double latitude2) {
+    double lat1 = Math.toRadians(latitude1);
+    double lat2 = Math.toRadians(latitude2);
+    double sinLat = Math.sin((lat2 - lat1) / 2);
+    double sinLon = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+    double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  /**
+   * Returns the length of a line.
+   *
+   * @param coordinates the interleaved longitude and latitude values
+   * @param offset      the index of the longitude of the first position
+   * @param pointCount  the number of positions of the line
+   * @return the length in meters
+   */
+  public static double length(double[] coordinates, int offset, int pointCount) {
+    double length = 0;
+    int end = offset + pointCount * 2;
+    for (int i = offset + 2; i < end; i += 2) {
+      length += distance(coordinates[i - 2], coordinates[i - 1], coordinates[i], coordinates[i + 1]);
+    }
+    return length;
+  }
+}
@@ -0,0 +1,182 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Area monitored for congestion by {@link CongestionGeofenceMonitor}, either a circle or a polygon.
+ */
+public final class Geofence {
+
+  private final String id;
+  private final double[] ring;
+  private final double centerLongitude;
+  private final double centerLatitude;
+  private final double radius;
+  final double west;
+  final double south;
+  final double east;
+  final double north;
+
+  // state of the monitor the geofence was added to, only accessed by that monitor
+  int congestedTileCount;
+  int mark;
+  int previousMark;
+  boolean monitored;
+
+  private Geofence(String id, double[] ring, double centerLongitude, double centerLatitude, double radius,
+                   double west, double south, double east, double north) {
+    this.id = id;
+    this.ring = ring;
+    this.centerLongitude = centerLongitude;
+    this.centerLatitude = centerLatitude;
+    this.radius = radius;
+    this.west = west;
+    this.south = south;
+    this.east = east;
+    this.north = north;
+  }
+
+  /**
+   * Creates a circular geofence.
+   *
+   * @param id        the id of the geofence
+   * @param longitude the longitude of the center
+   * @param latitude  the latitude of the center
+   * @param radius    the radius in meters
+   * @return the geofence
+   */
+  @NonNull
+  public static Geofence circle(@NonNull String id, double longitude, double latitude, double radius) {
+    if (radius <= 0) {
+      throw new IllegalArgumentException("Radius must be positive, was " + radius);
+    }
+    double deltaLatitude = radius / TrafficSegmentIndex.METERS_PER_DEGREE;
+    double deltaLongitude = deltaLatitude / Math.max(Math.cos(Math.toRadians(latitude)), 1e-6);
+    return new Geofence(id, null, longitude, latitude, radius, longitude - deltaLongitude,
+      latitude - deltaLatitude, longitude + deltaLongitude, latitude + deltaLatitude);
+  }
+
+  /**
+   * Creates a polygonal geofence.
+   *
+   * @param id   the id of the geofence
+   * @param ring the interleaved longitude and latitude values of the outer ring, closing it is optional
+   * @return the geofence
+   */
+  @NonNull
+  public static Geofence polygon(@NonNull String id, @NonNull double[] ring) {
+    if (ring.length < 6 || ring.length % 2 != 0) {
+      throw new IllegalArgumentException("A ring needs at least 3 positions, was " + ring.length / 2.0);
+    }
+    double west = Double.MAX_VALUE;
+    double south = Double.MAX_VALUE;
+    double east = -Double.MAX_VALUE;
+    double north = -Double.MAX_VALUE;
+    for (int i = 0; i < ring.length; i += 2) {
+      west = Math.min(west, ring[i]);
+      south = Math.min(south, ring[i + 1]);
+      east = Math.max(east, ring[i]);
+      north = Math.max(north, ring[i + 1]);
+    }
+    return new Geofence(id, ring.clone(), Double.NaN, Double.NaN, 0, west, south, east, north);
+  }
+
+  /**
+   * Returns the id of the geofence.
+   *
+   * @return the id
+   */
+  @NonNull
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns true if a line intersects the geofence.
+   *
+   * @param coordinates the interleaved longitude and latitude values
+   * @param offset      the index of the longitude of the first position
+   * @param pointCount  the number of positions
+   * @return true if the line intersects
+   */
+  boolean intersects(double[] coordinates, int offset, int pointCount) {
+    return ring != null ? intersectsPolygon(coordinates, offset, pointCount)
+      : intersectsCircle(coordinates, offset, pointCount);
+  }
+
+  private boolean intersectsCircle(double[] coordinates, int offset, int pointCount) {
+    // local planar projection in meters around the center
+    double scaleX = TrafficSegmentIndex.METERS_PER_DEGREE * Math.cos(Math.toRadians(centerLatitude));
+    double scaleY = TrafficSegmentIndex.METERS_PER_DEGREE;
+    double radiusSquared = radius * radius;
+    double previousX = (coordinates[offset] - centerLongitude) * scaleX;
+    double previousY = (coordinates[offset + 1] - centerLatitude) * scaleY;
+    if (previousX * previousX + previousY * previousY <= radiusSquared) {
+      return true;
+    }
+
+    for (int i = 1; i < pointCount; i++) {
+      double x = (coordinates[offset + i * 2] - centerLongitude) * scaleX;
+      double y = (coordinates[offset + i * 2 + 1] - centerLatitude) * scaleY;
+      double deltaX = x - previousX;
+      double deltaY = y - previousY;
+      double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+      double t = lengthSquared > 0 ? -(previousX * deltaX + previousY * deltaY) / lengthSquared : 0;
+      t = Math.max(0, Math.min(1, t));
+      double nearestX = previousX + t * deltaX;
+      double nearestY = previousY + t * deltaY;
+      if (nearestX * nearestX + nearestY * nearestY <= radiusSquared) {
+        return true;
+      }
+      previousX = x;
+      previousY = y;
+    }
+    return false;
+  }
+
+  private boolean intersectsPolygon(double[] coordinates, int offset, int pointCount) {
+    for (int i = 0; i < pointCount; i++) {
+      if (containsPoint(coordinates[offset + i * 2], coordinates[offset + i * 2 + 1])) {
+        return true;
+      }
+    }
+
+    for (int i = 1; i < pointCount; i++) {
+      int start = offset + (i - 1) * 2;
+      for (int j = 0; j < ring.length; j += 2) {
+        int next = (j + 2) % ring.length;
+        if (segmentsIntersect(coordinates[start], coordinates[start + 1], coordinates[start + 2],
+          coordinates[start + 3], ring[j], ring[j + 1], ring[next], ring[next + 1])) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean containsPoint(double longitude, double latitude) {
+    boolean inside = false;
+    int j = ring.length - 2;
+    for (int i = 0; i < ring.length; i += 2) {
+      if ((ring[i + 1] > latitude) != (ring[j + 1] > latitude)
+        && longitude < (ring[j] - ring[i]) * (latitude - ring[i + 1]) / (ring[j + 1] - ring[i + 1]) + ring[i]) {
+        inside = !inside;
+      }
+      j = i;
+    }
+    return inside;
+  }
+
+  private static boolean segmentsIntersect(double ax, double ay, double bx, double by,
+                                           double cx, double cy, double dx, double dy) {
+    double d1 = cross(cx, cy, dx, dy, ax, ay);
+    double d2 = cross(cx, cy, dx, dy, bx, by);
+    double d3 = cross(ax, ay, bx, by, cx, cy);
+    double d4 = cross(ax, ay, bx, by, dx, dy);
+    return ((d1 > 0) != (d2 > 0)) && ((d3 > 0) != (d4 > 0));
+  }
+
+  private static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+    return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+  }
+}
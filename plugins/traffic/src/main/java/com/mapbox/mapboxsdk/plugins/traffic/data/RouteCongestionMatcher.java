@@ -0,0 +1,169 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches a route polyline against a {@link TrafficSegmentIndex} and reports the congestion along the route.
+ * <p>
+ * The route is sampled at a spacing equal to the distance tolerance. Each sample is matched to the nearest traffic
+ * segment within the tolerance whose direction differs less than the maximum heading difference from the route.
+ * Consecutive samples with the same congestion form a {@link CongestionInterval}.
+ * </p>
+ * <p>
+ * Match results are retained per sample. When the traffic of a tile is refreshed, {@link #onTileUpdated(long)}
+ * re-matches only the samples near that tile. A matcher isn't thread safe.
+ * </p>
+ */
+public final class RouteCongestionMatcher {
+
+  private final TrafficSegmentIndex index;
+  private final double tolerance;
+  private final double maxHeadingDelta;
+  private final double routeLength;
+  private final double[] sampleLongitudes;
+  private final double[] sampleLatitudes;
+  private final double[] sampleHeadings;
+  private final double[] sampleDistances;
+  private final int[] sampleCongestions;
+  private final long[] sampleTiles;
+  private final TrafficSegmentIndex.Match match = new TrafficSegmentIndex.Match();
+  private final double[] bounds = new double[4];
+
+  /**
+   * Create a route matcher and match the complete route.
+   *
+   * @param index           the index of the traffic segments
+   * @param route           the interleaved longitude and latitude values of the route
+   * @param pointCount      the number of positions of the route
+   * @param tolerance       the maximum distance between the route and a traffic segment in meters
+   * @param maxHeadingDelta the maximum difference between the route and traffic segment direction in degrees
+   */
+  public RouteCongestionMatcher(@NonNull TrafficSegmentIndex index, @NonNull double[] route, int pointCount,
+                                double tolerance, double maxHeadingDelta) {
+    if (pointCount < 2 || tolerance <= 0) {
+      throw new IllegalArgumentException("A route requires at least 2 positions and a positive tolerance");
+    }
+
+    this.index = index;
+    this.tolerance = tolerance;
+    this.maxHeadingDelta = maxHeadingDelta;
+
+    int sampleCount = 0;
+    for (int i = 1; i < pointCount; i++) {
+      sampleCount += getSampleCount(route, i);
+    }
+    sampleLongitudes = new double[sampleCount];
+    sampleLatitudes = new double[sampleCount];
+    sampleHeadings = new double[sampleCount];
+    sampleDistances = new double[sampleCount];
+    sampleCongestions = new int[sampleCount];
+    sampleTiles = new long[sampleCount];
+
+    int sample = 0;
+    double distance = 0;
+    for (int i = 1; i < pointCount; i++) {
+      double fromLongitude = route[i * 2 - 2];
+      double fromLatitude = route[i * 2 - 1];
+      double toLongitude = route[i * 2];
+      double toLatitude = route[i * 2 + 1];
+      double length = GeoMath.distance(fromLongitude, fromLatitude, toLongitude, toLatitude);
+      double heading = TrafficSegmentIndex.heading(
+        (toLongitude - fromLongitude) * Math.cos(Math.toRadians(fromLatitude)), toLatitude - fromLatitude);
+      int edgeSamples = getSampleCount(route, i);
+      for (int j = 0; j < edgeSamples; j++) {
+        double fraction = (j + 0.5) / edgeSamples;
+        sampleLongitudes[sample] = fromLongitude + fraction * (toLongitude - fromLongitude);
+        sampleLatitudes[sample] = fromLatitude + fraction * (toLatitude - fromLatitude);
+        sampleHeadings[sample] = heading;
+        sampleDistances[sample] = distance + fraction * length;
+        sample++;
+      }
+      distance += length;
+    }
+    routeLength = distance;
+
+    for (int i = 0; i < sampleCount; i++) {
+      matchSample(i);
+    }
+  }
+
+  private int getSampleCount(double[] route, int point) {
+    double length = GeoMath.distance(route[point * 2 - 2], route[point * 2 - 1], route[point * 2],
+      route[point * 2 + 1]);
+    return Math.max(1, (int) Math.ceil(length / tolerance));
+  }
+
+  /**
+   * Re-matches the samples affected by an update or removal of the traffic of a tile.
+   * <p>
+   * Call this method after updating the tile in the index. Only samples previously matched to the tile, or within
+   * the tolerance of its new extent, are matched again.
+   * </p>
+   *
+   * @param tileId the id of the updated tile
+   * @return true if the congestion of any sample changed
+   */
+  public boolean onTileUpdated(long tileId) {
+    boolean hasBounds = index.getBounds(tileId, bounds);
+    double deltaLatitude = tolerance / TrafficSegmentIndex.METERS_PER_DEGREE;
+    boolean changed = false;
+    for (int i = 0; i < sampleTiles.length; i++) {
+      if (sampleTiles[i] == tileId || (hasBounds && isNear(i, deltaLatitude))) {
+        int congestion = sampleCongestions[i];
+        matchSample(i);
+        changed |= congestion != sampleCongestions[i];
+      }
+    }
+    return changed;
+  }
+
+  private boolean isNear(int sample, double deltaLatitude) {
+    double latitude = sampleLatitudes[sample];
+    double deltaLongitude = deltaLatitude / Math.max(Math.cos(Math.toRadians(latitude)), 1e-6);
+    double longitude = sampleLongitudes[sample];
+    return longitude + deltaLongitude >= bounds[0] && longitude - deltaLongitude <= bounds[2]
+      && latitude + deltaLatitude >= bounds[1] && latitude - deltaLatitude <= bounds[3];
+  }
+
+  private void matchSample(int sample) {
+    index.findNearest(sampleLongitudes[sample], sampleLatitudes[sample], sampleHeadings[sample], tolerance,
+      maxHeadingDelta, match);
+    sampleCongestions[sample] = match.getCongestion();
+    sampleTiles[sample] = match.getTileId();
+  }
+
+  /**
+   * Returns the length of the route.
+   *
+   * @return the length in meters
+   */
+  public double getRouteLength() {
+    return routeLength;
+  }
+
+  /**
+   * Returns the congestion intervals covering the route from start to end.
+   * <p>
+   * Stretches without matching traffic segments have {@link TrafficCodes#CONGESTION_UNKNOWN} congestion.
+   * </p>
+   *
+   * @return the immutable list of intervals, ordered along the route
+   */
+  @NonNull
+  public List<CongestionInterval> getIntervals() {
+    List<CongestionInterval> intervals = new ArrayList<>();
+    double start = 0;
+    for (int i = 1; i <= sampleCongestions.length; i++) {
+      if (i == sampleCongestions.length || sampleCongestions[i] != sampleCongestions[i - 1]) {
+        double end = i == sampleCongestions.length ? routeLength : (sampleDistances[i - 1] + sampleDistances[i]) / 2;
+        intervals.add(new CongestionInterval(start, end, sampleCongestions[i - 1]));
+        start = end;
+      }
+    }
+    return Collections.unmodifiableList(intervals);
+  }
+}
@@ -0,0 +1,121 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+/**
+ * Packs tile coordinates into a single long and converts tile coordinates to positions.
+ * <p>
+ * A tile id holds the zoom level in the upper 6 bits and the x and y tile coordinates in 29 bits each, which covers
+ * all tiles up to zoom level 29. Tiles follow the XYZ scheme, y increases southwards.
+ * </p>
+ */
+public final class TileIds {
+
+  private static final int COORDINATE_BITS = 29;
+  private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+  private TileIds() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Returns the id of a tile.
+   *
+   * @param zoom the zoom level
+   * @param x    the x coordinate of the tile
+   * @param y    the y coordinate of the tile
+   * @return the tile id
+   */
+  public static long pack(int zoom, int x, int y) {
+    return ((long) zoom << (COORDINATE_BITS * 2)) | ((long) x << COORDINATE_BITS) | y;
+  }
+
+  /**
+   * Returns the zoom level of a tile.
+   *
+   * @param tileId the tile id
+   * @return the zoom level
+   */
+  public static int getZoom(long tileId) {
+    return (int) (tileId >>> (COORDINATE_BITS * 2));
+  }
+
+  /**
+   * Returns the x coordinate of a tile.
+   *
+   * @param tileId the tile id
+   * @return the x coordinate
+   */
+  public static int getX(long tileId) {
+    return (int) ((tileId >>> COORDINATE_BITS) & COORDINATE_MASK);
+  }
+
+  /**
+   * Returns the y coordinate of a tile.
+   *
+   * @param tileId the tile id
+   * @return the y coordinate
+   */
+  public static int getY(long tileId) {
+    return (int) (tileId & COORDINATE_MASK);
+  }
+
+  /**
+   * Returns the id of the tile containing a position.
+   *
+   * @param longitude the longitude of the position
+   * @param latitude  the latitude of the position
+   * @param zoom      the zoom level
+   * @return the tile id
+   */
+  public static long fromPosition(double longitude, double latitude, int zoom) {
+    int max = (1 << zoom) - 1;
+    int x = (int) Math.floor(toTileX(zoom, longitude));
+    int y = (int) Math.floor(toTileY(zoom, latitude));
+    return pack(zoom, Math.max(0, Math.min(max, x)), Math.max(0, Math.min(max, y)));
+  }
+
+  /**
+   * Returns the longitude of a fractional x tile coordinate.
+   *
+   * @param zoom the zoom level
+   * @param x    the x tile coordinate
+   * @return the longitude
+   */
+  public static double toLongitude(int zoom, double x) {
+    return x / (1L << zoom) * 360 - 180;
+  }
+
+  /**
+   * Returns the latitude of a fractional y tile coordinate.
+   *
+   * @param zoom the zoom level
+   * @param y    the y tile coordinate
+   * @return the latitude
+   */
+  public static double toLatitude(int zoom, double y) {
+    double n = Math.PI - 2 * Math.PI * y / (1L << zoom);
+    return Math.toDegrees(Math.atan(Math.sinh(n)));
+  }
+
+  /**
+   * Returns the fractional x tile coordinate of a longitude.
+   *
+   * @param zoom      the zoom level
+   * @param longitude the longitude
+   * @return the x tile coordinate
+   */
+  public static double toTileX(int zoom, double longitude) {
+    return (longitude + 180) / 360 * (1L << zoom);
+  }
+
+  /**
+   * Returns the fractional y tile coordinate of a latitude.
+   *
+   * @param zoom     the zoom level
+   * @param latitude the latitude
+   * @return the y tile coordinate
+   */
+  public static double toTileY(int zoom, double latitude) {
+    double radians = Math.toRadians(latitude);
+    return (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * (1L << zoom);
+  }
+}
@@ -0,0 +1,202 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Numeric codes of the road classes and congestion levels of Mapbox Traffic v1.
+ * <p>
+ * Traffic data is processed with these codes instead of the string values of the {@code class} and {@code congestion}
+ * feature properties, so it can be stored in primitive arrays.
+ * </p>
+ */
+public final class TrafficCodes {
+
+  /**
+   * Low congestion, traffic flows freely.
+   */
+  public static final int CONGESTION_LOW = 0;
+
+  /**
+   * Moderate congestion.
+   */
+  public static final int CONGESTION_MODERATE = 1;
+
+  /**
+   * Heavy congestion.
+   */
+  public static final int CONGESTION_HEAVY = 2;
+
+  /**
+   * Severe congestion.
+   */
+  public static final int CONGESTION_SEVERE = 3;
+
+  /**
+   * Missing or unrecognised congestion level.
+   */
+  public static final int CONGESTION_UNKNOWN = 4;
+
+  /**
+   * The number of congestion codes.
+   */
+  public static final int CONGESTION_COUNT = 5;
+
+  /**
+   * Motorway road class.
+   */
+  public static final int CLASS_MOTORWAY = 0;
+
+  /**
+   * Motorway link road class.
+   */
+  public static final int CLASS_MOTORWAY_LINK = 1;
+
+  /**
+   * Trunk road class.
+   */
+  public static final int CLASS_TRUNK = 2;
+
+  /**
+   * Primary road class.
+   */
+  public static final int CLASS_PRIMARY = 3;
+
+  /**
+   * Secondary road class.
+   */
+  public static final int CLASS_SECONDARY = 4;
+
+  /**
+   * Tertiary road class.
+   */
+  public static final int CLASS_TERTIARY = 5;
+
+  /**
+   * Street road class.
+   */
+  public static final int CLASS_STREET = 6;
+
+  /**
+   * Service road class.
+   */
+  public static final int CLASS_SERVICE = 7;
+
+  /**
+   * Missing or unrecognised road class.
+   */
+  public static final int CLASS_OTHER = 8;
+
+  /**
+   * The number of road class codes.
+   */
+  public static final int CLASS_COUNT = 9;
+
+  private static final String[] CONGESTION_NAMES = new String[] {"low", "moderate", "heavy", "severe", null};
+  private static final String[] CLASS_NAMES = new String[] {
+    "motorway", "motorway_link", "trunk", "primary", "secondary", "tertiary", "street", "service", null
+  };
+
+  private TrafficCodes() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Returns the code of a congestion property value.
+   *
+   * @param congestion the value of the congestion property
+   * @return the congestion code, {@link #CONGESTION_UNKNOWN} if not recognised
+   */
+  public static int getCongestion(@Nullable String congestion) {
+    if (congestion == null) {
+      return CONGESTION_UNKNOWN;
+    }
+
+    switch (congestion) {
+      case "low":
+        return CONGESTION_LOW;
+      case "moderate":
+        return CONGESTION_MODERATE;
+      case "heavy":
+        return CONGESTION_HEAVY;
+      case "severe":
+        return CONGESTION_SEVERE;
+      default:
+        return CONGESTION_UNKNOWN;
+    }
+  }
+
+  /**
+   * Returns the code of a road class property value.
+   *
+   * @param roadClass the value of the class property
+   * @return the road class code, {@link #CLASS_OTHER} if not recognised
+   */
+  public static int getRoadClass(@Nullable String roadClass) {
+    if (roadClass == null) {
+      return CLASS_OTHER;
+    }
+
+    switch (roadClass) {
+      case "motorway":
+        return CLASS_MOTORWAY;
+      case "motorway_link":
+        return CLASS_MOTORWAY_LINK;
+      case "trunk":
+        return CLASS_TRUNK;
+      case "primary":
+        return CLASS_PRIMARY;
+      case "secondary":
+        return CLASS_SECONDARY;
+      case "tertiary":
+        return CLASS_TERTIARY;
+      case "street":
+        return CLASS_STREET;
+      case "service":
+        return CLASS_SERVICE;
+      default:
+        return CLASS_OTHER;
+    }
+  }
+
+  /**
+   * Returns the property value of a congestion code.
+   *
+   * @param congestion the congestion code
+   * @return the congestion property value, null for {@link #CONGESTION_UNKNOWN}
+   */
+  @Nullable
+  public static String getCongestionName(int congestion) {
+    return CONGESTION_NAMES[congestion];
+  }
+
+  /**
+   * Returns the property value of a road class code.
+   *
+   * @param roadClass the road class code
+   * @return the class property value, null for {@link #CLASS_OTHER}
+   */
+  @Nullable
+  public static String getRoadClassName(int roadClass) {
+    return CLASS_NAMES[roadClass];
+  }
+
+  /**
+   * Returns true if a code is a valid congestion code.
+   *
+   * @param congestion the code to validate
+   * @return true if the code is valid
+   */
+  static boolean isCongestion(int congestion) {
+    return congestion >= 0 && congestion < CONGESTION_COUNT;
+  }
+
+  /**
+   * Returns true if a code is a valid road class code.
+   *
+   * @param roadClass the code to validate
+   * @return true if the code is valid
+   */
+  static boolean isRoadClass(int roadClass) {
+    return roadClass >= 0 && roadClass < CLASS_COUNT;
+  }
+}
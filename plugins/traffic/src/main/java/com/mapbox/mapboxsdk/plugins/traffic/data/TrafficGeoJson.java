@@ -0,0 +1,233 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming reader and writer of traffic segments as GeoJSON.
+ * <p>
+ * Traffic features are line features with {@code class} and {@code congestion} properties, like the features of
+ * Mapbox Traffic v1. Reading consumes one feature at a time, a feed is never held in memory as a tree. Features with
+ * an unknown road class or another geometry than a LineString or MultiLineString are skipped. Writing outputs only
+ * the traffic properties, so equal segments are written equally whatever other properties the feed had.
+ * </p>
+ */
+public final class TrafficGeoJson {
+
+  private TrafficGeoJson() {
+    // Class should not be initialized
+  }
+
+  /**
+   * Reads the line features of a GeoJSON feature collection.
+   *
+   * @param reader   the reader providing the GeoJSON
+   * @param segments the segments to append the features to
+   * @return the number of segments added
+   * @throws IOException if the GeoJSON can't be read or is malformed
+   */
+  public static int read(@NonNull Reader reader, @NonNull TrafficSegments segments) throws IOException {
+    try {
+      return readFeatureCollection(reader, segments);
+    } catch (IllegalStateException | NumberFormatException exception) {
+      throw new IOException("Unexpected GeoJSON structure", exception);
+    }
+  }
+
+  private static int readFeatureCollection(Reader reader, TrafficSegments segments) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    TrafficSegments lines = new TrafficSegments();
+    int size = segments.size();
+
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      if ("features".equals(jsonReader.nextName())) {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+          readFeature(jsonReader, lines, segments);
+        }
+        jsonReader.endArray();
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+    return segments.size() - size;
+  }
+
+  /**
+   * Writes segments as a GeoJSON feature collection of LineString features.
+   *
+   * @param segments the segments to write
+   * @param out      the builder to append the GeoJSON to
+   */
+  public static void write(@NonNull TrafficSegments segments, @NonNull StringBuilder out) {
+    out.append("{\"type\":\"FeatureCollection\",\"features\":[");
+    for (int i = 0; i < segments.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append("{\"type\":\"Feature\",\"properties\":{\"class\":\"")
+        .append(TrafficCodes.getRoadClassName(segments.getRoadClass(i)))
+        .append('"');
+      String congestion = TrafficCodes.getCongestionName(segments.getCongestion(i));
+      if (congestion != null) {
+        out.append(",\"congestion\":\"").append(congestion).append('"');
+      }
+      out.append("},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+      int offset = segments.getPointOffset(i);
+      for (int j = 0; j < segments.getPointCount(i); j++) {
+        if (j > 0) {
+          out.append(',');
+        }
+        out.append('[')
+          .append(segments.getLongitude(offset + j))
+          .append(',')
+          .append(segments.getLatitude(offset + j))
+          .append(']');
+      }
+      out.append("]}}");
+    }
+    out.append("]}");
+  }
+
+  /**
+   * Reads a feature, its lines are collected first as the properties may follow the geometry.
+   */
+  private static void readFeature(JsonReader jsonReader, TrafficSegments lines, TrafficSegments segments)
+    throws IOException {
+    int roadClass = TrafficCodes.CLASS_OTHER;
+    int congestion = TrafficCodes.CONGESTION_UNKNOWN;
+    lines.clear();
+
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("properties".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+          String property = jsonReader.nextName();
+          if ("class".equals(property) && jsonReader.peek() == JsonToken.STRING) {
+            roadClass = TrafficCodes.getRoadClass(jsonReader.nextString());
+          } else if ("congestion".equals(property) && jsonReader.peek() == JsonToken.STRING) {
+            congestion = TrafficCodes.getCongestion(jsonReader.nextString());
+          } else {
+            jsonReader.skipValue();
+          }
+        }
+        jsonReader.endObject();
+      } else if ("geometry".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+        readGeometry(jsonReader, lines);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+
+    if (roadClass == TrafficCodes.CLASS_OTHER) {
+      return;
+    }
+    double[] coordinates = lines.getCoordinates();
+    for (int i = 0; i < lines.size(); i++) {
+      segments.add(roadClass, congestion, coordinates, lines.getPointOffset(i) * 2, lines.getPointCount(i));
+    }
+  }
+
+  private static void readGeometry(JsonReader jsonReader, TrafficSegments lines) throws IOException {
+    String type = null;
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String name = jsonReader.nextName();
+      if ("type".equals(name) && jsonReader.peek() == JsonToken.STRING) {
+        type = jsonReader.nextString();
+      } else if ("coordinates".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        readCoordinates(jsonReader, lines);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+
+    if (!"LineString".equals(type) && !"MultiLineString".equals(type)) {
+      lines.clear();
+    }
+  }
+
+  /**
+   * Reads LineString or MultiLineString coordinates, told apart by their nesting as the type may follow them. Other
+   * geometries are read as lines too and discarded once their type is known.
+   */
+  private static void readCoordinates(JsonReader jsonReader, TrafficSegments lines) throws IOException {
+    int pointCount = 0;
+    jsonReader.beginArray();
+    while (jsonReader.hasNext()) {
+      if (jsonReader.peek() != JsonToken.BEGIN_ARRAY) {
+        jsonReader.skipValue();
+        continue;
+      }
+      jsonReader.beginArray();
+      if (jsonReader.hasNext() && jsonReader.peek() == JsonToken.NUMBER) {
+        pointCount += readPosition(jsonReader, lines);
+      } else {
+        readLine(jsonReader, lines);
+      }
+    }
+    jsonReader.endArray();
+    endLine(lines, pointCount);
+  }
+
+  private static void readLine(JsonReader jsonReader, TrafficSegments lines) throws IOException {
+    int pointCount = 0;
+    while (jsonReader.hasNext()) {
+      if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+        jsonReader.beginArray();
+        pointCount += readPosition(jsonReader, lines);
+      } else {
+        jsonReader.skipValue();
+      }
+    }
+    jsonReader.endArray();
+    endLine(lines, pointCount);
+  }
+
+  /**
+   * Reads the remainder of an opened position array.
+   *
+   * @return 1 if a position was added, 0 if the array isn't a position
+   */
+  private static int readPosition(JsonReader jsonReader, TrafficSegments lines) throws IOException {
+    if (jsonReader.peek() != JsonToken.NUMBER) {
+      // nested deeper than a MultiLineString, not a line geometry
+      while (jsonReader.hasNext()) {
+        jsonReader.skipValue();
+      }
+      jsonReader.endArray();
+      return 0;
+    }
+    double longitude = jsonReader.nextDouble();
+    double latitude = jsonReader.nextDouble();
+    while (jsonReader.hasNext()) {
+      // altitude
+      jsonReader.skipValue();
+    }
+    jsonReader.endArray();
+    lines.addPoint(longitude, latitude);
+    return 1;
+  }
+
+  /**
+   * Closes the open line, discarding it if it has less than 2 positions.
+   */
+  private static void endLine(TrafficSegments lines, int pointCount) {
+    if (pointCount < 2) {
+      lines.discardSegment();
+    } else {
+      lines.endSegment(TrafficCodes.CLASS_OTHER, TrafficCodes.CONGESTION_UNKNOWN);
+    }
+  }
+}
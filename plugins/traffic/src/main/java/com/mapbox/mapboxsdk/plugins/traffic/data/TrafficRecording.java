@@ -0,0 +1,469 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only log of traffic snapshots per tile, replayed through a memory mapped buffer.
+ * <p>
+ * Each snapshot of a tile is appended as a record with its timestamp. A keyframe record holds the complete segments
+ * of the tile, encoded like {@link TrafficSegmentStore} blocks. When the geometry of a tile didn't change since its
+ * last keyframe, which is the common case between traffic refreshes, only a delta record with the congestion codes is
+ * written, referencing the keyframe. A new keyframe is written when the geometry changes and every
+ * {@link #KEYFRAME_INTERVAL} deltas, so a delta never references a distant part of the file. Any record is decoded
+ * from at most two records, seeking doesn't replay the log.
+ * </p>
+ * <p>
+ * The index of the records is kept in memory and rebuilt from the record headers when the log is opened. Records are
+ * only read through the mapped file, the segments of a recording are never held on the heap. A record truncated by
+ * an interrupted write is discarded on open. Timestamps must not decrease. A recording isn't thread safe, confine it
+ * to a single background thread and don't append to it while it is replayed.
+ * </p>
+ */
+public final class TrafficRecording implements Closeable {
+
+  /**
+   * Maximum number of delta records of a tile between two keyframes.
+   */
+  public static final int KEYFRAME_INTERVAL = 64;
+
+  private static final int MAGIC = 0x54524331; // TRC1
+  private static final int FILE_HEADER_SIZE = 4;
+  private static final int RECORD_HEADER_SIZE = 28;
+  private static final int TYPE_KEYFRAME = 1;
+  private static final int TYPE_DELTA = 2;
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final double SCALE = 1 / TrafficSegmentStore.PRECISION;
+
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private MappedByteBuffer mapped;
+  private long size;
+
+  private final Map<Long, TileRecords> tiles = new HashMap<>();
+  private long[] timestamps = new long[256];
+  private long[] offsets = new long[256];
+  private int recordCount;
+  private int keyframeCount;
+
+  private TrafficRecording(@NonNull File file) throws IOException {
+    randomAccessFile = new RandomAccessFile(file, "rw");
+    channel = randomAccessFile.getChannel();
+    size = channel.size();
+    if (size == 0) {
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      header.putInt(0, MAGIC);
+      channel.write(header, 0);
+      size = FILE_HEADER_SIZE;
+    } else {
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      if (size < FILE_HEADER_SIZE || channel.read(header, 0) != FILE_HEADER_SIZE || header.getInt(0) != MAGIC) {
+        randomAccessFile.close();
+        throw new IOException(file + " isn't a traffic recording");
+      }
+      readRecords();
+    }
+  }
+
+  /**
+   * Opens a recording, creating the file if it doesn't exist.
+   *
+   * @param file the file of the recording
+   * @return the recording, to be closed by the caller
+   * @throws IOException if the file isn't a recording or couldn't be read
+   */
+  @NonNull
+  public static TrafficRecording open(@NonNull File file) throws IOException {
+    return new TrafficRecording(file);
+  }
+
+  /**
+   * Appends a snapshot of a tile.
+   *
+   * @param timestamp the time of the snapshot in milliseconds, not before the previous snapshot
+   * @param tileId    the id of the tile, see {@link TileIds}
+   * @param segments  all segments of the tile
+   * @throws IOException if the snapshot couldn't be written
+   */
+  public void append(long timestamp, long tileId, @NonNull TrafficSegments segments) throws IOException {
+    if (recordCount > 0 && timestamp < timestamps[recordCount - 1]) {
+      throw new IllegalArgumentException("Timestamp " + timestamp + " is before the previous snapshot");
+    }
+
+    int segmentCount = segments.size();
+    long geometryHash = geometryHash(segments);
+    TileRecords tile = tiles.get(tileId);
+    boolean delta = tile != null && tile.geometryHash == geometryHash && tile.segmentCount == segmentCount
+      && tile.deltaCount < KEYFRAME_INTERVAL;
+
+    ByteBuffer buffer;
+    if (delta) {
+      buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + 8 + segmentCount);
+      buffer.position(RECORD_HEADER_SIZE);
+      buffer.putLong(tile.keyframeOffset);
+      for (int i = 0; i < segmentCount; i++) {
+        buffer.put((byte) segments.getCongestion(i));
+      }
+    } else {
+      buffer = encodeKeyframe(segments, geometryHash);
+    }
+
+    int length = buffer.position();
+    buffer.putLong(0, timestamp);
+    buffer.putLong(8, tileId);
+    buffer.putInt(16, delta ? TYPE_DELTA : TYPE_KEYFRAME);
+    buffer.putInt(20, segmentCount);
+    buffer.putInt(24, length - RECORD_HEADER_SIZE);
+    buffer.flip();
+
+    long offset = size;
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+    size += length;
+    index(timestamp, tileId, offset, delta, geometryHash, segmentCount);
+  }
+
+  /**
+   * Returns the number of records.
+   *
+   * @return the number of records
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the number of keyframe records, the other records are deltas.
+   *
+   * @return the number of keyframes
+   */
+  public int getKeyframeCount() {
+    return keyframeCount;
+  }
+
+  /**
+   * Returns the number of recorded tiles.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return tiles.size();
+  }
+
+  /**
+   * Returns the timestamp of the first record.
+   *
+   * @return the timestamp in milliseconds, {@link Long#MAX_VALUE} if the recording is empty
+   */
+  public long getStartTime() {
+    return recordCount > 0 ? timestamps[0] : Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns the timestamp of the last record.
+   *
+   * @return the timestamp in milliseconds, {@link Long#MIN_VALUE} if the recording is empty
+   */
+  public long getEndTime() {
+    return recordCount > 0 ? timestamps[recordCount - 1] : Long.MIN_VALUE;
+  }
+
+  /**
+   * Returns the size of the file.
+   *
+   * @return the size in bytes
+   */
+  public long getFileSize() {
+    return size;
+  }
+
+  /**
+   * Reads the state of all tiles at a time, the last snapshot of each tile recorded at or before it.
+   * <p>
+   * Each tile is located by a binary search of its records, the records in between aren't read.
+   * </p>
+   *
+   * @param timestamp the time in milliseconds
+   * @param listener  the listener receiving the snapshot of each tile
+   * @return the number of tiles with a snapshot
+   * @throws IOException if the file couldn't be mapped
+   */
+  public int seek(long timestamp, @NonNull Listener listener) throws IOException {
+    ByteBuffer buffer = map();
+    TrafficSegments segments = new TrafficSegments();
+    int count = 0;
+    for (Map.Entry<Long, TileRecords> entry : tiles.entrySet()) {
+      TileRecords tile = entry.getValue();
+      int index = lastIndexAtOrBefore(tile.timestamps, tile.count, timestamp);
+      if (index < 0) {
+        continue;
+      }
+      segments.clear();
+      decode(buffer, tile.offsets[index], segments);
+      listener.onSnapshot(entry.getKey(), tile.timestamps[index], segments);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Reads the snapshots recorded after a time, up to and including another time, in the order they were recorded.
+   *
+   * @param fromTimestamp the exclusive start time in milliseconds
+   * @param toTimestamp   the inclusive end time in milliseconds
+   * @param listener      the listener receiving the snapshots
+   * @return the number of snapshots
+   * @throws IOException if the file couldn't be mapped
+   */
+  public int replay(long fromTimestamp, long toTimestamp, @NonNull Listener listener) throws IOException {
+    ByteBuffer buffer = map();
+    TrafficSegments segments = new TrafficSegments();
+    int first = lastIndexAtOrBefore(timestamps, recordCount, fromTimestamp) + 1;
+    int index = first;
+    while (index < recordCount && timestamps[index] <= toTimestamp) {
+      segments.clear();
+      decode(buffer, offsets[index], segments);
+      listener.onSnapshot(buffer.getLong((int) offsets[index] + 8), timestamps[index], segments);
+      index++;
+    }
+    return index - first;
+  }
+
+  /**
+   * Closes the file of the recording, it can't be used anymore.
+   *
+   * @throws IOException if the file couldn't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    mapped = null;
+    randomAccessFile.close();
+  }
+
+  private void readRecords() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + 8);
+    long offset = FILE_HEADER_SIZE;
+    while (offset + RECORD_HEADER_SIZE + 8 <= size) {
+      header.clear();
+      if (channel.read(header, offset) != header.capacity()) {
+        break;
+      }
+
+      int type = header.getInt(16);
+      int segmentCount = header.getInt(20);
+      int payloadBytes = header.getInt(24);
+      long end = offset + RECORD_HEADER_SIZE + payloadBytes;
+      if ((type != TYPE_KEYFRAME && type != TYPE_DELTA) || segmentCount < 0 || payloadBytes < 8 || end > size) {
+        break;
+      }
+
+      // the payload starts with the geometry hash of a keyframe, or the keyframe offset of a delta
+      long tileId = header.getLong(8);
+      TileRecords tile = tiles.get(tileId);
+      boolean delta = type == TYPE_DELTA;
+      if (delta && (tile == null || tile.keyframeOffset != header.getLong(RECORD_HEADER_SIZE))) {
+        break;
+      }
+      index(header.getLong(0), tileId, offset, delta,
+        delta ? tile.geometryHash : header.getLong(RECORD_HEADER_SIZE), segmentCount);
+      offset = end;
+    }
+
+    if (offset < size) {
+      // discard the partially written record
+      channel.truncate(offset);
+      size = offset;
+    }
+  }
+
+  private void index(long timestamp, long tileId, long offset, boolean delta, long geometryHash, int segmentCount) {
+    if (recordCount == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, recordCount * 2);
+      offsets = Arrays.copyOf(offsets, recordCount * 2);
+    }
+    timestamps[recordCount] = timestamp;
+    offsets[recordCount] = offset;
+    recordCount++;
+
+    TileRecords tile = tiles.get(tileId);
+    if (tile == null) {
+      tile = new TileRecords();
+      tiles.put(tileId, tile);
+    }
+    tile.add(timestamp, offset);
+    if (delta) {
+      tile.deltaCount++;
+    } else {
+      tile.keyframeOffset = offset;
+      tile.geometryHash = geometryHash;
+      tile.segmentCount = segmentCount;
+      tile.deltaCount = 0;
+      keyframeCount++;
+    }
+  }
+
+  private ByteBuffer map() throws IOException {
+    if (mapped == null || mapped.capacity() < size) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    return mapped;
+  }
+
+  private static ByteBuffer encodeKeyframe(TrafficSegments segments, long geometryHash) {
+    int segmentCount = segments.size();
+    int pointCount = segments.getPointCount();
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + 8 + segmentCount * 6 + pointCount * 10);
+    buffer.position(RECORD_HEADER_SIZE);
+    buffer.putLong(geometryHash);
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.put((byte) segments.getRoadClass(i));
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.put((byte) segments.getCongestion(i));
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.putInt(segments.getPointCount(i));
+    }
+
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < pointCount; i++) {
+      int x = quantize(segments.getLongitude(i));
+      int y = quantize(segments.getLatitude(i));
+      putZigzag(buffer, x - lastX);
+      putZigzag(buffer, y - lastY);
+      lastX = x;
+      lastY = y;
+    }
+    return buffer;
+  }
+
+  /**
+   * Decodes a record, a delta record is decoded from its keyframe with the congestion codes of the delta.
+   */
+  private static void decode(ByteBuffer buffer, long offset, TrafficSegments segments) {
+    int start = (int) offset;
+    int segmentCount = buffer.getInt(start + 20);
+    int congestions = start + RECORD_HEADER_SIZE + 8 + segmentCount;
+    int keyframe = start;
+    if (buffer.getInt(start + 16) == TYPE_DELTA) {
+      keyframe = (int) buffer.getLong(start + RECORD_HEADER_SIZE);
+      congestions = start + RECORD_HEADER_SIZE + 8;
+    }
+
+    int classes = keyframe + RECORD_HEADER_SIZE + 8;
+    int pointCounts = classes + segmentCount * 2;
+    ByteBuffer coordinates = buffer.duplicate();
+    coordinates.position(pointCounts + segmentCount * 4);
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < segmentCount; i++) {
+      int pointCount = buffer.getInt(pointCounts + i * 4);
+      for (int j = 0; j < pointCount; j++) {
+        lastX += readZigzag(coordinates);
+        lastY += readZigzag(coordinates);
+        segments.addPoint(lastX * TrafficSegmentStore.PRECISION, lastY * TrafficSegmentStore.PRECISION);
+      }
+      segments.endSegment(buffer.get(classes + i), buffer.get(congestions + i));
+    }
+  }
+
+  private static int readZigzag(ByteBuffer buffer) {
+    int value = 0;
+    int shift = 0;
+    byte current = buffer.get();
+    while ((current & 0x80) != 0) {
+      value |= (current & 0x7F) << shift;
+      shift += 7;
+      current = buffer.get();
+    }
+    value |= current << shift;
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Hashes the road classes and positions of the segments in order, ignoring their congestion.
+   */
+  private static long geometryHash(TrafficSegments segments) {
+    long hash = FNV_OFFSET;
+    for (int i = 0; i < segments.size(); i++) {
+      hash = (hash ^ CongestionDiff.segmentKey(segments, i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static int lastIndexAtOrBefore(long[] timestamps, int count, long timestamp) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (timestamps[middle] <= timestamp) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return high;
+  }
+
+  private static int quantize(double degrees) {
+    return (int) Math.round(degrees * SCALE);
+  }
+
+  private static void putZigzag(ByteBuffer buffer, int delta) {
+    int value = (delta << 1) ^ (delta >> 31);
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static final class TileRecords {
+
+    private long[] timestamps = new long[4];
+    private long[] offsets = new long[4];
+    private int count;
+    private long keyframeOffset;
+    private long geometryHash;
+    private int segmentCount;
+    private int deltaCount;
+
+    void add(long timestamp, long offset) {
+      if (count == timestamps.length) {
+        timestamps = Arrays.copyOf(timestamps, count * 2);
+        offsets = Arrays.copyOf(offsets, count * 2);
+      }
+      timestamps[count] = timestamp;
+      offsets[count] = offset;
+      count++;
+    }
+  }
+
+  /**
+   * Receives the snapshots read from a recording.
+   */
+  public interface Listener {
+
+    /**
+     * Called with a snapshot of a tile.
+     *
+     * @param tileId    the id of the tile
+     * @param timestamp the time of the snapshot in milliseconds
+     * @param segments  the segments of the tile, only valid during the call
+     */
+    void onSnapshot(long tileId, long timestamp, @NonNull TrafficSegments segments);
+  }
+}
@@ -0,0 +1,387 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of traffic segments, partitioned by tile.
+ * <p>
+ * Each tile is indexed separately in a uniform grid over the extent of its segments. Updating a tile rebuilds the grid
+ * of that tile only, other tiles are left untouched. Tile indexes are immutable and published copy-on-write, queries
+ * can run concurrently with updates and observe each tile either before or after its update.
+ * </p>
+ */
+public final class TrafficSegmentIndex {
+
+  /**
+   * Tile id used for a match without tile.
+   */
+  public static final long NO_TILE = -1;
+
+  static final int GRID_SIZE = 16;
+  static final double METERS_PER_DEGREE = GeoMath.EARTH_RADIUS * Math.PI / 180;
+
+  private final Object lock = new Object();
+  private volatile TileIndex[] tiles = new TileIndex[0];
+
+  /**
+   * Replaces the segments of a tile.
+   * <p>
+   * The segments are copied, the buffer can be reused after this method returns.
+   * </p>
+   *
+   * @param tileId   the id of the tile
+   * @param segments the segments of the tile
+   */
+  public void update(long tileId, @NonNull TrafficSegments segments) {
+    TileIndex tileIndex = new TileIndex(tileId, segments);
+    synchronized (lock) {
+      TileIndex[] current = tiles;
+      int index = indexOf(current, tileId);
+      TileIndex[] updated;
+      if (index >= 0) {
+        updated = current.clone();
+        updated[index] = tileIndex;
+      } else {
+        updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = tileIndex;
+      }
+      tiles = updated;
+    }
+  }
+
+  /**
+   * Removes the segments of a tile.
+   *
+   * @param tileId the id of the tile
+   * @return true if the tile was part of the index
+   */
+  public boolean remove(long tileId) {
+    synchronized (lock) {
+      TileIndex[] current = tiles;
+      int index = indexOf(current, tileId);
+      if (index < 0) {
+        return false;
+      }
+
+      TileIndex[] updated = new TileIndex[current.length - 1];
+      System.arraycopy(current, 0, updated, 0, index);
+      System.arraycopy(current, index + 1, updated, index, updated.length - index);
+      tiles = updated;
+      return true;
+    }
+  }
+
+  /**
+   * Returns the number of indexed tiles.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return tiles.length;
+  }
+
+  /**
+   * Returns the extent of the segments of a tile.
+   *
+   * @param tileId the id of the tile
+   * @param bounds the array receiving the west, south, east and north bounds
+   * @return true if the tile is part of the index and has segments
+   */
+  public boolean getBounds(long tileId, @NonNull double[] bounds) {
+    TileIndex[] current = tiles;
+    int index = indexOf(current, tileId);
+    if (index < 0 || current[index].edgeCount == 0) {
+      return false;
+    }
+
+    TileIndex tileIndex = current[index];
+    bounds[0] = tileIndex.west;
+    bounds[1] = tileIndex.south;
+    bounds[2] = tileIndex.east;
+    bounds[3] = tileIndex.north;
+    return true;
+  }
+
+  /**
+   * Finds the segment nearest to a position, travelling in a similar direction.
+   *
+   * @param longitude       the longitude of the position
+   * @param latitude        the latitude of the position
+   * @param heading         the direction of travel at the position, in degrees clockwise from north
+   * @param tolerance       the maximum distance to the segment in meters
+   * @param maxHeadingDelta the maximum difference between the direction of travel and the segment in degrees
+   * @param match           the match receiving the result
+   * @return true if a segment was found
+   */
+  public boolean findNearest(double longitude, double latitude, double heading, double tolerance,
+                             double maxHeadingDelta, @NonNull Match match) {
+    match.reset();
+    double cosLatitude = Math.cos(Math.toRadians(latitude));
+    double deltaLatitude = tolerance / METERS_PER_DEGREE;
+    double deltaLongitude = deltaLatitude / Math.max(cosLatitude, 1e-6);
+    TileIndex[] current = tiles;
+    for (int i = 0; i < current.length; i++) {
+      current[i].findNearest(longitude, latitude, heading, tolerance, maxHeadingDelta, cosLatitude,
+        deltaLongitude, deltaLatitude, match);
+    }
+    return match.tileId != NO_TILE;
+  }
+
+  private static int indexOf(TileIndex[] tiles, long tileId) {
+    for (int i = 0; i < tiles.length; i++) {
+      if (tiles[i].tileId == tileId) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the heading of a vector in a local planar projection.
+   *
+   * @param deltaX the eastward component
+   * @param deltaY the northward component
+   * @return the heading in degrees clockwise from north
+   */
+  static double heading(double deltaX, double deltaY) {
+    double heading = Math.toDegrees(Math.atan2(deltaX, deltaY));
+    return heading < 0 ? heading + 360 : heading;
+  }
+
+  /**
+   * Returns the smallest difference between two headings.
+   *
+   * @param first  the first heading in degrees
+   * @param second the second heading in degrees
+   * @return the difference in degrees, between 0 and 180
+   */
+  static double headingDelta(double first, double second) {
+    double delta = Math.abs(first - second) % 360;
+    return delta > 180 ? 360 - delta : delta;
+  }
+
+  /**
+   * Mutable result of a nearest segment query, reused across queries.
+   */
+  public static final class Match {
+
+    long tileId;
+    int roadClass;
+    int congestion;
+    double distance;
+
+    /**
+     * Create an empty match.
+     */
+    public Match() {
+      reset();
+    }
+
+    /**
+     * Returns the id of the tile of the matched segment.
+     *
+     * @return the tile id, {@link #NO_TILE} if nothing matched
+     */
+    public long getTileId() {
+      return tileId;
+    }
+
+    /**
+     * Returns the road class of the matched segment.
+     *
+     * @return the road class code
+     */
+    public int getRoadClass() {
+      return roadClass;
+    }
+
+    /**
+     * Returns the congestion of the matched segment.
+     *
+     * @return the congestion code, {@link TrafficCodes#CONGESTION_UNKNOWN} if nothing matched
+     */
+    public int getCongestion() {
+      return congestion;
+    }
+
+    /**
+     * Returns the distance to the matched segment.
+     *
+     * @return the distance in meters
+     */
+    public double getDistance() {
+      return distance;
+    }
+
+    void reset() {
+      tileId = NO_TILE;
+      roadClass = TrafficCodes.CLASS_OTHER;
+      congestion = TrafficCodes.CONGESTION_UNKNOWN;
+      distance = Double.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Immutable grid index of the segments of a single tile.
+   * <p>
+   * Segments are split in edges between consecutive positions. The grid cells reference the edges overlapping them in
+   * compressed form: the edges of cell {@code c} are {@code cellEdges[cellStarts[c]]} up to
+   * {@code cellEdges[cellStarts[c + 1]]}.
+   * </p>
+   */
+  private static final class TileIndex {
+
+    private final long tileId;
+    private final double[] coordinates;
+    private final int[] edgeStarts;
+    private final byte[] edgeRoadClasses;
+    private final byte[] edgeCongestions;
+    private final int edgeCount;
+    private final int[] cellStarts;
+    private final int[] cellEdges;
+    private final double west;
+    private final double south;
+    private final double east;
+    private final double north;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    TileIndex(long tileId, TrafficSegments segments) {
+      this.tileId = tileId;
+      int pointCount = segments.getPointCount();
+      coordinates = Arrays.copyOf(segments.getCoordinates(), pointCount * 2);
+      double minLongitude = Double.MAX_VALUE;
+      double minLatitude = Double.MAX_VALUE;
+      double maxLongitude = -Double.MAX_VALUE;
+      double maxLatitude = -Double.MAX_VALUE;
+      for (int i = 0; i < pointCount; i++) {
+        minLongitude = Math.min(minLongitude, coordinates[i * 2]);
+        maxLongitude = Math.max(maxLongitude, coordinates[i * 2]);
+        minLatitude = Math.min(minLatitude, coordinates[i * 2 + 1]);
+        maxLatitude = Math.max(maxLatitude, coordinates[i * 2 + 1]);
+      }
+      west = minLongitude;
+      south = minLatitude;
+      east = maxLongitude;
+      north = maxLatitude;
+      cellWidth = Math.max((east - west) / GRID_SIZE, 1e-9);
+      cellHeight = Math.max((north - south) / GRID_SIZE, 1e-9);
+
+      int edges = 0;
+      for (int segment = 0; segment < segments.size(); segment++) {
+        edges += Math.max(segments.getPointCount(segment) - 1, 0);
+      }
+      edgeCount = edges;
+      edgeStarts = new int[edges];
+      edgeRoadClasses = new byte[edges];
+      edgeCongestions = new byte[edges];
+      int edge = 0;
+      for (int segment = 0; segment < segments.size(); segment++) {
+        int first = segments.getPointOffset(segment);
+        int last = first + segments.getPointCount(segment) - 1;
+        for (int point = first; point < last; point++) {
+          edgeStarts[edge] = point;
+          edgeRoadClasses[edge] = (byte) segments.getRoadClass(segment);
+          edgeCongestions[edge] = (byte) segments.getCongestion(segment);
+          edge++;
+        }
+      }
+
+      cellStarts = new int[GRID_SIZE * GRID_SIZE + 1];
+      for (int i = 0; i < edgeCount; i++) {
+        forEachCell(i, null);
+      }
+      for (int cell = 0; cell < GRID_SIZE * GRID_SIZE; cell++) {
+        cellStarts[cell + 1] += cellStarts[cell];
+      }
+      cellEdges = new int[cellStarts[GRID_SIZE * GRID_SIZE]];
+      int[] cellFill = Arrays.copyOf(cellStarts, GRID_SIZE * GRID_SIZE);
+      for (int i = 0; i < edgeCount; i++) {
+        forEachCell(i, cellFill);
+      }
+    }
+
+    /**
+     * Counts an edge in the cells it overlaps, or inserts it in these cells if fill positions are provided.
+     */
+    private void forEachCell(int edge, int[] cellFill) {
+      int from = edgeStarts[edge] * 2;
+      int minColumn = column(Math.min(coordinates[from], coordinates[from + 2]));
+      int maxColumn = column(Math.max(coordinates[from], coordinates[from + 2]));
+      int minRow = row(Math.min(coordinates[from + 1], coordinates[from + 3]));
+      int maxRow = row(Math.max(coordinates[from + 1], coordinates[from + 3]));
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int column = minColumn; column <= maxColumn; column++) {
+          int cell = row * GRID_SIZE + column;
+          if (cellFill == null) {
+            cellStarts[cell + 1]++;
+          } else {
+            cellEdges[cellFill[cell]++] = edge;
+          }
+        }
+      }
+    }
+
+    private int column(double longitude) {
+      return Math.max(0, Math.min(GRID_SIZE - 1, (int) ((longitude - west) / cellWidth)));
+    }
+
+    private int row(double latitude) {
+      return Math.max(0, Math.min(GRID_SIZE - 1, (int) ((latitude - south) / cellHeight)));
+    }
+
+    void findNearest(double longitude, double latitude, double heading, double tolerance, double maxHeadingDelta,
+                     double cosLatitude, double deltaLongitude, double deltaLatitude, Match match) {
+      if (edgeCount == 0
+        || longitude + deltaLongitude < west || longitude - deltaLongitude > east
+        || latitude + deltaLatitude < south || latitude - deltaLatitude > north) {
+        return;
+      }
+
+      double scaleX = cosLatitude * METERS_PER_DEGREE;
+      int minColumn = column(longitude - deltaLongitude);
+      int maxColumn = column(longitude + deltaLongitude);
+      int minRow = row(latitude - deltaLatitude);
+      int maxRow = row(latitude + deltaLatitude);
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int column = minColumn; column <= maxColumn; column++) {
+          int cell = row * GRID_SIZE + column;
+          for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            int edge = cellEdges[i];
+            int from = edgeStarts[edge] * 2;
+            double startX = (coordinates[from] - longitude) * scaleX;
+            double startY = (coordinates[from + 1] - latitude) * METERS_PER_DEGREE;
+            double endX = (coordinates[from + 2] - longitude) * scaleX;
+            double endY = (coordinates[from + 3] - latitude) * METERS_PER_DEGREE;
+            double distance = distanceToOrigin(startX, startY, endX, endY);
+            if (distance <= tolerance && distance < match.distance
+              && headingDelta(heading, heading(endX - startX, endY - startY)) <= maxHeadingDelta) {
+              match.tileId = tileId;
+              match.roadClass = edgeRoadClasses[edge];
+              match.congestion = edgeCongestions[edge];
+              match.distance = distance;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the distance from the origin to a line segment in planar coordinates.
+     */
+    private static double distanceToOrigin(double startX, double startY, double endX, double endY) {
+      double deltaX = endX - startX;
+      double deltaY = endY - startY;
+      double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+      double fraction = 0;
+      if (lengthSquared > 0) {
+        fraction = Math.max(0, Math.min(1, -(startX * deltaX + startY * deltaY) / lengthSquared));
+      }
+      double x = startX + fraction * deltaX;
+      double y = startY + fraction * deltaY;
+      return Math.sqrt(x * x + y * y);
+    }
+  }
+}
@@ -0,0 +1,560 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact on-disk store of decoded traffic segments, read back through a memory mapped buffer.
+ * <p>
+ * The segments of a tile are appended to the file as a block. A block starts with the tile id, the time the
+ * segments expire, the number of segments, the size of the coordinates and the extent of the segments, followed by
+ * the columns of road class codes, congestion codes and point counts. Positions are quantized to
+ * {@link #PRECISION} degrees and stored as zigzag varint deltas of the previous position of the tile.
+ * </p>
+ * <p>
+ * Storing a tile again supersedes its previous block, expired tiles are never returned. The index of the blocks is
+ * kept in memory and rebuilt from the block headers when the store is opened, queries by tile or bounding box only
+ * read the pages of the matching blocks. A block truncated by an interrupted write is discarded on open. Superseded
+ * and expired blocks are removed by {@link #compact(long)}.
+ * </p>
+ * <p>
+ * A store isn't thread safe, confine it to a single background thread.
+ * </p>
+ */
+public final class TrafficSegmentStore implements Closeable {
+
+  /**
+   * Precision of stored positions in degrees.
+   */
+  public static final double PRECISION = 1e-6;
+
+  private static final int MAGIC = 0x54534731; // TSG1
+  private static final int FILE_HEADER_SIZE = 4;
+  private static final int BLOCK_HEADER_SIZE = 40;
+  private static final double SCALE = 1 / PRECISION;
+
+  private final File file;
+  private RandomAccessFile randomAccessFile;
+  private FileChannel channel;
+  private MappedByteBuffer mapped;
+  private long size;
+  private final Map<Long, Block> blocks = new HashMap<>();
+
+  private TrafficSegmentStore(@NonNull File file) throws IOException {
+    this.file = file;
+    openFile();
+  }
+
+  /**
+   * Opens a store, creating the file if it doesn't exist.
+   *
+   * @param file the file of the store
+   * @return the store, to be closed by the caller
+   * @throws IOException if the file isn't a segment store or couldn't be read
+   */
+  @NonNull
+  public static TrafficSegmentStore open(@NonNull File file) throws IOException {
+    return new TrafficSegmentStore(file);
+  }
+
+  /**
+   * Stores the segments of a tile, superseding previously stored segments of the tile.
+   *
+   * @param tileId    the id of the tile, see {@link TileIds}
+   * @param expiresAt the time in milliseconds after which the segments are stale, typically the next refresh
+   * @param segments  the segments of the tile
+   * @throws IOException if the segments couldn't be written
+   */
+  public void put(long tileId, long expiresAt, @NonNull TrafficSegments segments) throws IOException {
+    int segmentCount = segments.size();
+    int pointCount = segments.getPointCount();
+    ByteBuffer buffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE + segmentCount * 6 + pointCount * 10);
+    buffer.position(BLOCK_HEADER_SIZE);
+
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.put((byte) segments.getRoadClass(i));
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.put((byte) segments.getCongestion(i));
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      buffer.putInt(segments.getPointCount(i));
+    }
+
+    int coordinatesStart = buffer.position();
+    int west = Integer.MAX_VALUE;
+    int south = Integer.MAX_VALUE;
+    int east = Integer.MIN_VALUE;
+    int north = Integer.MIN_VALUE;
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < pointCount; i++) {
+      int x = quantize(segments.getLongitude(i));
+      int y = quantize(segments.getLatitude(i));
+      putZigzag(buffer, x - lastX);
+      putZigzag(buffer, y - lastY);
+      lastX = x;
+      lastY = y;
+      west = Math.min(west, x);
+      south = Math.min(south, y);
+      east = Math.max(east, x);
+      north = Math.max(north, y);
+    }
+
+    int length = buffer.position();
+    buffer.putLong(0, tileId);
+    buffer.putLong(8, expiresAt);
+    buffer.putInt(16, segmentCount);
+    buffer.putInt(20, length - coordinatesStart);
+    buffer.putInt(24, west);
+    buffer.putInt(28, south);
+    buffer.putInt(32, east);
+    buffer.putInt(36, north);
+    buffer.flip();
+
+    long offset = size;
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+    size += length;
+    blocks.put(tileId, new Block(offset, expiresAt, segmentCount, west, south, east, north));
+  }
+
+  /**
+   * Returns true if the store holds segments of a tile that didn't expire.
+   *
+   * @param tileId the id of the tile
+   * @param now    the current time in milliseconds
+   * @return true if the tile is stored and not expired
+   */
+  public boolean contains(long tileId, long now) {
+    Block block = blocks.get(tileId);
+    return block != null && block.expiresAt > now;
+  }
+
+  /**
+   * Returns the number of stored tiles, including expired tiles that weren't removed yet.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return blocks.size();
+  }
+
+  /**
+   * Returns the size of the file, including superseded and expired blocks.
+   *
+   * @return the size in bytes
+   */
+  public long getFileSize() {
+    return size;
+  }
+
+  /**
+   * Queries the segments of a tile.
+   *
+   * @param tileId the id of the tile
+   * @param now    the current time in milliseconds
+   * @return the cursor over the segments, empty if the tile isn't stored or expired
+   * @throws IOException if the file couldn't be mapped
+   */
+  @NonNull
+  public Cursor query(long tileId, long now) throws IOException {
+    List<Block> matches = new ArrayList<>(1);
+    Block block = blocks.get(tileId);
+    if (block != null && block.expiresAt > now) {
+      matches.add(block);
+    }
+    return new Cursor(map(), matches, null);
+  }
+
+  /**
+   * Queries the segments with a position inside a bounding box.
+   *
+   * @param west  the western bound in degrees
+   * @param south the southern bound in degrees
+   * @param east  the eastern bound in degrees
+   * @param north the northern bound in degrees
+   * @param now   the current time in milliseconds
+   * @return the cursor over the segments
+   * @throws IOException if the file couldn't be mapped
+   */
+  @NonNull
+  public Cursor query(double west, double south, double east, double north, long now) throws IOException {
+    int[] bounds = new int[] {quantize(west), quantize(south), quantize(east), quantize(north)};
+    List<Block> matches = new ArrayList<>();
+    for (Block block : blocks.values()) {
+      if (block.expiresAt > now && block.segmentCount > 0
+        && block.west <= bounds[2] && block.east >= bounds[0]
+        && block.south <= bounds[3] && block.north >= bounds[1]) {
+        matches.add(block);
+      }
+    }
+    return new Cursor(map(), matches, bounds);
+  }
+
+  /**
+   * Reads the segments of a tile.
+   *
+   * @param tileId   the id of the tile
+   * @param now      the current time in milliseconds
+   * @param segments the buffer to append the segments to
+   * @return the number of segments read, 0 if the tile isn't stored or expired
+   * @throws IOException if the file couldn't be mapped
+   */
+  public int read(long tileId, long now, @NonNull TrafficSegments segments) throws IOException {
+    Cursor cursor = query(tileId, now);
+    int count = 0;
+    while (cursor.moveToNext()) {
+      for (int i = 0; i < cursor.getPointCount(); i++) {
+        segments.addPoint(cursor.getLongitude(i), cursor.getLatitude(i));
+      }
+      segments.endSegment(cursor.getRoadClass(), cursor.getCongestion());
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Removes the tiles that expired from the index, their blocks are removed by the next compaction.
+   *
+   * @param now the current time in milliseconds
+   * @return the number of removed tiles
+   */
+  public int removeExpired(long now) {
+    int count = 0;
+    Iterator<Block> iterator = blocks.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().expiresAt <= now) {
+        iterator.remove();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Rewrites the file with only the blocks of tiles that didn't expire.
+   *
+   * @param now the current time in milliseconds
+   * @throws IOException if the file couldn't be rewritten, the store keeps using the original file
+   */
+  public void compact(long now) throws IOException {
+    removeExpired(now);
+    File compacted = new File(file.getPath() + ".tmp");
+    RandomAccessFile target = new RandomAccessFile(compacted, "rw");
+    try {
+      target.setLength(0);
+      FileChannel targetChannel = target.getChannel();
+      writeFileHeader(targetChannel);
+      long position = FILE_HEADER_SIZE;
+      for (Block block : blocks.values()) {
+        long length = getBlockLength(block.offset);
+        long transferred = 0;
+        while (transferred < length) {
+          targetChannel.position(position + transferred);
+          transferred += channel.transferTo(block.offset + transferred, length - transferred, targetChannel);
+        }
+        position += length;
+      }
+      targetChannel.force(false);
+    } finally {
+      target.close();
+    }
+
+    close();
+    boolean replaced = compacted.renameTo(file);
+    // reopen the original file if it couldn't be replaced, the store stays usable
+    openFile();
+    if (!replaced) {
+      compacted.delete();
+      removeExpired(now);
+      throw new IOException("Failed to replace " + file + " with the compacted store");
+    }
+  }
+
+  /**
+   * Closes the file of the store, it can't be used anymore.
+   *
+   * @throws IOException if the file couldn't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    mapped = null;
+    channel = null;
+    randomAccessFile.close();
+  }
+
+  private void openFile() throws IOException {
+    randomAccessFile = new RandomAccessFile(file, "rw");
+    channel = randomAccessFile.getChannel();
+    size = channel.size();
+    if (size == 0) {
+      writeFileHeader(channel);
+      size = FILE_HEADER_SIZE;
+    } else {
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+      if (size < FILE_HEADER_SIZE || channel.read(header, 0) != FILE_HEADER_SIZE || header.getInt(0) != MAGIC) {
+        randomAccessFile.close();
+        throw new IOException(file + " isn't a traffic segment store");
+      }
+      readBlocks();
+    }
+  }
+
+  private void readBlocks() throws IOException {
+    blocks.clear();
+    ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+    long offset = FILE_HEADER_SIZE;
+    while (offset < size) {
+      header.clear();
+      if (offset + BLOCK_HEADER_SIZE > size || channel.read(header, offset) != BLOCK_HEADER_SIZE) {
+        break;
+      }
+
+      int segmentCount = header.getInt(16);
+      int coordinateBytes = header.getInt(20);
+      long end = offset + BLOCK_HEADER_SIZE + segmentCount * 6L + coordinateBytes;
+      if (segmentCount < 0 || coordinateBytes < 0 || end > size) {
+        break;
+      }
+
+      blocks.put(header.getLong(0), new Block(offset, header.getLong(8), segmentCount,
+        header.getInt(24), header.getInt(28), header.getInt(32), header.getInt(36)));
+      offset = end;
+    }
+
+    if (offset < size) {
+      // discard the partially written block
+      channel.truncate(offset);
+      size = offset;
+    }
+  }
+
+  private long getBlockLength(long offset) throws IOException {
+    ByteBuffer buffer = map();
+    int start = (int) offset;
+    return BLOCK_HEADER_SIZE + buffer.getInt(start + 16) * 6L + buffer.getInt(start + 20);
+  }
+
+  private ByteBuffer map() throws IOException {
+    if (mapped == null || mapped.capacity() < size) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    return mapped;
+  }
+
+  private static void writeFileHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+    header.putInt(0, MAGIC);
+    channel.write(header, 0);
+  }
+
+  private static int quantize(double degrees) {
+    return (int) Math.round(degrees * SCALE);
+  }
+
+  private static void putZigzag(ByteBuffer buffer, int delta) {
+    int value = (delta << 1) ^ (delta >> 31);
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static final class Block {
+
+    private final long offset;
+    private final long expiresAt;
+    private final int segmentCount;
+    private final int west;
+    private final int south;
+    private final int east;
+    private final int north;
+
+    Block(long offset, long expiresAt, int segmentCount, int west, int south, int east, int north) {
+      this.offset = offset;
+      this.expiresAt = expiresAt;
+      this.segmentCount = segmentCount;
+      this.west = west;
+      this.south = south;
+      this.east = east;
+      this.north = north;
+    }
+  }
+
+  /**
+   * Cursor over stored segments, reading directly from the mapped file.
+   * <p>
+   * The positions of the current segment are decoded when moving to it. A cursor stays valid until the store is
+   * modified.
+   * </p>
+   */
+  public static final class Cursor {
+
+    private final ByteBuffer buffer;
+    private final List<Block> blocks;
+    private final int[] bounds;
+    private int blockIndex = -1;
+    private int blockStart;
+    private int segmentCount;
+    private int segment;
+    private int coordinatePosition;
+    private int lastX;
+    private int lastY;
+
+    private long tileId;
+    private int roadClass;
+    private int congestion;
+    private int pointCount;
+    private int[] coordinates = new int[64];
+
+    Cursor(@NonNull ByteBuffer buffer, @NonNull List<Block> blocks, @Nullable int[] bounds) {
+      this.buffer = buffer;
+      this.blocks = blocks;
+      this.bounds = bounds;
+    }
+
+    /**
+     * Moves to the next segment.
+     *
+     * @return true if there is a next segment
+     */
+    public boolean moveToNext() {
+      while (true) {
+        while (segment >= segmentCount) {
+          if (++blockIndex >= blocks.size()) {
+            return false;
+          }
+          startBlock(blocks.get(blockIndex));
+        }
+
+        readSegment();
+        if (bounds == null || intersects()) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Returns the id of the tile of the current segment.
+     *
+     * @return the tile id
+     */
+    public long getTileId() {
+      return tileId;
+    }
+
+    /**
+     * Returns the road class code of the current segment.
+     *
+     * @return the road class code
+     */
+    public int getRoadClass() {
+      return roadClass;
+    }
+
+    /**
+     * Returns the congestion code of the current segment.
+     *
+     * @return the congestion code
+     */
+    public int getCongestion() {
+      return congestion;
+    }
+
+    /**
+     * Returns the number of positions of the current segment.
+     *
+     * @return the number of positions
+     */
+    public int getPointCount() {
+      return pointCount;
+    }
+
+    /**
+     * Returns the longitude of a position of the current segment.
+     *
+     * @param point the index of the position in the segment
+     * @return the longitude
+     */
+    public double getLongitude(int point) {
+      return coordinates[point * 2] * PRECISION;
+    }
+
+    /**
+     * Returns the latitude of a position of the current segment.
+     *
+     * @param point the index of the position in the segment
+     * @return the latitude
+     */
+    public double getLatitude(int point) {
+      return coordinates[point * 2 + 1] * PRECISION;
+    }
+
+    private void startBlock(Block block) {
+      blockStart = (int) block.offset;
+      tileId = buffer.getLong(blockStart);
+      segmentCount = block.segmentCount;
+      segment = 0;
+      coordinatePosition = blockStart + BLOCK_HEADER_SIZE + segmentCount * 6;
+      lastX = 0;
+      lastY = 0;
+    }
+
+    private void readSegment() {
+      int columns = blockStart + BLOCK_HEADER_SIZE;
+      roadClass = buffer.get(columns + segment);
+      congestion = buffer.get(columns + segmentCount + segment);
+      pointCount = buffer.getInt(columns + segmentCount * 2 + segment * 4);
+      if (coordinates.length < pointCount * 2) {
+        coordinates = new int[pointCount * 2];
+      }
+
+      for (int i = 0; i < pointCount * 2; i += 2) {
+        lastX += readZigzag();
+        lastY += readZigzag();
+        coordinates[i] = lastX;
+        coordinates[i + 1] = lastY;
+      }
+      segment++;
+    }
+
+    private boolean intersects() {
+      for (int i = 0; i < pointCount * 2; i += 2) {
+        if (coordinates[i] >= bounds[0] && coordinates[i] <= bounds[2]
+          && coordinates[i + 1] >= bounds[1] && coordinates[i + 1] <= bounds[3]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int readZigzag() {
+      int value = 0;
+      int shift = 0;
+      byte current = buffer.get(coordinatePosition++);
+      while ((current & 0x80) != 0) {
+        value |= (current & 0x7F) << shift;
+        shift += 7;
+        current = buffer.get(coordinatePosition++);
+      }
+      value |= current << shift;
+      return (value >>> 1) ^ -(value & 1);
+    }
+  }
+}
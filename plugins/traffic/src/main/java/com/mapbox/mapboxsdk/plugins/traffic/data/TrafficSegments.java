@@ -0,0 +1,201 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Columnar buffer of traffic segments.
+ * <p>
+ * Each segment is a line with a road class and congestion code. Attributes are stored in primitive arrays indexed by
+ * segment, positions are stored as interleaved longitude and latitude values in a single array. Segments are built by
+ * adding their positions with {@link #addPoint(double, double)} and closing them with {@link #endSegment(int, int)}.
+ * A buffer can be cleared and reused, it only allocates when growing.
+ * </p>
+ */
+public final class TrafficSegments {
+
+  private byte[] roadClasses;
+  private byte[] congestions;
+  private int[] pointOffsets;
+  private double[] coordinates;
+  private int size;
+  private int pointCount;
+
+  /**
+   * Create an empty segment buffer.
+   */
+  public TrafficSegments() {
+    this(64, 512);
+  }
+
+  /**
+   * Create an empty segment buffer.
+   *
+   * @param segmentCapacity the initial number of segments
+   * @param pointCapacity   the initial number of positions
+   */
+  public TrafficSegments(int segmentCapacity, int pointCapacity) {
+    roadClasses = new byte[Math.max(segmentCapacity, 1)];
+    congestions = new byte[roadClasses.length];
+    pointOffsets = new int[roadClasses.length + 1];
+    coordinates = new double[Math.max(pointCapacity, 1) * 2];
+  }
+
+  /**
+   * Adds a position to the segment being built.
+   *
+   * @param longitude the longitude of the position
+   * @param latitude  the latitude of the position
+   */
+  public void addPoint(double longitude, double latitude) {
+    int index = pointCount * 2;
+    if (index + 2 > coordinates.length) {
+      coordinates = Arrays.copyOf(coordinates, Math.max(coordinates.length * 2, index + 2));
+    }
+    coordinates[index] = longitude;
+    coordinates[index + 1] = latitude;
+    pointCount++;
+  }
+
+  /**
+   * Closes the segment being built, made of the positions added since the previous segment.
+   *
+   * @param roadClass  the road class code
+   * @param congestion the congestion code
+   */
+  public void endSegment(int roadClass, int congestion) {
+    if (size == roadClasses.length) {
+      int capacity = roadClasses.length * 2;
+      roadClasses = Arrays.copyOf(roadClasses, capacity);
+      congestions = Arrays.copyOf(congestions, capacity);
+      pointOffsets = Arrays.copyOf(pointOffsets, capacity + 1);
+    }
+    roadClasses[size] = (byte) roadClass;
+    congestions[size] = (byte) congestion;
+    size++;
+    pointOffsets[size] = pointCount;
+  }
+
+  /**
+   * Adds a complete segment.
+   *
+   * @param roadClass   the road class code
+   * @param congestion  the congestion code
+   * @param coordinates the interleaved longitude and latitude values
+   * @param offset      the index of the longitude of the first position
+   * @param pointCount  the number of positions
+   */
+  public void add(int roadClass, int congestion, @NonNull double[] coordinates, int offset, int pointCount) {
+    for (int i = 0; i < pointCount; i++) {
+      addPoint(coordinates[offset + i * 2], coordinates[offset + i * 2 + 1]);
+    }
+    endSegment(roadClass, congestion);
+  }
+
+  /**
+   * Discards the positions added since the last closed segment.
+   */
+  public void discardSegment() {
+    pointCount = pointOffsets[size];
+  }
+
+  /**
+   * Removes all segments, retaining the allocated capacity.
+   */
+  public void clear() {
+    size = 0;
+    pointCount = 0;
+  }
+
+  /**
+   * Returns the number of segments.
+   *
+   * @return the number of segments
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the total number of positions of all segments.
+   *
+   * @return the number of positions
+   */
+  public int getPointCount() {
+    return pointOffsets[size];
+  }
+
+  /**
+   * Returns the road class of a segment.
+   *
+   * @param segment the index of the segment
+   * @return the road class code
+   */
+  public int getRoadClass(int segment) {
+    return roadClasses[segment];
+  }
+
+  /**
+   * Returns the congestion of a segment.
+   *
+   * @param segment the index of the segment
+   * @return the congestion code
+   */
+  public int getCongestion(int segment) {
+    return congestions[segment];
+  }
+
+  /**
+   * Returns the index of the first position of a segment.
+   *
+   * @param segment the index of the segment
+   * @return the position index
+   */
+  public int getPointOffset(int segment) {
+    return pointOffsets[segment];
+  }
+
+  /**
+   * Returns the number of positions of a segment.
+   *
+   * @param segment the index of the segment
+   * @return the number of positions
+   */
+  public int getPointCount(int segment) {
+    return pointOffsets[segment + 1] - pointOffsets[segment];
+  }
+
+  /**
+   * Returns the longitude of a position.
+   *
+   * @param point the index of the position
+   * @return the longitude
+   */
+  public double getLongitude(int point) {
+    return coordinates[point * 2];
+  }
+
+  /**
+   * Returns the latitude of a position.
+   *
+   * @param point the index of the position
+   * @return the latitude
+   */
+  public double getLatitude(int point) {
+    return coordinates[point * 2 + 1];
+  }
+
+  /**
+   * Returns the backing coordinate array, interleaved longitude and latitude values.
+   * <p>
+   * The array is only valid until the next position is added, and may be longer than the positions it holds.
+   * </p>
+   *
+   * @return the coordinate array
+   */
+  @NonNull
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+}
@@ -0,0 +1,429 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder of the traffic layer of Mapbox Vector Tiles.
+ * <p>
+ * The protobuf encoded tile is read in place, without building an object model. Only the {@code traffic} layer and
+ * its {@code class} and {@code congestion} attributes are decoded, line geometries are converted to longitude and
+ * latitude values appended to a {@link TrafficSegments} buffer. Each line of a feature becomes a segment.
+ * </p>
+ * <p>
+ * Features can be filtered by road class and congestion with {@link #setFilter(int, int)}, the filter is applied
+ * before decoding the geometry of a feature. A decoder is reusable but not thread safe, use one decoder per thread.
+ * </p>
+ */
+public final class TrafficTileDecoder {
+
+  /**
+   * Filter mask accepting all road classes or congestion levels.
+   */
+  public static final int ALL = -1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte[] LAYER_NAME = "traffic".getBytes(UTF_8);
+  private static final byte[] CLASS_KEY = "class".getBytes(UTF_8);
+  private static final byte[] CONGESTION_KEY = "congestion".getBytes(UTF_8);
+  private static final byte[][] ROAD_CLASS_NAMES = new byte[TrafficCodes.CLASS_OTHER][];
+  private static final byte[][] CONGESTION_NAMES = new byte[TrafficCodes.CONGESTION_UNKNOWN][];
+
+  static {
+    for (int i = 0; i < ROAD_CLASS_NAMES.length; i++) {
+      ROAD_CLASS_NAMES[i] = TrafficCodes.getRoadClassName(i).getBytes(UTF_8);
+    }
+    for (int i = 0; i < CONGESTION_NAMES.length; i++) {
+      CONGESTION_NAMES[i] = TrafficCodes.getCongestionName(i).getBytes(UTF_8);
+    }
+  }
+
+  private static final int WIRE_VARINT = 0;
+  private static final int WIRE_FIXED64 = 1;
+  private static final int WIRE_LENGTH_DELIMITED = 2;
+  private static final int WIRE_FIXED32 = 5;
+
+  private static final int TILE_LAYERS = 3;
+  private static final int LAYER_NAME_FIELD = 1;
+  private static final int LAYER_FEATURES = 2;
+  private static final int LAYER_KEYS = 3;
+  private static final int LAYER_VALUES = 4;
+  private static final int LAYER_EXTENT = 5;
+  private static final int FEATURE_TAGS = 2;
+  private static final int FEATURE_TYPE = 3;
+  private static final int FEATURE_GEOMETRY = 4;
+  private static final int VALUE_STRING = 1;
+  private static final int GEOMETRY_LINESTRING = 2;
+
+  private static final int COMMAND_MOVE_TO = 1;
+  private static final int COMMAND_LINE_TO = 2;
+  private static final int COMMAND_CLOSE_PATH = 7;
+
+  private static final int DEFAULT_EXTENT = 4096;
+
+  private byte[] data;
+  private int position;
+  private int roadClassMask = ALL;
+  private int congestionMask = ALL;
+
+  private int[] valueRoadClasses = new int[32];
+  private int[] valueCongestions = new int[32];
+  private int valueCount;
+  private int classKey;
+  private int congestionKey;
+  private int extent;
+
+  private int zoom;
+  private int tileX;
+  private int tileY;
+  private int decodedCount;
+  private int skippedCount;
+
+  /**
+   * Returns a filter mask accepting the given codes.
+   *
+   * @param codes the road class or congestion codes to accept
+   * @return the filter mask
+   */
+  public static int mask(int... codes) {
+    int mask = 0;
+    for (int code : codes) {
+      mask |= 1 << code;
+    }
+    return mask;
+  }
+
+  /**
+   * Sets the road classes and congestion levels of the features to decode, other features are skipped.
+   *
+   * @param roadClassMask  the mask of the road classes to decode, {@link #ALL} to decode all road classes
+   * @param congestionMask the mask of the congestion levels to decode, {@link #ALL} to decode all levels
+   */
+  public void setFilter(int roadClassMask, int congestionMask) {
+    this.roadClassMask = roadClassMask;
+    this.congestionMask = congestionMask;
+  }
+
+  /**
+   * Decodes the traffic features of a tile.
+   *
+   * @param tile     the buffer holding the encoded tile
+   * @param offset   the offset of the tile in the buffer
+   * @param length   the length of the encoded tile
+   * @param tileId   the id of the tile, see {@link TileIds}
+   * @param segments the buffer to append the decoded segments to
+   * @return the number of decoded features
+   * @throws IOException if the tile is malformed
+   */
+  public int decode(@NonNull byte[] tile, int offset, int length, long tileId, @NonNull TrafficSegments segments)
+    throws IOException {
+    if (offset < 0 || length < 0 || offset + length > tile.length) {
+      throw new IOException("Tile range out of bounds");
+    }
+
+    data = tile;
+    position = offset;
+    zoom = TileIds.getZoom(tileId);
+    tileX = TileIds.getX(tileId);
+    tileY = TileIds.getY(tileId);
+    decodedCount = 0;
+    skippedCount = 0;
+    try {
+      int end = offset + length;
+      while (position < end) {
+        int tag = readVarint(end);
+        if (tag >>> 3 == TILE_LAYERS && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+          int layerEnd = readLength(end);
+          decodeLayer(position, layerEnd, segments);
+          position = layerEnd;
+        } else {
+          skip(tag & 7, end);
+        }
+      }
+      return decodedCount;
+    } finally {
+      data = null;
+    }
+  }
+
+  /**
+   * Returns the number of traffic features skipped by the filter, or because they aren't lines, during the last
+   * decode.
+   *
+   * @return the number of skipped features
+   */
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  /**
+   * Decodes a layer in two passes: the first pass reads the layer name, keys and values, the second pass decodes the
+   * features, which may precede the keys and values in the encoding.
+   */
+  private void decodeLayer(int start, int end, TrafficSegments segments) throws IOException {
+    boolean trafficLayer = false;
+    valueCount = 0;
+    classKey = -1;
+    congestionKey = -1;
+    extent = DEFAULT_EXTENT;
+    int keyCount = 0;
+
+    position = start;
+    while (position < end) {
+      int tag = readVarint(end);
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if (field == LAYER_NAME_FIELD && wireType == WIRE_LENGTH_DELIMITED) {
+        int nameEnd = readLength(end);
+        trafficLayer = equals(position, nameEnd, LAYER_NAME);
+        if (!trafficLayer) {
+          return;
+        }
+        position = nameEnd;
+      } else if (field == LAYER_KEYS && wireType == WIRE_LENGTH_DELIMITED) {
+        int keyEnd = readLength(end);
+        if (equals(position, keyEnd, CLASS_KEY)) {
+          classKey = keyCount;
+        } else if (equals(position, keyEnd, CONGESTION_KEY)) {
+          congestionKey = keyCount;
+        }
+        keyCount++;
+        position = keyEnd;
+      } else if (field == LAYER_VALUES && wireType == WIRE_LENGTH_DELIMITED) {
+        int valueEnd = readLength(end);
+        readValue(valueEnd);
+        position = valueEnd;
+      } else if (field == LAYER_EXTENT && wireType == WIRE_VARINT) {
+        extent = readVarint(end);
+      } else {
+        skip(wireType, end);
+      }
+    }
+
+    if (!trafficLayer || extent <= 0) {
+      return;
+    }
+
+    position = start;
+    while (position < end) {
+      int tag = readVarint(end);
+      if (tag >>> 3 == LAYER_FEATURES && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+        int featureEnd = readLength(end);
+        decodeFeature(position, featureEnd, segments);
+        position = featureEnd;
+      } else {
+        skip(tag & 7, end);
+      }
+    }
+  }
+
+  /**
+   * Reads a value message, mapping string values to road class and congestion codes.
+   */
+  private void readValue(int end) throws IOException {
+    if (valueCount == valueRoadClasses.length) {
+      valueRoadClasses = Arrays.copyOf(valueRoadClasses, valueCount * 2);
+      valueCongestions = Arrays.copyOf(valueCongestions, valueCount * 2);
+    }
+
+    int roadClass = TrafficCodes.CLASS_OTHER;
+    int congestion = TrafficCodes.CONGESTION_UNKNOWN;
+    while (position < end) {
+      int tag = readVarint(end);
+      if (tag >>> 3 == VALUE_STRING && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+        int stringEnd = readLength(end);
+        roadClass = find(position, stringEnd, ROAD_CLASS_NAMES, TrafficCodes.CLASS_OTHER);
+        congestion = find(position, stringEnd, CONGESTION_NAMES, TrafficCodes.CONGESTION_UNKNOWN);
+        position = stringEnd;
+      } else {
+        skip(tag & 7, end);
+      }
+    }
+    valueRoadClasses[valueCount] = roadClass;
+    valueCongestions[valueCount] = congestion;
+    valueCount++;
+  }
+
+  private void decodeFeature(int start, int end, TrafficSegments segments) throws IOException {
+    int type = 0;
+    int tagsStart = -1;
+    int tagsEnd = -1;
+    int geometryStart = -1;
+    int geometryEnd = -1;
+    while (position < end) {
+      int tag = readVarint(end);
+      int field = tag >>> 3;
+      int wireType = tag & 7;
+      if (field == FEATURE_TAGS && wireType == WIRE_LENGTH_DELIMITED) {
+        tagsEnd = readLength(end);
+        tagsStart = position;
+        position = tagsEnd;
+      } else if (field == FEATURE_TYPE && wireType == WIRE_VARINT) {
+        type = readVarint(end);
+      } else if (field == FEATURE_GEOMETRY && wireType == WIRE_LENGTH_DELIMITED) {
+        geometryEnd = readLength(end);
+        geometryStart = position;
+        position = geometryEnd;
+      } else {
+        skip(wireType, end);
+      }
+    }
+
+    if (type != GEOMETRY_LINESTRING || geometryStart < 0) {
+      skippedCount++;
+      return;
+    }
+
+    int roadClass = TrafficCodes.CLASS_OTHER;
+    int congestion = TrafficCodes.CONGESTION_UNKNOWN;
+    if (tagsStart >= 0) {
+      position = tagsStart;
+      while (position < tagsEnd) {
+        int key = readVarint(tagsEnd);
+        int value = readVarint(tagsEnd);
+        if (value < 0 || value >= valueCount) {
+          throw new IOException("Feature references missing value " + value);
+        }
+        if (key == classKey) {
+          roadClass = valueRoadClasses[value];
+        } else if (key == congestionKey) {
+          congestion = valueCongestions[value];
+        }
+      }
+    }
+
+    if (((roadClassMask >>> roadClass) & 1) == 0 || ((congestionMask >>> congestion) & 1) == 0) {
+      skippedCount++;
+      return;
+    }
+
+    position = geometryStart;
+    decodeGeometry(geometryEnd, roadClass, congestion, segments);
+    decodedCount++;
+    position = end;
+  }
+
+  private void decodeGeometry(int end, int roadClass, int congestion, TrafficSegments segments) throws IOException {
+    double scale = 1.0 / extent;
+    int x = 0;
+    int y = 0;
+    int points = 0;
+    while (position < end) {
+      int command = readVarint(end);
+      int id = command & 7;
+      int count = command >>> 3;
+      if (id == COMMAND_MOVE_TO || id == COMMAND_LINE_TO) {
+        for (int i = 0; i < count; i++) {
+          if (id == COMMAND_MOVE_TO) {
+            points = closeSegment(points, roadClass, congestion, segments);
+          }
+          x += decodeZigZag(readVarint(end));
+          y += decodeZigZag(readVarint(end));
+          segments.addPoint(TileIds.toLongitude(zoom, tileX + x * scale),
+            TileIds.toLatitude(zoom, tileY + y * scale));
+          points++;
+        }
+      } else if (id != COMMAND_CLOSE_PATH) {
+        throw new IOException("Unknown geometry command " + id);
+      }
+    }
+    closeSegment(points, roadClass, congestion, segments);
+  }
+
+  /**
+   * Closes the line being decoded, lines with less than 2 positions are discarded.
+   *
+   * @return the number of positions of the next line, always 0
+   */
+  private static int closeSegment(int points, int roadClass, int congestion, TrafficSegments segments) {
+    if (points >= 2) {
+      segments.endSegment(roadClass, congestion);
+    } else if (points == 1) {
+      segments.discardSegment();
+    }
+    return 0;
+  }
+
+  private static int decodeZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private boolean equals(int start, int end, byte[] expected) {
+    if (end - start != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (data[start + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int find(int start, int end, byte[][] names, int fallback) {
+    for (int i = 0; i < names.length; i++) {
+      if (equals(start, end, names[i])) {
+        return i;
+      }
+    }
+    return fallback;
+  }
+
+  /**
+   * Reads a varint, keeping the lower 32 bits.
+   */
+  private int readVarint(int end) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (position >= end) {
+        throw new IOException("Truncated varint");
+      }
+      byte value = data[position++];
+      if (shift < 32) {
+        result |= (value & 0x7f) << shift;
+      }
+      if (value >= 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  /**
+   * Reads the length of a length delimited field.
+   *
+   * @return the end of the field
+   */
+  private int readLength(int end) throws IOException {
+    int length = readVarint(end);
+    if (length < 0 || length > end - position) {
+      throw new IOException("Field length out of bounds");
+    }
+    return position + length;
+  }
+
+  private void skip(int wireType, int end) throws IOException {
+    switch (wireType) {
+      case WIRE_VARINT:
+        readVarint(end);
+        break;
+      case WIRE_FIXED64:
+        position += 8;
+        break;
+      case WIRE_LENGTH_DELIMITED:
+        position = readLength(end);
+        break;
+      case WIRE_FIXED32:
+        position += 4;
+        break;
+      default:
+        throw new IOException("Unsupported wire type " + wireType);
+    }
+    if (position > end) {
+      throw new IOException("Field out of bounds");
+    }
+  }
+}
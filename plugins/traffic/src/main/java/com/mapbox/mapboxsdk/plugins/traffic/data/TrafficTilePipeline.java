@@ -0,0 +1,341 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decodes traffic tiles in parallel and merges the per tile results.
+ * <p>
+ * Each tile is loaded, decoded and processed by a task on the executor. At most {@code maxResidentTiles} tasks are
+ * in flight at once, submitting blocks until a task finished, which bounds the number of tile buffers held in
+ * memory regardless of the number of tiles.
+ * </p>
+ * <p>
+ * Tasks don't share state: a task borrows a worker holding its own {@link TrafficTileDecoder},
+ * {@link TrafficSegments} buffer and result from a lock free pool, and returns it when done. There are never more
+ * workers than concurrently running tasks. Once all tiles are processed, the results of the workers are merged on the
+ * calling thread.
+ * </p>
+ */
+public final class TrafficTilePipeline {
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private final Executor executor;
+  private final int maxResidentTiles;
+  private int roadClassMask = TrafficTileDecoder.ALL;
+  private int congestionMask = TrafficTileDecoder.ALL;
+
+  /**
+   * Create a pipeline.
+   *
+   * @param executor         the executor to decode tiles on, typically created with {@link #newExecutor(int)}
+   * @param maxResidentTiles the maximum number of tiles loaded at once
+   */
+  public TrafficTilePipeline(@NonNull Executor executor, int maxResidentTiles) {
+    if (maxResidentTiles < 1) {
+      throw new IllegalArgumentException("At least one tile must be resident, was " + maxResidentTiles);
+    }
+    this.executor = executor;
+    this.maxResidentTiles = maxResidentTiles;
+  }
+
+  /**
+   * Creates an executor with a fixed number of daemon threads, idle threads are stopped after a keep alive time.
+   *
+   * @param threadCount the number of threads, typically the number of available processors
+   * @return the executor, to be shut down by the caller
+   */
+  @NonNull
+  public static ExecutorService newExecutor(int threadCount) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS,
+      TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+          Thread thread = new Thread(runnable, "traffic-decode-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Returns a processor aggregating the decoded segments into a {@link CongestionAggregator}.
+   *
+   * @return the processor
+   */
+  @NonNull
+  public static TileProcessor<CongestionAggregator> congestionProcessor() {
+    return CongestionProcessor.INSTANCE;
+  }
+
+  /**
+   * Returns a processor aggregating the decoded segments into a {@link CongestionGrid}.
+   *
+   * @param cellZoom the zoom level of the grid cells
+   * @return the processor
+   */
+  @NonNull
+  public static TileProcessor<CongestionGrid> gridProcessor(int cellZoom) {
+    return new GridProcessor(cellZoom);
+  }
+
+  /**
+   * Sets the road classes and congestion levels of the features to decode.
+   *
+   * @param roadClassMask  the mask of the road classes to decode, see {@link TrafficTileDecoder#setFilter(int, int)}
+   * @param congestionMask the mask of the congestion levels to decode
+   */
+  public void setFilter(int roadClassMask, int congestionMask) {
+    this.roadClassMask = roadClassMask;
+    this.congestionMask = congestionMask;
+  }
+
+  /**
+   * Loads, decodes and processes tiles, blocking until all tiles are processed.
+   * <p>
+   * Processing stops at the first failure, tiles already being processed are completed before the failure is
+   * rethrown.
+   * </p>
+   *
+   * @param tileIds   the ids of the tiles to process, see {@link TileIds}
+   * @param loader    the loader of the encoded tiles, invoked on the executor
+   * @param processor the processor of the decoded tiles, invoked on the executor
+   * @param <R>       the type of the result
+   * @return the merged result of all tiles
+   * @throws IOException          if a tile couldn't be loaded or is malformed
+   * @throws InterruptedException if the calling thread was interrupted while waiting
+   */
+  @NonNull
+  @WorkerThread
+  public <R> R run(@NonNull long[] tileIds, @NonNull TileLoader loader, @NonNull TileProcessor<R> processor)
+    throws IOException, InterruptedException {
+    final Semaphore resident = new Semaphore(maxResidentTiles);
+    final ConcurrentLinkedQueue<Worker<R>> workers = new ConcurrentLinkedQueue<>();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final int classMask = roadClassMask;
+    final int levelMask = congestionMask;
+
+    try {
+      for (int i = 0; i < tileIds.length && failure.get() == null; i++) {
+        resident.acquire();
+        try {
+          executor.execute(new DecodeTask<>(tileIds[i], loader, processor, workers, resident, failure,
+            classMask, levelMask));
+        } catch (RejectedExecutionException exception) {
+          resident.release();
+          throw exception;
+        }
+      }
+    } catch (InterruptedException exception) {
+      // let queued tasks skip their tile
+      failure.compareAndSet(null, exception);
+      throw exception;
+    } finally {
+      // all permits are available again once every submitted task completed
+      resident.acquireUninterruptibly(maxResidentTiles);
+      resident.release(maxResidentTiles);
+    }
+
+    Throwable throwable = failure.get();
+    if (throwable instanceof IOException) {
+      throw (IOException) throwable;
+    } else if (throwable instanceof RuntimeException) {
+      throw (RuntimeException) throwable;
+    } else if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+
+    R result = processor.createResult();
+    for (Worker<R> worker : workers) {
+      processor.merge(result, worker.result);
+    }
+    return result;
+  }
+
+  /**
+   * Loads encoded tiles.
+   */
+  public interface TileLoader {
+
+    /**
+     * Loads an encoded tile, invoked concurrently from the threads of the executor.
+     *
+     * @param tileId the id of the tile
+     * @return the encoded tile, null if the tile doesn't exist
+     * @throws IOException if the tile couldn't be loaded
+     */
+    @Nullable
+    @WorkerThread
+    byte[] load(long tileId) throws IOException;
+  }
+
+  /**
+   * Processes decoded tiles into results that are merged once all tiles are processed.
+   *
+   * @param <R> the type of the result
+   */
+  public interface TileProcessor<R> {
+
+    /**
+     * Creates an empty result, once for every worker and once for the merged result.
+     *
+     * @return the empty result
+     */
+    @NonNull
+    R createResult();
+
+    /**
+     * Adds the segments of a tile to a result, invoked concurrently but never concurrently for the same result.
+     *
+     * @param tileId   the id of the tile
+     * @param segments the decoded segments of the tile, only valid during the call
+     * @param result   the result of the worker
+     */
+    @WorkerThread
+    void process(long tileId, @NonNull TrafficSegments segments, @NonNull R result);
+
+    /**
+     * Merges the result of a worker, invoked on the thread running the pipeline.
+     *
+     * @param target the merged result
+     * @param source the result of a worker
+     */
+    void merge(@NonNull R target, @NonNull R source);
+  }
+
+  private static final class Worker<R> {
+
+    private final TrafficTileDecoder decoder = new TrafficTileDecoder();
+    private final TrafficSegments segments = new TrafficSegments();
+    private final R result;
+
+    Worker(R result) {
+      this.result = result;
+    }
+  }
+
+  private static final class DecodeTask<R> implements Runnable {
+
+    private final long tileId;
+    private final TileLoader loader;
+    private final TileProcessor<R> processor;
+    private final ConcurrentLinkedQueue<Worker<R>> workers;
+    private final Semaphore resident;
+    private final AtomicReference<Throwable> failure;
+    private final int roadClassMask;
+    private final int congestionMask;
+
+    DecodeTask(long tileId, TileLoader loader, TileProcessor<R> processor, ConcurrentLinkedQueue<Worker<R>> workers,
+               Semaphore resident, AtomicReference<Throwable> failure, int roadClassMask, int congestionMask) {
+      this.tileId = tileId;
+      this.loader = loader;
+      this.processor = processor;
+      this.workers = workers;
+      this.resident = resident;
+      this.failure = failure;
+      this.roadClassMask = roadClassMask;
+      this.congestionMask = congestionMask;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (failure.get() == null) {
+          process();
+        }
+      } catch (Throwable throwable) {
+        failure.compareAndSet(null, throwable);
+      } finally {
+        resident.release();
+      }
+    }
+
+    private void process() throws IOException {
+      Worker<R> worker = workers.poll();
+      if (worker == null) {
+        worker = new Worker<>(processor.createResult());
+        worker.decoder.setFilter(roadClassMask, congestionMask);
+      }
+
+      try {
+        byte[] tile = loader.load(tileId);
+        if (tile != null) {
+          worker.segments.clear();
+          worker.decoder.decode(tile, 0, tile.length, tileId, worker.segments);
+          processor.process(tileId, worker.segments, worker.result);
+        }
+      } finally {
+        workers.offer(worker);
+      }
+    }
+  }
+
+  private static final class CongestionProcessor implements TileProcessor<CongestionAggregator> {
+
+    private static final CongestionProcessor INSTANCE = new CongestionProcessor();
+
+    @NonNull
+    @Override
+    public CongestionAggregator createResult() {
+      return new CongestionAggregator();
+    }
+
+    @Override
+    public void process(long tileId, @NonNull TrafficSegments segments, @NonNull CongestionAggregator result) {
+      double[] coordinates = segments.getCoordinates();
+      for (int i = 0; i < segments.size(); i++) {
+        result.add(segments.getRoadClass(i), segments.getCongestion(i), coordinates,
+          segments.getPointOffset(i) * 2, segments.getPointCount(i));
+      }
+    }
+
+    @Override
+    public void merge(@NonNull CongestionAggregator target, @NonNull CongestionAggregator source) {
+      target.merge(source);
+    }
+  }
+
+  private static final class GridProcessor implements TileProcessor<CongestionGrid> {
+
+    private final int cellZoom;
+
+    GridProcessor(int cellZoom) {
+      this.cellZoom = cellZoom;
+    }
+
+    @NonNull
+    @Override
+    public CongestionGrid createResult() {
+      return new CongestionGrid(cellZoom);
+    }
+
+    @Override
+    public void process(long tileId, @NonNull TrafficSegments segments, @NonNull CongestionGrid result) {
+      result.add(segments);
+    }
+
+    @Override
+    public void merge(@NonNull CongestionGrid target, @NonNull CongestionGrid source) {
+      target.merge(source);
+    }
+  }
+}
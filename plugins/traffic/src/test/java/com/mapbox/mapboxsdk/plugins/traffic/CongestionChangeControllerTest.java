@@ -0,0 +1,176 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.graphics.RectF;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionChange;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionDiff;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.models.Position;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CongestionChangeControllerTest {
+
+  @Mock
+  MapView mapView;
+
+  @Mock
+  MapboxMap mapboxMap;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private final List<List<CongestionChange>> notifications = new ArrayList<>();
+  private final TrafficPlugin.OnCongestionChangeListener listener = new TrafficPlugin.OnCongestionChangeListener() {
+    @Override
+    public void onCongestionChange(List<CongestionChange> changes) {
+      notifications.add(changes);
+    }
+  };
+
+  private CongestionChangeController controller;
+
+  @Before
+  public void beforeTest() {
+    when(mapView.getWidth()).thenReturn(1000);
+    when(mapView.getHeight()).thenReturn(500);
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    controller = new CongestionChangeController(mapView, mapboxMap, executor, executor,
+      new TrafficSummaryController.Callback() {
+        @Override
+        public String[] getQueryLayerIds() {
+          return new String[] {"traffic-motorway"};
+        }
+      });
+  }
+
+  @Test
+  public void testNoQueryWithoutListeners() {
+    controller.onTrafficRendered();
+
+    verify(mapboxMap, never()).queryRenderedFeatures(any(RectF.class), any(String[].class));
+  }
+
+  @Test
+  public void testChangeDetected() {
+    controller.addListener(listener);
+    render(createFeature("motorway", "moderate", 0.001, 0.001, 0.002, 0.001),
+      createFeature("street", "low", 0.001, 0.002, 0.001, 0.003));
+    render(createFeature("street", "low", 0.001, 0.002, 0.001, 0.003),
+      createFeature("motorway", "severe", 0.001, 0.001, 0.002, 0.001));
+
+    assertEquals(1, notifications.size());
+    CongestionChange change = notifications.get(0).get(0);
+    assertEquals(TrafficCodes.CLASS_MOTORWAY, change.getRoadClass());
+    assertEquals(TrafficCodes.CONGESTION_MODERATE, change.getPreviousCongestion());
+    assertEquals(TrafficCodes.CONGESTION_SEVERE, change.getCongestion());
+    assertEquals(0.002, change.getLongitude(1), 1e-9);
+  }
+
+  @Test
+  public void testUnchangedTrafficNotReported() {
+    controller.addListener(listener);
+    render(createFeature("motorway", "heavy", 0.001, 0.001, 0.002, 0.001));
+    render(createFeature("motorway", "heavy", 0.001, 0.001, 0.002, 0.001));
+
+    assertTrue(notifications.isEmpty());
+  }
+
+  @Test
+  public void testResetStartsNewBaseline() {
+    controller.addListener(listener);
+    render(createFeature("motorway", "low", 0.001, 0.001, 0.002, 0.001));
+    controller.reset();
+    render(createFeature("motorway", "heavy", 0.001, 0.001, 0.002, 0.001));
+
+    assertTrue(notifications.isEmpty());
+  }
+
+  @Test
+  public void testResetWithoutSnapshotsSchedulesNothing() {
+    final List<Runnable> commands = new ArrayList<>();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        commands.add(command);
+      }
+    };
+    CongestionChangeController idleController = new CongestionChangeController(mapView, mapboxMap, executor,
+      executor, new TrafficSummaryController.Callback() {
+        @Override
+        public String[] getQueryLayerIds() {
+          return new String[] {"traffic-motorway"};
+        }
+      });
+
+    idleController.reset();
+    idleController.onTrafficRendered();
+    idleController.reset();
+    assertTrue(commands.isEmpty());
+  }
+
+  @Test
+  public void testTilesLeavingViewportForgotten() {
+    CongestionDiff diff = new CongestionDiff();
+    CongestionChangeController.detect(diff, Arrays.asList(
+      createFeature("motorway", "low", 0.001, 0.001, 0.002, 0.001),
+      createFeature("motorway", "low", 10.001, 10.001, 10.002, 10.001)));
+    assertEquals(2, diff.getTileCount());
+
+    CongestionChangeController.detect(diff, Arrays.asList(
+      createFeature("motorway", "heavy", 10.001, 10.001, 10.002, 10.001)));
+    assertEquals(1, diff.getTileCount());
+  }
+
+  private void render(Feature... features) {
+    when(mapboxMap.queryRenderedFeatures(any(RectF.class), eq("traffic-motorway")))
+      .thenReturn(Arrays.asList(features));
+    controller.onTrafficRendered();
+  }
+
+  private static Feature createFeature(String roadClass, String congestion, double... coordinates) {
+    List<Position> positions = new ArrayList<>();
+    for (int i = 0; i < coordinates.length; i += 2) {
+      Position position = mock(Position.class);
+      when(position.getLongitude()).thenReturn(coordinates[i]);
+      when(position.getLatitude()).thenReturn(coordinates[i + 1]);
+      positions.add(position);
+    }
+    LineString lineString = mock(LineString.class);
+    when(lineString.getCoordinates()).thenReturn(positions);
+
+    Feature feature = mock(Feature.class);
+    when(feature.getGeometry()).thenReturn(lineString);
+    when(feature.getStringProperty("class")).thenReturn(roadClass);
+    when(feature.getStringProperty("congestion")).thenReturn(congestion);
+    return feature;
+  }
+}
@@ -0,0 +1,115 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficAnchorCacheTest {
+
+  private static final String STYLE_URL = "mapbox://styles/mapbox/streets-v9";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testEntriesKeptAcrossLaunches() {
+    File file = new File(temporaryFolder.getRoot(), "cache/anchors.bin");
+    TrafficAnchorCache cache = new TrafficAnchorCache(file, new DirectExecutor());
+    assertNull(cache.get(STYLE_URL));
+    cache.put(STYLE_URL, "\"etag\"", "bridge-motorway");
+    cache.put("file:///style.json", null, null);
+    assertTrue(file.exists());
+
+    TrafficAnchorCache reopened = new TrafficAnchorCache(file, new DirectExecutor());
+    TrafficAnchorCache.Entry entry = reopened.get(STYLE_URL);
+    assertNotNull(entry);
+    assertEquals("\"etag\"", entry.version);
+    assertEquals("bridge-motorway", entry.anchorLayerId);
+    entry = reopened.get("file:///style.json");
+    assertNotNull(entry);
+    assertNull(entry.version);
+    assertTrue(entry.hasAnchorLayerId(null));
+  }
+
+  @Test
+  public void testNewVersionReplacesEntry() {
+    File file = new File(temporaryFolder.getRoot(), "anchors.bin");
+    TrafficAnchorCache cache = new TrafficAnchorCache(file, new DirectExecutor());
+    cache.put(STYLE_URL, "1", "bridge-motorway");
+    cache.put(STYLE_URL, "2", "road-label");
+
+    TrafficAnchorCache.Entry entry = new TrafficAnchorCache(file, new DirectExecutor()).get(STYLE_URL);
+    assertEquals("2", entry.version);
+    assertEquals("road-label", entry.anchorLayerId);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntriesEvicted() {
+    File file = new File(temporaryFolder.getRoot(), "anchors.bin");
+    TrafficAnchorCache cache = new TrafficAnchorCache(file, new DirectExecutor());
+    for (int i = 0; i <= TrafficAnchorCache.MAX_ENTRIES; i++) {
+      cache.put("style-" + i, null, "anchor-" + i);
+      // keep the first entry in use
+      cache.get("style-0");
+    }
+
+    TrafficAnchorCache reopened = new TrafficAnchorCache(file, new DirectExecutor());
+    assertNotNull(reopened.get("style-0"));
+    assertNull(reopened.get("style-1"));
+    assertNotNull(reopened.get("style-" + TrafficAnchorCache.MAX_ENTRIES));
+  }
+
+  @Test
+  public void testCorruptFileDiscarded() throws IOException {
+    File file = new File(temporaryFolder.getRoot(), "anchors.bin");
+    new TrafficAnchorCache(file, new DirectExecutor()).put(STYLE_URL, "1", "bridge-motorway");
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.seek(16);
+      int value = randomAccessFile.read();
+      randomAccessFile.seek(16);
+      randomAccessFile.write(value ^ 0xff);
+    } finally {
+      randomAccessFile.close();
+    }
+
+    TrafficAnchorCache reopened = new TrafficAnchorCache(file, new DirectExecutor());
+    assertNull(reopened.get(STYLE_URL));
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testTruncatedFileDiscarded() throws IOException {
+    File file = new File(temporaryFolder.getRoot(), "anchors.bin");
+    new TrafficAnchorCache(file, new DirectExecutor()).put(STYLE_URL, "1", "bridge-motorway");
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(randomAccessFile.length() - 6);
+    } finally {
+      randomAccessFile.close();
+    }
+
+    assertNull(new TrafficAnchorCache(file, new DirectExecutor()).get(STYLE_URL));
+    assertFalse(file.exists());
+  }
+
+  private static class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficFeedControllerTest {
+
+  private static final String FEED = "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+    + "\"properties\":{\"class\":\"primary\",\"congestion\":\"%s\"},"
+    + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1.0,2.0],[3.0,4.0]]}}]}";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<String> feeds = new ArrayList<>();
+  private final List<IOException> failures = new ArrayList<>();
+  private final TrafficFeedController controller = new TrafficFeedController(new DirectExecutor(),
+    new DirectExecutor(), new TrafficFeedController.Callback() {
+      @Override
+      public void onFeedChanged(String geoJson) {
+        feeds.add(geoJson);
+      }
+
+      @Override
+      public void onFeedFailed(IOException exception) {
+        failures.add(exception);
+      }
+    });
+
+  @Test
+  public void testRefreshOnlyDeliversChanges() throws IOException {
+    File file = temporaryFolder.newFile("feed.json");
+    write(file, String.format(FEED, "low"));
+    controller.setUrl(file.toURI().toString());
+    assertEquals(TrafficFeedController.EMPTY_GEOJSON, controller.getGeoJson());
+
+    controller.refresh();
+    assertEquals(1, feeds.size());
+    assertEquals(String.format(FEED, "low"), controller.getGeoJson());
+
+    controller.refresh();
+    assertEquals(1, feeds.size());
+
+    write(file, String.format(FEED, "severe"));
+    controller.refresh();
+    assertEquals(2, feeds.size());
+    assertEquals(String.format(FEED, "severe"), feeds.get(1));
+  }
+
+  @Test
+  public void testSetUrlDeliversAgain() throws IOException {
+    File file = temporaryFolder.newFile("feed.json");
+    write(file, String.format(FEED, "low"));
+    String url = file.toURI().toString();
+    controller.setUrl(url);
+    controller.refresh();
+    controller.setUrl(null);
+    controller.refresh();
+    controller.setUrl(url);
+    controller.refresh();
+    assertEquals(2, feeds.size());
+  }
+
+  @Test
+  public void testMissingFeed() {
+    controller.setUrl(new File(temporaryFolder.getRoot(), "missing.json").toURI().toString());
+    controller.refresh();
+    assertTrue(feeds.isEmpty());
+    assertEquals(1, failures.size());
+  }
+
+  @Test
+  public void testUnexpectedFeedStructure() throws IOException {
+    File file = temporaryFolder.newFile("feed.json");
+    write(file, "[" + String.format(FEED, "low") + "]");
+    controller.setUrl(file.toURI().toString());
+    controller.refresh();
+    assertTrue(feeds.isEmpty());
+    assertEquals(1, failures.size());
+  }
+
+  private static void write(File file, String content) throws IOException {
+    FileOutputStream output = new FileOutputStream(file);
+    try {
+      output.write(content.getBytes("UTF-8"));
+    } finally {
+      output.close();
+    }
+  }
+
+  private static class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficLayerTablesTest {
+
+  @Test
+  public void testGeneratedTable() {
+    TrafficLayerTable table = TrafficLayerTables.create();
+    assertEquals(5, table.size());
+    assertEquals(TrafficLayerTables.Local.BASE_LAYER_ID, table.baseLayerIds[0]);
+    assertEquals(TrafficLayerTables.MotorWay.CASE_LAYER_ID, table.caseLayerIds[table.size() - 1]);
+    assertEquals(TrafficLayerTables.Local.ZOOM_LEVEL, table.minZooms[0], 0.001);
+  }
+
+  @Test
+  public void testGeneratedStops() {
+    TrafficLayerTable table = TrafficLayerTables.create();
+    for (int i = 0; i < table.size(); i++) {
+      assertStops(table.lineWidthStops[i]);
+      assertStops(table.caseLineWidthStops[i]);
+      assertStops(table.lineOffsetStops[i]);
+      if (table.getCaseLineOpacityStops(i) != null) {
+        assertStops(table.getCaseLineOpacityStops(i));
+      }
+    }
+  }
+
+  @Test
+  public void testGeneratedColors() {
+    assertEquals(0xff39c66d, TrafficLayerTables.BASE_COLORS[0]);
+    assertEquals(0xff5f1117, TrafficLayerTables.CASE_COLORS[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchingRows() {
+    new TrafficLayerTable(new int[4], new int[4], new String[] {"base"}, new String[0], new float[1],
+      new String[1][], new float[1][], new float[1][], new float[1][], new float[1][]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMinZoom() {
+    new TrafficLayerTable(new int[4], new int[4], new String[] {"base"}, new String[] {"case"}, new float[] {-1},
+      new String[1][], new float[1][], new float[1][], new float[1][], new float[1][]);
+  }
+
+  @Test
+  public void testSpecCacheKeepsRecentProfiles() {
+    TrafficLayerSpecCache cache = new TrafficLayerSpecCache(TrafficLayerTables.create());
+    List<TrafficLayerSpec> defaultSpecs = cache.get(TrafficProfile.DEFAULT);
+    List<TrafficLayerSpec> wideSpecs = cache.get(new TrafficProfile(null, null, 2.0f, 1.0f));
+    for (int i = 2; i < TrafficLayerSpecCache.MAX_PROFILES; i++) {
+      cache.get(new TrafficProfile(null, null, 1.0f + i, 1.0f));
+    }
+    assertSame(defaultSpecs, cache.get(TrafficProfile.DEFAULT));
+
+    // the least recently used profile is evicted
+    cache.get(new TrafficProfile(null, null, 0.5f, 1.0f));
+    assertSame(defaultSpecs, cache.get(TrafficProfile.DEFAULT));
+    assertNotSame(wideSpecs, cache.get(new TrafficProfile(null, null, 2.0f, 1.0f)));
+  }
+
+  private static void assertStops(float[] stops) {
+    assertNotNull(stops);
+    assertTrue(stops.length >= 4);
+    assertEquals(0, stops.length % 2);
+    for (int i = 2; i < stops.length; i += 2) {
+      assertTrue("zoom stops must be ascending", stops[i] > stops[i - 2]);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionGrid;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrafficOverviewControllerTest {
+
+  @Mock
+  MapboxMap mapboxMap;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private int firstGrids;
+  private TrafficOverviewController controller;
+
+  @Before
+  public void beforeTest() {
+    controller = new TrafficOverviewController(mapboxMap, new DirectExecutor(), new DirectExecutor(),
+      new TrafficOverviewController.Callback() {
+        @Override
+        public void onFirstGrid() {
+          firstGrids++;
+        }
+      });
+  }
+
+  @Test
+  public void testEnabledWithoutGridShowsLines() {
+    controller.setEnabled(true);
+    controller.setZoom(11);
+    assertEquals(0, controller.getLineMinZoom(), 0.0f);
+    assertEquals(0, firstGrids);
+
+    controller.setGrid(newGrid());
+    assertEquals(11, controller.getLineMinZoom(), 0.0f);
+    assertEquals(1, firstGrids);
+
+    controller.setGrid(newGrid());
+    assertEquals(1, firstGrids);
+
+    controller.setEnabled(false);
+    assertEquals(0, controller.getLineMinZoom(), 0.0f);
+  }
+
+  @Test
+  public void testGridBeforeEnabled() {
+    controller.setGrid(newGrid());
+    assertEquals(0, firstGrids);
+
+    controller.setEnabled(true);
+    assertEquals(TrafficOverviewController.DEFAULT_ZOOM, controller.getLineMinZoom(), 0.0f);
+  }
+
+  private static CongestionGrid newGrid() {
+    CongestionGrid grid = new CongestionGrid();
+    grid.add(2, 13.4, 52.5, 100);
+    return grid;
+  }
+
+  private static class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
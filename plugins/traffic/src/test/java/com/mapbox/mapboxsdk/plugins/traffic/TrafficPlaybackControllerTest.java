@@ -0,0 +1,157 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficRecording;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficSegments;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrafficPlaybackControllerTest {
+
+  private static final long TILE_ID = 1;
+
+  @Mock
+  MapView mapView;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<String> frames = new ArrayList<>();
+  private TrafficRecording recording;
+  private TrafficPlaybackController controller;
+
+  @Before
+  public void beforeTest() throws IOException {
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    controller = new TrafficPlaybackController(mapView, executor, executor, new TrafficPlaybackController.Callback() {
+      @Override
+      public void onFrame(String geoJson) {
+        frames.add(geoJson);
+      }
+
+      @Override
+      public void onPlaybackFailed(IOException exception) {
+        throw new AssertionError(exception);
+      }
+    });
+
+    recording = TrafficRecording.open(folder.newFile());
+    recording.append(1000, TILE_ID, segments(TrafficCodes.CONGESTION_LOW));
+    recording.append(2000, TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE));
+  }
+
+  @After
+  public void afterTest() throws IOException {
+    recording.close();
+  }
+
+  @Test
+  public void testPlayback() {
+    controller.start(recording, 1500, 10);
+    assertTrue(controller.isActive());
+    verify(mapView).postDelayed(any(Runnable.class), anyLong());
+    assertEquals(1, frames.size());
+    assertTrue(frames.get(0).contains("\"congestion\":\"low\""));
+
+    // nothing was recorded in between
+    controller.advanceTo(1900);
+    assertEquals(1, frames.size());
+
+    controller.advanceTo(2000);
+    assertEquals(2, frames.size());
+    assertTrue(frames.get(1).contains("\"congestion\":\"severe\""));
+    assertEquals(2000, controller.getPlaybackTime());
+    assertEquals(frames.get(1), controller.getGeoJson());
+  }
+
+  @Test
+  public void testSeekBackwards() {
+    controller.start(recording, 2000, 1);
+    controller.start(recording, 1000, 1);
+    assertEquals(2, frames.size());
+    assertTrue(frames.get(1).contains("\"congestion\":\"low\""));
+  }
+
+  @Test
+  public void testStop() {
+    controller.start(recording, 1000, 1);
+    controller.stop();
+    assertFalse(controller.isActive());
+    assertEquals(TrafficFeedController.EMPTY_GEOJSON, controller.getGeoJson());
+    assertFalse(controller.advanceTo(2000));
+    assertEquals(1, frames.size());
+  }
+
+  @Test
+  public void testCorruptRecordingStopsPlayback() throws IOException {
+    final List<IOException> failures = new ArrayList<>();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    TrafficPlaybackController failingController = new TrafficPlaybackController(mapView, executor, executor,
+      new TrafficPlaybackController.Callback() {
+        @Override
+        public void onFrame(String geoJson) {
+          frames.add(geoJson);
+        }
+
+        @Override
+        public void onPlaybackFailed(IOException exception) {
+          failures.add(exception);
+        }
+      });
+    TrafficRecording corrupt = mock(TrafficRecording.class);
+    when(corrupt.replay(anyLong(), anyLong(), any(TrafficRecording.Listener.class)))
+      .thenThrow(new IndexOutOfBoundsException());
+
+    failingController.start(corrupt, 1000, 1);
+    assertTrue(failingController.advanceTo(2000));
+    assertEquals(1, failures.size());
+    assertFalse(failingController.isActive());
+    int delivered = frames.size();
+
+    // a new playback isn't blocked by the failed frame
+    failingController.start(recording, 1000, 1);
+    assertTrue(failingController.advanceTo(2000));
+    assertEquals(delivered + 2, frames.size());
+  }
+
+  private static TrafficSegments segments(int congestion) {
+    TrafficSegments segments = new TrafficSegments();
+    segments.add(TrafficCodes.CLASS_PRIMARY, congestion, new double[] {0.1, 0.1, 0.2, 0.2}, 0, 2);
+    return segments;
+  }
+}
@@ -1,16 +1,53 @@
 package com.mapbox.mapboxsdk.plugins.traffic;
 
+import android.os.Bundle;
+
+import com.mapbox.mapboxsdk.constants.Style;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.plugins.pluginmanager.PluginManager;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.Property;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+import com.mapbox.mapboxsdk.style.layers.SymbolLayer;
+import com.mapbox.mapboxsdk.style.sources.Source;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static junit.framework.TestCase.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class TrafficPluginTest {
 
@@ -20,17 +57,40 @@ public class TrafficPluginTest {
   @Mock
   MapboxMap mapboxMap;
 
+  @Mock
+  Bundle bundle;
+
   @Rule
   public MockitoRule mockitoRule = MockitoJUnit.rule();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test(expected = NullPointerException.class)
   public void testNonNullAnnotatedArgs() {
-    new TrafficPlugin(null, null);
+    new TrafficPlugin((MapView) null, null);
   }
 
   @Test
   public void testSanity() {
-    new TrafficPlugin(mapView, mapboxMap);
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    verify(mapView).addOnMapChangedListener(trafficPlugin);
+  }
+
+  @Test
+  public void testHostedByPluginManager() {
+    PluginManager pluginManager = new PluginManager(mapView);
+    TrafficPlugin trafficPlugin = new TrafficPlugin(pluginManager, mapboxMap);
+    verify(mapView, never()).addOnMapChangedListener(trafficPlugin);
+    assertTrue(pluginManager.getPlugins().contains(trafficPlugin));
+
+    // style loads are delivered through the plugin manager
+    trafficPlugin.toggle();
+    pluginManager.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    verify(mapView).post(any(Runnable.class));
+
+    pluginManager.onDestroy();
+    verify(mapView).removeOnMapChangedListener(trafficPlugin);
   }
 
   @Test
@@ -40,4 +100,347 @@ public class TrafficPluginTest {
     trafficPlugin.toggle();
     assertTrue(trafficPlugin.isEnabled());
   }
+
+  @Test
+  public void testSaveInstanceState() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onSaveInstanceState(bundle);
+    verify(bundle, times(3)).putBoolean(anyString(), eq(false));
+    verify(bundle).putFloat(anyString(), eq(TrafficOverviewController.DEFAULT_ZOOM));
+    verify(bundle).putString(anyString(), (String) isNull());
+  }
+
+  @Test
+  public void testRestoreInstanceStateOverviewAndFeed() {
+    final Map<String, Object> state = new HashMap<>();
+    Answer<Void> put = new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        state.put((String) invocation.getArgument(0), invocation.getArgument(1));
+        return null;
+      }
+    };
+    Answer<Object> get = new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) {
+        Object value = state.get(invocation.getArgument(0));
+        return value == null && invocation.getArguments().length > 1 ? invocation.getArgument(1) : value;
+      }
+    };
+    doAnswer(put).when(bundle).putBoolean(anyString(), anyBoolean());
+    doAnswer(put).when(bundle).putFloat(anyString(), anyFloat());
+    doAnswer(put).when(bundle).putString(anyString(), (String) any());
+    doAnswer(put).when(bundle).putStringArray(anyString(), (String[]) any());
+    when(bundle.getBoolean(anyString())).thenAnswer(get);
+    when(bundle.getBoolean(anyString(), anyBoolean())).thenAnswer(get);
+    when(bundle.getFloat(anyString(), anyFloat())).thenAnswer(get);
+    when(bundle.getString(anyString())).thenAnswer(get);
+    when(bundle.getStringArray(anyString())).thenAnswer(get);
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap, new DirectExecutor(), new DirectExecutor());
+    trafficPlugin.setOverviewEnabled(true);
+    trafficPlugin.setOverviewZoom(11);
+    trafficPlugin.onSaveInstanceState(bundle);
+
+    TrafficPlugin restored = new TrafficPlugin(mapView, mapboxMap, new DirectExecutor(), new DirectExecutor());
+    restored.onRestoreInstanceState(bundle);
+    assertTrue(restored.isOverviewEnabled());
+    assertEquals(11, restored.getOverviewZoom(), 0.0f);
+    assertNull(restored.getTrafficFeed());
+
+    state.put("mapbox_traffic_plugin_traffic_feed", "file:///traffic.json");
+    restored.onRestoreInstanceState(bundle);
+    assertEquals("file:///traffic.json", restored.getTrafficFeed());
+  }
+
+  @Test
+  public void testRestoreInstanceStateReattach() {
+    String[] layerIds = new String[] {"traffic-local-case", "traffic-local"};
+    when(bundle.getBoolean(anyString())).thenReturn(true);
+    when(bundle.getStringArray(anyString())).thenReturn(layerIds);
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    when(mapboxMap.getLayer(anyString())).thenReturn(mock(Layer.class));
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onRestoreInstanceState(bundle);
+
+    assertTrue(trafficPlugin.isEnabled());
+    verify(mapboxMap, never()).addSource(any(Source.class));
+    verify(mapboxMap, never()).addLayerAbove(any(Layer.class), anyString());
+  }
+
+  @Test
+  public void testToggleUsesCachedLayers() {
+    Layer layer = mock(Layer.class);
+    when(bundle.getBoolean(anyString())).thenReturn(true);
+    when(bundle.getStringArray(anyString())).thenReturn(new String[] {"traffic-local"});
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    when(mapboxMap.getLayer(anyString())).thenReturn(layer);
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onRestoreInstanceState(bundle);
+    trafficPlugin.toggle();
+    trafficPlugin.toggle();
+
+    verify(layer, times(3)).setProperties((PropertyValue<?>) any());
+    verify(mapboxMap, times(1)).getSource(TrafficPlugin.TrafficData.SOURCE_ID);
+    verify(mapboxMap, never()).getLayers();
+  }
+
+  @Test
+  public void testStyleChangeReleasesCachedLayers() {
+    when(bundle.getBoolean(anyString())).thenReturn(false);
+    when(bundle.getStringArray(anyString())).thenReturn(new String[] {"traffic-local"});
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    Layer layer = mock(Layer.class);
+    when(mapboxMap.getLayer("traffic-local")).thenReturn(layer);
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onRestoreInstanceState(bundle);
+    trafficPlugin.onMapChanged(MapView.WILL_START_LOADING_MAP);
+    trafficPlugin.toggle();
+
+    verify(mapboxMap, times(2)).getSource(TrafficPlugin.TrafficData.SOURCE_ID);
+    // the layers are resolved again from their ids and shown
+    verify(mapboxMap, times(2)).getLayer("traffic-local");
+    ArgumentCaptor<PropertyValue> visibility = ArgumentCaptor.forClass(PropertyValue.class);
+    verify(layer, times(2)).setProperties(visibility.capture());
+    assertEquals("visibility", visibility.getValue().name);
+    assertEquals(Property.VISIBLE, visibility.getValue().value);
+  }
+
+  @Test
+  public void testRestoreInstanceStateNull() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onRestoreInstanceState(null);
+    assertFalse(trafficPlugin.isEnabled());
+  }
+
+  @Test
+  public void testStyleLoadedCoalesced() {
+    when(mapboxMap.getStyleUrl()).thenReturn("mapbox://styles/mapbox/streets-v10");
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.toggle();
+    trafficPlugin.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    trafficPlugin.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    trafficPlugin.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+    verify(mapView, times(1)).post(any(Runnable.class));
+  }
+
+  @Test
+  public void testStyleLoadedSkippedWhenStyleReplaced() {
+    when(mapboxMap.getStyleUrl()).thenReturn("mapbox://styles/mapbox/streets-v10");
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.toggle();
+    trafficPlugin.onMapChanged(MapView.DID_FINISH_LOADING_STYLE);
+
+    ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(mapView).post(runnableCaptor.capture());
+    when(mapboxMap.getStyleUrl()).thenReturn("mapbox://styles/mapbox/dark-v9");
+    runnableCaptor.getValue().run();
+
+    // only the source lookup of the initial toggle, the replaced style isn't updated
+    verify(mapboxMap, times(1)).getSource(TrafficPlugin.TrafficData.SOURCE_ID);
+  }
+
+  @Test
+  public void testSetEnabled() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap, new DirectExecutor());
+    trafficPlugin.setEnabled(true);
+    assertTrue(trafficPlugin.isEnabled());
+    trafficPlugin.setEnabled(false);
+    assertFalse(trafficPlugin.isEnabled());
+  }
+
+  @Test
+  public void testStateChangeListener() {
+    final List<Integer> states = new ArrayList<>();
+    final List<Throwable> causes = new ArrayList<>();
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.addOnTrafficStateChangeListener(new TrafficPlugin.OnTrafficStateChangeListener() {
+      @Override
+      public void onTrafficStateChanged(int state, Throwable cause) {
+        states.add(state);
+        causes.add(cause);
+      }
+    });
+    trafficPlugin.toggle();
+
+    // native libraries aren't available in unit tests, installing fails
+    assertEquals(3, states.size());
+    assertEquals(TrafficPlugin.STATE_REQUESTED, (int) states.get(0));
+    assertEquals(TrafficPlugin.STATE_INSTALLING, (int) states.get(1));
+    assertEquals(TrafficPlugin.STATE_FAILED, (int) states.get(2));
+    assertNotNull(causes.get(2));
+  }
+
+  @Test
+  public void testStateChangeListenerVisible() {
+    final List<Integer> states = new ArrayList<>();
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    TrafficPlugin.OnTrafficStateChangeListener listener = new TrafficPlugin.OnTrafficStateChangeListener() {
+      @Override
+      public void onTrafficStateChanged(int state, Throwable cause) {
+        states.add(state);
+      }
+    };
+    trafficPlugin.addOnTrafficStateChangeListener(listener);
+    trafficPlugin.toggle();
+    trafficPlugin.removeOnTrafficStateChangeListener(listener);
+    trafficPlugin.toggle();
+
+    assertEquals(2, states.size());
+    assertEquals(TrafficPlugin.STATE_REQUESTED, (int) states.get(0));
+    assertEquals(TrafficPlugin.STATE_VISIBLE, (int) states.get(1));
+  }
+
+  @Test
+  public void testTrafficProfileSelection() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    assertEquals(TrafficProfile.DARK, trafficPlugin.getTrafficProfile(Style.DARK));
+    assertEquals(TrafficProfile.SATELLITE, trafficPlugin.getTrafficProfile(Style.SATELLITE_STREETS));
+    assertEquals(TrafficProfile.DEFAULT, trafficPlugin.getTrafficProfile(Style.MAPBOX_STREETS));
+    assertEquals(TrafficProfile.DEFAULT, trafficPlugin.getTrafficProfile(null));
+  }
+
+  @Test
+  public void testSetTrafficProfile() {
+    TrafficProfile profile = new TrafficProfile(null, null, 2.0f, 0.5f);
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.setTrafficProfile(Style.MAPBOX_STREETS, profile);
+    trafficPlugin.setTrafficProfile(Style.DARK, null);
+    assertEquals(profile, trafficPlugin.getTrafficProfile(Style.MAPBOX_STREETS));
+    assertEquals(TrafficProfile.DEFAULT, trafficPlugin.getTrafficProfile(Style.DARK));
+  }
+
+  @Test
+  public void testSetTrafficProfileUpdatesLayers() {
+    List<TrafficLayerSpec> layerSpecs = TrafficLayerRegistry.getLayerSpecs();
+    String[] layerIds = new String[layerSpecs.size()];
+    for (int i = 0; i < layerIds.length; i++) {
+      layerIds[i] = layerSpecs.get(i).getId();
+    }
+    final List<Layer> layers = new ArrayList<>();
+    when(bundle.getBoolean(anyString())).thenReturn(true);
+    when(bundle.getStringArray(anyString())).thenReturn(layerIds);
+    when(mapboxMap.getStyleUrl()).thenReturn(Style.MAPBOX_STREETS);
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    when(mapboxMap.getLayer(anyString())).thenAnswer(new Answer<Layer>() {
+      @Override
+      public Layer answer(InvocationOnMock invocation) {
+        Layer layer = mock(Layer.class);
+        layers.add(layer);
+        return layer;
+      }
+    });
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.onRestoreInstanceState(bundle);
+    trafficPlugin.setTrafficProfile(Style.MAPBOX_STREETS, new TrafficProfile(null, null, 1.5f, 0.5f));
+
+    // the transition duration of the style is kept unless set explicitly
+    verify(mapboxMap, never()).setTransitionDuration(anyLong());
+
+    trafficPlugin.setTransitionDuration(500);
+    trafficPlugin.setTrafficProfile(Style.MAPBOX_STREETS, new TrafficProfile(null, null, 2.0f, 0.5f));
+
+    verify(mapboxMap, never()).removeLayer(anyString());
+    verify(mapboxMap).setTransitionDuration(500);
+    for (int i = 0; i < layers.size(); i++) {
+      verify(layers.get(i), times(2)).setProperties((PropertyValue<?>) any(), any(), any(), any());
+    }
+  }
+
+  @Test
+  public void testAttachToStyleFragment() {
+    Layer layer = mock(Layer.class);
+    when(mapboxMap.getSource(TrafficPlugin.TrafficData.SOURCE_ID)).thenReturn(mock(Source.class));
+    when(mapboxMap.getLayer(anyString())).thenReturn(layer);
+
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    List<String> fragmentLayerIds = trafficPlugin.getStyleFragment(null).getLayerIds();
+    trafficPlugin.toggle();
+
+    for (String layerId : fragmentLayerIds) {
+      verify(mapboxMap).getLayer(layerId);
+    }
+    verify(mapboxMap, never()).addLayerAbove(any(Layer.class), anyString());
+    verify(layer, times(fragmentLayerIds.size())).setProperties((PropertyValue<?>) any());
+  }
+
+  @Test
+  public void testOverviewSettings() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    assertFalse(trafficPlugin.isOverviewEnabled());
+    assertEquals(TrafficOverviewController.DEFAULT_ZOOM, trafficPlugin.getOverviewZoom(), 0.0f);
+
+    // traffic isn't installed yet, nothing is added to the style
+    trafficPlugin.setOverviewEnabled(true);
+    trafficPlugin.setOverviewZoom(8);
+    assertTrue(trafficPlugin.isOverviewEnabled());
+    assertEquals(8, trafficPlugin.getOverviewZoom(), 0.0f);
+    verify(mapboxMap, never()).addSource(any(Source.class));
+  }
+
+  @Test
+  public void testLoadStyleWithOverviewUsesStyleUrl() {
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    trafficPlugin.setOverviewEnabled(true);
+
+    // the overview isn't part of the style fragment, traffic is added once the style is loaded
+    trafficPlugin.loadStyle(Style.DARK);
+    verify(mapboxMap).setStyleUrl(Style.DARK);
+    verify(mapboxMap, never()).setStyleJson(anyString());
+  }
+
+  @Test
+  public void testResolveAnchorBelowFirstSymbolLayer() {
+    Layer roadLayer = mock(Layer.class);
+    when(roadLayer.getId()).thenReturn("road-primary");
+    SymbolLayer labelLayer = mock(SymbolLayer.class);
+    when(mapboxMap.getLayers()).thenReturn(Arrays.asList(mock(Layer.class), roadLayer, labelLayer));
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap);
+    assertEquals("road-primary", trafficPlugin.resolveAnchorLayerId());
+
+    // the default anchor is found without listing the layers
+    when(mapboxMap.getLayer(TrafficPlugin.TrafficData.ANCHOR_LAYER_ID)).thenReturn(mock(Layer.class));
+    assertEquals(TrafficPlugin.TrafficData.ANCHOR_LAYER_ID, trafficPlugin.resolveAnchorLayerId());
+    verify(mapboxMap, times(1)).getLayers();
+  }
+
+  @Test
+  public void testResolveAnchorPrefersDefaultAnchorOverUnversionedCache() {
+    when(mapboxMap.getStyleUrl()).thenReturn("mapbox://styles/mapbox/streets-v9");
+    TrafficAnchorCache anchorCache = new TrafficAnchorCache(new File(temporaryFolder.getRoot(), "anchors.bin"),
+      new DirectExecutor());
+    anchorCache.put("mapbox://styles/mapbox/streets-v9", null, "road-primary");
+    when(mapboxMap.getLayer("road-primary")).thenReturn(mock(Layer.class));
+    TrafficPlugin trafficPlugin = new TrafficPlugin(mapView, mapboxMap, new DirectExecutor(), new DirectExecutor(),
+      anchorCache);
+    assertEquals("road-primary", trafficPlugin.resolveAnchorLayerId());
+
+    // a new version of the style adding the default anchor replaces the anchor of an unknown version
+    when(mapboxMap.getLayer(TrafficPlugin.TrafficData.ANCHOR_LAYER_ID)).thenReturn(mock(Layer.class));
+    assertEquals(TrafficPlugin.TrafficData.ANCHOR_LAYER_ID, trafficPlugin.resolveAnchorLayerId());
+    assertEquals(TrafficPlugin.TrafficData.ANCHOR_LAYER_ID,
+      anchorCache.get("mapbox://styles/mapbox/streets-v9").anchorLayerId);
+
+    // an anchor resolved for a known version of the style is used as long as the style contains it
+    anchorCache.put("mapbox://styles/mapbox/streets-v9", "1000/42", "road-primary");
+    assertEquals("road-primary", trafficPlugin.resolveAnchorLayerId());
+    verify(mapboxMap, never()).getLayers();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeOverviewZoom() {
+    new TrafficPlugin(mapView, mapboxMap).setOverviewZoom(-1);
+  }
+
+  private static class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
 }
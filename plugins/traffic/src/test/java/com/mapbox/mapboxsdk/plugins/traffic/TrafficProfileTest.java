@@ -0,0 +1,48 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class TrafficProfileTest {
+
+  @Test
+  public void testScaleStops() {
+    float[] stops = new float[] {10, 1.0f, 18, 4.0f};
+    assertArrayEquals(new float[] {10, 1.5f, 18, 6.0f}, TrafficProfile.scaleStops(stops, 1.5f), 0.001f);
+    assertArrayEquals(new float[] {10, 1.0f, 18, 4.0f}, stops, 0.001f);
+  }
+
+  @Test
+  public void testScaleStopsIdentity() {
+    float[] stops = new float[] {10, 1.0f, 18, 4.0f};
+    assertSame(stops, TrafficProfile.scaleStops(stops, 1.0f));
+  }
+
+  @Test
+  public void testColorFallback() {
+    int[] fallback = new int[] {1, 2, 3, 4};
+    assertSame(fallback, TrafficProfile.DEFAULT.getBaseColors(fallback));
+    assertEquals(0xff4cd787, TrafficProfile.DARK.getBaseColors(fallback)[0]);
+  }
+
+  @Test
+  public void testEquality() {
+    assertEquals(TrafficProfile.DEFAULT, new TrafficProfile(null, null, 1.0f, 1.0f));
+    assertEquals(TrafficProfile.DEFAULT.hashCode(), new TrafficProfile(null, null, 1.0f, 1.0f).hashCode());
+    assertNotEquals(TrafficProfile.DEFAULT, TrafficProfile.SATELLITE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidColors() {
+    new TrafficProfile(new int[] {1, 2, 3}, null, 1.0f, 1.0f);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidOpacity() {
+    new TrafficProfile(null, null, 1.0f, 1.5f);
+  }
+}
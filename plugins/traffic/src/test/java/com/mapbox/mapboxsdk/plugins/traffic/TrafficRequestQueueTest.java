@@ -0,0 +1,126 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficRequestQueueTest {
+
+  @Test
+  public void testRequestsCollapse() {
+    ManualExecutor executor = new ManualExecutor();
+    RecordingCallback callback = new RecordingCallback();
+    TrafficRequestQueue requestQueue = new TrafficRequestQueue(executor, callback);
+
+    for (int i = 0; i < 100; i++) {
+      requestQueue.offer(i % 2 == 0);
+    }
+    requestQueue.offer(true);
+
+    assertEquals(1, executor.commands.size());
+    executor.runAll();
+    assertEquals(1, callback.states.size());
+    assertTrue(callback.states.get(0));
+  }
+
+  @Test
+  public void testRequestAfterDrainSchedulesAgain() {
+    ManualExecutor executor = new ManualExecutor();
+    RecordingCallback callback = new RecordingCallback();
+    TrafficRequestQueue requestQueue = new TrafficRequestQueue(executor, callback);
+
+    requestQueue.offer(true);
+    executor.runAll();
+    requestQueue.offer(false);
+    executor.runAll();
+
+    assertEquals(2, callback.states.size());
+    assertEquals(false, callback.states.get(1));
+  }
+
+  @Test
+  public void testConcurrentRequestsLastWriterWins() throws Exception {
+    final int threadCount = 8;
+    final int requestCount = 10000;
+    ExecutorService mainThread = Executors.newSingleThreadExecutor();
+    ExecutorService backgroundThreads = Executors.newFixedThreadPool(threadCount);
+    final AtomicInteger deliveries = new AtomicInteger();
+    final boolean[] lastState = new boolean[1];
+    final TrafficRequestQueue requestQueue = new TrafficRequestQueue(mainThread, new TrafficRequestQueue.Callback() {
+      @Override
+      public void onDesiredState(boolean enabled) {
+        deliveries.incrementAndGet();
+        lastState[0] = enabled;
+      }
+    });
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threadCount);
+    for (int thread = 0; thread < threadCount; thread++) {
+      backgroundThreads.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < requestCount; i++) {
+              requestQueue.offer(i % 2 == 0);
+            }
+          } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    start.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    // final request after all writers finished must win
+    requestQueue.offer(true);
+    mainThread.shutdown();
+    assertTrue(mainThread.awaitTermination(10, TimeUnit.SECONDS));
+    backgroundThreads.shutdown();
+
+    assertTrue(lastState[0]);
+    assertTrue(deliveries.get() > 0);
+  }
+
+  private static class ManualExecutor implements Executor {
+
+    private final List<Runnable> commands = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      commands.add(command);
+    }
+
+    void runAll() {
+      List<Runnable> pending = new ArrayList<>(commands);
+      commands.clear();
+      for (Runnable command : pending) {
+        command.run();
+      }
+    }
+  }
+
+  private static class RecordingCallback implements TrafficRequestQueue.Callback {
+
+    private final List<Boolean> states = new ArrayList<>();
+
+    @Override
+    public void onDesiredState(boolean enabled) {
+      states.add(enabled);
+    }
+  }
+}
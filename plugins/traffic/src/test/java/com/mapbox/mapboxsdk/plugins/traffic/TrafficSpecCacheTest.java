@@ -0,0 +1,82 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficSpecCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    TrafficSpecCache cache = new TrafficSpecCache(temporaryFolder.getRoot());
+    TrafficLayerTable table = TrafficLayerTables.create();
+    cache.put("key", table);
+
+    TrafficLayerTable cached = cache.get("key");
+    assertEquals(table.size(), cached.size());
+    assertArrayEquals(table.baseColors, cached.baseColors);
+    assertArrayEquals(table.caseLayerIds, cached.caseLayerIds);
+    assertArrayEquals(table.minZooms, cached.minZooms, 0.0f);
+    for (int i = 0; i < table.size(); i++) {
+      assertArrayEquals(table.classes[i], cached.classes[i]);
+      assertArrayEquals(table.lineOffsetStops[i], cached.lineOffsetStops[i], 0.0f);
+      assertArrayEquals(table.getCaseLineOpacityStops(i), cached.getCaseLineOpacityStops(i), 0.0f);
+    }
+  }
+
+  @Test
+  public void testMissingEntry() {
+    TrafficSpecCache cache = new TrafficSpecCache(temporaryFolder.getRoot());
+    assertNull(cache.get("missing"));
+  }
+
+  @Test
+  public void testCorruptEntryDiscarded() throws Exception {
+    File entry = new File(temporaryFolder.getRoot(), "traffic-spec-corrupt.bin");
+    FileOutputStream output = new FileOutputStream(entry);
+    output.write(new byte[] {0x54, 0x52, 0x46, 0x53, 0, 0, 0, 1, 0x7f});
+    output.close();
+
+    TrafficSpecCache cache = new TrafficSpecCache(temporaryFolder.getRoot());
+    assertNull(cache.get("corrupt"));
+    assertFalse(entry.exists());
+  }
+
+  @Test
+  public void testOldestEntriesTrimmed() throws Exception {
+    TrafficSpecCache cache = new TrafficSpecCache(temporaryFolder.getRoot());
+    TrafficLayerTable table = TrafficLayerTables.create();
+    for (int i = 0; i <= TrafficSpecCache.MAX_ENTRIES; i++) {
+      cache.put("key" + i, table);
+      assertTrue(new File(temporaryFolder.getRoot(), "traffic-spec-key" + i + ".bin").setLastModified(1000 * (i + 1)));
+    }
+    cache.put("latest", table);
+
+    assertNull(cache.get("key0"));
+    assertNull(cache.get("key1"));
+    assertNotNull(cache.get("key2"));
+    assertNotNull(cache.get("latest"));
+  }
+
+  @Test
+  public void testKeyDependsOnContent() {
+    String key = TrafficSpecCache.getKey("{\"a\": 1}".getBytes());
+    assertEquals(40, key.length());
+    assertEquals(key, TrafficSpecCache.getKey("{\"a\": 1}".getBytes()));
+    assertNotEquals(key, TrafficSpecCache.getKey("{\"a\": 2}".getBytes()));
+  }
+}
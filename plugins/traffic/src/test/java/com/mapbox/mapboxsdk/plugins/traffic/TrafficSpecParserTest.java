@@ -0,0 +1,89 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class TrafficSpecParserTest {
+
+  @Test
+  public void testParse() throws Exception {
+    TrafficLayerTable table = TrafficSpecParser.parse(
+      new InputStreamReader(getClass().getClassLoader().getResourceAsStream("traffic-spec.json"), "UTF-8"));
+
+    assertEquals(2, table.size());
+    assertEquals("traffic-primary", table.baseLayerIds[0]);
+    assertEquals("traffic-motorway-bg", table.caseLayerIds[1]);
+    assertEquals(6.0f, table.minZooms[1], 0.001);
+    assertArrayEquals(new String[] {"motorway", "motorway_link"}, table.classes[1]);
+    assertArrayEquals(new float[] {10, 1.0f, 15, 4.0f, 20, 16.0f}, table.lineWidthStops[0], 0.001f);
+    assertArrayEquals(new float[] {11, 0.0f, 12, 1.0f}, table.getCaseLineOpacityStops(0), 0.001f);
+    assertNull(table.getCaseLineOpacityStops(1));
+    assertEquals(0xff39c66d, table.baseColors[0]);
+    assertEquals(0x80059441, table.caseColors[0]);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingColors() throws Exception {
+    TrafficSpecParser.parse(new StringReader("{\"roadClasses\": []}"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testIncompleteRoadClass() throws Exception {
+    TrafficSpecParser.parse(new StringReader("{\"colors\": {\"base\": {\"low\": \"#000000\", "
+      + "\"moderate\": \"#000000\", \"heavy\": \"#000000\", \"severe\": \"#000000\"}, \"case\": {\"low\": \"#000000\", "
+      + "\"moderate\": \"#000000\", \"heavy\": \"#000000\", \"severe\": \"#000000\"}}, "
+      + "\"roadClasses\": [{\"baseLayerId\": \"traffic-primary\"}]}"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNegativeMinZoom() throws Exception {
+    parseModified("\"minZoom\": 6.0", "\"minZoom\": -1.0");
+  }
+
+  @Test(expected = IOException.class)
+  public void testNonNumericMinZoom() throws Exception {
+    parseModified("\"minZoom\": 6.0", "\"minZoom\": \"six\"");
+  }
+
+  @Test(expected = IOException.class)
+  public void testRoadClassesObject() throws Exception {
+    TrafficSpecParser.parse(new StringReader("{\"roadClasses\": {}}"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testStringStopValue() throws Exception {
+    parseModified("\\[15, 4.0\\]", "[15, \"wide\"]");
+  }
+
+  @Test(expected = IOException.class)
+  public void testStopZoomOutOfRange() throws Exception {
+    parseModified("\\[20, 16.0\\]", "[30, 16.0]");
+  }
+
+  @Test(expected = IOException.class)
+  public void testStopZoomsNotIncreasing() throws Exception {
+    parseModified("\\[15, 4.0\\]", "[10, 4.0]");
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidColor() throws Exception {
+    TrafficSpecParser.parseColor("red");
+  }
+
+  private static void parseModified(String regex, String replacement) throws IOException {
+    String spec = new Scanner(TrafficSpecParserTest.class.getClassLoader().getResourceAsStream("traffic-spec.json"),
+      "UTF-8").useDelimiter("\\A").next();
+    String modified = spec.replaceFirst(regex, replacement);
+    assertNotEquals(spec, modified);
+    TrafficSpecParser.parse(new StringReader(modified));
+  }
+}
@@ -0,0 +1,70 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.PropertyValue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.List;
+
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineColor;
+import static com.mapbox.mapboxsdk.style.layers.PropertyFactory.lineOpacity;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class TrafficStyleBatchTest {
+
+  @Mock
+  MapboxMap mapboxMap;
+
+  @Mock
+  Layer layer;
+
+  @Mock
+  Layer otherLayer;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Test
+  public void testSingleUpdatePerLayer() {
+    TrafficStyleBatch batch = new TrafficStyleBatch();
+    batch.setProperties(layer, lineColor("#ff0000"), lineOpacity(0.5f));
+    batch.setProperties(otherLayer, lineOpacity(1f));
+    batch.setProperties(layer, lineColor("#00ff00"));
+    assertEquals(2, batch.size());
+
+    batch.apply(mapboxMap, 300);
+    ArgumentCaptor<PropertyValue> captor = ArgumentCaptor.forClass(PropertyValue.class);
+    verify(layer, times(1)).setProperties(captor.capture(), captor.capture());
+    List<PropertyValue> properties = captor.getAllValues();
+    assertEquals("#00ff00", properties.get(0).getValue());
+    assertEquals(0.5f, properties.get(1).getValue());
+    verify(otherLayer, times(1)).setProperties((PropertyValue<?>) any());
+    verify(mapboxMap).setTransitionDuration(300);
+    assertEquals(0, batch.size());
+  }
+
+  @Test
+  public void testKeepStyleTransition() {
+    TrafficStyleBatch batch = new TrafficStyleBatch();
+    batch.apply(mapboxMap, 300);
+    verifyZeroInteractions(mapboxMap);
+
+    batch.setProperties(layer, lineOpacity(1f));
+    batch.apply(mapboxMap, -1);
+    verify(mapboxMap, never()).setTransitionDuration(anyLong());
+    verify(layer).setProperties((PropertyValue<?>) any());
+  }
+}
@@ -0,0 +1,197 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficStyleFragmentTest {
+
+  @Test
+  public void testLayersMatchLayerSpecs() {
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT);
+    List<TrafficLayerSpec> layerSpecs = TrafficLayerRegistry.getLayerSpecs();
+    assertEquals(layerSpecs.size(), fragment.getLayerIds().size());
+    for (int i = 0; i < layerSpecs.size(); i++) {
+      assertEquals(layerSpecs.get(i).getId(), fragment.getLayerIds().get(i));
+    }
+    assertSame(fragment, TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT));
+  }
+
+  @Test
+  public void testLayerValuesMatchLayerSpecs() throws IOException {
+    TrafficProfile[] profiles = new TrafficProfile[] {
+      TrafficProfile.DEFAULT,
+      TrafficProfile.DARK,
+      new TrafficProfile(new int[] {0xff000001, 0xff000002, 0xff000003, 0x80000004}, null, 2.0f, 0.5f)
+    };
+    for (TrafficProfile profile : profiles) {
+      List<TrafficLayerSpec> layerSpecs = TrafficLayerRegistry.getLayerSpecs(profile);
+      JsonObject style = new JsonParser().parse(
+        TrafficLayerRegistry.getStyleFragment(profile).inject(readFixture())).getAsJsonObject();
+      JsonArray layers = style.getAsJsonArray("layers");
+      for (int i = 0; i < layerSpecs.size(); i++) {
+        assertLayer(layerSpecs.get(i), layers.get(i + 3).getAsJsonObject());
+      }
+    }
+  }
+
+  @Test
+  public void testInjectAboveAnchor() throws IOException {
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT);
+    String styleJson = fragment.inject(readFixture());
+    JsonObject style = new JsonParser().parse(styleJson).getAsJsonObject();
+
+    assertTrue(style.getAsJsonObject("sources").has("composite"));
+    JsonObject source = style.getAsJsonObject("sources").getAsJsonObject(TrafficPlugin.TrafficData.SOURCE_ID);
+    assertEquals(TrafficPlugin.TrafficData.SOURCE_URL, source.get("url").getAsString());
+
+    List<String> expected = new ArrayList<>();
+    expected.add("background");
+    expected.add("road-motorway");
+    expected.add("bridge-motorway");
+    expected.addAll(fragment.getLayerIds());
+    expected.add("road-label");
+    assertEquals(expected, getLayerIds(style));
+
+    // values of the style are copied verbatim
+    assertTrue(styleJson.contains("\"zoom\":12.50"));
+    assertTrue(styleJson.contains("\"line-opacity\":1e0"));
+    assertTrue(styleJson.contains("\"mapbox:type\":null"));
+
+    JsonObject layer = style.getAsJsonArray("layers").get(4).getAsJsonObject();
+    assertEquals("line", layer.get("type").getAsString());
+    assertEquals(TrafficPlugin.TrafficData.SOURCE_LAYER, layer.get("source-layer").getAsString());
+    assertEquals("congestion",
+      layer.getAsJsonObject("paint").getAsJsonObject("line-color").get("property").getAsString());
+    assertFalse(layer.getAsJsonObject("paint").has("line-opacity"));
+  }
+
+  @Test
+  public void testInjectTwice() throws IOException {
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT);
+    String styleJson = fragment.inject(readFixture());
+    assertEquals(styleJson, fragment.inject(styleJson));
+  }
+
+  @Test
+  public void testInjectOnTop() throws IOException {
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DARK);
+    JsonObject style = new JsonParser().parse(fragment.inject(readFixture(), "missing")).getAsJsonObject();
+    List<String> layerIds = getLayerIds(style);
+    assertEquals("road-label", layerIds.get(3));
+    assertEquals(fragment.getLayerIds(), layerIds.subList(4, layerIds.size()));
+  }
+
+  @Test
+  public void testProfileOpacity() throws IOException {
+    TrafficProfile profile = new TrafficProfile(null, null, 2.0f, 0.5f);
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(profile);
+    JsonObject style = new JsonParser().parse(fragment.inject(readFixture())).getAsJsonObject();
+    JsonObject paint = style.getAsJsonArray("layers").get(4).getAsJsonObject().getAsJsonObject("paint");
+    assertEquals(0.5f, paint.get("line-opacity").getAsFloat(), 0.0f);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedStyle() throws IOException {
+    TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT).inject("{\"version\":8}");
+  }
+
+  @Test
+  public void testInjectHidden() throws IOException {
+    TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT);
+    JsonObject style = new JsonParser().parse(fragment.inject(readFixture(), "bridge-motorway", false))
+      .getAsJsonObject();
+    JsonArray layers = style.getAsJsonArray("layers");
+    for (int i = 3; i < 3 + fragment.getLayerIds().size(); i++) {
+      assertEquals("none", layers.get(i).getAsJsonObject().getAsJsonObject("layout").get("visibility").getAsString());
+    }
+    assertFalse(fragment.inject(readFixture()).contains("\"visibility\""));
+  }
+
+  @Test
+  public void testResolveAnchorLayerId() throws IOException {
+    assertEquals("bridge-motorway", TrafficStyleFragment.resolveAnchorLayerId(readFixture()));
+    // below the first symbol layer
+    String styleJson = readFixture().replace("bridge-motorway", "bridge-primary");
+    assertEquals("bridge-primary", TrafficStyleFragment.resolveAnchorLayerId(styleJson));
+    // on top
+    assertNull(TrafficStyleFragment.resolveAnchorLayerId(styleJson.replace("\"symbol\"", "\"line\"")));
+  }
+
+  private static void assertLayer(TrafficLayerSpec layerSpec, JsonObject layer) {
+    assertEquals(layerSpec.getId(), layer.get("id").getAsString());
+    assertEquals(layerSpec.getMinZoom(), layer.get("minzoom").getAsFloat(), 0.0f);
+
+    JsonArray filter = layer.getAsJsonArray("filter");
+    assertEquals("in", filter.get(0).getAsString());
+    assertEquals("class", filter.get(1).getAsString());
+    assertEquals(layerSpec.getClasses().length, filter.size() - 2);
+    for (int i = 0; i < layerSpec.getClasses().length; i++) {
+      assertEquals(layerSpec.getClasses()[i], filter.get(i + 2).getAsString());
+    }
+
+    JsonObject paint = layer.getAsJsonObject("paint");
+    JsonArray colorStops = paint.getAsJsonObject("line-color").getAsJsonArray("stops");
+    assertEquals(layerSpec.getColors().length, colorStops.size());
+    for (int i = 0; i < colorStops.size(); i++) {
+      assertColor(layerSpec.getColors()[i], colorStops.get(i).getAsJsonArray().get(1).getAsString());
+    }
+    assertZoomFunction(layerSpec.getWidthStops(), TrafficFunction.LINE_BASE, paint.getAsJsonObject("line-width"));
+    assertZoomFunction(layerSpec.getOffsetStops(), TrafficFunction.LINE_BASE, paint.getAsJsonObject("line-offset"));
+    if (layerSpec.getOpacityStops() != null) {
+      assertZoomFunction(layerSpec.getOpacityStops(), 1, paint.getAsJsonObject("line-opacity"));
+    } else if (layerSpec.getOpacity() < 1.0f) {
+      assertEquals(layerSpec.getOpacity(), paint.get("line-opacity").getAsFloat(), 0.0f);
+    } else {
+      assertFalse(paint.has("line-opacity"));
+    }
+  }
+
+  private static void assertZoomFunction(float[] stops, float base, JsonObject function) {
+    assertEquals(base, function.get("base").getAsFloat(), 0.0f);
+    JsonArray functionStops = function.getAsJsonArray("stops");
+    assertEquals(stops.length / 2, functionStops.size());
+    for (int i = 0; i < functionStops.size(); i++) {
+      assertEquals(stops[i * 2], functionStops.get(i).getAsJsonArray().get(0).getAsFloat(), 0.0f);
+      assertEquals(stops[i * 2 + 1], functionStops.get(i).getAsJsonArray().get(1).getAsFloat(), 0.0f);
+    }
+  }
+
+  private static void assertColor(int color, String rgba) {
+    assertTrue(rgba, rgba.startsWith("rgba(") && rgba.endsWith(")"));
+    String[] components = rgba.substring(5, rgba.length() - 1).split(", ");
+    assertEquals((color >> 16) & 0xFF, Integer.parseInt(components[0]));
+    assertEquals((color >> 8) & 0xFF, Integer.parseInt(components[1]));
+    assertEquals(color & 0xFF, Integer.parseInt(components[2]));
+    assertEquals((color >>> 24) & 0xFF, Math.round(Float.parseFloat(components[3]) * 255));
+  }
+
+  private static List<String> getLayerIds(JsonObject style) {
+    JsonArray layers = style.getAsJsonArray("layers");
+    List<String> layerIds = new ArrayList<>(layers.size());
+    for (int i = 0; i < layers.size(); i++) {
+      layerIds.add(layers.get(i).getAsJsonObject().get("id").getAsString());
+    }
+    return layerIds;
+  }
+
+  static String readFixture() {
+    InputStream inputStream = TrafficStyleFragmentTest.class.getClassLoader().getResourceAsStream("style-fixture.json");
+    Scanner scanner = new Scanner(inputStream, "UTF-8").useDelimiter("\\A");
+    return scanner.next();
+  }
+}
@@ -0,0 +1,183 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficStyleLoaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final TrafficStyleFragment fragment = TrafficLayerRegistry.getStyleFragment(TrafficProfile.DEFAULT);
+  private final List<String> styles = new ArrayList<>();
+  private final List<IOException> failures = new ArrayList<>();
+  private final QueueExecutor loaderExecutor = new QueueExecutor();
+  private final TrafficStyleLoader.Callback callback = new TrafficStyleLoader.Callback() {
+    @Override
+    public void onStyleLoaded(String styleUrl, String styleJson) {
+      styles.add(styleJson);
+    }
+
+    @Override
+    public void onStyleFailed(String styleUrl, IOException exception) {
+      failures.add(exception);
+    }
+  };
+  private final TrafficStyleLoader loader = new TrafficStyleLoader(new DirectExecutor(), loaderExecutor, null, null,
+    callback);
+
+  @Test
+  public void testLoadInjectsAboveAnchor() throws IOException {
+    File file = writeStyle("style.json", TrafficStyleFragmentTest.readFixture(), 1000);
+    loader.load(file.toURI().toString(), fragment, true);
+    loaderExecutor.runAll();
+
+    assertEquals(1, styles.size());
+    assertEquals(fragment.inject(TrafficStyleFragmentTest.readFixture()), styles.get(0));
+  }
+
+  @Test
+  public void testLoadInjectsBelowFirstSymbolLayer() throws IOException {
+    String styleJson = TrafficStyleFragmentTest.readFixture().replace("bridge-motorway", "bridge-primary");
+    File file = writeStyle("style.json", styleJson, 1000);
+    String injected = loader.inject(file.toURI().toString(), fragment, true);
+
+    assertEquals(fragment.inject(styleJson, "bridge-primary"), injected);
+    assertTrue(injected.indexOf("bridge-primary") < injected.indexOf("\"id\":\"" + fragment.getLayerIds().get(0)));
+    assertTrue(injected.indexOf("\"id\":\"road-label") > injected.indexOf("\"id\":\"" + fragment.getLayerIds().get(0)));
+  }
+
+  @Test
+  public void testInjectReusesUnchangedStyle() throws IOException {
+    File file = writeStyle("style.json", TrafficStyleFragmentTest.readFixture(), 1000);
+    String url = file.toURI().toString();
+    String injected = loader.inject(url, fragment, true);
+    assertSame(injected, loader.inject(url, fragment, true));
+
+    // another visibility injects the cached style again
+    String hidden = loader.inject(url, fragment, false);
+    assertTrue(hidden.contains("\"visibility\":\"none\""));
+
+    // a changed style is read again
+    writeStyle("style.json", TrafficStyleFragmentTest.readFixture().replace("Fixture", "Changed"), 2000);
+    String changed = loader.inject(url, fragment, false);
+    assertNotSame(hidden, changed);
+    assertTrue(changed.contains("Changed"));
+  }
+
+  @Test
+  public void testInjectUsesCachedAnchor() throws IOException {
+    File file = writeStyle("style.json", TrafficStyleFragmentTest.readFixture(), 1000);
+    String url = file.toURI().toString();
+    TrafficAnchorCache anchorCache = new TrafficAnchorCache(new File(temporaryFolder.getRoot(), "anchors.bin"),
+      new DirectExecutor());
+    anchorCache.put(url, "1000/" + file.length(), "road-motorway");
+    TrafficStyleLoader cachingLoader = new TrafficStyleLoader(new DirectExecutor(), new DirectExecutor(), null,
+      anchorCache, callback);
+
+    // the style isn't searched for its anchor while its version is unchanged
+    assertEquals(fragment.inject(TrafficStyleFragmentTest.readFixture(), "road-motorway"),
+      cachingLoader.inject(url, fragment, true));
+
+    // a changed style is resolved again
+    writeStyle("style.json", TrafficStyleFragmentTest.readFixture(), 2000);
+    cachingLoader = new TrafficStyleLoader(new DirectExecutor(), new DirectExecutor(), null, anchorCache, callback);
+    cachingLoader.inject(url, fragment, true);
+    assertEquals("bridge-motorway", anchorCache.get(url).anchorLayerId);
+    assertEquals("2000/" + file.length(), anchorCache.get(url).version);
+  }
+
+  @Test
+  public void testLoadFailure() {
+    loader.load(new File(temporaryFolder.getRoot(), "missing.json").toURI().toString(), fragment, true);
+    loaderExecutor.runAll();
+
+    assertEquals(0, styles.size());
+    assertEquals(1, failures.size());
+  }
+
+  @Test
+  public void testLoadUnexpectedStructureFails() throws IOException {
+    File array = writeStyle("array.json", "[" + TrafficStyleFragmentTest.readFixture() + "]", 1000);
+    File layersObject = writeStyle("layers.json", "{\"version\":8,\"sources\":{},\"layers\":{\"id\":\"road\"}}", 1000);
+    for (File file : new File[] {array, layersObject}) {
+      loader.load(file.toURI().toString(), fragment, true);
+      loaderExecutor.runAll();
+    }
+
+    assertEquals(0, styles.size());
+    assertEquals(2, failures.size());
+  }
+
+  @Test
+  public void testOnlyLatestLoadDelivered() throws IOException {
+    File first = writeStyle("first.json", TrafficStyleFragmentTest.readFixture(), 1000);
+    File second = writeStyle("second.json", TrafficStyleFragmentTest.readFixture().replace("Fixture", "Second"), 1000);
+    loader.load(first.toURI().toString(), fragment, true);
+    loader.load(second.toURI().toString(), fragment, true);
+    loaderExecutor.runAll();
+
+    assertEquals(1, styles.size());
+    assertTrue(styles.get(0).contains("Second"));
+
+    loader.load(first.toURI().toString(), fragment, true);
+    loader.cancel();
+    loaderExecutor.runAll();
+    assertEquals(1, styles.size());
+  }
+
+  @Test
+  public void testResolveMapboxStyleUrl() {
+    assertEquals("https://api.mapbox.com/styles/v1/mapbox/streets-v9?access_token=null",
+      TrafficStyleLoader.resolve("mapbox://styles/mapbox/streets-v9"));
+    assertEquals("file:///style.json", TrafficStyleLoader.resolve("file:///style.json"));
+  }
+
+  private File writeStyle(String name, String styleJson, long lastModified) throws IOException {
+    File file = new File(temporaryFolder.getRoot(), name);
+    FileOutputStream outputStream = new FileOutputStream(file);
+    try {
+      outputStream.write(styleJson.getBytes("UTF-8"));
+    } finally {
+      outputStream.close();
+    }
+    assertTrue(file.setLastModified(lastModified));
+    return file;
+  }
+
+  private static class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+
+  private static class QueueExecutor implements Executor {
+
+    private final List<Runnable> commands = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      commands.add(command);
+    }
+
+    void runAll() {
+      while (!commands.isEmpty()) {
+        commands.remove(0).run();
+      }
+    }
+  }
+}
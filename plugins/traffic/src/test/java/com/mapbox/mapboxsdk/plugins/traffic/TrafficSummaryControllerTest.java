@@ -0,0 +1,179 @@
+package com.mapbox.mapboxsdk.plugins.traffic;
+
+import android.graphics.RectF;
+
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Projection;
+import com.mapbox.mapboxsdk.plugins.traffic.data.CongestionSummary;
+import com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.models.Position;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TrafficSummaryControllerTest {
+
+  @Mock
+  MapView mapView;
+
+  @Mock
+  MapboxMap mapboxMap;
+
+  @Mock
+  Projection projection;
+
+  @Rule
+  public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private final List<CongestionSummary> summaries = new ArrayList<>();
+  private final TrafficPlugin.OnCongestionSummaryListener listener = new TrafficPlugin.OnCongestionSummaryListener() {
+    @Override
+    public void onCongestionSummary(CongestionSummary summary) {
+      summaries.add(summary);
+    }
+  };
+
+  @Before
+  public void beforeTest() {
+    when(mapView.getWidth()).thenReturn(1000);
+    when(mapView.getHeight()).thenReturn(500);
+    when(mapboxMap.getProjection()).thenReturn(projection);
+    when(projection.getMetersPerPixelAtLatitude(anyDouble())).thenReturn(10.0);
+    moveCamera(0, 0, 14);
+  }
+
+  @Test
+  public void testAggregateFeatures() {
+    List<Feature> features = Arrays.asList(
+      createFeature("motorway", "heavy", 0, 0, 0.01, 0),
+      createFeature("motorway", "heavy", 0, 0, 0.02, 0),
+      createFeature("street", "low", 0, 0, 0, 0.01));
+
+    CongestionSummary summary = TrafficSummaryController.aggregate(features);
+    assertEquals(2, summary.getSegmentCount(TrafficCodes.CLASS_MOTORWAY, TrafficCodes.CONGESTION_HEAVY));
+    assertEquals(1, summary.getSegmentCount(TrafficCodes.CLASS_STREET, TrafficCodes.CONGESTION_LOW));
+    assertEquals(3336, summary.getLength(TrafficCodes.CONGESTION_HEAVY), 1);
+  }
+
+  @Test
+  public void testCameraThreshold() {
+    // 10000 meter viewport, the threshold is 1000 meter or half a zoom level
+    TrafficSummaryController.CameraSnapshot camera = new TrafficSummaryController.CameraSnapshot(0, 0, 14, 10000);
+    assertFalse(camera.exceeds(new TrafficSummaryController.CameraSnapshot(0.005, 0, 14, 10000)));
+    assertTrue(camera.exceeds(new TrafficSummaryController.CameraSnapshot(0.01, 0, 14, 10000)));
+    assertFalse(camera.exceeds(new TrafficSummaryController.CameraSnapshot(0, 0, 14.4, 10000)));
+    assertTrue(camera.exceeds(new TrafficSummaryController.CameraSnapshot(0, 0, 14.6, 10000)));
+  }
+
+  @Test
+  public void testRequestCached() {
+    TrafficSummaryController controller = createController(null);
+    controller.request(listener);
+    moveCamera(0.001, 0, 14);
+    controller.request(listener);
+
+    assertEquals(2, summaries.size());
+    assertSame(summaries.get(0), summaries.get(1));
+  }
+
+  @Test
+  public void testRequestAfterCameraMove() {
+    TrafficSummaryController controller = createController(null);
+    controller.request(listener);
+    moveCamera(0.5, 0, 14);
+    controller.request(listener);
+
+    assertEquals(2, summaries.size());
+    assertNotSame(summaries.get(0), summaries.get(1));
+  }
+
+  @Test
+  public void testListenerOnCameraIdle() {
+    TrafficSummaryController controller = createController(new String[] {"traffic-motorway"});
+    List<Feature> features = Arrays.asList(createFeature("motorway", "severe", 0, 0, 0.01, 0));
+    when(mapboxMap.queryRenderedFeatures(any(RectF.class), eq("traffic-motorway"))).thenReturn(features);
+
+    controller.addListener(listener);
+    controller.onCameraIdle();
+    controller.onCameraIdle();
+    moveCamera(0.5, 0, 14);
+    controller.onCameraIdle();
+
+    assertEquals(2, summaries.size());
+    assertEquals(1, summaries.get(1).getSegmentCount(TrafficCodes.CONGESTION_SEVERE));
+  }
+
+  @Test
+  public void testInvalidate() {
+    TrafficSummaryController controller = createController(null);
+    controller.request(listener);
+    controller.invalidate();
+    controller.request(listener);
+
+    assertEquals(2, summaries.size());
+    assertNotSame(summaries.get(0), summaries.get(1));
+  }
+
+  private TrafficSummaryController createController(final String[] layerIds) {
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    return new TrafficSummaryController(mapView, mapboxMap, executor, executor,
+      new TrafficSummaryController.Callback() {
+        @Override
+        public String[] getQueryLayerIds() {
+          return layerIds;
+        }
+      });
+  }
+
+  private void moveCamera(double longitude, double latitude, double zoom) {
+    when(mapboxMap.getCameraPosition()).thenReturn(new CameraPosition(new LatLng(latitude, longitude), zoom, 0, 0));
+  }
+
+  private static Feature createFeature(String roadClass, String congestion, double... coordinates) {
+    List<Position> positions = new ArrayList<>();
+    for (int i = 0; i < coordinates.length; i += 2) {
+      Position position = mock(Position.class);
+      when(position.getLongitude()).thenReturn(coordinates[i]);
+      when(position.getLatitude()).thenReturn(coordinates[i + 1]);
+      positions.add(position);
+    }
+    LineString lineString = mock(LineString.class);
+    when(lineString.getCoordinates()).thenReturn(positions);
+
+    Feature feature = mock(Feature.class);
+    when(feature.getGeometry()).thenReturn(lineString);
+    when(feature.getStringProperty("class")).thenReturn(roadClass);
+    when(feature.getStringProperty("congestion")).thenReturn(congestion);
+    return feature;
+  }
+}
@@ -0,0 +1,70 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CLASS_MOTORWAY;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CLASS_PRIMARY;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_HEAVY;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_LOW;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_SEVERE;
+import static org.junit.Assert.assertEquals;
+
+public class CongestionAggregatorTest {
+
+  // one degree of longitude along the equator
+  private static final double DEGREE = 111195.08;
+
+  @Test
+  public void testAggregateSegments() {
+    CongestionAggregator aggregator = new CongestionAggregator();
+    aggregator.add(CLASS_MOTORWAY, CONGESTION_HEAVY, new double[] {0, 0, 0.5, 0, 1, 0}, 0, 3);
+    aggregator.add(CLASS_MOTORWAY, CONGESTION_HEAVY, 100);
+    aggregator.add(CLASS_PRIMARY, CONGESTION_HEAVY, 50);
+    aggregator.add(CLASS_PRIMARY, CONGESTION_LOW, 25);
+
+    CongestionSummary summary = aggregator.getSummary();
+    assertEquals(2, summary.getSegmentCount(CLASS_MOTORWAY, CONGESTION_HEAVY));
+    assertEquals(3, summary.getSegmentCount(CONGESTION_HEAVY));
+    assertEquals(4, summary.getSegmentCount());
+    assertEquals(DEGREE + 100, summary.getLength(CLASS_MOTORWAY, CONGESTION_HEAVY), 1);
+    assertEquals(DEGREE + 150, summary.getLength(CONGESTION_HEAVY), 1);
+    assertEquals(DEGREE + 175, summary.getLength(), 1);
+    assertEquals(0, summary.getSegmentCount(CONGESTION_SEVERE));
+  }
+
+  @Test
+  public void testCoordinateOffset() {
+    CongestionAggregator aggregator = new CongestionAggregator();
+    aggregator.add(CLASS_MOTORWAY, CONGESTION_LOW, new double[] {5, 5, 0, 0, 0, 1}, 2, 2);
+    assertEquals(DEGREE, aggregator.getSummary().getLength(), 1);
+  }
+
+  @Test
+  public void testMergeAndReset() {
+    CongestionAggregator first = new CongestionAggregator();
+    CongestionAggregator second = new CongestionAggregator();
+    first.add(CLASS_MOTORWAY, CONGESTION_LOW, 10);
+    second.add(CLASS_MOTORWAY, CONGESTION_LOW, 20);
+    first.merge(second);
+    assertEquals(2, first.getSummary().getSegmentCount(CONGESTION_LOW));
+    assertEquals(30, first.getSummary().getLength(CONGESTION_LOW), 0.001);
+
+    CongestionSummary summary = first.getSummary();
+    first.reset();
+    assertEquals(0, first.getSummary().getSegmentCount());
+    assertEquals(2, summary.getSegmentCount());
+  }
+
+  @Test
+  public void testCodes() {
+    assertEquals(CONGESTION_SEVERE, TrafficCodes.getCongestion("severe"));
+    assertEquals(TrafficCodes.CONGESTION_UNKNOWN, TrafficCodes.getCongestion(null));
+    assertEquals(TrafficCodes.CLASS_OTHER, TrafficCodes.getRoadClass("path"));
+    assertEquals("motorway_link", TrafficCodes.getRoadClassName(TrafficCodes.getRoadClass("motorway_link")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCode() {
+    new CongestionAggregator().add(TrafficCodes.CLASS_COUNT, CONGESTION_LOW, 10);
+  }
+}
@@ -0,0 +1,182 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CongestionDiffTest {
+
+  private static final long TILE_ID = TileIds.pack(14, 8192, 8191);
+
+  private static final int[] MOTORWAY = new int[] {0, 0, 100, 100, 200, 100};
+  private static final int[] PRIMARY = new int[] {300, 300, 400, 300};
+  private static final int[] STREET = new int[] {500, 500, 500, 600};
+
+  private final List<CongestionChange> changes = new ArrayList<>();
+  private final CongestionDiff.Listener listener = new CongestionDiff.Listener() {
+    @Override
+    public void onCongestionChanged(long tileId, TrafficSegments segments, int segment, int previousCongestion) {
+      changes.add(new CongestionChange(tileId, segments, segment, previousCongestion));
+    }
+  };
+
+  @Test
+  public void testFirstSnapshotIsBaseline() throws IOException {
+    CongestionDiff diff = new CongestionDiff();
+    TrafficSegments segments = decode(new TrafficTileEncoder()
+      .addLines("motorway", "heavy", MOTORWAY)
+      .encode());
+
+    assertEquals(0, diff.update(TILE_ID, segments, listener));
+    assertEquals(1, diff.getTileCount());
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void testChangedSegments() throws IOException {
+    CongestionDiff diff = new CongestionDiff();
+    diff.update(TILE_ID, decode(new TrafficTileEncoder()
+      .addLines("motorway", "moderate", MOTORWAY)
+      .addLines("primary", "low", PRIMARY)
+      .addLines("street", "low", STREET)
+      .encode()), listener);
+
+    // reordered features, the motorway became heavy and the street disappeared
+    int changeCount = diff.update(TILE_ID, decode(new TrafficTileEncoder()
+      .addLines("primary", "low", PRIMARY)
+      .addLines("motorway", "heavy", MOTORWAY)
+      .encode()), listener);
+
+    assertEquals(1, changeCount);
+    CongestionChange change = changes.get(0);
+    assertEquals(TILE_ID, change.getTileId());
+    assertEquals(TrafficCodes.CLASS_MOTORWAY, change.getRoadClass());
+    assertEquals(TrafficCodes.CONGESTION_MODERATE, change.getPreviousCongestion());
+    assertEquals(TrafficCodes.CONGESTION_HEAVY, change.getCongestion());
+    assertEquals(3, change.getPointCount());
+    assertTrue(change.isWorse());
+  }
+
+  @Test
+  public void testRoadClassIsPartOfIdentity() throws IOException {
+    CongestionDiff diff = new CongestionDiff();
+    diff.update(TILE_ID, decode(new TrafficTileEncoder().addLines("primary", "low", PRIMARY).encode()), listener);
+    diff.update(TILE_ID, decode(new TrafficTileEncoder().addLines("trunk", "severe", PRIMARY).encode()), listener);
+
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void testFingerprintSkipsUnchangedTiles() throws IOException {
+    byte[] tile = TrafficTileEncoder.createFixture(42, 200, 5);
+    TrafficSegments segments = decode(tile);
+    CongestionDiff diff = new CongestionDiff();
+    diff.update(TILE_ID, CongestionDiff.fingerprint(tile, 0, tile.length), segments, listener);
+
+    assertTrue(diff.isUnchanged(TILE_ID, CongestionDiff.fingerprint(tile, 0, tile.length)));
+    CongestionDiff.Listener failing = new CongestionDiff.Listener() {
+      @Override
+      public void onCongestionChanged(long tileId, TrafficSegments segments, int segment, int previousCongestion) {
+        throw new AssertionError("Unchanged tile was compared");
+      }
+    };
+    assertEquals(0, diff.update(TILE_ID, CongestionDiff.fingerprint(tile, 0, tile.length), segments, failing));
+  }
+
+  @Test
+  public void testSegmentFingerprintIgnoresOrder() throws IOException {
+    TrafficSegments first = decode(new TrafficTileEncoder()
+      .addLines("motorway", "heavy", MOTORWAY)
+      .addLines("street", "low", STREET)
+      .encode());
+    TrafficSegments reordered = decode(new TrafficTileEncoder()
+      .addLines("street", "low", STREET)
+      .addLines("motorway", "heavy", MOTORWAY)
+      .encode());
+    TrafficSegments changed = decode(new TrafficTileEncoder()
+      .addLines("street", "low", STREET)
+      .addLines("motorway", "severe", MOTORWAY)
+      .encode());
+
+    assertEquals(CongestionDiff.fingerprint(first), CongestionDiff.fingerprint(reordered));
+    assertNotEquals(CongestionDiff.fingerprint(first), CongestionDiff.fingerprint(changed));
+  }
+
+  @Test
+  public void testFixtureTilePair() throws IOException {
+    byte[] before = TrafficTileEncoder.createFixture(7, 300, 4);
+    TrafficSegments previous = decode(before);
+
+    // same geometries, every tenth segment one congestion level worse
+    TrafficTileEncoder encoder = new TrafficTileEncoder();
+    int expected = 0;
+    for (int i = 0; i < previous.size(); i++) {
+      int congestion = previous.getCongestion(i);
+      if (i % 10 == 0 && congestion < TrafficCodes.CONGESTION_SEVERE) {
+        congestion++;
+        expected++;
+      }
+      encoder.addLines(TrafficCodes.getRoadClassName(previous.getRoadClass(i)),
+        TrafficCodes.getCongestionName(congestion), toTileCoordinates(previous, i));
+    }
+    byte[] after = encoder.encode();
+
+    CongestionDiff diff = new CongestionDiff();
+    diff.update(TILE_ID, CongestionDiff.fingerprint(before, 0, before.length), previous, listener);
+    int changeCount = diff.update(TILE_ID, CongestionDiff.fingerprint(after, 0, after.length), decode(after), listener);
+
+    assertEquals(expected, changeCount);
+    assertEquals(expected, changes.size());
+    for (CongestionChange change : changes) {
+      assertEquals(change.getPreviousCongestion() + 1, change.getCongestion());
+    }
+  }
+
+  @Test
+  public void testRemoveResetsBaseline() throws IOException {
+    CongestionDiff diff = new CongestionDiff();
+    diff.update(TILE_ID, decode(new TrafficTileEncoder().addLines("street", "low", STREET).encode()), listener);
+    assertTrue(diff.remove(TILE_ID));
+    assertFalse(diff.remove(TILE_ID));
+    diff.update(TILE_ID, decode(new TrafficTileEncoder().addLines("street", "heavy", STREET).encode()), listener);
+
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void testRetainForgetsOtherTiles() throws IOException {
+    CongestionDiff diff = new CongestionDiff();
+    TrafficSegments segments = decode(new TrafficTileEncoder().addLines("street", "low", STREET).encode());
+    diff.update(TILE_ID, segments, listener);
+    diff.update(TILE_ID + 1, segments, listener);
+
+    assertEquals(1, diff.retain(Collections.singleton(TILE_ID)));
+    assertEquals(1, diff.getTileCount());
+    assertFalse(diff.remove(TILE_ID + 1));
+    assertTrue(diff.remove(TILE_ID));
+  }
+
+  private static TrafficSegments decode(byte[] tile) throws IOException {
+    TrafficSegments segments = new TrafficSegments();
+    new TrafficTileDecoder().decode(tile, 0, tile.length, TILE_ID, segments);
+    return segments;
+  }
+
+  private static int[] toTileCoordinates(TrafficSegments segments, int segment) {
+    int[] line = new int[segments.getPointCount(segment) * 2];
+    int offset = segments.getPointOffset(segment);
+    for (int i = 0; i < segments.getPointCount(segment); i++) {
+      line[i * 2] = (int) Math.round((TileIds.toTileX(14, segments.getLongitude(offset + i)) - 8192) * 4096);
+      line[i * 2 + 1] = (int) Math.round((TileIds.toTileY(14, segments.getLatitude(offset + i)) - 8191) * 4096);
+    }
+    return line;
+  }
+}
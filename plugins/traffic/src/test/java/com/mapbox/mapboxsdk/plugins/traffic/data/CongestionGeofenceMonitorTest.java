@@ -0,0 +1,136 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CongestionGeofenceMonitorTest {
+
+  private static final long TILE_ID = TileIds.pack(14, 8192, 8191);
+  private static final long OTHER_TILE_ID = TileIds.pack(14, 8193, 8191);
+
+  private final List<String> events = new ArrayList<>();
+  private final List<Runnable> callbacks = new ArrayList<>();
+  private final CongestionGeofenceMonitor monitor = new CongestionGeofenceMonitor(new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      callbacks.add(command);
+    }
+  }, new CongestionGeofenceMonitor.Listener() {
+    @Override
+    public void onCongestionEntered(Geofence geofence) {
+      events.add("entered " + geofence.getId());
+    }
+
+    @Override
+    public void onCongestionCleared(Geofence geofence) {
+      events.add("cleared " + geofence.getId());
+    }
+  });
+
+  @Test
+  public void testCircleEntered() {
+    Geofence depot = Geofence.circle("depot", 0.01, 0.01, 200);
+    monitor.add(depot);
+
+    // a heavy segment passing 111 meters south of the depot is below the default threshold
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_HEAVY, 0.005, 0.009, 0.015, 0.009));
+    assertFalse(monitor.isCongested(depot));
+
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.009, 0.015, 0.009));
+    assertTrue(monitor.isCongested(depot));
+    assertTrue(events.isEmpty());
+    runCallbacks();
+    assertEquals(1, events.size());
+    assertEquals("entered depot", events.get(0));
+
+    // further away than the radius
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.007, 0.015, 0.007));
+    runCallbacks();
+    assertFalse(monitor.isCongested(depot));
+    assertEquals("cleared depot", events.get(1));
+  }
+
+  @Test
+  public void testMinCongestion() {
+    Geofence depot = Geofence.circle("depot", 0.01, 0.01, 200);
+    monitor.add(depot);
+    monitor.setMinCongestion(TrafficCodes.CONGESTION_HEAVY);
+
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_HEAVY, 0.005, 0.009, 0.015, 0.009));
+    assertTrue(monitor.isCongested(depot));
+  }
+
+  @Test
+  public void testPolygonCrossed() {
+    Geofence site = Geofence.polygon("site", new double[] {0.01, 0.01, 0.02, 0.01, 0.02, 0.02, 0.01, 0.02});
+    monitor.add(site);
+
+    // no position of the segment is inside the polygon
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.015, 0.025, 0.015));
+    assertTrue(monitor.isCongested(site));
+
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.025, 0.025, 0.025));
+    assertFalse(monitor.isCongested(site));
+  }
+
+  @Test
+  public void testCongestedByMultipleTiles() {
+    Geofence depot = Geofence.circle("depot", 0.01, 0.01, 200);
+    monitor.add(depot);
+    TrafficSegments severe = segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.01, 0.015, 0.01);
+    monitor.update(TILE_ID, severe);
+    monitor.update(OTHER_TILE_ID, severe);
+
+    monitor.update(TILE_ID, new TrafficSegments());
+    assertTrue(monitor.isCongested(depot));
+    monitor.removeTile(OTHER_TILE_ID);
+    assertFalse(monitor.isCongested(depot));
+
+    runCallbacks();
+    assertEquals(2, events.size());
+  }
+
+  @Test
+  public void testRemove() {
+    Geofence depot = Geofence.circle("depot", 0.01, 0.01, 200);
+    monitor.add(depot);
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.01, 0.015, 0.01));
+    assertTrue(monitor.remove(depot));
+    assertFalse(monitor.remove(depot));
+    assertEquals(0, monitor.getGeofenceCount());
+
+    monitor.update(TILE_ID, new TrafficSegments());
+    monitor.add(depot);
+    monitor.update(TILE_ID, segments(TrafficCodes.CONGESTION_SEVERE, 0.005, 0.01, 0.015, 0.01));
+    runCallbacks();
+    assertEquals(2, events.size());
+    assertEquals("entered depot", events.get(1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddTwice() {
+    Geofence depot = Geofence.circle("depot", 0.01, 0.01, 200);
+    monitor.add(depot);
+    monitor.add(depot);
+  }
+
+  private void runCallbacks() {
+    for (Runnable callback : callbacks) {
+      callback.run();
+    }
+    callbacks.clear();
+  }
+
+  private static TrafficSegments segments(int congestion, double... coordinates) {
+    TrafficSegments segments = new TrafficSegments();
+    segments.add(TrafficCodes.CLASS_PRIMARY, congestion, coordinates, 0, coordinates.length / 2);
+    return segments;
+  }
+}
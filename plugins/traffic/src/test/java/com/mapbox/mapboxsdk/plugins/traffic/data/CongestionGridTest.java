@@ -0,0 +1,72 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CongestionGridTest {
+
+  private static final long CELL_ID = TileIds.pack(10, 512, 511);
+
+  @Test
+  public void testLengthWeightedScore() {
+    CongestionGrid grid = new CongestionGrid();
+    grid.add(TrafficCodes.CONGESTION_LOW, 0.1, 0.1, 300);
+    grid.add(TrafficCodes.CONGESTION_SEVERE, 0.2, 0.1, 100);
+    grid.add(TrafficCodes.CONGESTION_UNKNOWN, 0.2, 0.1, 1000);
+
+    assertEquals(1, grid.size());
+    assertEquals(0.75, grid.getScore(CELL_ID), 1e-9);
+    assertEquals(TrafficCodes.CONGESTION_MODERATE, grid.getCongestion(CELL_ID));
+    assertTrue(Double.isNaN(grid.getScore(TileIds.pack(10, 0, 0))));
+    assertEquals(TrafficCodes.CONGESTION_UNKNOWN, grid.getCongestion(TileIds.pack(10, 0, 0)));
+  }
+
+  @Test
+  public void testAddSegments() {
+    TrafficSegments segments = new TrafficSegments();
+    double[] line = new double[] {0.1, 0.1, 0.1, 0.11};
+    segments.add(TrafficCodes.CLASS_MOTORWAY, TrafficCodes.CONGESTION_HEAVY, line, 0, 2);
+    segments.add(TrafficCodes.CLASS_TRUNK, TrafficCodes.CONGESTION_HEAVY, line, 0, 2);
+
+    CongestionGrid grid = new CongestionGrid();
+    grid.add(segments);
+    assertEquals(1, grid.size());
+    assertEquals(TrafficCodes.CONGESTION_HEAVY, grid.getScore(CELL_ID), 1e-9);
+  }
+
+  @Test
+  public void testMerge() {
+    CongestionGrid grid = new CongestionGrid();
+    grid.add(TrafficCodes.CONGESTION_LOW, 0.1, 0.1, 100);
+    CongestionGrid other = new CongestionGrid();
+    other.add(TrafficCodes.CONGESTION_HEAVY, 0.1, 0.1, 100);
+    other.add(TrafficCodes.CONGESTION_HEAVY, -0.1, -0.1, 100);
+
+    grid.merge(other);
+    assertEquals(2, grid.size());
+    assertEquals(1.0, grid.getScore(CELL_ID), 1e-9);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentZoom() {
+    new CongestionGrid(10).merge(new CongestionGrid(8));
+  }
+
+  @Test
+  public void testWriteGeoJson() {
+    CongestionGrid grid = new CongestionGrid(0);
+    StringBuilder builder = new StringBuilder();
+    grid.writeGeoJson(builder);
+    assertEquals("{\"type\":\"FeatureCollection\",\"features\":[]}", builder.toString());
+
+    grid.add(TrafficCodes.CONGESTION_SEVERE, 10, 10, 100);
+    builder.setLength(0);
+    grid.writeGeoJson(builder);
+    assertEquals("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"properties\":"
+      + "{\"score\":3.000,\"congestion\":\"severe\"},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[["
+      + "[-180.000000,-85.051129],[180.000000,-85.051129],[180.000000,85.051129],[-180.000000,85.051129],"
+      + "[-180.000000,-85.051129]]]}}]}", builder.toString());
+  }
+}
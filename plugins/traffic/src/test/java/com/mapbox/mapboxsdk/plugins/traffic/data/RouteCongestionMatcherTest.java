@@ -0,0 +1,107 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CLASS_PRIMARY;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_HEAVY;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_LOW;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_SEVERE;
+import static com.mapbox.mapboxsdk.plugins.traffic.data.TrafficCodes.CONGESTION_UNKNOWN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RouteCongestionMatcherTest {
+
+  private static final long WEST_TILE = 1;
+  private static final long EAST_TILE = 2;
+
+  // eastbound route along the equator, about 1113 meters long
+  private static final double[] ROUTE = new double[] {0, 0, 0.005, 0, 0.01, 0};
+
+  private TrafficSegmentIndex index;
+
+  @Before
+  public void beforeTest() {
+    index = new TrafficSegmentIndex();
+    index.update(WEST_TILE, createSegments(
+      // eastbound, 11 meters north of the route
+      new double[] {0, 0.0001, 0.0025, 0.0001, 0.005, 0.0001}, CONGESTION_HEAVY,
+      // westbound, opposite direction of the route
+      new double[] {0.005, 0, 0, 0}, CONGESTION_SEVERE));
+    index.update(EAST_TILE, createSegments(
+      new double[] {0.005, -0.0001, 0.01, -0.0001}, CONGESTION_LOW));
+  }
+
+  @Test
+  public void testMatchRoute() {
+    RouteCongestionMatcher matcher = new RouteCongestionMatcher(index, ROUTE, 3, 20, 45);
+    List<CongestionInterval> intervals = matcher.getIntervals();
+
+    assertEquals(2, intervals.size());
+    assertEquals(CONGESTION_HEAVY, intervals.get(0).getCongestion());
+    assertEquals(0, intervals.get(0).getStartDistance(), 0.001);
+    assertEquals(556, intervals.get(0).getEndDistance(), 20);
+    assertEquals(CONGESTION_LOW, intervals.get(1).getCongestion());
+    assertEquals(matcher.getRouteLength(), intervals.get(1).getEndDistance(), 0.001);
+  }
+
+  @Test
+  public void testHeadingCheck() {
+    // westbound route, only the westbound segment matches
+    double[] route = new double[] {0.005, 0, 0, 0};
+    List<CongestionInterval> intervals = new RouteCongestionMatcher(index, route, 2, 20, 45).getIntervals();
+    assertEquals(1, intervals.size());
+    assertEquals(CONGESTION_SEVERE, intervals.get(0).getCongestion());
+  }
+
+  @Test
+  public void testTolerance() {
+    // the segments are 11 meters from the route
+    List<CongestionInterval> intervals = new RouteCongestionMatcher(index, ROUTE, 3, 5, 45).getIntervals();
+    assertEquals(1, intervals.size());
+    assertEquals(CONGESTION_UNKNOWN, intervals.get(0).getCongestion());
+  }
+
+  @Test
+  public void testTileUpdate() {
+    RouteCongestionMatcher matcher = new RouteCongestionMatcher(index, ROUTE, 3, 20, 45);
+    index.update(EAST_TILE, createSegments(new double[] {0.005, -0.0001, 0.01, -0.0001}, CONGESTION_HEAVY));
+
+    assertTrue(matcher.onTileUpdated(EAST_TILE));
+    assertEquals(1, matcher.getIntervals().size());
+    assertEquals(CONGESTION_HEAVY, matcher.getIntervals().get(0).getCongestion());
+    assertFalse(matcher.onTileUpdated(WEST_TILE));
+  }
+
+  @Test
+  public void testTileRemoved() {
+    RouteCongestionMatcher matcher = new RouteCongestionMatcher(index, ROUTE, 3, 20, 45);
+    assertTrue(index.remove(EAST_TILE));
+    assertTrue(matcher.onTileUpdated(EAST_TILE));
+
+    List<CongestionInterval> intervals = matcher.getIntervals();
+    assertEquals(2, intervals.size());
+    assertEquals(CONGESTION_UNKNOWN, intervals.get(1).getCongestion());
+    assertEquals(1, index.getTileCount());
+  }
+
+  @Test
+  public void testHeadingDelta() {
+    assertEquals(20, TrafficSegmentIndex.headingDelta(350, 10), 0.001);
+    assertEquals(180, TrafficSegmentIndex.headingDelta(90, 270), 0.001);
+    assertEquals(90, TrafficSegmentIndex.heading(1, 0), 0.001);
+  }
+
+  private static TrafficSegments createSegments(Object... lines) {
+    TrafficSegments segments = new TrafficSegments(1, 1);
+    for (int i = 0; i < lines.length; i += 2) {
+      double[] coordinates = (double[]) lines[i];
+      segments.add(CLASS_PRIMARY, (Integer) lines[i + 1], coordinates, 0, coordinates.length / 2);
+    }
+    return segments;
+  }
+}
@@ -0,0 +1,93 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrafficGeoJsonTest {
+
+  @Test
+  public void testReadLineString() throws IOException {
+    TrafficSegments segments = new TrafficSegments();
+    int count = TrafficGeoJson.read(new StringReader("{\"type\":\"FeatureCollection\",\"features\":["
+      + "{\"type\":\"Feature\",\"properties\":{\"class\":\"motorway\",\"congestion\":\"heavy\",\"id\":7},"
+      + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1.0,2.0],[3.0,4.0,10.0]]}}]}"), segments);
+
+    assertEquals(1, count);
+    assertEquals(TrafficCodes.CLASS_MOTORWAY, segments.getRoadClass(0));
+    assertEquals(TrafficCodes.CONGESTION_HEAVY, segments.getCongestion(0));
+    assertEquals(2, segments.getPointCount(0));
+    assertEquals(3.0, segments.getLongitude(1), 0);
+    assertEquals(4.0, segments.getLatitude(1), 0);
+  }
+
+  @Test
+  public void testReadPropertiesAfterGeometry() throws IOException {
+    TrafficSegments segments = new TrafficSegments();
+    TrafficGeoJson.read(new StringReader("{\"features\":[{\"geometry\":{\"coordinates\":"
+      + "[[[1,2],[3,4]],[[5,6],[7,8],[9,10]]],\"type\":\"MultiLineString\"},"
+      + "\"properties\":{\"congestion\":\"severe\",\"class\":\"trunk\"}}]}"), segments);
+
+    assertEquals(2, segments.size());
+    assertEquals(3, segments.getPointCount(1));
+    assertEquals(TrafficCodes.CLASS_TRUNK, segments.getRoadClass(1));
+    assertEquals(TrafficCodes.CONGESTION_SEVERE, segments.getCongestion(1));
+  }
+
+  @Test
+  public void testSkipUnsupportedFeatures() throws IOException {
+    TrafficSegments segments = new TrafficSegments();
+    int count = TrafficGeoJson.read(new StringReader("{\"type\":\"FeatureCollection\",\"features\":["
+      + "{\"properties\":{\"class\":\"path\"},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1,2],[3,4]]}},"
+      + "{\"properties\":{\"class\":\"primary\"},\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}},"
+      + "{\"properties\":{\"class\":\"primary\"},\"geometry\":{\"coordinates\":[[[1,2],[3,4],[1,4],[1,2]]],"
+      + "\"type\":\"Polygon\"}},"
+      + "{\"properties\":{\"class\":\"primary\"},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1,2]]}},"
+      + "{\"properties\":null,\"geometry\":null}]}"), segments);
+
+    assertEquals(0, count);
+    assertEquals(0, segments.getPointCount());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformed() throws IOException {
+    TrafficGeoJson.read(new StringReader("{\"features\":[{\"geometry\":"), new TrafficSegments());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTopLevelArray() throws IOException {
+    TrafficGeoJson.read(new StringReader("[{\"features\":[]}]"), new TrafficSegments());
+  }
+
+  @Test(expected = IOException.class)
+  public void testFeaturesObject() throws IOException {
+    TrafficGeoJson.read(new StringReader("{\"features\":{}}"), new TrafficSegments());
+  }
+
+  @Test(expected = IOException.class)
+  public void testOneNumberPosition() throws IOException {
+    TrafficGeoJson.read(new StringReader("{\"features\":[{\"type\":\"Feature\",\"properties\":{},"
+      + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1],[2,3]]}}]}"), new TrafficSegments());
+  }
+
+  @Test
+  public void testWriteRoundTrip() throws IOException {
+    TrafficSegments segments = new TrafficSegments();
+    segments.add(TrafficCodes.CLASS_PRIMARY, TrafficCodes.CONGESTION_LOW, new double[] {1.5, 2.5, 3.5, 4.5}, 0, 2);
+    segments.add(TrafficCodes.CLASS_STREET, TrafficCodes.CONGESTION_UNKNOWN, new double[] {1, 2, 3, 4}, 0, 2);
+    StringBuilder builder = new StringBuilder();
+    TrafficGeoJson.write(segments, builder);
+    assertEquals("{\"type\":\"FeatureCollection\",\"features\":["
+      + "{\"type\":\"Feature\",\"properties\":{\"class\":\"primary\",\"congestion\":\"low\"},"
+      + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1.5,2.5],[3.5,4.5]]}},"
+      + "{\"type\":\"Feature\",\"properties\":{\"class\":\"street\"},"
+      + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[1.0,2.0],[3.0,4.0]]}}]}", builder.toString());
+
+    TrafficSegments read = new TrafficSegments();
+    TrafficGeoJson.read(new StringReader(builder.toString()), read);
+    assertEquals(CongestionDiff.fingerprint(segments), CongestionDiff.fingerprint(read));
+  }
+}
@@ -0,0 +1,185 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrafficRecordingTest {
+
+  private static final long TILE_ID = TileIds.pack(14, 8192, 8191);
+  private static final long OTHER_TILE_ID = TileIds.pack(14, 8200, 8191);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Long> tileIds = new ArrayList<>();
+  private final List<Long> timestamps = new ArrayList<>();
+  private final List<TrafficSegments> snapshots = new ArrayList<>();
+  private final TrafficRecording.Listener listener = new TrafficRecording.Listener() {
+    @Override
+    public void onSnapshot(long tileId, long timestamp, TrafficSegments segments) {
+      tileIds.add(tileId);
+      timestamps.add(timestamp);
+      TrafficSegments copy = new TrafficSegments();
+      copy(segments, copy, -1);
+      snapshots.add(copy);
+    }
+  };
+
+  @Test
+  public void testDeltaRoundTrip() throws IOException {
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    TrafficSegments severe = withCongestion(segments, TrafficCodes.CONGESTION_SEVERE);
+    TrafficRecording recording = TrafficRecording.open(folder.newFile());
+    recording.append(1000, TILE_ID, segments);
+    long keyframeSize = recording.getFileSize();
+    recording.append(2000, TILE_ID, severe);
+
+    assertEquals(2, recording.getRecordCount());
+    assertEquals(1, recording.getKeyframeCount());
+    assertEquals(1000, recording.getStartTime());
+    assertEquals(2000, recording.getEndTime());
+    // the delta only holds the congestion codes
+    assertEquals(28 + 8 + segments.size(), recording.getFileSize() - keyframeSize);
+
+    assertEquals(1, recording.seek(1500, listener));
+    assertSegments(segments, snapshots.get(0));
+    assertEquals(1, recording.seek(2000, listener));
+    assertEquals(2000, (long) timestamps.get(1));
+    assertSegments(severe, snapshots.get(1));
+    assertEquals(0, recording.seek(999, listener));
+    recording.close();
+  }
+
+  @Test
+  public void testKeyframes() throws IOException {
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    TrafficRecording recording = TrafficRecording.open(folder.newFile());
+    recording.append(0, TILE_ID, segments);
+    recording.append(1, TILE_ID, decodeFixture(8, TILE_ID));
+    assertEquals(2, recording.getKeyframeCount());
+
+    // back to the first geometry, then a keyframe after the interval of deltas
+    recording.append(2, TILE_ID, segments);
+    assertEquals(3, recording.getKeyframeCount());
+    for (int i = 0; i <= TrafficRecording.KEYFRAME_INTERVAL; i++) {
+      recording.append(3 + i, TILE_ID, segments);
+    }
+    assertEquals(4, recording.getKeyframeCount());
+
+    recording.seek(Long.MAX_VALUE, listener);
+    assertSegments(segments, snapshots.get(0));
+    recording.close();
+  }
+
+  @Test
+  public void testReplay() throws IOException {
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    TrafficSegments other = decodeFixture(8, OTHER_TILE_ID);
+    TrafficRecording recording = TrafficRecording.open(folder.newFile());
+    recording.append(1000, TILE_ID, segments);
+    recording.append(1000, OTHER_TILE_ID, other);
+    recording.append(2000, TILE_ID, withCongestion(segments, TrafficCodes.CONGESTION_HEAVY));
+    recording.append(3000, OTHER_TILE_ID, withCongestion(other, TrafficCodes.CONGESTION_LOW));
+    assertEquals(2, recording.getTileCount());
+
+    assertEquals(2, recording.replay(1000, 3000, listener));
+    assertEquals(TILE_ID, (long) tileIds.get(0));
+    assertEquals(2000, (long) timestamps.get(0));
+    assertEquals(OTHER_TILE_ID, (long) tileIds.get(1));
+    assertSegments(withCongestion(other, TrafficCodes.CONGESTION_LOW), snapshots.get(1));
+
+    assertEquals(2, recording.seek(2500, listener));
+    assertEquals(0, recording.replay(3000, 4000, listener));
+    recording.close();
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    File file = folder.newFile();
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    TrafficRecording recording = TrafficRecording.open(file);
+    recording.append(1000, TILE_ID, segments);
+    recording.append(2000, TILE_ID, withCongestion(segments, TrafficCodes.CONGESTION_HEAVY));
+    long size = recording.getFileSize();
+    recording.append(3000, OTHER_TILE_ID, decodeFixture(8, OTHER_TILE_ID));
+    recording.close();
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.setLength(randomAccessFile.length() - 3);
+    randomAccessFile.close();
+
+    recording = TrafficRecording.open(file);
+    assertEquals(2, recording.getRecordCount());
+    assertEquals(size, recording.getFileSize());
+    recording.append(4000, TILE_ID, withCongestion(segments, TrafficCodes.CONGESTION_SEVERE));
+    assertEquals(1, recording.getKeyframeCount());
+
+    recording.seek(4000, listener);
+    assertSegments(withCongestion(segments, TrafficCodes.CONGESTION_SEVERE), snapshots.get(0));
+    recording.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecreasingTimestamp() throws IOException {
+    TrafficRecording recording = TrafficRecording.open(folder.newFile());
+    try {
+      recording.append(2000, TILE_ID, new TrafficSegments());
+      recording.append(1000, TILE_ID, new TrafficSegments());
+    } finally {
+      recording.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFile() throws IOException {
+    File file = folder.newFile();
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.writeInt(42);
+    randomAccessFile.close();
+
+    TrafficRecording.open(file);
+  }
+
+  private static void assertSegments(TrafficSegments expected, TrafficSegments actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getPointCount(), actual.getPointCount());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getRoadClass(i), actual.getRoadClass(i));
+      assertEquals(expected.getCongestion(i), actual.getCongestion(i));
+      assertEquals(expected.getPointCount(i), actual.getPointCount(i));
+    }
+    for (int i = 0; i < expected.getPointCount(); i++) {
+      assertEquals(expected.getLongitude(i), actual.getLongitude(i), TrafficSegmentStore.PRECISION);
+      assertEquals(expected.getLatitude(i), actual.getLatitude(i), TrafficSegmentStore.PRECISION);
+    }
+  }
+
+  private static TrafficSegments withCongestion(TrafficSegments segments, int congestion) {
+    TrafficSegments copy = new TrafficSegments();
+    copy(segments, copy, congestion);
+    return copy;
+  }
+
+  private static void copy(TrafficSegments source, TrafficSegments target, int congestion) {
+    for (int i = 0; i < source.size(); i++) {
+      target.add(source.getRoadClass(i), congestion >= 0 ? congestion : source.getCongestion(i),
+        source.getCoordinates(), source.getPointOffset(i) * 2, source.getPointCount(i));
+    }
+  }
+
+  private static TrafficSegments decodeFixture(long seed, long tileId) throws IOException {
+    byte[] tile = TrafficTileEncoder.createFixture(seed, 100, 5);
+    TrafficSegments segments = new TrafficSegments();
+    new TrafficTileDecoder().decode(tile, 0, tile.length, tileId, segments);
+    return segments;
+  }
+}
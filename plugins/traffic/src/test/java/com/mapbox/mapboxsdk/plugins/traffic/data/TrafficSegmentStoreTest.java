@@ -0,0 +1,169 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrafficSegmentStoreTest {
+
+  private static final long TILE_ID = TileIds.pack(14, 8192, 8191);
+  private static final long OTHER_TILE_ID = TileIds.pack(14, 8200, 8191);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    TrafficSegmentStore store = TrafficSegmentStore.open(folder.newFile());
+    store.put(TILE_ID, 1000, segments);
+
+    TrafficSegments read = new TrafficSegments();
+    assertEquals(segments.size(), store.read(TILE_ID, 0, read));
+    assertEquals(segments.getPointCount(), read.getPointCount());
+    for (int i = 0; i < segments.size(); i++) {
+      assertEquals(segments.getRoadClass(i), read.getRoadClass(i));
+      assertEquals(segments.getCongestion(i), read.getCongestion(i));
+      assertEquals(segments.getPointCount(i), read.getPointCount(i));
+    }
+    for (int i = 0; i < segments.getPointCount(); i++) {
+      assertEquals(segments.getLongitude(i), read.getLongitude(i), TrafficSegmentStore.PRECISION);
+      assertEquals(segments.getLatitude(i), read.getLatitude(i), TrafficSegmentStore.PRECISION);
+    }
+    store.close();
+  }
+
+  @Test
+  public void testExpiry() throws IOException {
+    TrafficSegmentStore store = TrafficSegmentStore.open(folder.newFile());
+    store.put(TILE_ID, 1000, decodeFixture(7, TILE_ID));
+
+    assertTrue(store.contains(TILE_ID, 999));
+    assertFalse(store.contains(TILE_ID, 1000));
+    assertFalse(store.query(TILE_ID, 1000).moveToNext());
+    assertEquals(0, store.read(TILE_ID, 1000, new TrafficSegments()));
+
+    assertEquals(1, store.removeExpired(1000));
+    assertEquals(0, store.getTileCount());
+    store.close();
+  }
+
+  @Test
+  public void testPutSupersedesTile() throws IOException {
+    TrafficSegmentStore store = TrafficSegmentStore.open(folder.newFile());
+    store.put(TILE_ID, 1000, decodeFixture(7, TILE_ID));
+    TrafficSegments refreshed = new TrafficSegments();
+    refreshed.add(TrafficCodes.CLASS_MOTORWAY, TrafficCodes.CONGESTION_SEVERE, new double[] {0, 0, 0.01, 0.01}, 0, 2);
+    store.put(TILE_ID, 2000, refreshed);
+
+    TrafficSegmentStore.Cursor cursor = store.query(TILE_ID, 1500);
+    assertTrue(cursor.moveToNext());
+    assertEquals(TILE_ID, cursor.getTileId());
+    assertEquals(TrafficCodes.CONGESTION_SEVERE, cursor.getCongestion());
+    assertEquals(0.01, cursor.getLatitude(1), TrafficSegmentStore.PRECISION);
+    assertFalse(cursor.moveToNext());
+    store.close();
+  }
+
+  @Test
+  public void testBoundingBoxQuery() throws IOException {
+    TrafficSegmentStore store = TrafficSegmentStore.open(folder.newFile());
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    store.put(TILE_ID, 1000, segments);
+    store.put(OTHER_TILE_ID, 1000, decodeFixture(8, OTHER_TILE_ID));
+
+    // the western half of the first tile
+    double west = TileIds.toLongitude(14, 8192);
+    double east = TileIds.toLongitude(14, 8192.5);
+    double south = TileIds.toLatitude(14, 8192);
+    double north = TileIds.toLatitude(14, 8191);
+    int expected = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      for (int point = segments.getPointOffset(i); point < segments.getPointOffset(i) + segments.getPointCount(i);
+           point++) {
+        if (segments.getLongitude(point) <= east - TrafficSegmentStore.PRECISION) {
+          expected++;
+          break;
+        }
+      }
+    }
+
+    int count = 0;
+    TrafficSegmentStore.Cursor cursor = store.query(west, south, east, north, 0);
+    while (cursor.moveToNext()) {
+      assertEquals(TILE_ID, cursor.getTileId());
+      count++;
+    }
+    assertTrue(expected > 0);
+    assertEquals(expected, count);
+    store.close();
+  }
+
+  @Test
+  public void testReopenAndCompact() throws IOException {
+    File file = folder.newFile();
+    TrafficSegmentStore store = TrafficSegmentStore.open(file);
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    store.put(TILE_ID, 1000, segments);
+    store.put(TILE_ID, 3000, segments);
+    store.put(OTHER_TILE_ID, 2000, decodeFixture(8, OTHER_TILE_ID));
+    long size = store.getFileSize();
+    store.close();
+
+    store = TrafficSegmentStore.open(file);
+    assertEquals(2, store.getTileCount());
+    assertEquals(size, store.getFileSize());
+
+    store.compact(2500);
+    assertEquals(1, store.getTileCount());
+    assertTrue(store.getFileSize() < size / 2);
+    assertEquals(segments.size(), store.read(TILE_ID, 2500, new TrafficSegments()));
+    store.close();
+  }
+
+  @Test
+  public void testTruncatedBlockIsDiscarded() throws IOException {
+    File file = folder.newFile();
+    TrafficSegmentStore store = TrafficSegmentStore.open(file);
+    TrafficSegments segments = decodeFixture(7, TILE_ID);
+    store.put(TILE_ID, 1000, segments);
+    long size = store.getFileSize();
+    store.put(OTHER_TILE_ID, 1000, decodeFixture(8, OTHER_TILE_ID));
+    store.close();
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.setLength(randomAccessFile.length() - 3);
+    randomAccessFile.close();
+
+    store = TrafficSegmentStore.open(file);
+    assertEquals(1, store.getTileCount());
+    assertEquals(size, store.getFileSize());
+    assertEquals(segments.size(), store.read(TILE_ID, 0, new TrafficSegments()));
+    store.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFile() throws IOException {
+    File file = folder.newFile();
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.writeInt(42);
+    randomAccessFile.close();
+
+    TrafficSegmentStore.open(file);
+  }
+
+  private static TrafficSegments decodeFixture(long seed, long tileId) throws IOException {
+    byte[] tile = TrafficTileEncoder.createFixture(seed, 100, 5);
+    TrafficSegments segments = new TrafficSegments();
+    new TrafficTileDecoder().decode(tile, 0, tile.length, tileId, segments);
+    return segments;
+  }
+}
@@ -0,0 +1,113 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrafficTileDecoderTest {
+
+  private static final long TILE_ID = TileIds.pack(14, 8192, 8191);
+
+  @Test
+  public void testDecodeLines() throws IOException {
+    byte[] tile = new TrafficTileEncoder()
+      .addLines("motorway", "heavy", new int[] {0, 4096, 4096, 4096, 4096, 0})
+      .addLines("street", "low", new int[] {0, 0, 10, 10}, new int[] {20, 20, 30, 30})
+      .encode();
+
+    TrafficSegments segments = new TrafficSegments();
+    int decoded = new TrafficTileDecoder().decode(tile, 0, tile.length, TILE_ID, segments);
+
+    assertEquals(2, decoded);
+    assertEquals(3, segments.size());
+    assertEquals(TrafficCodes.CLASS_MOTORWAY, segments.getRoadClass(0));
+    assertEquals(TrafficCodes.CONGESTION_HEAVY, segments.getCongestion(0));
+    assertEquals(3, segments.getPointCount(0));
+    assertEquals(TrafficCodes.CLASS_STREET, segments.getRoadClass(2));
+    assertEquals(TrafficCodes.CONGESTION_LOW, segments.getCongestion(2));
+
+    // the tile spans from the prime meridian and equator to the north east
+    double tileSize = 360.0 / (1 << 14);
+    assertEquals(0, segments.getLongitude(0), 1e-9);
+    assertEquals(0, segments.getLatitude(0), 1e-9);
+    assertEquals(tileSize, segments.getLongitude(1), 1e-9);
+    assertEquals(tileSize, segments.getLatitude(2), 1e-6);
+  }
+
+  @Test
+  public void testFilter() throws IOException {
+    byte[] tile = TrafficTileEncoder.createFixture(42, 500, 5);
+    TrafficTileDecoder decoder = new TrafficTileDecoder();
+    TrafficSegments all = new TrafficSegments();
+    decoder.decode(tile, 0, tile.length, TILE_ID, all);
+
+    int expected = 0;
+    for (int i = 0; i < all.size(); i++) {
+      if (all.getRoadClass(i) == TrafficCodes.CLASS_MOTORWAY && all.getCongestion(i) >= TrafficCodes.CONGESTION_HEAVY) {
+        expected++;
+      }
+    }
+
+    TrafficSegments filtered = new TrafficSegments();
+    decoder.setFilter(TrafficTileDecoder.mask(TrafficCodes.CLASS_MOTORWAY),
+      TrafficTileDecoder.mask(TrafficCodes.CONGESTION_HEAVY, TrafficCodes.CONGESTION_SEVERE));
+    int decoded = decoder.decode(tile, 0, tile.length, TILE_ID, filtered);
+
+    assertEquals(500, all.size());
+    assertEquals(expected, decoded);
+    assertEquals(expected, filtered.size());
+    assertEquals(500 - expected, decoder.getSkippedCount());
+  }
+
+  @Test
+  public void testSkipOtherLayersAndGeometries() throws IOException {
+    byte[] other = new TrafficTileEncoder("roads", 4096).addLines("motorway", "low", new int[] {0, 0, 1, 1}).encode();
+    byte[] traffic = new TrafficTileEncoder().addPoint(1, 1).addLines(null, null, new int[] {0, 0, 1, 1}).encode();
+    ByteArrayOutputStream tile = new ByteArrayOutputStream();
+    tile.write(other);
+    tile.write(traffic);
+
+    TrafficSegments segments = new TrafficSegments();
+    TrafficTileDecoder decoder = new TrafficTileDecoder();
+    decoder.decode(tile.toByteArray(), 0, tile.size(), TILE_ID, segments);
+
+    assertEquals(1, segments.size());
+    assertEquals(TrafficCodes.CLASS_OTHER, segments.getRoadClass(0));
+    assertEquals(TrafficCodes.CONGESTION_UNKNOWN, segments.getCongestion(0));
+    assertEquals(1, decoder.getSkippedCount());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedTile() throws IOException {
+    byte[] tile = TrafficTileEncoder.createFixture(7, 10, 3);
+    byte[] truncated = Arrays.copyOf(tile, tile.length / 2);
+    new TrafficTileDecoder().decode(truncated, 0, truncated.length, TILE_ID, new TrafficSegments());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingValue() throws IOException {
+    byte[] tile = new TrafficTileEncoder().addLines("street", "low", new int[] {0, 0, 1, 1})
+      .addTaggedLines(new int[] {0, 2}, new int[] {0, 0, 1, 1}).encode();
+    new TrafficTileDecoder().decode(tile, 0, tile.length, TILE_ID, new TrafficSegments());
+  }
+
+  @Test(expected = IOException.class)
+  public void testNegativeValue() throws IOException {
+    // a five byte varint keeping only its lower 32 bits, -1
+    byte[] tile = new TrafficTileEncoder().addLines("street", "low", new int[] {0, 0, 1, 1})
+      .addTaggedLines(new int[] {0, -1}, new int[] {0, 0, 1, 1}).encode();
+    new TrafficTileDecoder().decode(tile, 0, tile.length, TILE_ID, new TrafficSegments());
+  }
+
+  @Test
+  public void testTileIds() {
+    long tileId = TileIds.fromPosition(-77.03, 38.89, 14);
+    assertEquals(14, TileIds.getZoom(tileId));
+    assertEquals(4686, TileIds.getX(tileId));
+    assertEquals(6268, TileIds.getY(tileId));
+  }
+}
@@ -0,0 +1,209 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Minimal Mapbox Vector Tile encoder producing traffic fixture tiles.
+ * <p>
+ * Features are encoded before the keys and values of the layer, like most tile encoders do.
+ * </p>
+ */
+public final class TrafficTileEncoder {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String[] ROAD_CLASSES = new String[] {
+    "motorway", "motorway_link", "trunk", "primary", "secondary", "tertiary", "street", "service"
+  };
+  private static final String[] CONGESTIONS = new String[] {"low", "moderate", "heavy", "severe"};
+
+  private final String layerName;
+  private final int extent;
+  private final List<String> values = new ArrayList<>();
+  private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+
+  public TrafficTileEncoder() {
+    this("traffic", 4096);
+  }
+
+  public TrafficTileEncoder(String layerName, int extent) {
+    this.layerName = layerName;
+    this.extent = extent;
+  }
+
+  /**
+   * Creates a tile with random traffic lines.
+   *
+   * @param seed         the seed of the random generator
+   * @param featureCount the number of features
+   * @param pointCount   the number of positions per line
+   * @return the encoded tile
+   */
+  public static byte[] createFixture(long seed, int featureCount, int pointCount) {
+    Random random = new Random(seed);
+    TrafficTileEncoder encoder = new TrafficTileEncoder();
+    for (int i = 0; i < featureCount; i++) {
+      int[] coordinates = new int[pointCount * 2];
+      int x = random.nextInt(4096);
+      int y = random.nextInt(4096);
+      for (int j = 0; j < pointCount; j++) {
+        x = Math.max(0, Math.min(4095, x + random.nextInt(129) - 64));
+        y = Math.max(0, Math.min(4095, y + random.nextInt(129) - 64));
+        coordinates[j * 2] = x;
+        coordinates[j * 2 + 1] = y;
+      }
+      encoder.addLines(ROAD_CLASSES[random.nextInt(ROAD_CLASSES.length)],
+        CONGESTIONS[random.nextInt(CONGESTIONS.length)], coordinates);
+    }
+    return encoder.encode();
+  }
+
+  /**
+   * Adds a line feature.
+   *
+   * @param roadClass  the class attribute, null to omit it
+   * @param congestion the congestion attribute, null to omit it
+   * @param lines      the lines of the feature, interleaved x and y tile coordinates
+   * @return this encoder
+   */
+  public TrafficTileEncoder addLines(String roadClass, String congestion, int[]... lines) {
+    addFeature(2, encodeTags(roadClass, congestion), encodeLines(lines));
+    return this;
+  }
+
+  /**
+   * Adds a line feature with raw tags, to encode references to keys or values the layer doesn't have.
+   *
+   * @param tags  the interleaved key and value indices
+   * @param lines the lines of the feature, interleaved x and y tile coordinates
+   * @return this encoder
+   */
+  public TrafficTileEncoder addTaggedLines(int[] tags, int[]... lines) {
+    ByteArrayOutputStream encodedTags = new ByteArrayOutputStream();
+    for (int tag : tags) {
+      writeVarint(encodedTags, tag);
+    }
+    addFeature(2, encodedTags.toByteArray(), encodeLines(lines));
+    return this;
+  }
+
+  private static byte[] encodeLines(int[]... lines) {
+    ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+    int x = 0;
+    int y = 0;
+    for (int[] line : lines) {
+      writeVarint(geometry, command(1, 1));
+      writeVarint(geometry, zigZag(line[0] - x));
+      writeVarint(geometry, zigZag(line[1] - y));
+      x = line[0];
+      y = line[1];
+      writeVarint(geometry, command(2, line.length / 2 - 1));
+      for (int i = 2; i < line.length; i += 2) {
+        writeVarint(geometry, zigZag(line[i] - x));
+        writeVarint(geometry, zigZag(line[i + 1] - y));
+        x = line[i];
+        y = line[i + 1];
+      }
+    }
+    return geometry.toByteArray();
+  }
+
+  /**
+   * Adds a point feature, which the traffic decoder skips.
+   *
+   * @param x the x tile coordinate
+   * @param y the y tile coordinate
+   * @return this encoder
+   */
+  public TrafficTileEncoder addPoint(int x, int y) {
+    ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+    writeVarint(geometry, command(1, 1));
+    writeVarint(geometry, zigZag(x));
+    writeVarint(geometry, zigZag(y));
+    addFeature(1, encodeTags("street", "low"), geometry.toByteArray());
+    return this;
+  }
+
+  /**
+   * Encodes a tile with a single layer holding the added features.
+   *
+   * @return the encoded tile
+   */
+  public byte[] encode() {
+    ByteArrayOutputStream layer = new ByteArrayOutputStream();
+    writeVarint(layer, 15 << 3);
+    writeVarint(layer, 2);
+    writeBytes(layer, 1, layerName.getBytes(UTF_8));
+    byte[] encodedFeatures = features.toByteArray();
+    layer.write(encodedFeatures, 0, encodedFeatures.length);
+    writeBytes(layer, 3, "class".getBytes(UTF_8));
+    writeBytes(layer, 3, "congestion".getBytes(UTF_8));
+    for (String value : values) {
+      ByteArrayOutputStream encodedValue = new ByteArrayOutputStream();
+      writeBytes(encodedValue, 1, value.getBytes(UTF_8));
+      writeBytes(layer, 4, encodedValue.toByteArray());
+    }
+    writeVarint(layer, 5 << 3);
+    writeVarint(layer, extent);
+
+    ByteArrayOutputStream tile = new ByteArrayOutputStream();
+    writeBytes(tile, 3, layer.toByteArray());
+    return tile.toByteArray();
+  }
+
+  private byte[] encodeTags(String roadClass, String congestion) {
+    ByteArrayOutputStream tags = new ByteArrayOutputStream();
+    if (roadClass != null) {
+      writeVarint(tags, 0);
+      writeVarint(tags, valueIndex(roadClass));
+    }
+    if (congestion != null) {
+      writeVarint(tags, 1);
+      writeVarint(tags, valueIndex(congestion));
+    }
+    return tags.toByteArray();
+  }
+
+  private void addFeature(int type, byte[] tags, byte[] geometry) {
+    ByteArrayOutputStream feature = new ByteArrayOutputStream();
+    writeBytes(feature, 2, tags);
+    writeVarint(feature, 3 << 3);
+    writeVarint(feature, type);
+    writeBytes(feature, 4, geometry);
+    writeBytes(features, 2, feature.toByteArray());
+  }
+
+  private int valueIndex(String value) {
+    int index = values.indexOf(value);
+    if (index < 0) {
+      values.add(value);
+      index = values.size() - 1;
+    }
+    return index;
+  }
+
+  private static int command(int id, int count) {
+    return (id & 7) | (count << 3);
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static void writeBytes(ByteArrayOutputStream output, int field, byte[] bytes) {
+    writeVarint(output, field << 3 | 2);
+    writeVarint(output, bytes.length);
+    output.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream output, int value) {
+    while ((value & ~0x7f) != 0) {
+      output.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+}
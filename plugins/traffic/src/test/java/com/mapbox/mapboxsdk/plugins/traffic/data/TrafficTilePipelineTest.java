@@ -0,0 +1,168 @@
+package com.mapbox.mapboxsdk.plugins.traffic.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TrafficTilePipelineTest {
+
+  private static final int TILE_COUNT = 32;
+
+  private ExecutorService executor;
+  private long[] tileIds;
+  private byte[][] tiles;
+
+  @Before
+  public void setUp() {
+    executor = TrafficTilePipeline.newExecutor(4);
+    tileIds = new long[TILE_COUNT];
+    tiles = new byte[TILE_COUNT][];
+    for (int i = 0; i < TILE_COUNT; i++) {
+      tileIds[i] = TileIds.pack(14, 4686 + i, 6268);
+      tiles[i] = TrafficTileEncoder.createFixture(i, 50, 4);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testMatchesSequentialDecode() throws Exception {
+    CongestionAggregator expected = new CongestionAggregator();
+    TrafficTileDecoder decoder = new TrafficTileDecoder();
+    TrafficSegments segments = new TrafficSegments();
+    for (int i = 0; i < TILE_COUNT; i++) {
+      segments.clear();
+      decoder.decode(tiles[i], 0, tiles[i].length, tileIds[i], segments);
+      TrafficTilePipeline.congestionProcessor().process(tileIds[i], segments, expected);
+    }
+
+    CongestionSummary summary = new TrafficTilePipeline(executor, 4)
+      .run(tileIds, new ArrayLoader(), TrafficTilePipeline.congestionProcessor())
+      .getSummary();
+
+    assertEquals(TILE_COUNT * 50, summary.getSegmentCount());
+    CongestionSummary expectedSummary = expected.getSummary();
+    for (int congestion = 0; congestion < TrafficCodes.CONGESTION_COUNT; congestion++) {
+      assertEquals(expectedSummary.getSegmentCount(congestion), summary.getSegmentCount(congestion));
+      assertEquals(expectedSummary.getLength(congestion), summary.getLength(congestion), 1e-6);
+    }
+  }
+
+  @Test
+  public void testResidentTilesAreBounded() throws Exception {
+    final AtomicInteger resident = new AtomicInteger();
+    final AtomicInteger maxResident = new AtomicInteger();
+    TrafficTilePipeline.TileLoader loader = new ArrayLoader() {
+      @Override
+      public byte[] load(long tileId) {
+        int count = resident.incrementAndGet();
+        int max = maxResident.get();
+        while (count > max && !maxResident.compareAndSet(max, count)) {
+          max = maxResident.get();
+        }
+        Thread.yield();
+        return super.load(tileId);
+      }
+    };
+    TrafficTilePipeline.TileProcessor<AtomicInteger> processor = new CountingProcessor() {
+      @Override
+      public void process(long tileId, TrafficSegments segments, AtomicInteger result) {
+        super.process(tileId, segments, result);
+        resident.decrementAndGet();
+      }
+    };
+
+    AtomicInteger tileCount = new TrafficTilePipeline(executor, 2).run(tileIds, loader, processor);
+
+    assertEquals(TILE_COUNT, tileCount.get());
+    assertTrue(maxResident.get() <= 2);
+  }
+
+  @Test
+  public void testMissingTilesAreSkipped() throws Exception {
+    TrafficTilePipeline.TileLoader loader = new ArrayLoader() {
+      @Override
+      public byte[] load(long tileId) {
+        return TileIds.getX(tileId) % 2 == 0 ? super.load(tileId) : null;
+      }
+    };
+
+    AtomicInteger tileCount = new TrafficTilePipeline(executor, 4).run(tileIds, loader, new CountingProcessor());
+
+    assertEquals(TILE_COUNT / 2, tileCount.get());
+  }
+
+  @Test
+  public void testFilter() throws Exception {
+    TrafficTilePipeline pipeline = new TrafficTilePipeline(executor, 4);
+    pipeline.setFilter(TrafficTileDecoder.mask(TrafficCodes.CLASS_MOTORWAY), TrafficTileDecoder.ALL);
+
+    CongestionSummary summary = pipeline.run(tileIds, new ArrayLoader(), TrafficTilePipeline.congestionProcessor())
+      .getSummary();
+
+    assertTrue(summary.getSegmentCount() > 0);
+    for (int congestion = 0; congestion < TrafficCodes.CONGESTION_COUNT; congestion++) {
+      assertEquals(summary.getSegmentCount(congestion),
+        summary.getSegmentCount(TrafficCodes.CLASS_MOTORWAY, congestion));
+    }
+  }
+
+  @Test
+  public void testFailureIsRethrown() throws Exception {
+    TrafficTilePipeline.TileLoader loader = new TrafficTilePipeline.TileLoader() {
+      @Override
+      public byte[] load(long tileId) throws IOException {
+        throw new IOException("Tile " + TileIds.getX(tileId) + " not available");
+      }
+    };
+
+    try {
+      new TrafficTilePipeline(executor, 4).run(tileIds, loader, new CountingProcessor());
+      fail("Expected an IOException");
+    } catch (IOException exception) {
+      assertTrue(exception.getMessage().startsWith("Tile"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidResidentTiles() {
+    new TrafficTilePipeline(executor, 0);
+  }
+
+  private class ArrayLoader implements TrafficTilePipeline.TileLoader {
+
+    @Override
+    public byte[] load(long tileId) {
+      return tiles[TileIds.getX(tileId) - 4686];
+    }
+  }
+
+  private static class CountingProcessor implements TrafficTilePipeline.TileProcessor<AtomicInteger> {
+
+    @Override
+    public AtomicInteger createResult() {
+      return new AtomicInteger();
+    }
+
+    @Override
+    public void process(long tileId, TrafficSegments segments, AtomicInteger result) {
+      result.incrementAndGet();
+    }
+
+    @Override
+    public void merge(AtomicInteger target, AtomicInteger source) {
+      target.addAndGet(source.get());
+    }
+  }
+}